@@ -0,0 +1,29 @@
+package checkersPackage;
+
+import jdk.jfr.*;
+
+// A Java Flight Recorder event for each turn chosen by a SearchEngine, from the start of its search
+// to the chosen turn. Like the other Checkers events (PaintBoardEvent, MouseHandlerEvent), it is
+// disabled by default, so that until a recording enables it the only cost is a check of a flag;
+// checkers.jfc (in the project directory) enables all of them.
+@Name("checkers.AiTurn")
+@Label("AI Turn")
+@Category("Checkers")
+@Description("A turn chosen by the computer: the search's depth and nodes, and the turn played")
+@Enabled(false)
+public class AiTurnEvent extends Event {
+	@Label("Player")
+	public String player;
+
+	@Label("Difficulty")
+	public String difficulty;
+
+	@Label("Depth")
+	public int depth;
+
+	@Label("Nodes")
+	public long nodes;
+
+	@Label("Turn")
+	public String turn;
+}
@@ -0,0 +1,171 @@
+package checkersPackage;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+import javax.swing.*;
+
+// Measures how responsive the board stays while the computer takes its turn, in the two ways the
+// game has done it: searching on the event dispatch thread and then showing the result at once (as
+// CheckersBoardComponent used to), and searching on a background thread and then animating the
+// turn with a MoveAnimation (as it does now). During each, a probe thread posts an event to the
+// event dispatch thread every few milliseconds, and the delay until the event is handled (the
+// latency any mouse event would see) is recorded. For the animations it also reports the frame
+// pacing, the time to paint each frame, and the share of the board each frame repaints.
+//
+// The board is painted into an image, so the benchmark runs without a display.
+//
+// Arguments (optional): number of the computer's turns to play (default 20), search depth
+// (default 8).
+public class AnimationBenchmark {
+	private static final int SQUARE_LENGTH = CheckersBoard.DEFAULT_SQUARE_LENGTH;
+	private static final int PROBE_MILLIS = 5;
+
+	private static CheckersBoard board;
+	private static MoveAnimation animation;
+	private static BufferedImage screen = new BufferedImage(8 * SQUARE_LENGTH, 8 * SQUARE_LENGTH, BufferedImage.TYPE_INT_RGB);
+	private static long paintedPixels;
+	private static long paintNanos;
+	private static int paints;
+
+	// A component that paints the board synchronously, into the image, whenever it is repainted
+	@SuppressWarnings("serial")
+	private static final JComponent CANVAS = new JComponent() {
+		public void repaint(long time, int x, int y, int width, int height) {
+			long start = System.nanoTime();
+			Graphics2D g2 = screen.createGraphics();
+			g2.setClip(x, y, width, height);
+			board.paintBoard(g2);
+			if (null != animation) {
+				animation.paint(g2);
+			}
+			g2.dispose();
+			paintNanos += System.nanoTime() - start;
+			paintedPixels += (long) width * height;
+			paints++;
+		}
+	};
+
+	public static void main(String[] args) throws Exception {
+		int turns = (args.length > 0) ? Integer.parseInt(args[0]) : 20;
+		int depth = (args.length > 1) ? Integer.parseInt(args[1]) : 8;
+		final SearchEngine engine = new SearchEngine(null, depth);
+		for (String position : CheckersPosition.SAMPLES) {
+			new CheckersSearch(CheckersPosition.parse(position)).search(SearchLimits.depth(depth - 1), null);
+		}
+
+		for (final boolean blocking : new boolean[] { true, false }) {
+			board = new CheckersBoard();
+			board.setEngine(engine);
+			final List<Long> latencies = Collections.synchronizedList(new ArrayList<Long>());
+			final List<Long> frameIntervals = new ArrayList<Long>();
+			paintedPixels = 0;
+			paintNanos = 0;
+			paints = 0;
+			Thread probe = startProbe(latencies);
+			ExecutorService searcher = Executors.newSingleThreadExecutor();
+			int played = 0;
+			long start = System.nanoTime();
+			for (; played < turns; played++) {
+				// The user's turn (played instantly, by the same engine)
+				final ArrayList<CheckersMove> userMoves = engine.chooseMove(CheckersPosition.of(board, Player.BLACK), null);
+				if (null == userMoves) {
+					break;
+				}
+				SwingUtilities.invokeAndWait(new Runnable() {
+					public void run() {
+						board.playMoveSequence(userMoves, Player.BLACK);
+					}
+				});
+
+				// The computer's turn
+				if (!board.areAnyMovesPossible(Player.RED)) {
+					break;
+				}
+				if (blocking) {
+					SwingUtilities.invokeAndWait(new Runnable() {
+						public void run() {
+							board.makeAIMove(Player.RED);
+							CANVAS.repaint(0, 0, 0, screen.getWidth(), screen.getHeight());
+						}
+					});
+				} else {
+					final CheckersPosition position = CheckersPosition.of(board, Player.RED);
+					final ArrayList<CheckersMove> moves = searcher.submit(new Callable<ArrayList<CheckersMove>>() {
+						public ArrayList<CheckersMove> call() {
+							return engine.chooseMove(position, null);
+						}
+					}).get();
+					final CountDownLatch finished = new CountDownLatch(1);
+					SwingUtilities.invokeAndWait(new Runnable() {
+						public void run() {
+							board.playMoveSequence(moves, Player.RED);
+							animation = new MoveAnimation(CANVAS, board, moves);
+							animation.start(new Runnable() {
+								public void run() {
+									finished.countDown();
+								}
+							});
+						}
+					});
+					finished.await();
+					frameIntervals.addAll(animation.getFrameIntervals());
+					animation = null;
+				}
+			}
+			long millis = (System.nanoTime() - start) / 1000000;
+			probe.interrupt();
+			probe.join();
+			searcher.shutdown();
+
+			System.out.printf("%s: %d turns of the computer in %d ms%n",
+					blocking ? "Search on the event thread, no animation" : "Search in the background, animated", played, millis);
+			System.out.println("  event latency: " + describeLatencies(latencies));
+			if (!blocking) {
+				System.out.println("  frame pacing: " + MoveAnimation.describeFramePacing(frameIntervals));
+				System.out.printf("  %d repaints, %.3f ms each, %.1f%% of the board each%n", paints,
+						paintNanos / 1e6 / paints, 100.0 * paintedPixels / paints / (screen.getWidth() * screen.getHeight()));
+			}
+		}
+		System.exit(0);
+	}
+
+	// Starts a thread that posts an event to the event dispatch thread every PROBE_MILLIS, and
+	// records how long each one waited to be handled (in nanoseconds).
+	private static Thread startProbe(final List<Long> latencies) {
+		Thread probe = new Thread(new Runnable() {
+			public void run() {
+				while (!Thread.currentThread().isInterrupted()) {
+					final long posted = System.nanoTime();
+					final CountDownLatch handled = new CountDownLatch(1);
+					SwingUtilities.invokeLater(new Runnable() {
+						public void run() {
+							latencies.add(System.nanoTime() - posted);
+							handled.countDown();
+						}
+					});
+					try {
+						handled.await();
+						Thread.sleep(PROBE_MILLIS);
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+			}
+		});
+		probe.start();
+		return probe;
+	}
+
+	private static String describeLatencies(List<Long> latencies) {
+		long[] sorted = new long[latencies.size()];
+		for (int i = 0; i < sorted.length; i++) {
+			sorted[i] = latencies.get(i);
+		}
+		Arrays.sort(sorted);
+		return String.format("%d probes, median %.2f ms, p99 %.2f ms, max %.1f ms", sorted.length,
+				sorted[sorted.length / 2] / 1e6, sorted[(int) ((sorted.length - 1) * 0.99)] / 1e6, sorted[sorted.length - 1] / 1e6);
+	}
+}
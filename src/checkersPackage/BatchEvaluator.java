@@ -0,0 +1,7 @@
+package checkersPackage;
+
+// Scores a whole LeafBatch of positions at once.
+public interface BatchEvaluator {
+	// Fills in the score of every position in the batch.
+	void evaluate(LeafBatch batch);
+}
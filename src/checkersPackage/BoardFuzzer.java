@@ -0,0 +1,371 @@
+package checkersPackage;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+// Plays random legal games on CheckersBoards to check that the board's redundant state stays
+// consistent: the piece array, each piece's own position, the piece and king counters and the
+// bitboards. Each game mixes three kinds of actions:
+//   - playing a random legal turn, as the game does (playMoveSequence);
+//   - undoing the last two turns, as the Undo button does (undoSeriesOfMoves);
+//   - a probe, as the search does: a few random turns made with makeMove and undone with undoMove.
+// The state is checked after every single move and undo, and every undo must restore exactly the
+// state from before the turns it undoes.
+//
+// Games run on all cores until the time is up or a game fails. A failing game's actions are then
+// minimized (by removing as many as possible while it still fails) and printed, with the seed
+// that reproduces it. Replaying a failure: arguments "replay <seed>".
+//
+// Arguments (optional): seconds to run (default 10), threads (default: available processors),
+// first seed (default 1).
+public class BoardFuzzer {
+	public static final int MAX_TURNS = 150; // turns per game, not counting undone ones
+	public static final int MAX_PROBE_TURNS = 4;
+	private static final int UNDO_PERCENT = 10;
+	private static final int PROBE_PERCENT = 30;
+
+	// Runs actions on a board and checks its state after each of them
+	private static class Game {
+		private final CheckersBoard board = new CheckersBoard();
+		private Player turn = Player.BLACK;
+		private final List<String> statesBeforeTurns = new ArrayList<String>(); // for checking undos
+		private final List<String> actions = new ArrayList<String>(); // as played, for replaying
+		private int turns;
+		private int undos;
+		private int probes;
+
+		// Plays the given legal turn. Returns a description of the problem found, or null.
+		String play(ArrayList<CheckersMove> moves) {
+			String notation = CheckersMove.toNotation(moves);
+			actions.add("play " + notation);
+			statesBeforeTurns.add(describe(board, turn));
+			if (!board.playMoveSequence(moves, turn)) {
+				return "playMoveSequence rejected the legal turn " + notation;
+			}
+			turn = board.switchTurn(turn);
+			turns++;
+			return check(board, "after playing " + notation);
+		}
+
+		// Undoes the last two turns (the user's and the computer's), which must have been played.
+		String undo() {
+			if (Player.BLACK != turn || statesBeforeTurns.size() < 2) {
+				throw new IllegalStateException("Nothing to undo");
+			}
+			actions.add("undo");
+			if (!board.undoSeriesOfMoves()) {
+				return "undoSeriesOfMoves found nothing to undo";
+			}
+			statesBeforeTurns.remove(statesBeforeTurns.size() - 1);
+			String expected = statesBeforeTurns.remove(statesBeforeTurns.size() - 1);
+			undos++;
+			String problem = check(board, "after undoing two turns");
+			if (null == problem && !expected.equals(describe(board, turn))) {
+				problem = "undoing two turns left " + describe(board, turn) + " instead of " + expected;
+			}
+			return problem;
+		}
+
+		// Makes the legal turns with the given notations in turn (starting with the player to move),
+		// as the search does, and then undoes them. Without notations (null), makes up to the given
+		// number of random turns instead.
+		String probe(List<String> notations, Random random, int length) {
+			String before = describe(board, turn);
+			List<String> line = new ArrayList<String>();
+			List<ArrayList<CheckersMove>> made = new ArrayList<ArrayList<CheckersMove>>();
+			Player mover = turn;
+			for (int i = 0; i < length; i++) {
+				ArrayList<CheckersMove> moves;
+				if (null != notations) {
+					moves = findLegalTurn(notations.get(i), mover);
+				} else {
+					ArrayList<ArrayList<CheckersMove>> legal = board.returnListOfLegalMoveSequences(mover);
+					if (legal.isEmpty()) {
+						break;
+					}
+					moves = legal.get(random.nextInt(legal.size()));
+				}
+				line.add(CheckersMove.toNotation(moves));
+				for (CheckersMove move : moves) {
+					board.makeMove(move, mover, false);
+					String problem = check(board, "after making " + move + " in a probe");
+					if (null != problem) {
+						actions.add("probe " + String.join(" ", line));
+						return problem;
+					}
+				}
+				made.add(moves);
+				mover = board.switchTurn(mover);
+			}
+			actions.add("probe " + String.join(" ", line));
+			for (int i = made.size() - 1; i >= 0; i--) {
+				mover = board.switchTurn(mover);
+				ArrayList<CheckersMove> moves = made.get(i);
+				for (int j = moves.size() - 1; j >= 0; j--) {
+					board.undoMove(moves.get(j), mover);
+					String problem = check(board, "after undoing " + moves.get(j) + " in a probe");
+					if (null != problem) {
+						return problem;
+					}
+				}
+			}
+			probes++;
+			if (!before.equals(describe(board, turn))) {
+				return "the probe left " + describe(board, turn) + " instead of " + before;
+			}
+			return null;
+		}
+
+		// Runs an action written by play, undo or probe.
+		String run(String action) {
+			if (action.equals("undo")) {
+				return undo();
+			} else if (action.startsWith("play ")) {
+				return play(findLegalTurn(action.substring(5), turn));
+			} else {
+				List<String> notations = Arrays.asList(action.substring(6).split(" "));
+				return probe(notations, null, notations.size());
+			}
+		}
+
+		// Finds the legal turn of the given player with the given notation, among the turns the
+		// board generates (so that, like the search, the moves made are the board's own objects).
+		ArrayList<CheckersMove> findLegalTurn(String notation, Player player) {
+			for (ArrayList<CheckersMove> moves : board.returnListOfLegalMoveSequences(player)) {
+				if (CheckersMove.toNotation(moves).equals(notation)) {
+					return moves;
+				}
+			}
+			throw new IllegalStateException("Not a legal turn: " + notation);
+		}
+	}
+
+	// A game that failed
+	public static class Failure {
+		public final long seed;
+		public final List<String> actions;
+		public final String problem;
+
+		public Failure(long seed, List<String> actions, String problem) {
+			this.seed = seed;
+			this.actions = actions;
+			this.problem = problem;
+		}
+	}
+
+	// Plays a random game from the given seed, and returns its failure, or null if it passed. The
+	// counts of turns, undos and probes are added to the given array.
+	public static Failure playRandomGame(long seed, long[] counts) {
+		Random random = new Random(seed);
+		Game game = new Game();
+		String problem = check(game.board, "at the start");
+		while (null == problem && game.turns < MAX_TURNS) {
+			int roll = random.nextInt(100);
+			if (roll < UNDO_PERCENT && Player.BLACK == game.turn && game.statesBeforeTurns.size() >= 2) {
+				problem = game.undo();
+				continue;
+			}
+			ArrayList<ArrayList<CheckersMove>> legal = game.board.returnListOfLegalMoveSequences(game.turn);
+			if (legal.isEmpty()) {
+				break;
+			}
+			if (roll < UNDO_PERCENT + PROBE_PERCENT) {
+				problem = game.probe(null, random, 1 + random.nextInt(MAX_PROBE_TURNS));
+			} else {
+				problem = game.play(legal.get(random.nextInt(legal.size())));
+			}
+		}
+		counts[0] += game.turns;
+		counts[1] += game.undos;
+		counts[2] += game.probes;
+		return (null == problem) ? null : new Failure(seed, game.actions, problem);
+	}
+
+	// Replays the given actions on a new board, and returns the problem found, or null if they pass
+	// (or are not all legal, as happens to some of the candidates tried while minimizing).
+	public static String replay(List<String> actions) {
+		Game game = new Game();
+		try {
+			for (String action : actions) {
+				String problem = game.run(action);
+				if (null != problem) {
+					return problem;
+				}
+			}
+		} catch (IllegalStateException e) {
+			return null;
+		}
+		return null;
+	}
+
+	// Removes as many actions as possible while the replay still fails: first each undo together
+	// with the two turns it undoes, then (delta debugging) chunks of halving size, down to single
+	// actions, until no removal keeps the failure.
+	public static List<String> minimize(List<String> actions) {
+		List<String> current = new ArrayList<String>(actions);
+		for (int i = 2; i < current.size(); i++) {
+			if (current.get(i).equals("undo") && current.get(i - 1).startsWith("play ") && current.get(i - 2).startsWith("play ")) {
+				List<String> candidate = new ArrayList<String>(current.subList(0, i - 2));
+				candidate.addAll(current.subList(i + 1, current.size()));
+				if (null != replay(candidate)) {
+					current = candidate;
+					i = 1; // (an undo further on may now follow two turns)
+				}
+			}
+		}
+		int chunks = 2;
+		while (current.size() >= 2) {
+			int chunkSize = (current.size() + chunks - 1) / chunks;
+			boolean reduced = false;
+			for (int start = 0; start < current.size(); start += chunkSize) {
+				List<String> candidate = new ArrayList<String>(current.subList(0, start));
+				candidate.addAll(current.subList(Math.min(current.size(), start + chunkSize), current.size()));
+				if (null != replay(candidate)) {
+					current = candidate;
+					chunks = Math.max(chunks - 1, 2);
+					reduced = true;
+					break;
+				}
+			}
+			if (!reduced) {
+				if (chunkSize <= 1) {
+					break;
+				}
+				chunks = Math.min(chunks * 2, current.size());
+			}
+		}
+
+		// Shorten the remaining probes from the end
+		for (int i = 0; i < current.size(); i++) {
+			while (current.get(i).startsWith("probe ") && current.get(i).indexOf(' ', 6) > 0) {
+				List<String> candidate = new ArrayList<String>(current);
+				candidate.set(i, current.get(i).substring(0, current.get(i).lastIndexOf(' ')));
+				if (null == replay(candidate)) {
+					break;
+				}
+				current = candidate;
+			}
+		}
+		return current;
+	}
+
+	// Checks that the board's redundant state agrees with its piece array. Returns a description
+	// of the first disagreement found (prefixed with the given context), or null.
+	public static String check(CheckersBoard board, String context) {
+		int black = 0;
+		int red = 0;
+		int kings = 0;
+		int blackPieces = 0;
+		int redPieces = 0;
+		int blackKings = 0;
+		int redKings = 0;
+		for (int x = 0; x < board.getLength(); x++) {
+			for (int y = 0; y < board.getWidth(); y++) {
+				BoardSquare square = new BoardSquare(x, y);
+				CheckersPiece piece = board.getPieceAtPosition(square);
+				if (null == piece) {
+					continue;
+				}
+				int index = CheckersPosition.squareIndex(x, y);
+				if (index < 0) {
+					return context + ": a piece is on the light square " + square;
+				}
+				if (!square.equals(piece.getPosition())) {
+					return context + ": the piece on " + square + " thinks it is on " + piece.getPosition();
+				}
+				if (Player.BLACK == piece.getPlayer()) {
+					black |= 1 << index;
+					blackPieces++;
+					blackKings += piece.isKing() ? 1 : 0;
+				} else {
+					red |= 1 << index;
+					redPieces++;
+					redKings += piece.isKing() ? 1 : 0;
+				}
+				if (piece.isKing()) {
+					kings |= 1 << index;
+				}
+			}
+		}
+		if (blackPieces != board.blackPieces || redPieces != board.redPieces || blackKings != board.blackKings
+				|| redKings != board.redKings) {
+			return context + ": the counters say " + board.blackPieces + " black (" + board.blackKings + " kings) and "
+					+ board.redPieces + " red (" + board.redKings + " kings), but the board has " + blackPieces + " ("
+					+ blackKings + ") and " + redPieces + " (" + redKings + ")";
+		}
+		if (black != board.getBlackSquares() || red != board.getRedSquares() || kings != board.getKingSquares()) {
+			return context + ": the bitboards say " + CheckersPosition.of(board, Player.BLACK) + " but the board has "
+					+ new CheckersPosition(black, red, kings, Player.BLACK);
+		}
+		return null;
+	}
+
+	// Describes the board's whole state (position, counters and hash key), for comparing states.
+	private static String describe(CheckersBoard board, Player turn) {
+		CheckersPosition position = CheckersPosition.of(board, turn);
+		return position + " " + board.blackPieces + "/" + board.blackKings + " " + board.redPieces + "/" + board.redKings
+				+ " " + Long.toHexString(TranspositionTable.key(position.black, position.red, position.kings, turn));
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length > 1 && args[0].equals("replay")) {
+			Failure failure = playRandomGame(Long.parseLong(args[1]), new long[3]);
+			System.out.println((null == failure) ? "The game passes." : "The game fails: " + failure.problem);
+			if (null != failure) {
+				for (String action : minimize(failure.actions)) {
+					System.out.println("  " + action);
+				}
+			}
+			return;
+		}
+		long seconds = (args.length > 0) ? Long.parseLong(args[0]) : 10;
+		int threads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		long firstSeed = (args.length > 2) ? Long.parseLong(args[2]) : 1;
+
+		final AtomicLong nextSeed = new AtomicLong(firstSeed);
+		final AtomicLong games = new AtomicLong();
+		final AtomicLongArray counts = new AtomicLongArray(3);
+		final AtomicReference<Failure> firstFailure = new AtomicReference<Failure>();
+		final long deadline = System.nanoTime() + seconds * 1000000000L;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		long start = System.nanoTime();
+		for (int i = 0; i < threads; i++) {
+			executor.execute(new Runnable() {
+				public void run() {
+					long[] threadCounts = new long[3];
+					while (System.nanoTime() < deadline && null == firstFailure.get()) {
+						long seed = nextSeed.getAndIncrement();
+						Failure failure = playRandomGame(seed, threadCounts);
+						if (null != failure) {
+							firstFailure.compareAndSet(null, failure);
+						}
+						games.incrementAndGet();
+					}
+					for (int j = 0; j < threadCounts.length; j++) {
+						counts.addAndGet(j, threadCounts[j]);
+					}
+				}
+			});
+		}
+		executor.shutdown();
+		executor.awaitTermination(seconds + 60, TimeUnit.SECONDS);
+		double elapsed = (System.nanoTime() - start) / 1e9;
+
+		System.out.printf("%d games (%d turns, %d undos, %d probes) in %.1f s on %d thread(s): %.0f games/s, %.0f turns/s%n",
+				games.get(), counts.get(0), counts.get(1), counts.get(2), elapsed, threads, games.get() / elapsed,
+				counts.get(0) / elapsed);
+		Failure failure = firstFailure.get();
+		if (null == failure) {
+			System.out.println("No failures.");
+			return;
+		}
+		List<String> minimized = minimize(failure.actions);
+		System.out.println("FAILED (seed " + failure.seed + ", " + failure.actions.size() + " actions, minimized to "
+				+ minimized.size() + "): " + replay(minimized));
+		for (String action : minimized) {
+			System.out.println("  " + action);
+		}
+		System.exit(1);
+	}
+}
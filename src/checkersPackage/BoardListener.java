@@ -0,0 +1,11 @@
+package checkersPackage;
+
+// Receives every change to the pieces on a CheckersBoard as it happens, so that state derived from
+// the position (such as an NnueAccumulator) can be updated incrementally. Moving a piece, or
+// crowning it, is reported as a removal followed by an addition. Squares are numbered as in
+// CheckersPosition.
+public interface BoardListener {
+	void pieceAdded(int square, Player player, boolean isKing);
+
+	void pieceRemoved(int square, Player player, boolean isKing);
+}
@@ -27,4 +27,29 @@ public class BoardSquare {
 	public int hashCode() {
 		return 10 * x + y;
 	}
+	
+	// Returns the opposite square, as seen by the other player.
+	public BoardSquare mirror() {
+		return new BoardSquare(7 - x, 7 - y);
+	}
+	
+	// Returns the square in algebraic notation: files "a" through "h" from left to right, and
+	// ranks 1 through 8 from the bottom (Black's side) of the board to the top (Red's side).
+	@Override
+	public String toString() {
+		return "" + (char) ('a' + x) + (8 - y);
+	}
+	
+	// Parses a square written in algebraic notation (for example "c3").
+	public static BoardSquare parse(String notation) {
+		if (null == notation || notation.length() != 2) {
+			throw new IllegalArgumentException("Not a square: " + notation);
+		}
+		int x = notation.charAt(0) - 'a';
+		int y = 8 - (notation.charAt(1) - '0');
+		if (x < 0 || x > 7 || y < 0 || y > 7) {
+			throw new IllegalArgumentException("Not a square: " + notation);
+		}
+		return new BoardSquare(x, y);
+	}
 }
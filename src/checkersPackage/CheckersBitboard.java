@@ -0,0 +1,197 @@
+package checkersPackage;
+
+import java.util.*;
+
+// A lightweight, mutable position for code that must play very many moves very quickly (such as
+// the random playouts of MonteCarloEngine). Pieces are held in the same three bitboards as a
+// CheckersPosition, moves are generated from precomputed square tables, and a whole turn (a step,
+// or a chain of captures) is encoded in a single long, so that generating and playing moves
+// allocates nothing. The rules are exactly those of CheckersBoard: captures are mandatory, a chain
+// of captures must be completed, and a man that is crowned partway through a chain carries on
+// capturing as a king.
+//
+// An encoded turn holds, in its low 4 bits, the number of hops it makes, followed by the squares
+// it visits (5 bits each, starting with the square the piece starts on).
+public final class CheckersBitboard {
+	public static final int MAX_MOVES = 128; // more than the number of legal turns in any position
+	public static final int MAX_HOPS = 11; // longest chain of captures that fits in an encoded turn
+
+	// Square tables: for each square and direction, the neighbouring square and the square beyond
+	// it (-1 if off the board). Directions 0 and 1 lead up the board (Black's forward direction),
+	// and directions 2 and 3 lead down it (Red's).
+	static final int[][] STEP = new int[CheckersPosition.NUMBER_OF_SQUARES][4];
+	static final int[][] JUMP = new int[CheckersPosition.NUMBER_OF_SQUARES][4];
+	private static final int[] DIRECTION_X = { 1, -1, 1, -1 };
+	private static final int[] DIRECTION_Y = { -1, -1, 1, 1 };
+	private static final int BLACK_PROMOTION_ROW = 0x0000000F; // Black's men are crowned on the top row
+	private static final int RED_PROMOTION_ROW = 0xF0000000; // Red's men are crowned on the bottom row
+
+	static {
+		for (int square = 0; square < CheckersPosition.NUMBER_OF_SQUARES; square++) {
+			int x = CheckersPosition.squareX(square);
+			int y = CheckersPosition.squareY(square);
+			for (int direction = 0; direction < 4; direction++) {
+				STEP[square][direction] = CheckersPosition.squareIndex(x + DIRECTION_X[direction], y + DIRECTION_Y[direction]);
+				JUMP[square][direction] = CheckersPosition.squareIndex(x + 2 * DIRECTION_X[direction], y + 2 * DIRECTION_Y[direction]);
+			}
+		}
+	}
+
+	public int black; // squares holding a black piece
+	public int red; // squares holding a red piece
+	public int kings; // squares holding a king
+	public Player turn; // the player to move
+
+	public CheckersBitboard(CheckersPosition position) {
+		set(position);
+	}
+
+	// Sets this board to the given position.
+	public void set(CheckersPosition position) {
+		this.black = position.black;
+		this.red = position.red;
+		this.kings = position.kings;
+		this.turn = position.turn;
+	}
+
+	public CheckersPosition toPosition() {
+		return new CheckersPosition(black, red, kings, turn);
+	}
+
+	// Stores every legal turn for the player to move in "moves" (which must have room for
+	// MAX_MOVES), and returns how many there are.
+	public int generateMoves(long[] moves) {
+		int mover = (Player.BLACK == turn) ? black : red;
+		int opponent = (Player.BLACK == turn) ? red : black;
+		int empty = ~(black | red);
+
+		// Captures are mandatory, so look for them first
+		int count = 0;
+		for (int pieces = mover; 0 != pieces; pieces &= pieces - 1) {
+			int square = Integer.numberOfTrailingZeros(pieces);
+			count = addCaptures(square, 0 != (kings & (1 << square)), opponent, empty, (long) square << 4, 0, moves, count);
+		}
+		if (count > 0) {
+			return count;
+		}
+
+		for (int pieces = mover; 0 != pieces; pieces &= pieces - 1) {
+			int square = Integer.numberOfTrailingZeros(pieces);
+			boolean king = 0 != (kings & (1 << square));
+			for (int direction = firstDirection(king); direction <= lastDirection(king); direction++) {
+				int destination = STEP[square][direction];
+				if (destination >= 0 && 0 != (empty & (1 << destination))) {
+					moves[count++] = 1 | ((long) square << 4) | ((long) destination << 9);
+				}
+			}
+		}
+		return count;
+	}
+
+	// Helper method that extends a chain of captures (which has made "hops" hops so far and is now
+	// on "square") in every possible way, storing each complete chain in "moves". Returns the new
+	// number of moves.
+	private int addCaptures(int square, boolean king, int opponent, int empty, long path, int hops, long[] moves, int count) {
+		boolean extended = false;
+		if (hops < MAX_HOPS) {
+			for (int direction = firstDirection(king); direction <= lastDirection(king); direction++) {
+				int jumped = STEP[square][direction];
+				int destination = JUMP[square][direction];
+				if (destination < 0 || 0 == (opponent & (1 << jumped)) || 0 == (empty & (1 << destination))) {
+					continue;
+				}
+				extended = true;
+				boolean crowned = king || 0 != (promotionRow() & (1 << destination));
+				count = addCaptures(destination, crowned, opponent & ~(1 << jumped),
+						(empty | (1 << square) | (1 << jumped)) & ~(1 << destination),
+						path | ((long) destination << (4 + 5 * (hops + 1))), hops + 1, moves, count);
+			}
+		}
+		if (!extended && hops > 0) {
+			moves[count++] = path | hops;
+		}
+		return count;
+	}
+
+	// Plays an encoded turn for the player to move (which must be legal), and passes the turn.
+	public void play(long move) {
+		int hops = getHops(move);
+		int from = getSquare(move, 0);
+		int to = getSquare(move, hops);
+		boolean capture = isCapture(move);
+		int captured = 0;
+		boolean king = 0 != (kings & (1 << from));
+		for (int i = 1; i <= hops; i++) {
+			int square = getSquare(move, i);
+			if (capture) {
+				captured |= 1 << middle(getSquare(move, i - 1), square);
+			}
+			king |= 0 != (promotionRow() & (1 << square));
+		}
+
+		kings &= ~(captured | (1 << from));
+		if (king) {
+			kings |= 1 << to;
+		}
+		if (Player.BLACK == turn) {
+			black = (black & ~(1 << from)) | (1 << to);
+			red &= ~captured;
+			turn = Player.RED;
+		} else {
+			red = (red & ~(1 << from)) | (1 << to);
+			black &= ~captured;
+			turn = Player.BLACK;
+		}
+	}
+
+	// Returns the number of hops an encoded turn makes.
+	public static int getHops(long move) {
+		return (int) (move & 15);
+	}
+
+	// Returns the square an encoded turn visits after the given number of hops (0 for the start).
+	public static int getSquare(long move, int hop) {
+		return (int) (move >>> (4 + 5 * hop)) & 31;
+	}
+
+	// Returns whether an encoded turn is a capture (as opposed to a step).
+	public static boolean isCapture(long move) {
+		return Math.abs(getSquare(move, 1) - getSquare(move, 0)) > 5; // a jump moves two rows (at least 7 indices)
+	}
+
+	// Converts an encoded turn into the CheckersMove objects that CheckersBoard works with.
+	public static ArrayList<CheckersMove> toMoves(long move) {
+		ArrayList<CheckersMove> moves = new ArrayList<CheckersMove>();
+		for (int i = 1; i <= getHops(move); i++) {
+			int start = getSquare(move, i - 1);
+			int destination = getSquare(move, i);
+			moves.add(new CheckersMove(new BoardSquare(CheckersPosition.squareX(start), CheckersPosition.squareY(start)),
+					new BoardSquare(CheckersPosition.squareX(destination), CheckersPosition.squareY(destination))));
+		}
+		return moves;
+	}
+
+	// Returns the square between two squares that are a jump apart.
+	private static int middle(int from, int to) {
+		for (int direction = 0; direction < 4; direction++) {
+			if (JUMP[from][direction] == to) {
+				return STEP[from][direction];
+			}
+		}
+		throw new IllegalArgumentException("Squares " + from + " and " + to + " are not a jump apart");
+	}
+
+	// Returns the row on which the player to move's men are crowned.
+	private int promotionRow() {
+		return (Player.BLACK == turn) ? BLACK_PROMOTION_ROW : RED_PROMOTION_ROW;
+	}
+
+	// Returns the range of directions a piece of the player to move may move in.
+	private int firstDirection(boolean king) {
+		return (king || Player.BLACK == turn) ? 0 : 2;
+	}
+
+	private int lastDirection(boolean king) {
+		return (king || Player.RED == turn) ? 3 : 1;
+	}
+}
@@ -3,6 +3,7 @@ package checkersPackage;
 import java.awt.*;
 import java.awt.geom.Rectangle2D;
 import java.util.*;
+import java.util.List;
 
 // A class representing a checkers game board. Stores the state of the game, and provides
 // functions for game-play and for graphics (painting the board).
@@ -12,8 +13,20 @@ public class CheckersBoard {
 	private int width; // the board's height (number of squares)
 	private Point mouseLocation; // location of mouse in the panel
 	private CheckersPiece currentPiece; // the piece that the user is clicking on, if any
+	private CheckersPiece hiddenPiece; // a piece that is drawn elsewhere (by a MoveAnimation), if any
 	private CheckersPiece requiredPiece; // the piece that is required to move, if any
 	private ArrayList<ArrayList<CheckersMove>> lastMoves;
+	private CheckersEngine engine; // the engine that chooses the AI's moves, or null to use findBestMove
+	private int squareLength = DEFAULT_SQUARE_LENGTH; // side-length of each square when painted
+	
+	// The state of the built-in AI's search (see makeAIMove)
+	private Random searchSeeds = new Random(); // draws the seed of each search
+	private Random searchRandom = new Random(); // orders the moves of the current search
+	private long searchNodes; // positions visited by the current search
+	private int searchPly; // how many moves deep in the current search findBestMove is (0 at its root)
+	private SearchTrace.Search searchRecord; // records the current search's root moves, if not null
+	private PositionHistory searchHistory; // the positions of the game being searched (a copy), if known
+	private SearchTrace trace; // records every search of the AI (and of a SearchEngine set as the engine), if not null
 	
 	// Statistics on number of pieces
 	public int blackPieces; // number of black pieces on board
@@ -21,8 +34,15 @@ public class CheckersBoard {
 	public int blackKings; // number of black kings on board
 	public int redKings; // number of red kings on board
 	
+	// The same pieces as bitboards (see CheckersPosition), kept up to date by every change to the
+	// board, so that the position can be read without scanning the array
+	private int blackSquares;
+	private int redSquares;
+	private int kingSquares;
+	private BoardListener listener; // told about every piece added to or removed from the board, if not null
+	
 	// Graphics constants
-	private static final int SQUARE_LENGTH = 70;
+	public static final int DEFAULT_SQUARE_LENGTH = 70;
 	private static final Color LIGHT_SQUARE_COLOR = new Color(230, 177, 55);
 	private static final Color DARK_SQUARE_COLOR = new Color (120, 74, 43);
 	
@@ -87,6 +107,9 @@ public class CheckersBoard {
 				this.array[i][j] = null;
 			}
 		}
+		for (int pieces = blackSquares | redSquares; 0 != pieces; pieces &= pieces - 1) {
+			removeSquareBits(Integer.lowestOneBit(pieces));
+		}
 	}
 	
 	// Adds a piece in the given location of the given color.
@@ -94,30 +117,39 @@ public class CheckersBoard {
 		if (!insideBoard(position)) {
 			throw new IllegalArgumentException("Point was outside of the board");
 		}
+		int bit = squareBit(position.x, position.y);
+		removeSquareBits(bit);
+		addSquareBits(bit, player, false);
 		if (Player.RED == player) {
-			array[position.x][position.y] = new RedCheckersPiece(position, SQUARE_LENGTH, this);
+			array[position.x][position.y] = new RedCheckersPiece(position, this);
 		} else {
-			array[position.x][position.y] = new BlackCheckersPiece(position, SQUARE_LENGTH, this);
+			array[position.x][position.y] = new BlackCheckersPiece(position, this);
 		}
 	}
 	
 	// Paints the board, including the pieces in their correct locations.
 	public void paintBoard(Graphics2D g2) {
-		// Paint each square
+		PaintBoardEvent event = new PaintBoardEvent();
+		event.begin();
+		
+		// Paint each square (that is inside the area being repainted)
+		Rectangle clip = g2.getClipBounds();
 		for (int i = 0; i < length; i++) {
 			for (int j = 0; j < width; j++) {
+				if (null != clip && !clip.intersects(squareLength * i, squareLength * j, squareLength, squareLength)) {
+					continue;
+				}
 				if (i % 2 == j % 2) { // alternate square colors
 					g2.setPaint(LIGHT_SQUARE_COLOR);
 				} else {
 					g2.setPaint(DARK_SQUARE_COLOR);
 				}
-				Rectangle2D.Double square = new Rectangle2D.Double(SQUARE_LENGTH * i, SQUARE_LENGTH * j, SQUARE_LENGTH, SQUARE_LENGTH);
-				g2.fill(square);
+				g2.fillRect(squareLength * i, squareLength * j, squareLength, squareLength);
 				
 				CheckersPiece pieceAtIndex = array[i][j];
 				
-				// Paint piece at square, if one exists and is NOT being dragged around
-				if (null != pieceAtIndex && !pieceAtIndex.equals(currentPiece)) {
+				// Paint piece at square, if one exists and is NOT being dragged around or animated
+				if (null != pieceAtIndex && !pieceAtIndex.equals(currentPiece) && pieceAtIndex != hiddenPiece) {
 					g2.setPaint(pieceAtIndex.getColor());
 					pieceAtIndex.draw(g2);
 				}	
@@ -130,14 +162,14 @@ public class CheckersBoard {
 				g2.setPaint(Color.BLUE);
 				Stroke oldStroke = g2.getStroke();
 				g2.setStroke(new BasicStroke(2));
-				Rectangle2D.Double square1 = new Rectangle2D.Double(SQUARE_LENGTH * move.start.x,
-						                                            SQUARE_LENGTH * move.start.y,
-						                                            SQUARE_LENGTH,
-						                                            SQUARE_LENGTH);
-				Rectangle2D.Double square2 = new Rectangle2D.Double(SQUARE_LENGTH * move.destination.x,
-						                                            SQUARE_LENGTH * move.destination.y,
-						                                            SQUARE_LENGTH,
-						                                            SQUARE_LENGTH);
+				Rectangle2D.Double square1 = new Rectangle2D.Double(squareLength * move.start.x,
+						                                            squareLength * move.start.y,
+						                                            squareLength,
+						                                            squareLength);
+				Rectangle2D.Double square2 = new Rectangle2D.Double(squareLength * move.destination.x,
+						                                            squareLength * move.destination.y,
+						                                            squareLength,
+						                                            squareLength);
 				g2.draw(square1);
 				g2.draw(square2);
 				g2.setStroke(oldStroke);
@@ -151,15 +183,21 @@ public class CheckersBoard {
 		
 		// Print the number of pieces each player has currently
 		g2.setPaint(Color.BLACK);
-		g2.drawString("Black: " + blackPieces + " pieces (" + blackKings + " kings)", 250, SQUARE_LENGTH * width + 20);
+		g2.drawString("Black: " + blackPieces + " pieces (" + blackKings + " kings)", 250, squareLength * width + 20);
 		g2.setPaint(Color.RED);
-		g2.drawString("Red: " + redPieces + " pieces (" + redKings + " kings)", 250, SQUARE_LENGTH * width + 40);
+		g2.drawString("Red: " + redPieces + " pieces (" + redKings + " kings)", 250, squareLength * width + 40);
+		
+		if (event.shouldCommit()) {
+			event.pieces = blackPieces + redPieces;
+			event.dragging = (null != currentPiece);
+			event.commit();
+		}
 	}
 	
 	// Returns the piece that the mouse is pointing to.
-	public CheckersPiece find(Point p, int squareLength, Player turn) {
-		int xCoordinate = (int) p.getX() / (int) squareLength;
-		int yCoordinate = (int) p.getY() / (int) squareLength;
+	public CheckersPiece find(Point p, Player turn) {
+		int xCoordinate = (int) p.getX() / squareLength;
+		int yCoordinate = (int) p.getY() / squareLength;
 		
 		// check if the indices are within bounds, and if the user is clicking on a piece of the right color
 		if (insideBoard(new BoardSquare(xCoordinate, yCoordinate)) && 
@@ -215,19 +253,15 @@ public class CheckersBoard {
 	// Returns whether there are any moves possible for the given player.
 	public boolean areAnyMovesPossible(Player turn) {
 		
-		// Check all squares on the board
-		for (int i = 0; i < length; i++) {
-			for (int j = 0; j < width; j++) {
-				CheckersPiece piece = array[i][j];
-				
-				// Check if a piece of the right color exists at that square 
-				if (null != piece && turn == piece.getPlayer()) {
-					
-					// Determine if that piece can make any legal steps or captures
-					if (piece.getAllLegalCapturesForPiece().size() > 0 || piece.getAllLegalStepsForPiece().size() > 0) {
-						return true;
-					}
-				}
+		// Check every piece of the player (from the bitboards), and determine if it can make any
+		// legal steps or captures
+		int empty = ~(blackSquares | redSquares);
+		int opponent = (Player.BLACK == turn) ? redSquares : blackSquares;
+		for (int pieces = (Player.BLACK == turn) ? blackSquares : redSquares; 0 != pieces; pieces &= pieces - 1) {
+			int square = Integer.numberOfTrailingZeros(pieces);
+			int kind = CheckersPiece.kind(turn, 0 != (kingSquares & (1 << square)));
+			if (CheckersPiece.canStep(kind, square, empty) || CheckersPiece.canCapture(kind, square, opponent, empty)) {
+				return true;
 			}
 		}
 		return false;
@@ -236,15 +270,13 @@ public class CheckersBoard {
 	// Helper method that determines if the given player has any captures possible.
 	public boolean areAnyCapturesPossible(Player turn) {
 		
-		// For each checkers piece in the board that is of the same color, then check if that piece has any legal captures.
-		for (int i = 0; i < 8; i++) {
-			for (int j = 0; j < 8; j++) {
-				CheckersPiece piece = array[i][j];
-				if (null != piece && turn == piece.getPlayer()) {
-					if (0 != piece.getAllLegalCapturesForPiece().size()) {
-						return true;
-					}
-				}
+		// For each piece of the player (from the bitboards), check if that piece has any legal captures.
+		int empty = ~(blackSquares | redSquares);
+		int opponent = (Player.BLACK == turn) ? redSquares : blackSquares;
+		for (int pieces = (Player.BLACK == turn) ? blackSquares : redSquares; 0 != pieces; pieces &= pieces - 1) {
+			int square = Integer.numberOfTrailingZeros(pieces);
+			if (CheckersPiece.canCapture(CheckersPiece.kind(turn, 0 != (kingSquares & (1 << square))), square, opponent, empty)) {
+				return true;
 			}
 		}
 		return false;
@@ -253,9 +285,61 @@ public class CheckersBoard {
 	
 	// AI
 	
-	// Makes the "best" move for the given player, using a simple recursive AI.
-	public void makeAIMove(Player turn) {
+	// Makes the "best" move for the given player, using the engine if one has been set, or a simple
+	// recursive AI otherwise. Returns the moves that were made (more than one if the AI made a series
+	// of captures), or an empty list if the player has no moves. Throws an IllegalStateException if
+	// the engine chooses no turn, or an illegal one, although the player has moves.
+	public ArrayList<CheckersMove> makeAIMove(Player turn) {
+		return makeAIMove(turn, (PositionHistory) null);
+	}
+	
+	// Makes the "best" move for the given player, as above, in a game whose positions so far (up to
+	// and including the one on the board) are given, so that the AI can see repetitions of them: the
+	// engine is given the history, and findBestMove scores a step that repeats one as a draw.
+	public ArrayList<CheckersMove> makeAIMove(Player turn, PositionHistory history) {
+		ArrayList<CheckersMove> consolidatedMoves = new ArrayList<CheckersMove>();
+		if (!areAnyMovesPossible(turn)) {
+			return consolidatedMoves;
+		}
+		if (null != engine) {
+			ArrayList<CheckersMove> moves = engine.chooseMove(CheckersPosition.of(this, turn), history);
+			if (null == moves || !playMoveSequence(moves, turn)) {
+				// (The player has moves, so an empty list would wrongly say that the game is over)
+				throw new IllegalStateException("The engine " + engine.getClass().getName() + " chose "
+						+ ((null == moves || moves.isEmpty()) ? "no turn" : "the illegal turn " + CheckersMove.toNotation(moves))
+						+ " for " + turn + " in " + CheckersPosition.of(this, turn));
+			}
+			consolidatedMoves.addAll(moves);
+			return consolidatedMoves;
+		}
+		
+		SearchTrace.Search search = (null == trace) ? null : new SearchTrace.Search();
+		consolidatedMoves = makeAIMove(turn, searchSeeds.nextLong(), history, search);
+		if (null != search) {
+			trace.record(search);
+		}
+		return consolidatedMoves;
+	}
+	
+	// Makes the move that findBestMove deems best for the given player, ordering the moves it
+	// explores with a random source seeded with the given seed (so that the same position, seed and
+	// game history always give the same search, and the same turn). If "search" is not null, the
+	// search is recorded in it: the position, seed, history, root moves and their scores, nodes, time
+	// and turn played.
+	public ArrayList<CheckersMove> makeAIMove(Player turn, long seed, PositionHistory history, SearchTrace.Search search) {
 		ArrayList<CheckersMove> consolidatedMoves = new ArrayList<CheckersMove>();
+		searchHistory = (null == history) ? null : new PositionHistory(history);
+		if (null != search) {
+			search.position = CheckersPosition.of(this, turn);
+			search.seed = seed;
+			search.depth = NUMBER_OF_MOVES_TO_EXPLORE;
+			search.history = searchHistory;
+		}
+		searchRandom = new Random(seed);
+		searchNodes = 0;
+		searchPly = 0;
+		searchRecord = search;
+		long start = System.nanoTime();
 		
 		// Find what the AI deems to be the best move
 		CheckersMove move = findBestMove(turn, NUMBER_OF_MOVES_TO_EXPLORE, null);
@@ -272,11 +356,27 @@ public class CheckersBoard {
 				requiredPiece = null;
 			}
 		}
+		if (null != search) {
+			search.nanos = System.nanoTime() - start;
+			search.nodes = searchNodes;
+			search.turn = consolidatedMoves;
+		}
+		searchRecord = null;
+		searchHistory = null;
+		return consolidatedMoves;
+	}
+	
+	// The AI's piece values, read once from the engine's default evaluation weights (when first needed)
+	private static class AiWeights {
+		// A king's extra value over a man, in men: 0.8 by default
+		static final double KING_BONUS = (double) (EvaluationWeights.getDefault().king - EvaluationWeights.getDefault().man)
+				/ EvaluationWeights.getDefault().man;
 	}
 	
 	// A simple recursive AI for evaluating the best move in a position, given who it is to move, if it is the first 
 	// call to the method, and if any piece is required to continue capturing (the parameter "required")
 	public CheckersMove findBestMove(Player turn, int numberOfMovesToExplore, CheckersPiece required) {
+		searchNodes++;
 		
 		// Base case: if no more captures are possible (and this is not the first call to the method), stop analyzing, and then
 		// calculate the score for this combination
@@ -286,7 +386,7 @@ public class CheckersBoard {
 			// of pieces. A positive score means that Red is winning, and a negative score
 			// means that Black is winning. (The content of the move itself is irrelevant.)
 			CheckersMove irrelevantMove = new CheckersMove(new BoardSquare(0, 0), new BoardSquare(0, 0)); // doesn't matter if illegal, since this basically only stores the score
-			double score = (redPieces + (0.8 * redKings) - (blackPieces + (0.8 * blackKings)));
+			double score = (redPieces + (AiWeights.KING_BONUS * redKings) - (blackPieces + (AiWeights.KING_BONUS * blackKings)));
 			irrelevantMove.moveScore = score;
 			return irrelevantMove;
 		}
@@ -311,8 +411,8 @@ public class CheckersBoard {
 		}
 		
 		// Makes sure that computer does not always play the same move if there is more than one
-		// move with the best score
-		Collections.shuffle(moves);
+		// move with the best score (but always the same one for the same seed; see makeAIMove)
+		Collections.shuffle(moves, searchRandom);
 		
 		// Start running through all legal moves, and find the best move (i.e. the one resulting
 		// in the best score for the current player, even if the other player plays optimally)
@@ -336,11 +436,17 @@ public class CheckersBoard {
 			CheckersMove bestNextMove;
 			
 			// Recursive step: recursively find out the "score" of the current move being considered
-			if (move.isCapture && newRequiredPiece.areAnyCapturesPossibleForPiece()) { // we need to examine continued captures
+			// (but a first step that repeats a position of the game is a draw, with an even score)
+			searchPly++;
+			if (1 == searchPly && !move.isCapture && repeatsGamePosition(switchTurn(turn))) {
+				bestNextMove = new CheckersMove(new BoardSquare(0, 0), new BoardSquare(0, 0));
+				bestNextMove.moveScore = 0;
+			} else if (move.isCapture && newRequiredPiece.areAnyCapturesPossibleForPiece()) { // we need to examine continued captures
 				bestNextMove = findBestMove(turn, numberOfMovesToExplore, newRequiredPiece);
 			} else { // no continued captures available, so analyze options for other player now
 				bestNextMove = findBestMove(switchTurn(turn), numberOfMovesToExplore - 1, null);
 			}
+			searchPly--;
 			
 			// Grab the "score" of the position the best move would result in (assuming optimal opponent play)
 			double moveScore = 0;
@@ -349,6 +455,9 @@ public class CheckersBoard {
 			} else {
 				throw new IllegalStateException("null move!");
 			}
+			if (0 == searchPly && null != searchRecord) {
+				searchRecord.addRootMove(move, moveScore);
+			}
 			
 			// If this move yields a better result than any move examined previously, record it
 			if (Player.RED == turn) {
@@ -374,6 +483,18 @@ public class CheckersBoard {
 		return bestMove;
 	}
 	
+	// Returns whether the position on the board, with the given player to move, occurred before in
+	// the game being searched (see makeAIMove).
+	private boolean repeatsGamePosition(Player turn) {
+		if (null == searchHistory) {
+			return false;
+		}
+		searchHistory.push(CheckersPosition.of(this, turn));
+		boolean repetition = searchHistory.isRepetition();
+		searchHistory.pop();
+		return repetition;
+	}
+	
 	// Returns a list of legal captures for the given player.
 	public ArrayList<CheckersMove> returnListOfLegalCaptures(Player turn, CheckersPiece required) {
 		ArrayList<CheckersMove> captures = new ArrayList<CheckersMove>();
@@ -388,11 +509,8 @@ public class CheckersBoard {
 					// but otherwise all pieces may make captures
 					if (required == null || piece.equals(required)) {
 						
-						// Grab all legal captures for piece, and store them in the list
-						Set<BoardSquare> legalCapturesForPiece = piece.getAllLegalCapturesForPiece();
-						for (BoardSquare destination : legalCapturesForPiece) {
-							captures.add(new CheckersMove(piece.position, destination));
-						}
+						// Add all legal captures for piece to the list
+						piece.addLegalCaptures(captures);
 					}
 				}
 			}
@@ -402,7 +520,7 @@ public class CheckersBoard {
 	
 	// Returns whether any captures are possible for the given player.
 	public boolean areAnyCapturesPossible(Player turn, CheckersPiece required) {
-		return 0 < this.returnListOfLegalCaptures(turn, required).size();
+		return (null == required) ? areAnyCapturesPossible(turn) : (turn == required.getPlayer() && required.areAnyCapturesPossibleForPiece());
 	}
 	
 	// Note: only call this if no captures are available, since this method only considers moves (not jumps).
@@ -416,16 +534,101 @@ public class CheckersBoard {
 				// If there is a piece of the right player at the location, add all of its legal
 				// steps to the list
 				if (null != piece && piece.getPlayer() == turn) {
-					Set<BoardSquare> legalStepsForPiece = piece.getAllLegalStepsForPiece();
-					for (BoardSquare destination : legalStepsForPiece) {
-						steps.add(new CheckersMove(piece.position, destination));
-					}
+					piece.addLegalSteps(steps);
 				}
 			}
 		}
 		return steps;
 	}
 	
+	// Returns every legal turn for the given player: each turn is either a single step, or a
+	// capture followed by every further capture the capturing piece is required to make.
+	public ArrayList<ArrayList<CheckersMove>> returnListOfLegalMoveSequences(Player turn) {
+		ArrayList<ArrayList<CheckersMove>> sequences = new ArrayList<ArrayList<CheckersMove>>();
+		if (areAnyCapturesPossible(turn)) {
+			addCaptureSequences(turn, null, new ArrayList<CheckersMove>(), sequences);
+		} else {
+			for (CheckersMove step : returnListOfLegalSteps(turn)) {
+				ArrayList<CheckersMove> sequence = new ArrayList<CheckersMove>();
+				sequence.add(step);
+				sequences.add(sequence);
+			}
+		}
+		return sequences;
+	}
+	
+	// Helper method that extends the capture chain "prefix" by every legal capture (of the required
+	// piece, if any), adding each complete chain to "sequences".
+	private void addCaptureSequences(Player turn, CheckersPiece required, ArrayList<CheckersMove> prefix,
+			ArrayList<ArrayList<CheckersMove>> sequences) {
+		for (CheckersMove capture : returnListOfLegalCaptures(turn, required)) {
+			makeMove(capture, turn, false);
+			ArrayList<CheckersMove> sequence = new ArrayList<CheckersMove>(prefix);
+			sequence.add(capture);
+			CheckersPiece capturingPiece = array[capture.destination.x][capture.destination.y];
+			if (capturingPiece.areAnyCapturesPossibleForPiece()) {
+				addCaptureSequences(turn, capturingPiece, sequence, sequences);
+			} else {
+				sequences.add(sequence);
+			}
+			undoMove(capture, turn);
+		}
+	}
+	
+	// Plays a whole turn (a step, or a complete chain of captures) for the given player, as
+	// if the moves had been made one by one through the user interface. If any move is illegal, or
+	// if the chain of captures stops while further captures are still required, the board is left
+	// unchanged and false is returned.
+	public boolean playMoveSequence(List<CheckersMove> moves, Player turn) {
+		if (!isLegalMoveSequence(moves, turn)) {
+			return false;
+		}
+		for (int i = 0; i < moves.size(); i++) {
+			CheckersMove move = moves.get(i);
+			makeMove(move, turn, true);
+			requiredPiece = (i < moves.size() - 1) ? array[move.destination.x][move.destination.y] : null;
+		}
+		return true;
+	}
+	
+	// Determines if the given moves form one complete, legal turn for the given player.
+	public boolean isLegalMoveSequence(List<CheckersMove> moves, Player turn) {
+		if (null == moves || moves.isEmpty()) {
+			return false;
+		}
+		CheckersPiece oldRequiredPiece = requiredPiece;
+		int movesMade = 0;
+		boolean legal = true;
+		for (CheckersMove move : moves) {
+			if (!isLegalMove(move.start, move.destination, turn)) {
+				legal = false;
+				break;
+			}
+			makeMove(move, turn, false);
+			movesMade++;
+			
+			// After a step, or a capture that cannot be continued, the turn is over
+			CheckersPiece movedPiece = array[move.destination.x][move.destination.y];
+			if (move.isCapture && movedPiece.areAnyCapturesPossibleForPiece()) {
+				requiredPiece = movedPiece;
+			} else {
+				requiredPiece = null;
+				legal = (movesMade == moves.size());
+				break;
+			}
+		}
+		if (movesMade == moves.size() && null != requiredPiece) {
+			legal = false; // further captures were required
+		}
+		
+		// Restore the board
+		for (int i = movesMade - 1; i >= 0; i--) {
+			undoMove(moves.get(i), turn);
+		}
+		requiredPiece = oldRequiredPiece;
+		return legal;
+	}
+	
 	// Note: assumes move is legal!!!
 	public void makeMove(CheckersMove move, Player turn, boolean isActualMove) {
 		if (null == move) {
@@ -464,21 +667,25 @@ public class CheckersBoard {
 				}
 			}
 			array[(x1 + x2) / 2][(y1 + y2) / 2] = null; // remove captured piece, if move was a capture
+			removeSquareBits(squareBit((x1 + x2) / 2, (y1 + y2) / 2));
 		}
 		
 		// Actually move the piece on the board
 		array[x2][y2] = array[x1][y1];
 		array[x2][y2].move(new BoardSquare(x2, y2));
 		array[x1][y1] = null;
+		moveSquareBits(squareBit(x1, y1), squareBit(x2, y2));
 		
 		// If the move caused the piece to become a king, record that
 		if (Player.BLACK == turn && y2 == 0 && !array[x2][y2].isKing()) {
 			array[x2][y2].makeKing();
+			setKingBit(squareBit(x2, y2), true);
 			blackKings++;
 			move.madeKing = true;
 		}
 		if (Player.RED == turn && y2 == 7 && !array[x2][y2].isKing()) {
 			array[x2][y2].makeKing();
+			setKingBit(squareBit(x2, y2), true);
 			redKings++;
 			move.madeKing = true;
 		}
@@ -531,10 +738,12 @@ public class CheckersBoard {
 		array[x2][y2] = null;
 		array[x1][y1] = moved;
 		array[x1][y1].move(new BoardSquare(x1, y1));
+		moveSquareBits(squareBit(x2, y2), squareBit(x1, y1));
 		
 		// Check if the move to be undone was a capture
 		if (null != captured) { // capture
 			array[(x1+x2)/2][(y1+y2)/2] = captured; // restore captured piece
+			addSquareBits(squareBit((x1 + x2) / 2, (y1 + y2) / 2), captured.getPlayer(), captured.isKing());
 			
 			// Restore counts of pieces
 			if (captured.getColor() == Color.RED) {
@@ -554,14 +763,109 @@ public class CheckersBoard {
 		// Remove king status, if applicable
 		if (Player.BLACK == turn && move.madeKing) {
 			array[x1][y1].makeRegular();
+			setKingBit(squareBit(x1, y1), false);
 			blackKings--;
 		}
 		if (Player.RED == turn && move.madeKing) {
 			array[x1][y1].makeRegular();
+			setKingBit(squareBit(x1, y1), false);
 			redKings--;
 		}
 	}
 	
+	// Returns the bit for the given square in the bitboards (0 for squares that are not playable).
+	private static int squareBit(int x, int y) {
+		int index = CheckersPosition.squareIndex(x, y);
+		return (index < 0) ? 0 : 1 << index;
+	}
+	
+	// Helper methods that keep the bitboards in step with the array, and tell the listener (if any)
+	// about each piece that is added or removed
+	private void removeSquareBits(int bit) {
+		if (0 == ((blackSquares | redSquares) & bit)) {
+			return;
+		}
+		Player player = (0 != (blackSquares & bit)) ? Player.BLACK : Player.RED;
+		boolean isKing = 0 != (kingSquares & bit);
+		blackSquares &= ~bit;
+		redSquares &= ~bit;
+		kingSquares &= ~bit;
+		if (null != listener) {
+			listener.pieceRemoved(Integer.numberOfTrailingZeros(bit), player, isKing);
+		}
+	}
+	
+	private void addSquareBits(int bit, Player player, boolean isKing) {
+		if (0 == bit) {
+			return;
+		}
+		if (Player.BLACK == player) {
+			blackSquares |= bit;
+		} else {
+			redSquares |= bit;
+		}
+		if (isKing) {
+			kingSquares |= bit;
+		}
+		if (null != listener) {
+			listener.pieceAdded(Integer.numberOfTrailingZeros(bit), player, isKing);
+		}
+	}
+	
+	private void moveSquareBits(int fromBit, int toBit) {
+		if (0 == ((blackSquares | redSquares) & fromBit)) {
+			return;
+		}
+		Player player = (0 != (blackSquares & fromBit)) ? Player.BLACK : Player.RED;
+		boolean isKing = 0 != (kingSquares & fromBit);
+		removeSquareBits(fromBit);
+		addSquareBits(toBit, player, isKing);
+	}
+	
+	private void setKingBit(int bit, boolean isKing) {
+		if (0 == ((blackSquares | redSquares) & bit)) {
+			return;
+		}
+		Player player = (0 != (blackSquares & bit)) ? Player.BLACK : Player.RED;
+		removeSquareBits(bit);
+		addSquareBits(bit, player, isKing);
+	}
+	
+	// Replaces the pieces on the board with those of the given position, and forgets the move
+	// history (so the moves that led to the position cannot be undone).
+	public void loadPosition(CheckersPosition position) {
+		removeAllPieces();
+		blackPieces = 0;
+		redPieces = 0;
+		blackKings = 0;
+		redKings = 0;
+		for (int i = 0; i < CheckersPosition.NUMBER_OF_SQUARES; i++) {
+			int bit = 1 << i;
+			if (0 != ((position.black | position.red) & bit)) {
+				BoardSquare square = new BoardSquare(CheckersPosition.squareX(i), CheckersPosition.squareY(i));
+				boolean isBlack = 0 != (position.black & bit);
+				addPiece(square, isBlack ? Player.BLACK : Player.RED);
+				if (isBlack) {
+					blackPieces++;
+				} else {
+					redPieces++;
+				}
+				if (0 != (position.kings & bit)) {
+					getPieceAtPosition(square).makeKing();
+					setKingBit(bit, true);
+					if (isBlack) {
+						blackKings++;
+					} else {
+						redKings++;
+					}
+				}
+			}
+		}
+		currentPiece = null;
+		requiredPiece = null;
+		removeLastMoves();
+	}
+	
 	// Returns whether the given square is inside the board.
 	public boolean insideBoard(BoardSquare position) {
 		if (position.x >= this.width || 0 > position.x|| position.y >= this.length || 0 > position.y) {
@@ -575,6 +879,11 @@ public class CheckersBoard {
 		this.currentPiece = piece;
 	}
 	
+	// Sets a piece not to be drawn in its square (because a MoveAnimation is drawing it), or null
+	public void setHiddenPiece(CheckersPiece piece) {
+		this.hiddenPiece = piece;
+	}
+	
 	public CheckersPiece getCurrentPiece() {
 		return currentPiece;
 	}
@@ -587,6 +896,16 @@ public class CheckersBoard {
 		return width;
 	}
 	
+	// Gets the side-length of each square when painted (in the graphics' user space).
+	public int getSquareLength() {
+		return squareLength;
+	}
+	
+	// Sets the side-length of each square when painted, e.g. to fit the board to its component.
+	public void setSquareLength(int squareLength) {
+		this.squareLength = squareLength;
+	}
+	
 	public void setMouseLocation(Point point) {
 		this.mouseLocation = point;
 	}
@@ -611,6 +930,61 @@ public class CheckersBoard {
 		this.requiredPiece = requiredPiece;
 	}
 	
+	// Returns the squares holding black pieces, red pieces and kings, as bitboards (see CheckersPosition).
+	public int getBlackSquares() {
+		return blackSquares;
+	}
+	
+	public int getRedSquares() {
+		return redSquares;
+	}
+	
+	public int getKingSquares() {
+		return kingSquares;
+	}
+	
+	// Sets the listener to tell about every piece added to or removed from the board (or null for none).
+	public void setBoardListener(BoardListener listener) {
+		this.listener = listener;
+	}
+	
+	public CheckersEngine getEngine() {
+		return engine;
+	}
+	
+	public void setEngine(CheckersEngine engine) {
+		this.engine = engine;
+		shareSearchSettings();
+	}
+	
+	// Seeds the source of the seeds of the AI's searches, so that the same game played again from
+	// the same seed gets the same moves from it. (Unseeded, the AI varies its moves.) A SearchEngine
+	// set as the engine draws the seeds of its searches from the same source.
+	public void setSearchSeed(long seed) {
+		this.searchSeeds = new Random(seed);
+		shareSearchSettings();
+	}
+	
+	// Sets the trace to record every search of the AI in (or null for none), including those of a
+	// SearchEngine set as the engine.
+	public void setSearchTrace(SearchTrace trace) {
+		this.trace = trace;
+		shareSearchSettings();
+	}
+	
+	// Gives a SearchEngine set as the engine the board's source of search seeds and its trace.
+	private void shareSearchSettings() {
+		if (engine instanceof SearchEngine) {
+			((SearchEngine) engine).setSearchSeeds(searchSeeds);
+			((SearchEngine) engine).setSearchTrace(trace);
+		}
+	}
+	
+	// Returns the moves of the last turn played (or being played), or null if there are none
+	public ArrayList<CheckersMove> getLastTurn() {
+		return lastMoves.isEmpty() ? null : lastMoves.get(lastMoves.size() - 1);
+	}
+	
 	public void removeLastMoves() {
 		this.lastMoves = new ArrayList<ArrayList<CheckersMove>>();
 	}
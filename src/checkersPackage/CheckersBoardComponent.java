@@ -1,27 +1,75 @@
 package checkersPackage;
 import java.awt.*;
 import java.awt.event.*;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
 import javax.swing.*;
 
 // A Component that wraps the entire checkers game and allows the
-// user to drag and drop moves.
+// user to drag and drop moves. The board is scaled to fill the component (above the lines of
+// text under it), and its squares and pieces are drawn from Sprites at the screen's resolution.
 @SuppressWarnings("serial")
-public class CheckersBoardComponent extends JComponent {
-	public static final int SQUARE_LENGTH = 70; // side-length of each square in board
+public final class CheckersBoardComponent extends JComponent {
+	public static final int STATUS_HEIGHT = 70; // height of the text under the board
+	public static final int MIN_SQUARE_LENGTH = 20; // the board is not made any smaller than this
+	public static final long CLOCK_BASE_MILLIS = 3 * 60 * 1000; // each player's time for the game
+	public static final long CLOCK_INCREMENT_MILLIS = 2000; // time added after each turn
 	public boolean AI;
 	private CheckersBoard board;
 	private Player turn;
 	private String message;
 	private boolean gameOver;
+	private PositionHistory gameHistory; // positions after each turn, for detecting draws
+	private GameClock clock; // both players' remaining time; the computer budgets its searches from it
+	private int computerTurnId; // counts the computer's searches, so that the result of an abandoned one is ignored
+	private boolean computerThinking; // whether a search for the computer's turn is running
+	private MoveAnimation animation; // the animation of the computer's last turn, if it is still playing
+	private GameLog log; // records the games, so that an unfinished one can be resumed; null if not recorded
+	private long gameId; // the current game's id in the log
+	private Rectangle dragBounds; // where the piece being dragged was last drawn, if there is one
 	
 	// Constructs a CheckersBoardComponent object
 	public CheckersBoardComponent() {
 		this.board = new CheckersBoard();
 		this.addMouseListener(new MouseHandler());
 		this.addMouseMotionListener(new MouseMotionHandler());
+		this.addComponentListener(new ComponentAdapter() {
+			public void componentResized(ComponentEvent event) {
+				fitBoard();
+			}
+		});
 		this.turn = Player.BLACK;
 		this.gameOver = false;
 		this.AI = true;
+		this.gameHistory = new PositionHistory(CheckersPosition.INITIAL);
+		this.clock = new GameClock(CLOCK_BASE_MILLIS, CLOCK_INCREMENT_MILLIS);
+		board.setEngine(new SearchEngine(clock, Difficulty.MEDIUM));
+		clock.startTurn(Player.BLACK);
+		
+		// Redraw the clocks every second, and end the game if the user runs out of time while thinking
+		new Timer(1000, new ActionListener() {
+			public void actionPerformed(ActionEvent event) {
+				if (!gameOver && Player.BLACK == turn && clock.isOutOfTime(Player.BLACK)) {
+					board.setCurrentPiece(null);
+					endGame("GAME OVER. You lost on time.");
+				}
+				repaint();
+			}
+		}).start();
+	}
+	
+	// The board at its default size, with the text under it
+	public Dimension getPreferredSize() {
+		int boardLength = board.getLength() * CheckersBoard.DEFAULT_SQUARE_LENGTH;
+		return new Dimension(boardLength, board.getWidth() * CheckersBoard.DEFAULT_SQUARE_LENGTH + STATUS_HEIGHT);
+	}
+	
+	// Sizes the board's squares to fill the component, leaving room for the text under it.
+	private void fitBoard() {
+		int squareLength = Math.min(getWidth() / board.getLength(), (getHeight() - STATUS_HEIGHT) / board.getWidth());
+		board.setSquareLength(Math.max(MIN_SQUARE_LENGTH, squareLength));
+		repaint();
 	}
 	
 	// Paints the component. Calls the CheckersBoard's paintBoard method to paint most of the board, but also prints 
@@ -30,6 +78,9 @@ public class CheckersBoardComponent extends JComponent {
 		// Paint the board itself
 		Graphics2D g2 = (Graphics2D) g;
 		board.paintBoard(g2);
+		if (null != animation) {
+			animation.paint(g2);
+		}
 		
 		// Adjust the message, if a player has lost all pieces
 		if (0 == board.blackPieces) {
@@ -42,7 +93,7 @@ public class CheckersBoardComponent extends JComponent {
 		
 		// Print Illegal Move or Game Over message, if applicable
 		if (message != null) {
-			g2.drawString(message, 10, board.getWidth() * SQUARE_LENGTH + 20);
+			g2.drawString(message, 10, board.getWidth() * board.getSquareLength() + 20);
 		}
 		
 		// Print who is to move, if the game isn't over yet
@@ -60,7 +111,12 @@ public class CheckersBoardComponent extends JComponent {
 		} else {
 			turnString += "Press 'New Game' to play again.";
 		}
-		g2.drawString(turnString, 10, board.getWidth() * SQUARE_LENGTH + 40);
+		g2.drawString(turnString, 10, board.getWidth() * board.getSquareLength() + 40);
+		
+		// Print both players' remaining time
+		g2.setPaint(Color.BLACK);
+		g2.drawString("Clock: you " + GameClock.format(clock.getRemainingMillis(Player.BLACK)) + ", computer "
+				+ GameClock.format(clock.getRemainingMillis(Player.RED)), 10, board.getWidth() * board.getSquareLength() + 60);
 	}
 	
 	// Handles events where the mouse is pressed or dragged.
@@ -68,26 +124,47 @@ public class CheckersBoardComponent extends JComponent {
 		
 		// Handles the event where the mouse is pressed. 
 		public void mousePressed(MouseEvent event) {
+			MouseHandlerEvent handlerEvent = new MouseHandlerEvent();
+			handlerEvent.begin();
 			if (!gameOver) {
 				message = "";
 				
+				// Show the computer's turn in its final position at once, if it is still being animated
+				finishAnimation();
+				
 				// Find which piece the user is clicking on, and if that piece is of the
 				// correct color, set the board's current piece to that piece 
-				CheckersPiece selectedPiece = board.find(event.getPoint(), SQUARE_LENGTH, turn);
+				CheckersPiece selectedPiece = board.find(event.getPoint(), turn);
 				if (null != selectedPiece && Player.BLACK == selectedPiece.getPlayer())  {
 					board.setCurrentPiece(selectedPiece);
+					dragBounds = null;
 				}
 			}
+			commitMouseEvent(handlerEvent, "pressed", false);
 		}
 		
 		// Handles the event where the mouse is released.
 		public void mouseReleased(MouseEvent event) {
+			MouseHandlerEvent handlerEvent = new MouseHandlerEvent();
+			handlerEvent.begin();
+			int turnsBefore = gameHistory.size();
+			boolean gameOverBefore = gameOver;
+			try {
+				releaseMouse(event);
+			} finally {
+				commitMouseEvent(handlerEvent, "released", gameHistory.size() != turnsBefore || gameOver != gameOverBefore);
+			}
+		}
+		
+		// Completes the user's move (and, if the user's turn is over, plays the computer's turn) when
+		// the mouse is released.
+		private void releaseMouse(MouseEvent event) {
 			if (!gameOver) {
 				message = "";
 				
 				// Calculate which square the user attempted to move the piece to
-				BoardSquare destination = new BoardSquare(event.getX() / SQUARE_LENGTH,
-						                                  event.getY() / SQUARE_LENGTH);
+				BoardSquare destination = new BoardSquare(event.getX() / board.getSquareLength(),
+						                                  event.getY() / board.getSquareLength());
 				
 				// Check if the user attempted to move the piece off the board
 				if (!board.insideBoard(destination)) {
@@ -112,19 +189,40 @@ public class CheckersBoardComponent extends JComponent {
 							// If the human player just made a move, make the computer move and then allow the human
 							// player to make the next move
 							if (Player.BLACK == turn){
+								clock.endTurn();
+								if (clock.isOutOfTime(Player.BLACK)) {
+									endGame("GAME OVER. You lost on time.");
+									recordTurn(Player.RED);
+									repaint();
+									return;
+								}
 								turn = Player.RED;
 								repaint();
 								checkIfAreAnyMovesPossible(turn);
+								if (!gameOver) {
+									checkForDraw(turn);
+								}
+								recordTurn(turn);
 								if (gameOver) {
+									clock.stop();
 									return;
 								}
-								board.makeAIMove(Player.RED);
-								turn = Player.BLACK;
-								repaint();
+								clock.startTurn(Player.RED);
+								startComputerTurn();
+								return;
 							} else {
 								turn = Player.BLACK;
 							}
 							checkIfAreAnyMovesPossible(turn);
+							if (!gameOver) {
+								checkForDraw(turn);
+							}
+							recordTurn(turn);
+							if (gameOver) {
+								clock.stop();
+							} else {
+								clock.startTurn(Player.BLACK);
+							}
 							
 						// Otherwise: require additional capture(s)	if further captures are available and the move was a jump
 						} else {
@@ -145,32 +243,147 @@ public class CheckersBoardComponent extends JComponent {
 		}
 	}
 	
+	// Searches for the computer's turn on a background thread, so that the window stays responsive
+	// (and the clocks keep being redrawn) while the computer thinks; the turn is then played by
+	// finishComputerTurn, on the event dispatch thread.
+	private void startComputerTurn() {
+		final int id = ++computerTurnId;
+		final CheckersEngine engine = board.getEngine();
+		final CheckersPosition position = CheckersPosition.of(board, Player.RED);
+		final PositionHistory history = new PositionHistory(gameHistory); // (so that the search sees the game's repetitions)
+		computerThinking = true;
+		new SwingWorker<ArrayList<CheckersMove>, Void>() {
+			protected ArrayList<CheckersMove> doInBackground() {
+				return engine.chooseMove(position, history);
+			}
+			
+			protected void done() {
+				if (id != computerTurnId) {
+					return; // (the game was abandoned while the computer was thinking)
+				}
+				try {
+					finishComputerTurn(get());
+				} catch (InterruptedException | ExecutionException e) {
+					throw new IllegalStateException("The computer's search failed", e);
+				}
+			}
+		}.execute();
+	}
+	
+	// Plays the computer's turn, animating it, and gives the turn back to the user. (The computer
+	// only searches when it has moves, so a missing or illegal turn is a bug in its engine: it is
+	// reported, as a failed search is, rather than skipping the computer's turn.)
+	private void finishComputerTurn(ArrayList<CheckersMove> moves) {
+		if (null == moves || !board.playMoveSequence(moves, Player.RED)) {
+			throw new IllegalStateException("The engine " + board.getEngine().getClass().getName() + " chose "
+					+ ((null == moves || moves.isEmpty()) ? "no turn" : "the illegal turn " + CheckersMove.toNotation(moves))
+					+ " for the computer in " + CheckersPosition.of(board, Player.RED));
+		}
+		clock.endTurn();
+		computerThinking = false;
+		animation = new MoveAnimation(this, board, moves);
+		final MoveAnimation started = animation;
+		animation.start(new Runnable() {
+			public void run() {
+				if (animation == started) {
+					animation = null;
+				}
+			}
+		});
+		turn = Player.BLACK;
+		repaint();
+		if (clock.isOutOfTime(Player.RED)) {
+			endGame("GAME OVER. The computer lost on time. You won!");
+			recordTurn(turn);
+			return;
+		}
+		checkIfAreAnyMovesPossible(turn);
+		if (!gameOver) {
+			checkForDraw(turn);
+		}
+		recordTurn(turn);
+		if (gameOver) {
+			clock.stop();
+		} else {
+			clock.startTurn(Player.BLACK);
+		}
+	}
+	
+	// Stops the animation of the computer's last turn, if it is still playing.
+	private void finishAnimation() {
+		if (null != animation) {
+			animation.finish();
+			animation = null;
+		}
+	}
+	
 	// Handles events where the mouse is dragged or moved.
 	private class MouseMotionHandler implements MouseMotionListener {
 		
 		// Handles the event where the mouse is dragged
 		public void mouseDragged(MouseEvent event) {
-			// If the user is dragging a piece, center it to the current mouse location
+			MouseHandlerEvent handlerEvent = new MouseHandlerEvent();
+			handlerEvent.begin();
+			
+			// If the user is dragging a piece, center it to the current mouse location, repainting
+			// only where it was and where it now is (the whole board the first time, as the piece
+			// has left its square)
 			if (null != board.getCurrentPiece()) {
 				board.setMouseLocation(new Point(event.getX(), event.getY()));
-				repaint();
+				int squareLength = board.getSquareLength();
+				Rectangle bounds = new Rectangle(event.getX() - squareLength / 2, event.getY() - squareLength / 2,
+						squareLength, squareLength);
+				if (null == dragBounds) {
+					repaint();
+				} else {
+					repaint(dragBounds.union(bounds));
+				}
+				dragBounds = bounds;
 			}
+			commitMouseEvent(handlerEvent, "dragged", false);
 		}
 		
 		// Handles the event where the mouse is moved, by changing the cursor to a hand cursor if
 		// the user is pointing at a piece
 		public void mouseMoved(MouseEvent event) {
-			if (board.find(event.getPoint(), SQUARE_LENGTH, turn) != null && !gameOver) {
+			MouseHandlerEvent handlerEvent = new MouseHandlerEvent();
+			handlerEvent.begin();
+			if (board.find(event.getPoint(), turn) != null && !gameOver) {
 				setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
 			} else {
 				setCursor(Cursor.getDefaultCursor());
 			}
+			commitMouseEvent(handlerEvent, "moved", false);
+		}
+	}
+	
+	// Records a mouse handler's Flight Recorder event, if a recording has enabled it.
+	private static void commitMouseEvent(MouseHandlerEvent event, String action, boolean turnCompleted) {
+		if (event.shouldCommit()) {
+			event.action = action;
+			event.turnCompleted = turnCompleted;
+			event.commit();
 		}
 	}
 	
 	// This method is called when the "New Game" button is pressed, and resets the game.
 	public void newGame() {
 		
+		// Abandon the computer's turn, if it is thinking or its turn is being animated
+		computerTurnId++;
+		computerThinking = false;
+		finishAnimation();
+		
+		// Record the end of the old game and the start of the new one
+		if (null != log) {
+			record(new GameLog.Event(GameLog.END, gameId, null, CheckersPosition.of(board, turn), gameOver));
+			try {
+				gameId = log.newGame();
+			} catch (IOException e) {
+				stopRecording(e);
+			}
+		}
+		
 		// Reset pieces to their starting positions
 		board.removeAllPieces();
 		board.addInitialPieces();
@@ -178,12 +391,24 @@ public class CheckersBoardComponent extends JComponent {
 		// Clean up the state of the game
 		board.removeLastMoves();
 		board.setRequiredPiece(null);
+		gameHistory = new PositionHistory(CheckersPosition.INITIAL);
+		if (!gameOver) {
+			clock.stop(); // (to log the statistics of the abandoned game)
+		}
+		clock.reset();
+		clock.startTurn(Player.BLACK);
 		turn = Player.BLACK;
 		gameOver = false;
 		message = "";
+		firePositionChanged();
 		repaint();
 	}
 	
+	// Sets the computer's playing strength (from its next turn on).
+	public void setDifficulty(Difficulty difficulty) {
+		board.setEngine(new SearchEngine(clock, difficulty));
+	}
+	
 	// Sets the displayed message to the given value.
 	public void setMessage(String message) {
 		this.message = message;
@@ -191,20 +416,158 @@ public class CheckersBoardComponent extends JComponent {
 	
 	// Undoes the last user move.
 	public void undoSeriesOfMoves() {
+		if (computerThinking) {
+			message = "Please wait for the computer's move.";
+			repaint();
+			return;
+		}
+		finishAnimation();
 		boolean somethingToUndo = board.undoSeriesOfMoves();
 		if (!somethingToUndo) {
 			message = "Nothing to undo!";
 		}
 		
+		// Forget the positions of the undone turns
+		CheckersPosition position = CheckersPosition.of(board, turn);
+		long key = TranspositionTable.key(position.black, position.red, position.kings, position.turn);
+		while (gameHistory.size() > 1 && gameHistory.getLastKey() != key) {
+			gameHistory.pop();
+		}
+		if (somethingToUndo) {
+			record(new GameLog.Event(GameLog.UNDO, gameId, null, position, false));
+		}
+		
 		// If the game just ended, but the user undid their move, indicate that the 
 		// game is no longer over thanks to the undo
 		if (gameOver) {
 			gameOver = false;
 			message = "";
+			clock.startTurn(Player.BLACK);
 		}
+		firePositionChanged();
 		repaint();
 	}
 	
+	// Records the games from now on in the given log. The last unfinished game recorded in it (if
+	// any) is resumed, and any other unfinished ones are ended. (The clocks are not recorded: a
+	// resumed game starts again with full clocks.)
+	public void setGameLog(GameLog log) {
+		this.log = log;
+		GameLog.GameRecord resumed = null;
+		for (GameLog.GameRecord game : log.getGames()) {
+			if (null != resumed) {
+				record(new GameLog.Event(GameLog.END, resumed.id, null, resumed.getPosition(), resumed.gameOver));
+			}
+			resumed = game;
+		}
+		if (null == resumed || resumed.gameOver) {
+			if (null != resumed) {
+				record(new GameLog.Event(GameLog.END, resumed.id, null, resumed.getPosition(), true));
+			}
+			try {
+				gameId = log.newGame();
+			} catch (IOException e) {
+				stopRecording(e);
+			}
+			return;
+		}
+		
+		// Replay the game's turns on the board
+		gameId = resumed.id;
+		board.removeAllPieces();
+		board.addInitialPieces();
+		board.removeLastMoves();
+		board.setRequiredPiece(null);
+		gameHistory = new PositionHistory(CheckersPosition.INITIAL);
+		turn = Player.BLACK;
+		for (String notation : resumed.turns) {
+			if (!board.playMoveSequence(CheckersMove.parseNotation(notation), turn)) {
+				break;
+			}
+			turn = board.switchTurn(turn);
+			gameHistory.push(CheckersPosition.of(board, turn));
+		}
+		clock.reset();
+		gameOver = false;
+		message = "Your last game has been restored.";
+		clock.startTurn(turn);
+		if (Player.RED == turn) {
+			startComputerTurn();
+		}
+		firePositionChanged();
+		repaint();
+	}
+	
+	// Writes out the events recorded so far and stops recording (when the game is closed).
+	public void closeGameLog() {
+		if (null != log) {
+			try {
+				log.close();
+			} catch (IOException e) {
+				System.err.println("Failed to close the game log: " + e);
+			}
+			log = null;
+		}
+	}
+	
+	// Records the turn just completed (the last one on the board) in the game log, if there is one,
+	// and tells the listeners about the new position. turn is the player to move next.
+	private void recordTurn(Player turn) {
+		firePositionChanged();
+		if (null != board.getLastTurn()) {
+			record(new GameLog.Event(GameLog.TURN, gameId, CheckersMove.toNotation(board.getLastTurn()),
+					CheckersPosition.of(board, turn), gameOver));
+		}
+	}
+	
+	// Tells the listeners to the "position" property (such as an ExplorerPanel) that the position
+	// on the board has changed.
+	private void firePositionChanged() {
+		firePropertyChange("position", null, getPosition());
+	}
+	
+	// Returns the position on the board, with the player to move.
+	public CheckersPosition getPosition() {
+		return CheckersPosition.of(board, turn);
+	}
+	
+	// Records an event in the game log, if there is one. The event is written by the log's own
+	// thread, so the window does not wait for the disk.
+	private void record(GameLog.Event event) {
+		if (null != log) {
+			try {
+				log.submit(event);
+			} catch (IOException e) {
+				stopRecording(e);
+			}
+		}
+	}
+	
+	// Plays on without recording, after the log failed.
+	private void stopRecording(IOException e) {
+		System.err.println("Failed to record the game: " + e);
+		message = "The game can no longer be saved.";
+		log = null;
+	}
+	
+	// Ends the game (when a player runs out of time) with the given message.
+	private void endGame(String message) {
+		gameOver = true;
+		this.message = message;
+		clock.stop();
+	}
+	
+	// Records the position after a turn, and ends the game as a draw if that position has now
+	// occurred three times or if neither player has made progress for too long.
+	private void checkForDraw(Player turn) {
+		gameHistory.push(CheckersPosition.of(board, turn));
+		String reason = gameHistory.getDrawReason(PositionHistory.DEFAULT_NO_PROGRESS_LIMIT);
+		if (null != reason) {
+			gameOver = true;
+			message = "GAME OVER. Draw by " + reason + ".";
+		}
+	}
+	
 	// Check if the player who is now to move actually has any moves available
 	public void checkIfAreAnyMovesPossible(Player turn) {
 		if (!board.areAnyMovesPossible(turn)) {
@@ -0,0 +1,13 @@
+package checkersPackage;
+
+import java.util.*;
+
+// A strategy that chooses the computer player's moves. CheckersBoard.makeAIMove uses its engine,
+// if one has been set, instead of the built-in findBestMove search.
+public interface CheckersEngine {
+	// Returns the turn (a step, or a complete chain of captures) to play in the given position, or
+	// null if the player to move has no legal turns. "history" holds the game's positions up to
+	// and including this one, so that the engine can avoid (or seek) repeating them; it is null if
+	// the game is not known, and engines that do not detect repetitions ignore it.
+	ArrayList<CheckersMove> chooseMove(CheckersPosition position, PositionHistory history);
+}
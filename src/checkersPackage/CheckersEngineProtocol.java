@@ -0,0 +1,322 @@
+package checkersPackage;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// A text front end that lets GUIs and test harnesses drive the AI as a separate process over
+// stdin/stdout, in the style of the UCI protocol used by chess engines. Commands:
+//
+//   uci                          -> id name ..., then uciok
+//   isready                      -> readyok
+//   setoption name <name> value <true|false>
+//                                (names: PrincipalVariationSearch, LateMoveReductions, AspirationWindows)
+//   setoption name EvalFile value <path>
+//                                (evaluates with the NnueNetwork in the file; an empty path switches back)
+//   setoption name Hash value <megabytes>
+//                                (size of the transposition table, kept between searches; 0 for none)
+//   setoption name HashFile value <path>
+//                                (loads a transposition table saved by "savehash")
+//   savehash <path>              (saves the transposition table, to warm up later sessions)
+//   setoption name MultiPV value <count>
+//                                (number of best turns to report, each on its own info line; default 1)
+//   setoption name NoProgressLimit value <turns>
+//                                (turns without a capture or a man's move after which the game is drawn)
+//   ucinewgame                   (resets the position)
+//   position startpos [moves <turn> ...]
+//   position pos <position> [moves <turn> ...]
+//                                (the search scores repetitions of the positions reached by the moves as draws)
+//   go [depth N] [movetime MS] [nodes N] [btime MS] [rtime MS] [binc MS] [rinc MS] [infinite] [ponder]
+//                                (btime/rtime are the players' remaining clock times and binc/rinc their
+//                                increments; the search budgets its own time from the side to move's clock)
+//   stop                         (ends the search; bestmove follows immediately)
+//   ponderhit                    (the expected move was played: the pondering search becomes a normal one)
+//   quit
+//
+// While a search runs, an "info depth D [multipv I] score cp S nodes N nps X time T pv <turn> ..."
+// line is printed after each iteration (in multi-PV mode, after each line of each iteration), and
+// the search ends with "bestmove <turn> [ponder <turn>]".
+// Turns are written in CheckersMove notation and positions in CheckersPosition notation; scores
+// are from the point of view of the player to move, in hundredths of a man.
+public class CheckersEngineProtocol {
+	private static final long DEFAULT_HASH_MEGABYTES = 64;
+
+	private final BufferedReader in;
+	private final PrintStream out;
+	private CheckersPosition position;
+	private PositionHistory positionHistory; // the positions from the "position" command's moves
+	private int noProgressLimit = PositionHistory.DEFAULT_NO_PROGRESS_LIMIT;
+	private int multiPV = 1;
+	private CheckersSearch search; // the running search, if any
+	private Thread searchThread;
+	private final Map<String, Boolean> options; // switchable search refinements, by name
+	private NnueNetwork network; // the neural network to evaluate with, or null for the handcrafted evaluation
+	private long hashMegabytes = DEFAULT_HASH_MEGABYTES;
+	private TranspositionTable transpositionTable; // created when first needed; null if hashMegabytes is 0
+
+	public CheckersEngineProtocol(InputStream in, OutputStream out) {
+		this.in = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
+		this.out = new PrintStream(out, false);
+		this.position = CheckersPosition.INITIAL;
+		this.positionHistory = new PositionHistory(position);
+		this.options = new LinkedHashMap<String, Boolean>();
+		options.put("PrincipalVariationSearch", true);
+		options.put("LateMoveReductions", true);
+		options.put("AspirationWindows", true);
+	}
+
+	// Reads and executes commands until "quit" or the end of the input.
+	public void run() throws IOException {
+		String line;
+		while (null != (line = in.readLine())) {
+			String[] words = line.trim().split("\\s+");
+			String command = words[0];
+			if (command.equals("uci")) {
+				send("id name Checkers-Applet");
+				for (Map.Entry<String, Boolean> option : options.entrySet()) {
+					send("option name " + option.getKey() + " type check default " + option.getValue());
+				}
+				send("option name EvalFile type string default <empty>");
+				send("option name Hash type spin default " + DEFAULT_HASH_MEGABYTES + " min 0 max 1048576");
+				send("option name HashFile type string default <empty>");
+				send("option name MultiPV type spin default 1 min 1 max " + CheckersBitboard.MAX_MOVES);
+				send("option name NoProgressLimit type spin default " + PositionHistory.DEFAULT_NO_PROGRESS_LIMIT + " min 1 max 1000");
+				send("uciok");
+			} else if (command.equals("isready")) {
+				send("readyok");
+			} else if (command.equals("setoption")) {
+				setOption(words);
+			} else if (command.equals("ucinewgame")) {
+				stopSearch();
+				position = CheckersPosition.INITIAL;
+				positionHistory = new PositionHistory(position);
+			} else if (command.equals("position")) {
+				stopSearch();
+				setPosition(words);
+			} else if (command.equals("go")) {
+				stopSearch();
+				SearchLimits limits = parseLimits(words, position.turn);
+				if (null != limits) {
+					startSearch(limits);
+				}
+			} else if (command.equals("stop")) {
+				stopSearch();
+			} else if (command.equals("ponderhit")) {
+				if (null != search) {
+					search.ponderHit();
+				}
+			} else if (command.equals("savehash") && words.length == 2) {
+				stopSearch();
+				saveTranspositionTable(words[1]);
+			} else if (command.equals("quit")) {
+				break;
+			} else if (!command.isEmpty()) {
+				send("info string unknown command " + command);
+			}
+		}
+		stopSearch();
+	}
+
+	// Handles the "position" command.
+	private void setPosition(String[] words) {
+		int index = 1;
+		CheckersPosition newPosition;
+		PositionHistory newHistory;
+		try {
+			if (words.length > 1 && words[1].equals("startpos")) {
+				newPosition = CheckersPosition.INITIAL;
+				index = 2;
+			} else if (words.length > 2 && words[1].equals("pos")) {
+				newPosition = CheckersPosition.parse(words[2]);
+				index = 3;
+			} else {
+				send("info string invalid position command");
+				return;
+			}
+
+			// Play the listed turns, if any
+			newHistory = new PositionHistory(newPosition);
+			if (index < words.length && words[index].equals("moves")) {
+				CheckersBoard board = new CheckersBoard();
+				board.loadPosition(newPosition);
+				Player turn = newPosition.turn;
+				for (int i = index + 1; i < words.length; i++) {
+					if (!board.playMoveSequence(CheckersMove.parseNotation(words[i]), turn)) {
+						send("info string illegal move " + words[i]);
+						return;
+					}
+					turn = board.switchTurn(turn);
+					newHistory.push(CheckersPosition.of(board, turn));
+				}
+				newPosition = CheckersPosition.of(board, turn);
+			}
+		} catch (IllegalArgumentException e) {
+			send("info string " + e.getMessage());
+			return;
+		}
+		position = newPosition;
+		positionHistory = newHistory;
+	}
+
+	// Handles the "setoption" command.
+	private void setOption(String[] words) {
+		if (words.length >= 4 && words[1].equals("name") && words[2].equals("EvalFile") && words[3].equals("value")) {
+			if (words.length == 4 || words[4].equals("<empty>")) {
+				network = null;
+				return;
+			}
+			try {
+				network = NnueNetwork.load(java.nio.file.Paths.get(words[4]));
+			} catch (IOException e) {
+				send("info string could not load network: " + e.getMessage());
+			}
+		} else if (words.length == 5 && words[1].equals("name") && words[2].equals("Hash") && words[3].equals("value")) {
+			stopSearch();
+			try {
+				hashMegabytes = Long.parseLong(words[4]);
+				transpositionTable = null; // a table of the new size is created by the next search
+			} catch (NumberFormatException e) {
+				send("info string invalid hash size " + words[4]);
+			}
+		} else if (words.length == 5 && words[1].equals("name") && words[2].equals("MultiPV") && words[3].equals("value")) {
+			try {
+				multiPV = Math.max(1, Integer.parseInt(words[4]));
+			} catch (NumberFormatException e) {
+				send("info string invalid MultiPV count " + words[4]);
+			}
+		} else if (words.length == 5 && words[1].equals("name") && words[2].equals("NoProgressLimit") && words[3].equals("value")) {
+			try {
+				noProgressLimit = Integer.parseInt(words[4]);
+			} catch (NumberFormatException e) {
+				send("info string invalid no-progress limit " + words[4]);
+			}
+		} else if (words.length == 5 && words[1].equals("name") && words[2].equals("HashFile") && words[3].equals("value")) {
+			stopSearch();
+			try {
+				transpositionTable = TranspositionTable.load(java.nio.file.Paths.get(words[4]));
+				hashMegabytes = transpositionTable.getSizeBytes() >> 20;
+			} catch (IOException e) {
+				send("info string could not load transposition table: " + e.getMessage());
+			}
+		} else if (words.length == 5 && words[1].equals("name") && words[3].equals("value") && options.containsKey(words[2])) {
+			options.put(words[2], Boolean.parseBoolean(words[4]));
+		} else {
+			send("info string invalid option");
+		}
+	}
+
+	// Parses the arguments of the "go" command, or returns null (after reporting it) if a limit has
+	// no value or an invalid one, so that the command is ignored.
+	private SearchLimits parseLimits(String[] words, Player turn) {
+		SearchLimits limits = new SearchLimits();
+		for (int i = 1; i < words.length; i++) {
+			if (words[i].equals("infinite")) {
+				limits.infinite = true;
+				continue;
+			} else if (words[i].equals("ponder")) {
+				limits.ponder = true;
+				continue;
+			} else if (!words[i].matches("depth|movetime|nodes|btime|rtime|binc|rinc")) {
+				continue;
+			} else if (i + 1 == words.length) {
+				send("info string missing value for " + words[i]);
+				return null;
+			}
+			try {
+				if (words[i].equals("depth")) {
+					limits.depth = Integer.parseInt(words[++i]);
+				} else if (words[i].equals("movetime")) {
+					limits.moveTimeMillis = Long.parseLong(words[++i]);
+				} else if (words[i].equals("nodes")) {
+					limits.nodes = Long.parseLong(words[++i]);
+				} else if (words[i].equals(Player.BLACK == turn ? "btime" : "rtime")) {
+					limits.remainingMillis = Long.parseLong(words[++i]);
+				} else if (words[i].equals(Player.BLACK == turn ? "binc" : "rinc")) {
+					limits.incrementMillis = Long.parseLong(words[++i]);
+				} else {
+					Long.parseLong(words[++i]); // the other player's clock
+				}
+			} catch (NumberFormatException e) {
+				send("info string invalid value for " + words[i - 1] + ": " + words[i]);
+				return null;
+			}
+		}
+		return limits;
+	}
+
+	// Starts searching the current position on a new thread, which prints the search's progress
+	// and then its best move.
+	private void startSearch(final SearchLimits limits) {
+		final CheckersSearch newSearch = new CheckersSearch(position);
+		newSearch.setPrincipalVariationSearch(options.get("PrincipalVariationSearch"));
+		newSearch.setLateMoveReductions(options.get("LateMoveReductions"));
+		newSearch.setAspirationWindows(options.get("AspirationWindows"));
+		if (null != network) {
+			newSearch.setNetwork(network);
+		}
+		if (null == transpositionTable && hashMegabytes > 0) {
+			transpositionTable = new TranspositionTable(hashMegabytes << 20);
+		}
+		newSearch.setTranspositionTable(transpositionTable);
+		newSearch.setPositionHistory(positionHistory);
+		newSearch.setNoProgressLimit(noProgressLimit);
+		newSearch.setMultiPV(multiPV);
+		search = newSearch;
+		searchThread = new Thread(new Runnable() {
+			public void run() {
+				SearchInfo result = newSearch.search(limits, new SearchListener() {
+					public void iterationCompleted(SearchInfo info) {
+						send("info depth " + info.depth + ((multiPV > 1) ? " multipv " + info.line : "")
+								+ " score cp " + info.score + " nodes " + info.nodes
+								+ " nps " + info.getNodesPerSecond() + " time " + info.timeMillis
+								+ " pv " + info.getPrincipalVariationNotation());
+					}
+				});
+				ArrayList<CheckersMove> bestMove = result.getBestMove();
+				ArrayList<CheckersMove> ponderMove = result.getPonderMove();
+				send("bestmove " + (null == bestMove ? "(none)" : CheckersMove.toNotation(bestMove))
+						+ (null == ponderMove ? "" : " ponder " + CheckersMove.toNotation(ponderMove)));
+			}
+		}, "search");
+		searchThread.setDaemon(true);
+		searchThread.start();
+	}
+
+	// Handles the "savehash" command.
+	private void saveTranspositionTable(String path) {
+		if (null == transpositionTable) {
+			send("info string no transposition table to save");
+			return;
+		}
+		try {
+			transpositionTable.save(java.nio.file.Paths.get(path));
+		} catch (IOException e) {
+			send("info string could not save transposition table: " + e.getMessage());
+		}
+	}
+
+	// Stops the running search, if any, and waits for it to print its best move.
+	private void stopSearch() {
+		if (null == search) {
+			return;
+		}
+		search.stop();
+		try {
+			searchThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		search = null;
+		searchThread = null;
+	}
+
+	// Prints one line of output. Called from both the command thread and the search thread.
+	private synchronized void send(String line) {
+		out.println(line);
+		out.flush();
+	}
+
+	public static void main(String[] args) throws IOException {
+		new CheckersEngineProtocol(System.in, System.out).run();
+	}
+}
@@ -0,0 +1,94 @@
+package checkersPackage;
+
+// The evaluation function used by CheckersSearch: scores a position (given as bitboards) for the
+// player to move, in hundredths of a man. Besides material, it scores where the men stand (a
+// piece-square term by row, and a penalty for men on the edges) and where the kings stand. Every
+// term is a weight times the number of pieces on a fixed set of squares (a mask), so positions can
+// also be scored many at a time; see VectorEvaluator, which must give exactly the same scores.
+//
+// This class scores batches one position at a time, and is the fallback when the Vector API is
+// not available.
+public class CheckersEvaluator implements BatchEvaluator {
+	// Square masks
+	static final int[] ROW = new int[8]; // squares on each row, from the top (Red's back row)
+	static final int CENTER; // squares in the central 4x4 block
+	static final int EDGE; // squares on the left and right edges
+
+	static {
+		int center = 0;
+		int edge = 0;
+		for (int square = 0; square < CheckersPosition.NUMBER_OF_SQUARES; square++) {
+			int x = CheckersPosition.squareX(square);
+			int y = CheckersPosition.squareY(square);
+			ROW[y] |= 1 << square;
+			if (x >= 2 && x <= 5 && y >= 2 && y <= 5) {
+				center |= 1 << square;
+			}
+			if (x == 0 || x == 7) {
+				edge |= 1 << square;
+			}
+		}
+		CENTER = center;
+		EDGE = edge;
+	}
+
+	protected final EvaluationWeights weights;
+
+	public CheckersEvaluator(EvaluationWeights weights) {
+		this.weights = weights;
+	}
+
+	public CheckersEvaluator() {
+		this(new EvaluationWeights());
+	}
+
+	// Returns the best available batch evaluator for the given weights: a VectorEvaluator if the
+	// jdk.incubator.vector module is present (java --add-modules jdk.incubator.vector), or else a
+	// scalar CheckersEvaluator.
+	public static BatchEvaluator createBatchEvaluator(EvaluationWeights weights) {
+		try {
+			return (BatchEvaluator) Class.forName("checkersPackage.VectorEvaluator")
+					.getConstructor(EvaluationWeights.class).newInstance(weights);
+		} catch (ReflectiveOperationException e) {
+			return new CheckersEvaluator(weights);
+		} catch (LinkageError e) {
+			return new CheckersEvaluator(weights);
+		}
+	}
+
+	public EvaluationWeights getWeights() {
+		return weights;
+	}
+
+	// Returns the score of the given position for the player to move.
+	public int evaluate(int black, int red, int kings, Player turn) {
+		int score = evaluateForRed(black, red, kings);
+		return (Player.RED == turn) ? score : -score;
+	}
+
+	@Override
+	public void evaluate(LeafBatch batch) {
+		for (int i = 0; i < batch.size(); i++) {
+			batch.scores[i] = batch.signs[i] * evaluateForRed(batch.black[i], batch.red[i], batch.kings[i]);
+		}
+	}
+
+	// Returns the score of the given pieces from Red's point of view.
+	private int evaluateForRed(int black, int red, int kings) {
+		int redMen = red & ~kings;
+		int blackMen = black & ~kings;
+		int redKings = red & kings;
+		int blackKings = black & kings;
+
+		int score = weights.man * (Integer.bitCount(redMen) - Integer.bitCount(blackMen))
+				+ weights.king * (Integer.bitCount(redKings) - Integer.bitCount(blackKings));
+		// Red's men advance down the board, and Black's up it
+		for (int y = 0; y < 8; y++) {
+			score += weights.manRow[y] * Integer.bitCount(redMen & ROW[y])
+					- weights.manRow[7 - y] * Integer.bitCount(blackMen & ROW[y]);
+		}
+		score += weights.kingCenter * (Integer.bitCount(redKings & CENTER) - Integer.bitCount(blackKings & CENTER));
+		score += weights.manEdge * (Integer.bitCount(redMen & EDGE) - Integer.bitCount(blackMen & EDGE));
+		return score;
+	}
+}
@@ -0,0 +1,129 @@
+package checkersPackage;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// A local load generator for CheckersServer. It opens N sessions at once (each on its own virtual
+// thread), plays random legal moves for the human side of every game, and reports the median and
+// 99th-percentile time from sending a move to receiving the computer's reply.
+//
+// Arguments (all optional): number of sessions, moves per session, server port. If no port is
+// given, a server is started inside this JVM on a free port.
+public class CheckersLoadGenerator {
+
+	public static void main(String[] args) throws Exception {
+		int sessions = (args.length > 0) ? Integer.parseInt(args[0]) : 1000;
+		final int movesPerSession = (args.length > 1) ? Integer.parseInt(args[1]) : 20;
+		CheckersServer embeddedServer = null;
+		final int port;
+		if (args.length > 2) {
+			port = Integer.parseInt(args[2]);
+		} else {
+			int threads = Runtime.getRuntime().availableProcessors();
+			embeddedServer = new CheckersServer(0, new SearchPool(threads, 4 * threads, 1000));
+			port = embeddedServer.getPort();
+		}
+
+		final ConcurrentLinkedQueue<long[]> results = new ConcurrentLinkedQueue<long[]>();
+		final LongAdder busyReplies = new LongAdder();
+		long start = System.nanoTime();
+		try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < sessions; i++) {
+				final long seed = i;
+				clients.execute(new Runnable() {
+					public void run() {
+						try {
+							results.add(playSession(port, movesPerSession, new Random(seed), busyReplies));
+						} catch (IOException e) {
+							System.err.println("Session failed: " + e);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+					}
+				});
+			}
+		} // waits for every client to finish
+		long elapsedNanos = System.nanoTime() - start;
+
+		// Merge the latencies of every session and report the percentiles
+		int count = 0;
+		for (long[] latencies : results) {
+			count += latencies.length;
+		}
+		long[] all = new long[count];
+		int index = 0;
+		for (long[] latencies : results) {
+			System.arraycopy(latencies, 0, all, index, latencies.length);
+			index += latencies.length;
+		}
+		Arrays.sort(all);
+		System.out.println("Sessions: " + sessions + " (" + results.size() + " completed)");
+		System.out.println("Moves: " + count + " in " + (elapsedNanos / 1000000) + " ms ("
+				+ (count * 1000000000L / Math.max(1, elapsedNanos)) + " moves/s)");
+		if (count > 0) {
+			System.out.printf("Move latency: p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+					percentile(all, 0.50) / 1e6, percentile(all, 0.99) / 1e6, all[count - 1] / 1e6);
+		}
+		System.out.println("BUSY replies (back-pressure): " + busyReplies.sum());
+		if (null != embeddedServer) {
+			embeddedServer.close();
+			embeddedServer.getPool().shutdown();
+		}
+	}
+
+	// Plays one session of up to "moves" moves (starting new games as games end), and returns the
+	// latency of each successful move in nanoseconds.
+	private static long[] playSession(int port, int moves, Random random, LongAdder busyReplies) throws IOException, InterruptedException {
+		long[] latencies = new long[moves];
+		int played = 0;
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+				BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+				PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII), true)) {
+			socket.setTcpNoDelay(true);
+			out.println("NEW");
+			String reply = in.readLine();
+			CheckersPosition position = CheckersPosition.parse(reply.substring(3));
+			CheckersBoard board = new CheckersBoard();
+			while (played < moves) {
+				// Pick a random legal turn for Black
+				board.loadPosition(position);
+				ArrayList<ArrayList<CheckersMove>> turns = board.returnListOfLegalMoveSequences(Player.BLACK);
+				String move = CheckersMove.toNotation(turns.get(random.nextInt(turns.size())));
+
+				long sent = System.nanoTime();
+				out.println("MOVE " + move);
+				reply = in.readLine();
+				long latency = System.nanoTime() - sent;
+				if (null == reply) {
+					break;
+				}
+				String[] fields = reply.split(" ");
+				if (fields[0].equals("BUSY")) {
+					busyReplies.increment();
+					Thread.sleep(10);
+					continue; // the session is unchanged, so simply try again later
+				} else if (fields[0].equals("MOVE")) {
+					position = CheckersPosition.parse(fields[2]);
+				} else if (fields[0].equals("GAMEOVER")) {
+					out.println("NEW");
+					position = CheckersPosition.parse(in.readLine().substring(3));
+				} else {
+					throw new IOException("Unexpected reply: " + reply);
+				}
+				latencies[played++] = latency;
+			}
+			out.println("QUIT");
+		}
+		return Arrays.copyOf(latencies, played);
+	}
+
+	// Returns the given percentile of a sorted array of samples.
+	private static long percentile(long[] sorted, double fraction) {
+		int index = (int) Math.ceil(fraction * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+	}
+}
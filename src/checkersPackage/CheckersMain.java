@@ -3,20 +3,36 @@ package checkersPackage;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import javax.swing.*;
 
 // A high-level driver class that sets up the graphics behind the checkers game.
 @SuppressWarnings("serial")
 public class CheckersMain extends JApplet {	
 	private CheckersBoardComponent component; // the main component containing the board
-	private JPanel buttonPanel; // panel containing "undo move" and "new game" buttons
+	private JPanel buttonPanel; // panel containing "undo move" and "new game" buttons, and the difficulty
+	private PositionIndex explorerIndex; // the games shown in the explorer panel, or null if there is none
 	
 	// Initializes the graphics associated with the checkers game
 	public void init() {
+		// Build the engine's tables, and warm it up while the user thinks about the first move
+		EngineStartup.start();
+		
 		EventQueue.invokeLater(new Runnable() {
 			public void run() {
-				// Create a CheckersBoardComponent that wraps most of the gameplay
+				// Create a CheckersBoardComponent that wraps most of the gameplay, recording the games in the
+				// directory named by the checkers.games system property (where permitted)
 				component = new CheckersBoardComponent();
+				try {
+					component.setGameLog(GameLog.open(Paths.get(System.getProperty("checkers.games", "checkers-games"))));
+				} catch (IOException | SecurityException e) {
+					System.err.println("Games will not be saved: " + e);
+				}
 				
 				// Create the button panel, with New Game and Undo Move buttons (each with
 				// a method callback for when the button is pressed)
@@ -33,13 +49,53 @@ public class CheckersMain extends JApplet {
 						component.undoSeriesOfMoves();
 					}
 				});
+				
+				// The computer's playing strength, which can be changed at any time
+				final JComboBox<Difficulty> difficultyBox = new JComboBox<Difficulty>(Difficulty.values());
+				difficultyBox.setSelectedItem(Difficulty.MEDIUM);
+				difficultyBox.addActionListener(new ActionListener() {
+					public void actionPerformed(ActionEvent event) {
+						component.setDifficulty((Difficulty) difficultyBox.getSelectedItem());
+					}
+				});
 				buttonPanel.add(newGameButton);
 				buttonPanel.add(undoMoveButton);
+				buttonPanel.add(new JLabel("Difficulty:"));
+				buttonPanel.add(difficultyBox);
 				
 				// Add the button panel and the CheckersBoardComponent to the window
 				add(component);
 				add(buttonPanel, BorderLayout.SOUTH);
+				
+				// If there is an index of archived games in the directory named by the checkers.explorer
+				// system property, show its statistics for the position on the board beside it
+				try {
+					Path explorerDirectory = Paths.get(System.getProperty("checkers.explorer", "checkers-explorer"));
+					if (Files.exists(explorerDirectory.resolve(PositionIndex.MANIFEST))) {
+						explorerIndex = PositionIndex.open(explorerDirectory);
+						final ExplorerPanel explorer = new ExplorerPanel(explorerIndex);
+						explorer.showPosition(component.getPosition());
+						component.addPropertyChangeListener("position", new PropertyChangeListener() {
+							public void propertyChange(PropertyChangeEvent event) {
+								explorer.showPosition((CheckersPosition) event.getNewValue());
+							}
+						});
+						add(explorer, BorderLayout.EAST);
+					}
+				} catch (IOException | SecurityException e) {
+					System.err.println("The explorer is not available: " + e);
+				}
 			}
 		});
 	}
+	
+	// Saves the game, and closes the explorer's index, when the applet is closed
+	public void destroy() {
+		if (null != component) {
+			component.closeGameLog();
+		}
+		if (null != explorerIndex) {
+			explorerIndex.close();
+		}
+	}
 }
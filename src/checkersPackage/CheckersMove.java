@@ -1,5 +1,7 @@
 package checkersPackage;
 
+import java.util.*;
+
 // Represents a single move (step or capture) made by a player.
 public class CheckersMove {
 	public BoardSquare start; // start position
@@ -29,4 +31,41 @@ public class CheckersMove {
 		this.captured = captured;
 		this.madeKing = madeKing;
 	}
+	
+	// Returns the move in algebraic notation, e.g. "b3-c4" for a step or "b3xd5" for a capture.
+	@Override
+	public String toString() {
+		return start.toString() + (isCapture ? "x" : "-") + destination.toString();
+	}
+	
+	// Returns a whole turn (a step, or a chain of captures by one piece) in notation, e.g. "b3xd5xf7".
+	public static String toNotation(List<CheckersMove> moves) {
+		StringBuilder builder = new StringBuilder(moves.get(0).start.toString());
+		for (CheckersMove move : moves) {
+			builder.append(move.isCapture ? 'x' : '-').append(move.destination.toString());
+		}
+		return builder.toString();
+	}
+	
+	// Returns the same turn played in the mirror image of the position (see CheckersPosition.mirror).
+	public static ArrayList<CheckersMove> mirror(List<CheckersMove> moves) {
+		ArrayList<CheckersMove> mirrored = new ArrayList<CheckersMove>();
+		for (CheckersMove move : moves) {
+			mirrored.add(new CheckersMove(move.start.mirror(), move.destination.mirror()));
+		}
+		return mirrored;
+	}
+	
+	// Parses a whole turn written in notation (see toNotation) into its individual moves.
+	public static ArrayList<CheckersMove> parseNotation(String notation) {
+		String[] squares = notation.trim().split("[-x]");
+		if (squares.length < 2) {
+			throw new IllegalArgumentException("Not a move: " + notation);
+		}
+		ArrayList<CheckersMove> moves = new ArrayList<CheckersMove>();
+		for (int i = 1; i < squares.length; i++) {
+			moves.add(new CheckersMove(BoardSquare.parse(squares[i - 1]), BoardSquare.parse(squares[i])));
+		}
+		return moves;
+	}
 }
@@ -1,22 +1,62 @@
 package checkersPackage;
 
 import java.awt.*;
-import java.awt.geom.Ellipse2D;
 import java.util.*;
+import java.util.List;
 
 public abstract class CheckersPiece {
+	// Move tables, built once, when the class is loaded (see EngineStartup): for each kind of piece
+	// (see kind) and square (see CheckersPosition.squareIndex), the squares the piece may step to,
+	// the squares it may capture to and the square jumped over by each capture, if the board was
+	// empty. A piece's moves are listed in the order of their directions in CheckersBitboard (up
+	// the board to the right and to the left, then down it to the right and to the left), so that
+	// every search explores them in the same order.
+	static final int[][][] STEPS = new int[4][CheckersPosition.NUMBER_OF_SQUARES][];
+	static final int[][][] CAPTURES = new int[4][CheckersPosition.NUMBER_OF_SQUARES][];
+	static final int[][][] CAPTURED = new int[4][CheckersPosition.NUMBER_OF_SQUARES][];
+	
+	static {
+		for (int kind = 0; kind < 4; kind++) {
+			boolean isKing = 1 == (kind & 1);
+			boolean isRed = 2 == (kind & 2);
+			for (int square = 0; square < CheckersPosition.NUMBER_OF_SQUARES; square++) {
+				List<Integer> steps = new ArrayList<Integer>();
+				List<Integer> captures = new ArrayList<Integer>();
+				for (int direction = 0; direction < 4; direction++) {
+					// (Directions 0 and 1 lead up the board, Black's forward direction, and 2 and 3 down it.)
+					if (isKing || isRed == (direction >= 2)) {
+						if (-1 != CheckersBitboard.STEP[square][direction]) {
+							steps.add(direction);
+						}
+						if (-1 != CheckersBitboard.JUMP[square][direction]) {
+							captures.add(direction);
+						}
+					}
+				}
+				STEPS[kind][square] = new int[steps.size()];
+				for (int i = 0; i < steps.size(); i++) {
+					STEPS[kind][square][i] = CheckersBitboard.STEP[square][steps.get(i)];
+				}
+				CAPTURES[kind][square] = new int[captures.size()];
+				CAPTURED[kind][square] = new int[captures.size()];
+				for (int i = 0; i < captures.size(); i++) {
+					CAPTURES[kind][square][i] = CheckersBitboard.JUMP[square][captures.get(i)];
+					CAPTURED[kind][square][i] = CheckersBitboard.STEP[square][captures.get(i)];
+				}
+			}
+		}
+	}
+	
 	protected BoardSquare position; // the square the piece is in, as an (x, y) coordinate
 	protected CheckersBoard board;
-	protected int squareLength;
 	protected boolean isKing;
 	
-	public CheckersPiece(BoardSquare position, int squareLength, CheckersBoard board) {
-		this(position, squareLength, false, board);
+	public CheckersPiece(BoardSquare position, CheckersBoard board) {
+		this(position, false, board);
 	}
 	
-	public CheckersPiece(BoardSquare position, int squareLength, boolean isKing, CheckersBoard board) {
+	public CheckersPiece(BoardSquare position, boolean isKing, CheckersBoard board) {
 		this.position = position;
-		this.squareLength = squareLength;
 		this.isKing = isKing;
 		this.board = board;
 	}
@@ -31,38 +71,18 @@ public abstract class CheckersPiece {
 	
 	// Draws the piece in the center of the square it is in
 	public void draw(Graphics2D g2) { 
-		int x = position.x; // just for convenience
-		int y = position.y;
-		Ellipse2D.Double ellipse = new Ellipse2D.Double(squareLength * (x + 0.2), squareLength * (y + 0.2), squareLength * 0.6, squareLength * 0.6);
-		g2.setPaint(getColor());
-		g2.fill(ellipse);
-		
-		if (isKing) {
-			Ellipse2D.Double kingEllipse = new Ellipse2D.Double(squareLength * (x + 0.3), squareLength * (y + 0.3), squareLength * 0.4, squareLength * 0.4);
-			g2.setPaint(Color.WHITE);
-			g2.draw(kingEllipse);
-		}
+		int squareLength = board.getSquareLength();
+		Sprites.drawPiece(g2, getColor(), isKing, squareLength * position.x, squareLength * position.y, squareLength);
 	}
 	
 	// Draws the piece if it is being dragged around, centered at the current location of the mouse.
 	// Note that "mouseLocation" is the coordinates within the Graphics, NOT what board square the mouse is in.
 	public void drawCenteredAtGivenPoint(Graphics2D g2, Point mouseLocation) {
-		
-		// Draw the piece
-		Ellipse2D.Double ellipse = new Ellipse2D.Double(mouseLocation.x - (squareLength * 0.3),
-					                                    mouseLocation.y - (squareLength * 0.3),
-					                                    squareLength * 0.6,
-					                                    squareLength * 0.6);
-		g2.setPaint(this.getColor());
-		g2.fill(ellipse);
-		
-		// If the piece is a king, then add an inner circle to indicate this
-		if (this.isKing) {
-			Ellipse2D.Double kingEllipse = new Ellipse2D.Double(mouseLocation.x - (squareLength * 0.2), mouseLocation.y - (squareLength * 0.2), squareLength * 0.4, squareLength * 0.4);
-			g2.setPaint(Color.WHITE);
-			g2.draw(kingEllipse);
-		}
+		int squareLength = board.getSquareLength();
+		Sprites.drawPiece(g2, getColor(), isKing, mouseLocation.x - squareLength / 2, mouseLocation.y - squareLength / 2,
+				squareLength);
 	}
+
 	
 	// Determines if the move to "destination" is legal, given whose turn it is.
 	// NOTE: assumes that this piece may move, and that destination is inside the board
@@ -84,92 +104,163 @@ public abstract class CheckersPiece {
 	// Determines if moving the current piece from (x2, y2) is legal for the given player as a MOVE (not a jump).
 	// This method ignores any "required" piece.
 	public boolean stepPossible(BoardSquare destination) {
-		Set<BoardSquare> potentials = getPotentialSteps();
-		// If the step doesn't satisfy the rules of movement, return false
-		if (!potentials.contains(destination)) {
-			return false;
+		// If the step doesn't satisfy the rules of movement (which also rules out destinations
+		// outside the board), return false
+		int target = CheckersPosition.squareIndex(destination.x, destination.y);
+		int[] steps = STEPS[getKind()][getSquare()];
+		int i = 0;
+		while (i < steps.length && steps[i] != target) {
+			i++;
 		}
-		
-		// If the destination is not even inside the board, return false
-		if (!board.insideBoard(destination)) {
+		if (i == steps.length) {
 			return false;
 		}
 		
 		// Return true only if the destination is empty
-		return (board.getPieceAtPosition(destination) == null);
+		return 0 == (getOccupiedSquares() & (1 << target));
 	}
 	
 	// Determines if a capture is possible from (x1, y1) to (x2, y2) for the given player.
 	public boolean capturePossible(BoardSquare destination) {
-		// If the capture doesn't satisfy the rules of movement, return false
-		if (!getPotentialCaptures().contains(destination)) {
-			return false;
+		// If the capture doesn't satisfy the rules of movement (which also rules out destinations
+		// outside the board), return false
+		int target = CheckersPosition.squareIndex(destination.x, destination.y);
+		int kind = getKind();
+		int square = getSquare();
+		int[] captures = CAPTURES[kind][square];
+		int i = 0;
+		while (i < captures.length && captures[i] != target) {
+			i++;
 		}
-		
-		// If the destination is not even inside the board, return false
-		if (!board.insideBoard(destination)) {
+		if (i == captures.length) {
 			return false;
 		}
 		
-		// Capturing is only allowed if the destination square is empty
-		if (null != board.getPieceAtPosition(destination)) {
-			return false;
-		}
-		
-		// Capturing is only allowed if there exists a piece of the opposite color right
-		// between this piece's current location and the destination
-		BoardSquare midpoint = new BoardSquare((position.x + destination.x) / 2, (position.y + destination.y) / 2);
-		CheckersPiece inBetweenPiece = board.getPieceAtPosition(midpoint);
-		if (inBetweenPiece == null) {
-			return false;
-		}
-		
-		// Capturing is only allowed if the piece between this piece's current location
-		// and the destination is of the opposite color as this piece
-		return (inBetweenPiece.getPlayer() != this.getPlayer());
+		// Capturing is only allowed if the destination square is empty, and if there is a piece
+		// of the opposite color right between this piece's current location and the destination
+		return 0 == (getOccupiedSquares() & (1 << target)) && 0 != (getOpponentSquares() & (1 << CAPTURED[kind][square][i]));
 	}
 	
 	// Gets all potential steps (in other words, the squares that the piece would
 	// be allowed to step to if the board was empty and there were no restrictions).
-	// Should be overridden by the subclass.
-	public abstract Set<BoardSquare> getPotentialSteps();
+	public Set<BoardSquare> getPotentialSteps() {
+		return toSquares(STEPS[getKind()][getSquare()]);
+	}
 	
-	// Gets all possible squares that the piece could possibly capture to. Should
-	// be overridden by the subclass.
-	public abstract Set<BoardSquare> getPotentialCaptures();
+	// Gets all possible squares that the piece could possibly capture to.
+	public Set<BoardSquare> getPotentialCaptures() {
+		return toSquares(CAPTURES[getKind()][getSquare()]);
+	}
 	
 	// Assumes that no captures are available
 	public Set<BoardSquare> getAllLegalStepsForPiece() {
-		Set<BoardSquare> legalDestinations = new HashSet<BoardSquare>();
-		Set<BoardSquare> potentialSteps = this.getPotentialSteps();
-		
-		for (BoardSquare destination : potentialSteps) {
-			if (this.stepPossible(destination)) {
-				legalDestinations.add(destination);
-			}
-		}
-		return legalDestinations;
+		ArrayList<CheckersMove> steps = new ArrayList<CheckersMove>();
+		addLegalSteps(steps);
+		return toDestinations(steps);
 	}
 	
 	// Assumes that this piece is allowed to capture (no "required piece", unless it is this piece)
 	public Set<BoardSquare> getAllLegalCapturesForPiece() {
-		Set<BoardSquare> legalDestinations = new HashSet<BoardSquare>();
-		Set<BoardSquare> potentialCaptures = getPotentialCaptures();
-		
-		for (BoardSquare destination : potentialCaptures) {
-			if (capturePossible(destination)) {
-				legalDestinations.add(destination);
+		ArrayList<CheckersMove> captures = new ArrayList<CheckersMove>();
+		addLegalCaptures(captures);
+		return toDestinations(captures);
+	}
+	
+	// Adds the piece's legal steps to the given list, in the order of the move tables. (Assumes
+	// that no captures are available.)
+	public void addLegalSteps(List<CheckersMove> moves) {
+		int empty = ~getOccupiedSquares();
+		for (int target : STEPS[getKind()][getSquare()]) {
+			if (0 != (empty & (1 << target))) {
+				moves.add(new CheckersMove(position, new BoardSquare(CheckersPosition.squareX(target), CheckersPosition.squareY(target))));
+			}
+		}
+	}
+	
+	// Adds the piece's legal captures to the given list, in the order of the move tables.
+	// (Assumes that this piece is allowed to capture.)
+	public void addLegalCaptures(List<CheckersMove> moves) {
+		int kind = getKind();
+		int square = getSquare();
+		int[] captures = CAPTURES[kind][square];
+		int[] captured = CAPTURED[kind][square];
+		int empty = ~getOccupiedSquares();
+		int opponent = getOpponentSquares();
+		for (int i = 0; i < captures.length; i++) {
+			if (0 != (empty & (1 << captures[i])) && 0 != (opponent & (1 << captured[i]))) {
+				moves.add(new CheckersMove(position, new BoardSquare(CheckersPosition.squareX(captures[i]), CheckersPosition.squareY(captures[i]))));
 			}
 		}
-		return legalDestinations;
 	}
 	
 	public boolean areAnyCapturesPossibleForPiece() {
-		return (0 < getAllLegalCapturesForPiece().size());
+		return canCapture(getKind(), getSquare(), getOpponentSquares(), ~getOccupiedSquares());
 	}
 	
 	public boolean areAnyMovesPossibleForPiece() {
-		return (0 < getAllLegalCapturesForPiece().size() || 0 < this.getAllLegalStepsForPiece().size());
+		return areAnyCapturesPossibleForPiece() || canStep(getKind(), getSquare(), ~getOccupiedSquares());
+	}
+	
+	// Returns whether a piece of the given kind on the given square has a legal capture, given the
+	// squares of the opponent's pieces and the empty squares.
+	static boolean canCapture(int kind, int square, int opponent, int empty) {
+		int[] captures = CAPTURES[kind][square];
+		int[] captured = CAPTURED[kind][square];
+		for (int i = 0; i < captures.length; i++) {
+			if (0 != (empty & (1 << captures[i])) && 0 != (opponent & (1 << captured[i]))) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	// Returns whether a piece of the given kind on the given square has a legal step, given the
+	// empty squares.
+	static boolean canStep(int kind, int square, int empty) {
+		for (int target : STEPS[kind][square]) {
+			if (0 != (empty & (1 << target))) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	// Returns the kind of piece (an index into the move tables) of the given player's men or kings.
+	static int kind(Player player, boolean isKing) {
+		return ((Player.RED == player) ? 2 : 0) + (isKing ? 1 : 0);
+	}
+	
+	private int getKind() {
+		return kind(getPlayer(), isKing);
+	}
+	
+	// Returns the index of the piece's square (see CheckersPosition.squareIndex).
+	private int getSquare() {
+		return CheckersPosition.squareIndex(position.x, position.y);
+	}
+	
+	private int getOccupiedSquares() {
+		return board.getBlackSquares() | board.getRedSquares();
+	}
+	
+	private int getOpponentSquares() {
+		return (Player.BLACK == getPlayer()) ? board.getRedSquares() : board.getBlackSquares();
+	}
+	
+	private static Set<BoardSquare> toSquares(int[] squares) {
+		Set<BoardSquare> set = new LinkedHashSet<BoardSquare>();
+		for (int square : squares) {
+			set.add(new BoardSquare(CheckersPosition.squareX(square), CheckersPosition.squareY(square)));
+		}
+		return set;
+	}
+	
+	private static Set<BoardSquare> toDestinations(List<CheckersMove> moves) {
+		Set<BoardSquare> set = new LinkedHashSet<BoardSquare>();
+		for (CheckersMove move : moves) {
+			set.add(move.destination);
+		}
+		return set;
 	}
 	
 	public abstract Player getPlayer();
@@ -0,0 +1,182 @@
+package checkersPackage;
+
+// A compact, immutable snapshot of a game between turns: one bit per playable (dark) square for
+// the black pieces, the red pieces and the kings, plus the player who is to move. Unlike a
+// CheckersBoard, which holds a CheckersPiece object per piece, a position costs only a few words,
+// so it is what long-lived state (such as a server's game sessions) should hold on to.
+//
+// The 32 playable squares are numbered row by row from the top (Red's side) of the board, four
+// per row: square (x, y) has index y * 4 + x / 2.
+//
+// The game is symmetric under turning the board around and swapping the colors: the "mirror" of a
+// position, in which each piece moves to the opposite square (x, y) -> (7 - x, 7 - y) and changes
+// color, and the other player is to move, plays exactly like the original (with every move
+// mirrored the same way). Turning the board around reverses the order of the square indices, so
+// it is a single Integer.reverse per bitboard. Caches, opening books and tablebases store one entry
+// per pair by keying on the canonical position: of the two, the one with Black to move.
+public final class CheckersPosition {
+	public static final int NUMBER_OF_SQUARES = 32;
+
+	// The standard starting position, with Black (the human player) to move
+	public static final CheckersPosition INITIAL = new CheckersPosition(0xFFF00000, 0x00000FFF, 0, Player.BLACK);
+
+	// Middlegame positions (in the notation of parse) reached by random play from the starting
+	// position, which the engine searches to warm up (see EngineStartup) and the benchmarks measure
+	static final String[] SAMPLES = {
+		"B:rrrr......rrrr.b....bb..b.bbbbb.",
+		"B:rrr.r.r.r...r.r....b.b.br.bb..bb",
+		"R:rrrrr..rbb....b....rb.....b.Rbbb",
+		"B:rrrrr..rr...r....br..b.bbbb..bbb",
+		"B:r.rrr..r...r...rr..rb...bb.rbbbb",
+		"B:rr.B.r.r...rr...rb...b.rbb...bbb",
+		"R:r.r.r.r.r.rrr.rb...b.b.bb.b.bb.b",
+		"R:..rrrr.rr...r..r..b.bb.bb.bb..b.",
+		"B:r.rrrrrr..rr.r..br...bbbbbbb.bbb",
+		"B:rr.rr.rr.r.......rb....bb.b.bb.b",
+		"B:rrrrr.r.rr.r.rrb.bb.bb..bb..bbbb",
+		"B:rrrr..r.r....r.r....b.br.bbb.bbb",
+	};
+
+	public final int black; // squares holding a black piece
+	public final int red; // squares holding a red piece
+	public final int kings; // squares holding a king (of either color)
+	public final Player turn; // the player to move
+
+	public CheckersPosition(int black, int red, int kings, Player turn) {
+		if (0 != (black & red) || 0 != (kings & ~(black | red))) {
+			throw new IllegalArgumentException("Inconsistent position");
+		}
+		this.black = black;
+		this.red = red;
+		this.kings = kings;
+		this.turn = turn;
+	}
+
+	// Takes a snapshot of the pieces currently on the given board.
+	public static CheckersPosition of(CheckersBoard board, Player turn) {
+		return new CheckersPosition(board.getBlackSquares(), board.getRedSquares(), board.getKingSquares(), turn);
+	}
+
+	// Returns the index of the playable square (x, y), or -1 if the square is not playable.
+	public static int squareIndex(int x, int y) {
+		if (x < 0 || x > 7 || y < 0 || y > 7 || (x + y) % 2 != 0) {
+			return -1;
+		}
+		return y * 4 + x / 2;
+	}
+
+	// Returns the column of the playable square with the given index.
+	public static int squareX(int index) {
+		return 2 * (index & 3) + ((index >> 2) & 1);
+	}
+
+	// Returns the row of the playable square with the given index.
+	public static int squareY(int index) {
+		return index >> 2;
+	}
+
+	// Returns the index of the square opposite the given one ((x, y) -> (7 - x, 7 - y)).
+	public static int mirrorSquare(int index) {
+		return NUMBER_OF_SQUARES - 1 - index;
+	}
+
+	// Returns the bitboard with each square moved to the opposite square.
+	public static int mirrorSquares(int squares) {
+		return Integer.reverse(squares);
+	}
+
+	// Returns the mirror image of this position: the board turned around, with the colors swapped.
+	public CheckersPosition mirror() {
+		return new CheckersPosition(mirrorSquares(red), mirrorSquares(black), mirrorSquares(kings),
+				(Player.BLACK == turn) ? Player.RED : Player.BLACK);
+	}
+
+	// Returns whether this position is the canonical one of itself and its mirror image.
+	public boolean isCanonical() {
+		return Player.BLACK == turn;
+	}
+
+	// Returns the canonical one of this position and its mirror image.
+	public CheckersPosition canonical() {
+		return isCanonical() ? this : mirror();
+	}
+
+	// Returns the same pieces with the given player to move.
+	public CheckersPosition withTurn(Player turn) {
+		return new CheckersPosition(black, red, kings, turn);
+	}
+
+	public int getPieceCount(Player player) {
+		return Integer.bitCount(Player.BLACK == player ? black : red);
+	}
+
+	public int getKingCount(Player player) {
+		return Integer.bitCount(kings & (Player.BLACK == player ? black : red));
+	}
+
+	// Returns the position as text: the player to move ("B" or "R"), a colon, and then one character
+	// per playable square in index order: 'b'/'r' for men, 'B'/'R' for kings and '.' for empty squares.
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder(NUMBER_OF_SQUARES + 2);
+		builder.append(Player.BLACK == turn ? 'B' : 'R').append(':');
+		for (int i = 0; i < NUMBER_OF_SQUARES; i++) {
+			boolean king = 0 != (kings & (1 << i));
+			if (0 != (black & (1 << i))) {
+				builder.append(king ? 'B' : 'b');
+			} else if (0 != (red & (1 << i))) {
+				builder.append(king ? 'R' : 'r');
+			} else {
+				builder.append('.');
+			}
+		}
+		return builder.toString();
+	}
+
+	// Parses a position written in the format produced by toString.
+	public static CheckersPosition parse(String text) {
+		if (null == text || text.length() != NUMBER_OF_SQUARES + 2 || text.charAt(1) != ':') {
+			throw new IllegalArgumentException("Not a position: " + text);
+		}
+		Player turn;
+		if (text.charAt(0) == 'B') {
+			turn = Player.BLACK;
+		} else if (text.charAt(0) == 'R') {
+			turn = Player.RED;
+		} else {
+			throw new IllegalArgumentException("Not a position: " + text);
+		}
+		int black = 0;
+		int red = 0;
+		int kings = 0;
+		for (int i = 0; i < NUMBER_OF_SQUARES; i++) {
+			char c = text.charAt(i + 2);
+			if (c == 'b' || c == 'B') {
+				black |= 1 << i;
+			} else if (c == 'r' || c == 'R') {
+				red |= 1 << i;
+			} else if (c != '.') {
+				throw new IllegalArgumentException("Not a position: " + text);
+			}
+			if (c == 'B' || c == 'R') {
+				kings |= 1 << i;
+			}
+		}
+		return new CheckersPosition(black, red, kings, turn);
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (other == null || other.getClass() != this.getClass()) {
+			return false;
+		}
+		CheckersPosition otherPosition = (CheckersPosition) other;
+		return black == otherPosition.black && red == otherPosition.red && kings == otherPosition.kings
+				&& turn == otherPosition.turn;
+	}
+
+	@Override
+	public int hashCode() {
+		return ((black * 31 + red) * 31 + kings) * 2 + turn.ordinal();
+	}
+}
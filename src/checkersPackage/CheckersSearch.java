@@ -0,0 +1,720 @@
+package checkersPackage;
+
+import java.util.*;
+
+// An iterative-deepening alpha-beta search over a private copy of a position, for uses (such as
+// CheckersEngineProtocol) that need more control than CheckersBoard.findBestMove offers: the search
+// can be limited by depth, time or nodes, can be stopped from another thread at any moment, and
+// reports each completed iteration to a SearchListener.
+//
+// Like findBestMove, the search counts depth in turns (a chain of captures is a single turn).
+// Positions are scored by a CheckersEvaluator, from the point of view of the player to move, in
+// hundredths of a man. The positions one turn from the search horizon are scored together, in a
+// LeafBatch, by a BatchEvaluator (which can score several at once with SIMD instructions).
+//
+// Three refinements spend the search's effort where it matters, and each can be switched off (for
+// example, to measure what it gains with SearchBenchmark):
+//  - principal variation search: after the first move, moves are searched with a null window,
+//    which only proves that they are no better, and are re-searched only if they turn out better;
+//  - late move reductions: quiet moves that are ordered late are searched one turn shallower, and
+//    re-searched at full depth only if they beat the best move so far;
+//  - aspiration windows: each iteration starts with a narrow window around the previous
+//    iteration's score, and is re-searched with a wider window if the score falls outside it.
+//
+// Lines that repeat a position (of the line itself or of the game before the root, if its
+// PositionHistory is given) or that reach the no-progress limit are scored as draws at once.
+//
+// With a game clock (SearchLimits.remainingMillis), the search budgets its own time: a share of
+// the remaining time plus most of the increment, stretched while the best turn keeps changing from
+// one iteration to the next and shrunk once it has been stable for a while, and never more than a
+// fixed fraction of the clock. If there is only one legal turn, it is played without searching;
+// if there are several but a capture is forced (so every turn is a capture), the choice is
+// narrow, and the budget is cut to a quarter.
+//
+// In multi-PV mode, each iteration searches the root several times, each time leaving out the
+// turns that were best in the previous searches, to find the best few turns with their scores and
+// principal variations; the listener receives each line as soon as it is found.
+//
+// A node budget (SearchLimits.nodes) stops the search at about that many nodes: the count is
+// checked every so often, and a batch of leaves is always scored whole, so the search may go a
+// little over. The count does not depend on the machine, so the search plays the same way on any
+// machine; with evaluation noise (see Difficulty), every position's score is off by a
+// pseudo-random amount that stays the same for the whole search.
+//
+// If a TranspositionTable is set, positions already searched deeply enough (by this search, or by
+// earlier ones sharing the table) are not searched again, and the best turn stored for a position
+// is searched first.
+public class CheckersSearch {
+	public static final int MAX_DEPTH = 60;
+	public static final int WIN_SCORE = 100000; // score for a win at the root; wins further away score less
+	public static final int DRAW_SCORE = 0;
+	static final int INFINITE_SCORE = WIN_SCORE + 1;
+	private static final int ASPIRATION_WINDOW = 25; // initial half-width of an aspiration window
+	private static final int LATE_MOVE_INDEX = 3; // moves from this index on may be reduced
+	private static final int LATE_MOVE_MIN_DEPTH = 3; // no reductions closer than this to the leaves
+	private static final int MOVES_TO_GO = 25; // turns the remaining time is assumed to be needed for
+	private static final int MAX_CLOCK_FRACTION = 4; // never budget more than 1/4 of the remaining time
+	private static final long CLOCK_SAFETY_MILLIS = 30; // kept in reserve for overheads
+	private static final int FORCED_CAPTURE_DIVISOR = 4; // the budget is divided by this when a capture is forced
+
+	private final CheckersBoard board; // private working copy of the position
+	private final Player rootTurn;
+
+	// Switchable refinements
+	private boolean principalVariationSearch = true;
+	private boolean lateMoveReductions = true;
+	private boolean aspirationWindows = true;
+
+	// Search state
+	private volatile boolean stopped;
+	private volatile boolean pondering;
+	private volatile long startTime;
+	private long hardLimitMillis; // time after which the search stops at once (0 for none)
+	private long nodeLimit; // node count at which the limits are checked next
+	private SearchLimits limits;
+	private long nodes;
+	private final int[] principalVariationLength = new int[MAX_DEPTH + 1];
+	private final ArrayList<ArrayList<ArrayList<CheckersMove>>> principalVariationTable;
+	private List<ArrayList<CheckersMove>> previousPrincipalVariation; // searched first in the next iteration
+	private int multiPV = 1; // number of best root turns to find
+	private final Set<String> excludedRootMoves = new HashSet<String>(); // (in notation) the lines found so far
+	private List<SearchInfo> lines = new ArrayList<SearchInfo>(); // the deepest completed iteration's lines
+	private final int[][] history = new int[2][CheckersPosition.NUMBER_OF_SQUARES * CheckersPosition.NUMBER_OF_SQUARES];
+
+	// Evaluation
+	private CheckersEvaluator evaluator;
+	private BatchEvaluator batchEvaluator; // null to score leaves one at a time
+	private final LeafBatch leafBatch = new LeafBatch(CheckersBitboard.MAX_MOVES);
+	private NnueAccumulator accumulator; // if not null, positions are scored by a neural network instead
+	private int evaluationNoise; // largest amount added to or taken from a score (0 for none)
+	private long noiseSeed;
+	private TranspositionTable transpositionTable; // null if not used
+
+	// Draws
+	private boolean drawDetection = true;
+	private PositionHistory positionHistory; // the game so far, then the line being searched
+	private int noProgressLimit = PositionHistory.DEFAULT_NO_PROGRESS_LIMIT;
+	private final boolean[] leafDraws = new boolean[CheckersBitboard.MAX_MOVES];
+
+	public CheckersSearch(CheckersPosition position) {
+		this.board = new CheckersBoard();
+		this.board.loadPosition(position);
+		this.rootTurn = position.turn;
+		this.positionHistory = new PositionHistory(position);
+		this.evaluator = DefaultEvaluators.EVALUATOR;
+		this.batchEvaluator = DefaultEvaluators.BATCH_EVALUATOR;
+		this.principalVariationTable = new ArrayList<ArrayList<ArrayList<CheckersMove>>>();
+		for (int ply = 0; ply <= MAX_DEPTH; ply++) {
+			principalVariationTable.add(new ArrayList<ArrayList<CheckersMove>>());
+		}
+	}
+
+	// Searches the position until one of the given limits is reached or stop() is called, and
+	// returns the result of the deepest completed iteration. (If not even the first iteration
+	// completes, the result holds the first legal turn found.) Infinite and pondering searches
+	// do not return before stop() or ponderHit() is called, even if the maximum depth is reached.
+	public SearchInfo search(SearchLimits limits, SearchListener listener) {
+		this.limits = limits;
+		this.nodes = 0;
+		this.stopped = false;
+		this.pondering = limits.ponder;
+		this.startTime = System.currentTimeMillis();
+		this.previousPrincipalVariation = new ArrayList<ArrayList<CheckersMove>>();
+		for (int[] table : history) {
+			Arrays.fill(table, 0);
+		}
+		if (null != transpositionTable) {
+			transpositionTable.newSearch();
+		}
+		int maxDepth = (limits.depth > 0) ? Math.min(limits.depth, MAX_DEPTH) : MAX_DEPTH;
+
+		// Budget the time: a hard limit, and with a clock, a soft limit on starting new iterations
+		this.hardLimitMillis = limits.moveTimeMillis;
+		this.nodeLimit = (limits.nodes > 0) ? Math.min(limits.nodes, 1024) : 1024;
+		long softLimitMillis = 0;
+		ArrayList<ArrayList<CheckersMove>> rootMoves = board.returnListOfLegalMoveSequences(rootTurn);
+		if (limits.remainingMillis > 0) {
+			if (1 == rootMoves.size() && !limits.ponder && !limits.infinite) {
+				List<ArrayList<CheckersMove>> onlyMove = new ArrayList<ArrayList<CheckersMove>>(rootMoves);
+				return new SearchInfo(0, evaluate(rootTurn), 0, System.currentTimeMillis() - startTime, onlyMove);
+			}
+			long available = Math.max(1, limits.remainingMillis - CLOCK_SAFETY_MILLIS);
+			softLimitMillis = Math.min(available / MOVES_TO_GO + limits.incrementMillis * 3 / 4, available / MAX_CLOCK_FRACTION);
+			if (board.areAnyCapturesPossible(rootTurn)) {
+				softLimitMillis = Math.max(1, softLimitMillis / FORCED_CAPTURE_DIVISOR); // (every turn is a capture)
+			}
+			long hardLimit = Math.min(softLimitMillis * 4, available / MAX_CLOCK_FRACTION);
+			hardLimitMillis = (hardLimitMillis > 0) ? Math.min(hardLimitMillis, hardLimit) : Math.max(1, hardLimit);
+		}
+		double instability = 1.0; // scales the soft limit: more while the best turn keeps changing
+
+		SearchInfo result = null;
+		lines = new ArrayList<SearchInfo>();
+		int lineCount = Math.max(1, Math.min(multiPV, rootMoves.size()));
+		for (int depth = 1; depth <= maxDepth; depth++) {
+			List<SearchInfo> iterationLines = new ArrayList<SearchInfo>();
+			excludedRootMoves.clear();
+			boolean decided = true; // whether every line's score is a forced win or loss
+			for (int line = 1; line <= lineCount; line++) {
+				// Search first the previous iteration's best line among the turns left
+				SearchInfo expected = null;
+				for (SearchInfo previousLine : lines) {
+					if (!excludedRootMoves.contains(CheckersMove.toNotation(previousLine.getBestMove()))) {
+						expected = previousLine;
+						break;
+					}
+				}
+				previousPrincipalVariation = (null != expected) ? expected.principalVariation : new ArrayList<ArrayList<CheckersMove>>();
+
+				int score;
+				if (aspirationWindows && null != expected && Math.abs(expected.score) < WIN_SCORE - MAX_DEPTH) {
+					score = searchWithAspirationWindow(depth, expected.score);
+				} else {
+					score = search(rootTurn, depth, -INFINITE_SCORE, INFINITE_SCORE, 0, true);
+				}
+				if (stopped) {
+					break;
+				}
+				SearchInfo info = new SearchInfo(depth, score, nodes, System.currentTimeMillis() - startTime, principalVariation(), line);
+				iterationLines.add(info);
+				if (null != listener) {
+					listener.iterationCompleted(info);
+				}
+				if (null == info.getBestMove()) {
+					break;
+				}
+				excludedRootMoves.add(CheckersMove.toNotation(info.getBestMove()));
+				decided &= Math.abs(score) > WIN_SCORE - MAX_DEPTH;
+			}
+			excludedRootMoves.clear();
+			if (stopped) {
+				break;
+			}
+			SearchInfo previous = result;
+			lines = iterationLines;
+			result = lines.get(0);
+			if (null == result.getBestMove() || decided) {
+				break; // no moves, or forced wins or losses were found: deeper searches cannot change the result
+			}
+
+			// Do not start an iteration that would probably overrun the time budget (each iteration
+			// takes longer than all of the previous ones together)
+			if (softLimitMillis > 0 && !pondering && !limits.infinite) {
+				if (null != previous && !CheckersMove.toNotation(previous.getBestMove()).equals(CheckersMove.toNotation(result.getBestMove()))) {
+					instability = Math.min(2.5, instability + 0.5);
+				} else {
+					instability = Math.max(0.5, instability * 0.85);
+				}
+				if (result.timeMillis >= softLimitMillis * instability / 2) {
+					break;
+				}
+			}
+		}
+		waitUntilStoppedIfUnbounded();
+
+		if (null == result) {
+			List<ArrayList<CheckersMove>> fallback = new ArrayList<ArrayList<CheckersMove>>();
+			ArrayList<ArrayList<CheckersMove>> moves = board.returnListOfLegalMoveSequences(rootTurn);
+			if (!moves.isEmpty()) {
+				fallback.add(moves.get(0));
+			}
+			result = new SearchInfo(0, 0, nodes, System.currentTimeMillis() - startTime, fallback);
+		}
+		return result;
+	}
+
+	// Searches the position to the given depth within the window (alpha, beta), after shallower
+	// iterations with the full window to order the moves, and returns the score: exact if it lies
+	// inside the window, otherwise only a bound (a score at most alpha means the true score is at
+	// most that; at least beta, at least that). Used by SearchWorker for DistributedSearch's work units.
+	// Once stop() is called, it returns as soon as possible, with a meaningless score.
+	public int searchWindow(int depth, int alpha, int beta) {
+		if (depth <= 0) {
+			return evaluate(rootTurn);
+		}
+		SearchInfo shallow = search(SearchLimits.depth(1), null);
+		if (depth <= 1 || null == shallow.getBestMove()) {
+			return shallow.score;
+		}
+		int score = 0;
+		for (int iteration = 2; iteration <= depth && !stopped; iteration++) {
+			previousPrincipalVariation = principalVariation();
+			score = search(rootTurn, iteration, alpha, beta, 0, true);
+		}
+		return score;
+	}
+
+	// Stops the search as soon as possible. May be called from any thread.
+	public void stop() {
+		synchronized (this) {
+			stopped = true;
+			notifyAll();
+		}
+	}
+
+	// Tells a pondering search that the opponent played the expected move: from now on, the search
+	// obeys its limits, with the time limit counted from this moment. May be called from any thread.
+	public void ponderHit() {
+		synchronized (this) {
+			startTime = System.currentTimeMillis();
+			pondering = false;
+			notifyAll();
+		}
+	}
+
+	public long getNodes() {
+		return nodes;
+	}
+
+	public void setPrincipalVariationSearch(boolean enabled) {
+		this.principalVariationSearch = enabled;
+	}
+
+	public void setLateMoveReductions(boolean enabled) {
+		this.lateMoveReductions = enabled;
+	}
+
+	public void setAspirationWindows(boolean enabled) {
+		this.aspirationWindows = enabled;
+	}
+
+	// Sets the evaluation function, and the batch evaluator (which must give the same scores) used
+	// for the positions next to the horizon; a null batch evaluator scores them one at a time.
+	public void setEvaluator(CheckersEvaluator evaluator, BatchEvaluator batchEvaluator) {
+		this.evaluator = evaluator;
+		this.batchEvaluator = batchEvaluator;
+	}
+
+	// Makes the search score positions with the given neural network, whose first layer is updated
+	// incrementally as the search makes and undoes moves (positions are then scored one at a time).
+	public void setNetwork(NnueNetwork network) {
+		this.accumulator = NnueAccumulator.attach(network, board);
+		this.batchEvaluator = null;
+	}
+
+	// Sets the number of best root turns to find (1 by default), each with its score and principal
+	// variation. Searching K lines costs at most about K times as much as searching one (less with
+	// a transposition table, since the later lines revisit positions searched for the earlier ones).
+	public void setMultiPV(int count) {
+		this.multiPV = Math.max(1, count);
+	}
+
+	// Returns the lines of the deepest completed iteration, best first (in multi-PV mode; otherwise
+	// just the search's result).
+	public List<SearchInfo> getLines() {
+		return lines;
+	}
+
+	// Adds pseudo-random noise of up to the given amount (in hundredths of a man) to every score,
+	// to weaken the search. Searches with different seeds add different noise.
+	public void setEvaluationNoise(int amplitude, long seed) {
+		this.evaluationNoise = amplitude;
+		this.noiseSeed = seed;
+	}
+
+	// Gives the search the positions of the game that led to the root (the last one being the
+	// root), so that it can recognize repetitions of them.
+	public void setPositionHistory(PositionHistory gameHistory) {
+		PositionHistory copy = new PositionHistory(gameHistory);
+		CheckersPosition root = CheckersPosition.of(board, rootTurn);
+		if (0 == copy.size() || copy.getLastKey() != TranspositionTable.key(root.black, root.red, root.kings, root.turn)) {
+			copy.push(root);
+		}
+		this.positionHistory = copy;
+	}
+
+	// Sets whether repetitions and the no-progress limit are scored as draws (on by default;
+	// switching it off is only useful to measure what it saves).
+	public void setDrawDetection(boolean enabled) {
+		this.drawDetection = enabled;
+	}
+
+	// Sets the number of turns without a capture or a move by a man after which the game is drawn.
+	public void setNoProgressLimit(int noProgressLimit) {
+		this.noProgressLimit = noProgressLimit;
+	}
+
+	// Makes the search store its results in, and reuse results from, the given table (which may be
+	// shared with other searches, one at a time or concurrently).
+	public void setTranspositionTable(TranspositionTable transpositionTable) {
+		this.transpositionTable = transpositionTable;
+	}
+
+	// Searches the root to the given depth, starting with a narrow window around the expected
+	// score, and widening the window on whichever side the score falls outside it.
+	private int searchWithAspirationWindow(int depth, int expectedScore) {
+		int lowerDelta = ASPIRATION_WINDOW;
+		int upperDelta = ASPIRATION_WINDOW;
+		while (true) {
+			int alpha = (lowerDelta > WIN_SCORE) ? -INFINITE_SCORE : expectedScore - lowerDelta;
+			int beta = (upperDelta > WIN_SCORE) ? INFINITE_SCORE : expectedScore + upperDelta;
+			int score = search(rootTurn, depth, alpha, beta, 0, true);
+			if (stopped) {
+				return score;
+			} else if (score <= alpha) {
+				lowerDelta *= 4;
+			} else if (score >= beta) {
+				upperDelta *= 4;
+			} else {
+				return score;
+			}
+		}
+	}
+
+	// Alpha-beta search (in negamax form) of the current board position for the given player,
+	// returning the score for that player. The best line found is left in the principal variation
+	// table at the given ply. "onPrincipalVariation" is true if every move leading here was the
+	// previous iteration's principal variation, whose next move is then searched first.
+	private int search(Player turn, int depth, int alpha, int beta, int ply, boolean onPrincipalVariation) {
+		nodes++;
+		principalVariationLength[ply] = 0;
+		if (nodes >= nodeLimit) {
+			checkLimits();
+		}
+		if (stopped) {
+			return 0;
+		}
+		if (ply > 0 && isDraw()) {
+			return DRAW_SCORE;
+		}
+		if (depth <= 0 || ply >= MAX_DEPTH) {
+			return evaluate(turn);
+		}
+
+		// Use the stored result for this position if it was searched deeply enough and decides the
+		// score. (Not along the previous principal variation, nor for exact scores inside a wide
+		// window, which would cut the principal variation short.)
+		long key = 0;
+		long entry = 0;
+		boolean mirrored = false; // whether the table holds this position's mirror image
+		if (null != transpositionTable) {
+			key = transpositionTable.positionKey(board.getBlackSquares(), board.getRedSquares(), board.getKingSquares(), turn);
+			mirrored = transpositionTable.isMirrored(turn);
+			entry = transpositionTable.probe(key);
+			if (0 != entry && ply > 0 && !onPrincipalVariation && TranspositionTable.depth(entry) >= depth) {
+				int storedScore = fromTableScore(TranspositionTable.score(entry), ply);
+				int bound = TranspositionTable.bound(entry);
+				if ((TranspositionTable.UPPER_BOUND != bound && storedScore >= beta)
+						|| (TranspositionTable.LOWER_BOUND != bound && storedScore <= alpha)
+						|| (TranspositionTable.EXACT == bound && beta - alpha == 1)) {
+					return storedScore;
+				}
+			}
+		}
+
+		ArrayList<ArrayList<CheckersMove>> moves = board.returnListOfLegalMoveSequences(turn);
+		if (moves.isEmpty()) {
+			return -WIN_SCORE + ply; // the player to move has lost
+		}
+		if (0 == ply && !excludedRootMoves.isEmpty()) {
+			for (Iterator<ArrayList<CheckersMove>> iterator = moves.iterator(); iterator.hasNext();) {
+				if (excludedRootMoves.contains(CheckersMove.toNotation(iterator.next()))) {
+					iterator.remove();
+				}
+			}
+		}
+		boolean followPrincipalVariation = onPrincipalVariation && ply < previousPrincipalVariation.size();
+		orderMoves(moves, turn, followPrincipalVariation ? previousPrincipalVariation.get(ply) : null);
+		if (!followPrincipalVariation && 0 != entry && TranspositionTable.hasMove(entry)) {
+			int from = TranspositionTable.moveFrom(entry);
+			int to = TranspositionTable.moveTo(entry);
+			moveToFront(moves, mirrored ? CheckersPosition.mirrorSquare(from) : from, mirrored ? CheckersPosition.mirrorSquare(to) : to);
+		}
+
+		Player opponent = board.switchTurn(turn);
+		if (1 == depth && null != batchEvaluator) {
+			return searchLeaves(turn, alpha, beta, ply, moves);
+		}
+
+		int originalAlpha = alpha;
+		int bestScore = -INFINITE_SCORE;
+		ArrayList<CheckersMove> bestMove = null;
+		for (int i = 0; i < moves.size(); i++) {
+			ArrayList<CheckersMove> move = moves.get(i);
+			boolean quiet = isQuiet(move);
+			makeMoves(move, turn);
+			int score;
+			if (0 == i) {
+				score = -search(opponent, depth - 1, -beta, -alpha, ply + 1, followPrincipalVariation);
+			} else {
+				// Late quiet moves are searched with a reduced depth first
+				int reduction = 0;
+				if (lateMoveReductions && depth >= LATE_MOVE_MIN_DEPTH && i >= LATE_MOVE_INDEX && quiet) {
+					reduction = 1;
+				}
+				// With principal variation search, later moves are first searched with a null window
+				int searchBeta = principalVariationSearch ? alpha + 1 : beta;
+				score = -search(opponent, depth - 1 - reduction, -searchBeta, -alpha, ply + 1, false);
+				if (score > alpha && reduction > 0) {
+					score = -search(opponent, depth - 1, -searchBeta, -alpha, ply + 1, false);
+				}
+				if (score > alpha && score < beta && searchBeta != beta) {
+					score = -search(opponent, depth - 1, -beta, -alpha, ply + 1, false);
+				}
+			}
+			undoMoves(move, turn);
+			if (stopped) {
+				return 0;
+			}
+			if (score > bestScore) {
+				bestScore = score;
+				bestMove = move;
+				if (score > alpha) {
+					alpha = score;
+					updatePrincipalVariation(ply, move);
+				}
+				if (score >= beta) {
+					if (quiet) {
+						history[turn.ordinal()][historyIndex(move)] += depth * depth;
+					}
+					break;
+				}
+			}
+		}
+		if (null != transpositionTable && (ply > 0 || excludedRootMoves.isEmpty())) {
+			int bound = (bestScore <= originalAlpha) ? TranspositionTable.UPPER_BOUND
+					: (bestScore >= beta) ? TranspositionTable.LOWER_BOUND : TranspositionTable.EXACT;
+			BoardSquare from = mirrored ? bestMove.get(0).start.mirror() : bestMove.get(0).start;
+			BoardSquare to = mirrored ? bestMove.get(0).destination.mirror() : bestMove.get(0).destination;
+			transpositionTable.store(key, toTableScore(bestScore, ply), depth, bound,
+					CheckersPosition.squareIndex(from.x, from.y), CheckersPosition.squareIndex(to.x, to.y));
+		}
+		return bestScore;
+	}
+
+	// Searches a node one turn from the horizon: the positions after each of its moves are gathered
+	// into the leaf batch and scored together, and the best is chosen as search() would have done.
+	private int searchLeaves(Player turn, int alpha, int beta, int ply, ArrayList<ArrayList<CheckersMove>> moves) {
+		Player opponent = board.switchTurn(turn);
+		leafBatch.clear();
+		for (int i = 0; i < moves.size(); i++) {
+			ArrayList<CheckersMove> move = moves.get(i);
+			makeMoves(move, turn);
+			leafBatch.add(board.getBlackSquares(), board.getRedSquares(), board.getKingSquares(), opponent);
+			leafDraws[i] = isDraw();
+			undoMoves(move, turn);
+		}
+		batchEvaluator.evaluate(leafBatch);
+		countNodes(moves.size());
+		if (evaluationNoise > 0) {
+			for (int i = 0; i < moves.size(); i++) {
+				leafBatch.scores[i] += noise(leafBatch.black[i], leafBatch.red[i], leafBatch.kings[i], opponent);
+			}
+		}
+
+		int bestScore = -INFINITE_SCORE;
+		principalVariationLength[ply + 1] = 0; // the leaves have no continuation
+		for (int i = 0; i < moves.size(); i++) {
+			int score = leafDraws[i] ? DRAW_SCORE : -leafBatch.scores[i];
+			if (score > bestScore) {
+				bestScore = score;
+				if (score > alpha) {
+					alpha = score;
+					updatePrincipalVariation(ply, moves.get(i));
+				}
+				if (score >= beta) {
+					if (isQuiet(moves.get(i))) {
+						history[turn.ordinal()][historyIndex(moves.get(i))] += 1;
+					}
+					break;
+				}
+			}
+		}
+		return bestScore;
+	}
+
+	// Counts nodes that were visited without calling search(), checking the limits as search() does.
+	private void countNodes(int count) {
+		nodes += count;
+		if (nodes >= nodeLimit) {
+			checkLimits();
+		}
+	}
+
+	// Orders the moves so that the most promising are searched first: the given move (from the
+	// previous principal variation) if there is one, then captures and moves that make a king,
+	// then quiet moves in order of how often they have caused cutoffs.
+	private void orderMoves(ArrayList<ArrayList<CheckersMove>> moves, final Player turn, ArrayList<CheckersMove> first) {
+		final int[] turnHistory = history[turn.ordinal()];
+		Collections.sort(moves, new Comparator<ArrayList<CheckersMove>>() {
+			public int compare(ArrayList<CheckersMove> move1, ArrayList<CheckersMove> move2) {
+				boolean quiet1 = isQuiet(move1);
+				boolean quiet2 = isQuiet(move2);
+				if (quiet1 != quiet2) {
+					return quiet1 ? 1 : -1;
+				}
+				return turnHistory[historyIndex(move2)] - turnHistory[historyIndex(move1)];
+			}
+		});
+		moveToFront(moves, first);
+	}
+
+	// Returns whether a turn is quiet: neither a capture nor a move that makes a king. (Must be
+	// called while the turn has not been made on the working board.)
+	private boolean isQuiet(ArrayList<CheckersMove> move) {
+		CheckersMove firstMove = move.get(0);
+		if (firstMove.isCapture) {
+			return false;
+		}
+		CheckersPiece piece = board.getPieceAtPosition(firstMove.start);
+		int promotionRow = (Player.BLACK == piece.getPlayer()) ? 0 : board.getLength() - 1;
+		return piece.isKing() || firstMove.destination.y != promotionRow;
+	}
+
+	// Returns the index of a turn's start and end squares in the history table.
+	private static int historyIndex(ArrayList<CheckersMove> move) {
+		BoardSquare start = move.get(0).start;
+		BoardSquare destination = move.get(move.size() - 1).destination;
+		return CheckersPosition.squareIndex(start.x, start.y) * CheckersPosition.NUMBER_OF_SQUARES
+				+ CheckersPosition.squareIndex(destination.x, destination.y);
+	}
+
+	// Returns whether the line being searched has reached a draw: a repetition, or the no-progress
+	// limit.
+	private boolean isDraw() {
+		return drawDetection && (positionHistory.getNoProgressCount() >= noProgressLimit || positionHistory.isRepetition());
+	}
+
+	// Returns the score of the working board for the given player.
+	private int evaluate(Player turn) {
+		int score;
+		if (null != accumulator) {
+			score = accumulator.evaluate(turn);
+		} else {
+			score = evaluator.evaluate(board.getBlackSquares(), board.getRedSquares(), board.getKingSquares(), turn);
+		}
+		if (evaluationNoise > 0) {
+			score += noise(board.getBlackSquares(), board.getRedSquares(), board.getKingSquares(), turn);
+		}
+		return score;
+	}
+
+	// Returns the noise added to the score of the given position: a hash of the position and the
+	// seed, so that the position gets the same score wherever it occurs in the search.
+	private int noise(int black, int red, int kings, Player turn) {
+		long hash = TranspositionTable.key(black, red, kings, turn) ^ noiseSeed;
+		hash *= 0x9e3779b97f4a7c15L;
+		return (int) ((hash >>> 33) % (2 * evaluationNoise + 1)) - evaluationNoise;
+	}
+
+	// Stops the search if its node or time limit has been reached.
+	private void checkLimits() {
+		nodeLimit = nodes + 1024;
+		if (limits.nodes > 0 && limits.nodes < nodeLimit) {
+			nodeLimit = limits.nodes;
+		}
+		if (limits.infinite || pondering) {
+			return;
+		}
+		if ((limits.nodes > 0 && nodes >= limits.nodes)
+				|| (hardLimitMillis > 0 && System.currentTimeMillis() - startTime >= hardLimitMillis)) {
+			stopped = true;
+		}
+	}
+
+	// Blocks an infinite or pondering search that finished early until it is stopped (or, when
+	// pondering, until the ponder hit, at which point the result can be reported immediately).
+	private synchronized void waitUntilStoppedIfUnbounded() {
+		while (!stopped && (limits.infinite || pondering)) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	// Makes every move of one turn on the working board, and adds the new position to the history.
+	private void makeMoves(ArrayList<CheckersMove> turnMoves, Player turn) {
+		for (CheckersMove move : turnMoves) {
+			board.makeMove(move, turn, false);
+		}
+		positionHistory.push(board.getBlackSquares(), board.getRedSquares(), board.getKingSquares(), board.switchTurn(turn));
+	}
+
+	// Undoes every move of one turn on the working board, in reverse order.
+	private void undoMoves(ArrayList<CheckersMove> turnMoves, Player turn) {
+		positionHistory.pop();
+		for (int i = turnMoves.size() - 1; i >= 0; i--) {
+			board.undoMove(turnMoves.get(i), turn);
+		}
+	}
+
+	// Records that "move" followed by the best line from the next ply is the best line from this ply.
+	private void updatePrincipalVariation(int ply, ArrayList<CheckersMove> move) {
+		ArrayList<ArrayList<CheckersMove>> line = principalVariationTable.get(ply);
+		line.clear();
+		line.add(move);
+		if (ply < MAX_DEPTH) {
+			ArrayList<ArrayList<CheckersMove>> nextLine = principalVariationTable.get(ply + 1);
+			line.addAll(nextLine.subList(0, principalVariationLength[ply + 1]));
+		}
+		principalVariationLength[ply] = line.size();
+	}
+
+	// Returns a copy of the principal variation from the root.
+	private List<ArrayList<CheckersMove>> principalVariation() {
+		return new ArrayList<ArrayList<CheckersMove>>(principalVariationTable.get(0).subList(0, principalVariationLength[0]));
+	}
+
+	// Converts a score to how it is stored in the transposition table: wins and losses are stored as
+	// distances from the stored position rather than from the root, since it may be reached at
+	// other plies.
+	private static int toTableScore(int score, int ply) {
+		if (score > WIN_SCORE - MAX_DEPTH) {
+			return score + ply;
+		} else if (score < -(WIN_SCORE - MAX_DEPTH)) {
+			return score - ply;
+		}
+		return score;
+	}
+
+	private static int fromTableScore(int score, int ply) {
+		if (score > WIN_SCORE - MAX_DEPTH) {
+			return score - ply;
+		} else if (score < -(WIN_SCORE - MAX_DEPTH)) {
+			return score + ply;
+		}
+		return score;
+	}
+
+	// Moves the first turn whose first hop goes between the given squares (if there is one) to the
+	// front of the list.
+	private static void moveToFront(ArrayList<ArrayList<CheckersMove>> moves, int from, int to) {
+		for (int i = 0; i < moves.size(); i++) {
+			CheckersMove firstMove = moves.get(i).get(0);
+			if (CheckersPosition.squareIndex(firstMove.start.x, firstMove.start.y) == from
+					&& CheckersPosition.squareIndex(firstMove.destination.x, firstMove.destination.y) == to) {
+				moves.add(0, moves.remove(i));
+				return;
+			}
+		}
+	}
+
+	// Moves the given turn (if it is in the list) to the front of the list, so it is searched first.
+	private static void moveToFront(ArrayList<ArrayList<CheckersMove>> moves, ArrayList<CheckersMove> first) {
+		if (null == first) {
+			return;
+		}
+		String notation = CheckersMove.toNotation(first);
+		for (int i = 0; i < moves.size(); i++) {
+			if (CheckersMove.toNotation(moves.get(i)).equals(notation)) {
+				moves.add(0, moves.remove(i));
+				return;
+			}
+		}
+	}
+
+	// Returns the evaluator that searches use unless another is set (creating the default
+	// evaluators, if they have not been created yet).
+	static CheckersEvaluator getDefaultEvaluator() {
+		return DefaultEvaluators.EVALUATOR;
+	}
+
+	// The evaluators shared by every search unless others are set, created when first needed.
+	private static class DefaultEvaluators {
+		static final CheckersEvaluator EVALUATOR = new CheckersEvaluator(EvaluationWeights.getDefault());
+		static final BatchEvaluator BATCH_EVALUATOR = CheckersEvaluator.createBatchEvaluator(EVALUATOR.getWeights());
+	}
+}
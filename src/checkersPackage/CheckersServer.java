@@ -0,0 +1,255 @@
+package checkersPackage;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+
+// A headless server that hosts many human-vs-computer games at once over a line-based TCP protocol
+// on localhost. Each connection is one game session, served by its own virtual thread; the AI
+// searches of all sessions share one bounded SearchPool.
+//
+// With a GameLog, every game is recorded as it is played, and the games that were being played
+// when the server stopped are restored when it starts again: a client can then take up its game
+// on a new connection with RESUME. (Finished games are forgotten when their connection closes, and
+// a game is ended and forgotten when its client starts a new one.)
+// A recorded game can also be watched live by any number of spectators, each on its own
+// connection, through the game's GameFeed (WATCH).
+//
+// Requests (one per line) and their replies:
+//   NEW              -> OK <position>                  (starts a new game, ending the current one; the human plays Black)
+//   POSITION         -> OK <position>
+//   GAME             -> OK <game id>                   (0 if games are not recorded)
+//   RESUME <game id> -> OK <position>                  (continues a recorded game on this connection)
+//                       ERR <reason>
+//   WATCH <game id>  -> the game's GameFeed events, one per line (see GameFeed.Event.toString),
+//                       until the game is forgotten or the spectator falls too far behind; the
+//                       connection is then closed.
+//                       ERR <reason>
+//   MOVE <notation>  -> MOVE <computer's reply> <position>
+//                       GAMEOVER <winner, or DRAW> <computer's reply, or "-"> <position>
+//                       BUSY                           (the search pool is saturated; retry later)
+//                       ERR <reason>
+//   QUIT             -> (closes the connection)
+// Moves are written in CheckersMove notation (e.g. "b3-c4" or "b3xd5xf7"), and positions in
+// CheckersPosition notation.
+public class CheckersServer implements Closeable {
+	public static final int DEFAULT_PORT = 5555;
+
+	private final ServerSocket serverSocket;
+	private final SearchPool pool;
+	private final ExecutorService sessions; // one virtual thread per connection
+	private final GameLog log; // null if games are not recorded
+	private final Map<Long, GameSession> games = new ConcurrentHashMap<Long, GameSession>(); // recorded games, by id
+	private final Set<Long> attached = ConcurrentHashMap.newKeySet(); // ids of the games being played on a connection
+
+	// Starts a server listening on the given localhost port (0 picks any free port).
+	public CheckersServer(int port, SearchPool pool) throws IOException {
+		this(port, pool, null);
+	}
+
+	// Starts a server that records its games in the given log, and restores the games recorded in it.
+	public CheckersServer(int port, SearchPool pool, GameLog log) throws IOException {
+		this.log = log;
+		if (null != log) {
+			for (GameLog.GameRecord record : log.getGames()) {
+				games.put(record.id, new GameSession(log, record));
+			}
+		}
+		this.serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+		this.pool = pool;
+		this.sessions = Executors.newVirtualThreadPerTaskExecutor();
+		Thread.ofPlatform().name("checkers-acceptor").daemon(true).start(new Runnable() {
+			public void run() {
+				acceptConnections();
+			}
+		});
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	// Accepts connections until the server is closed, handing each one to a new virtual thread.
+	private void acceptConnections() {
+		while (!serverSocket.isClosed()) {
+			try {
+				final Socket socket = serverSocket.accept();
+				sessions.execute(new Runnable() {
+					public void run() {
+						serve(socket);
+					}
+				});
+			} catch (IOException e) {
+				if (!serverSocket.isClosed()) {
+					System.err.println("Failed to accept connection: " + e);
+				}
+			}
+		}
+	}
+
+	// Serves one connection (one game session) until the client quits or disconnects.
+	private void serve(Socket socket) {
+		try (Socket s = socket;
+				BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.US_ASCII));
+				PrintWriter out = new PrintWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.US_ASCII), true)) {
+			s.setTcpNoDelay(true);
+			GameSession session = null; // (created by the first request that needs it)
+			try {
+				String line;
+				while (null != (line = in.readLine())) {
+					line = line.trim();
+					if (line.equals("QUIT")) {
+						break;
+					} else if (line.startsWith("RESUME ")) {
+						GameSession resumed = resume(line.substring(7).trim());
+						if (null == resumed) {
+							out.println("ERR no such game, or it is being played on another connection");
+							continue;
+						}
+						detach(session);
+						session = resumed;
+						out.println("OK " + session.getPosition());
+						continue;
+					} else if (line.startsWith("WATCH ")) {
+						GameSession watched = find(line.substring(6).trim());
+						if (null == watched) {
+							out.println("ERR no such game");
+							continue;
+						}
+						watch(watched.getFeed(), out);
+						break;
+					}
+					if (null == session || line.equals("NEW")) {
+						abandon(session);
+						session = attach(new GameSession(log));
+						if (line.equals("NEW")) {
+							out.println("OK " + session.getPosition());
+							continue;
+						}
+					}
+					out.println(handle(session, line));
+				}
+			} finally {
+				detach(session);
+			}
+		} catch (IOException | UncheckedIOException e) {
+			// The client went away (or the log failed); nothing to clean up beyond the socket
+		}
+	}
+
+	// Registers a new session's game, so that it can be resumed.
+	private GameSession attach(GameSession session) {
+		if (null != log) {
+			games.put(session.getId(), session);
+			attached.add(session.getId());
+		}
+		return session;
+	}
+
+	// Takes up a recorded game on this connection. Returns null if there is no such game, or if
+	// another connection is playing it.
+	private GameSession resume(String id) {
+		GameSession session = find(id);
+		return (null != session && attached.add(session.getId())) ? session : null;
+	}
+
+	// Returns the recorded game with the given id, or null if there is none.
+	private GameSession find(String id) {
+		try {
+			return games.get(Long.parseLong(id));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	// Sends a game's feed to a spectator until the subscription ends (or the spectator goes away).
+	private void watch(GameFeed feed, PrintWriter out) {
+		GameFeed.Subscription subscription = feed.subscribe(GameFeed.DEFAULT_CAPACITY);
+		try {
+			GameFeed.Event event;
+			while (null != (event = subscription.take())) {
+				out.println(event);
+				if (out.checkError()) {
+					break;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			subscription.cancel();
+		}
+	}
+
+	// Lets go of a session's game when its connection closes or moves on to another game. A
+	// finished game is ended in the log, and forgotten; any other can be resumed later.
+	private void detach(GameSession session) throws IOException {
+		if (null == session || null == log) {
+			return;
+		}
+		if (session.isGameOver()) {
+			games.remove(session.getId());
+			session.endGame();
+		}
+		attached.remove(session.getId());
+	}
+
+	// Ends a session's game in the log and forgets it, when the client starts a new game instead (as
+	// the desktop game does), so that abandoned games do not pile up.
+	private void abandon(GameSession session) throws IOException {
+		if (null == session || null == log) {
+			return;
+		}
+		games.remove(session.getId());
+		attached.remove(session.getId());
+		session.endGame();
+	}
+
+	// Returns the reply to one request line.
+	private String handle(GameSession session, String line) {
+		if (line.equals("GAME")) {
+			return "OK " + session.getId();
+		} else if (line.equals("POSITION")) {
+			return "OK " + session.getPosition();
+		} else if (line.startsWith("MOVE ")) {
+			try {
+				return session.playTurn(line.substring(5), pool);
+			} catch (RejectedExecutionException e) {
+				return "BUSY";
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return "ERR interrupted";
+			} catch (Exception e) {
+				return "ERR " + e;
+			}
+		} else {
+			return "ERR unknown command";
+		}
+	}
+
+	public SearchPool getPool() {
+		return pool;
+	}
+
+	// Stops accepting connections and closes the sessions' threads.
+	@Override
+	public void close() throws IOException {
+		serverSocket.close();
+		sessions.shutdownNow();
+	}
+
+	// Runs a server. Arguments (all optional): port, number of search threads, search queue capacity,
+	// directory of the game log (without one, games are not recorded).
+	public static void main(String[] args) throws Exception {
+		int port = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		int threads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		int queueCapacity = (args.length > 2) ? Integer.parseInt(args[2]) : 4 * threads;
+		GameLog log = (args.length > 3) ? GameLog.open(Paths.get(args[3])) : null;
+		CheckersServer server = new CheckersServer(port, new SearchPool(threads, queueCapacity, 1000), log);
+		System.out.println("Checkers server listening on localhost:" + server.getPort() + " with "
+				+ threads + " search threads" + ((null != log) ? ", " + server.games.size() + " games restored" : ""));
+		Thread.currentThread().join(); // serve until killed
+	}
+}
@@ -0,0 +1,28 @@
+package checkersPackage;
+
+// The computer's playing strength. Each level but the strongest is defined by a node budget
+// and an amount of evaluation noise rather than by a depth or a time, so that a level plays the
+// same turns on any machine and its response time is bounded by its budget rather than by how
+// complicated the position is. The strongest level searches on the game clock instead.
+public enum Difficulty {
+	BEGINNER("Beginner", 300, 150),
+	EASY("Easy", 3000, 60),
+	MEDIUM("Medium", 30000, 20),
+	HARD("Hard", 300000, 0),
+	EXPERT("Expert", 0, 0);
+
+	public final String label;
+	public final long nodes; // the search's node budget, or 0 to budget time from the clock
+	public final int evaluationNoise; // in hundredths of a man (see CheckersSearch.setEvaluationNoise)
+
+	private Difficulty(String label, long nodes, int evaluationNoise) {
+		this.label = label;
+		this.nodes = nodes;
+		this.evaluationNoise = evaluationNoise;
+	}
+
+	@Override
+	public String toString() {
+		return label;
+	}
+}
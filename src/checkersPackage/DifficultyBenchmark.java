@@ -0,0 +1,98 @@
+package checkersPackage;
+
+import java.util.*;
+
+// Measures each Difficulty level: its response time (mean and longest) and nodes per turn over
+// the sample positions (see CheckersPosition.SAMPLES), checks that two searches with the same
+// noise seed choose the same turn (the result depends only on the node budget, not on the
+// machine), and plays each level
+// against the next one up to show that the levels are ordered by strength.
+//
+// Arguments (optional): number of games per pair of levels (default 10).
+public class DifficultyBenchmark {
+	private static final int MAX_TURNS = 150;
+
+	public static void main(String[] args) {
+		int games = (args.length > 0) ? Integer.parseInt(args[0]) : 10;
+
+		// Warm up the JIT compiler
+		for (String position : CheckersPosition.SAMPLES) {
+			new CheckersSearch(CheckersPosition.parse(position)).search(SearchLimits.depth(8), null);
+		}
+
+		System.out.println("level         nodes/turn   mean ms    max ms   reproducible");
+		for (Difficulty difficulty : Difficulty.values()) {
+			if (0 == difficulty.nodes) {
+				continue; // searches on the clock
+			}
+			SearchLimits limits = new SearchLimits();
+			limits.nodes = difficulty.nodes;
+			long totalNodes = 0;
+			long totalMillis = 0;
+			long maxMillis = 0;
+			boolean reproducible = true;
+			for (String notation : CheckersPosition.SAMPLES) {
+				CheckersPosition position = CheckersPosition.parse(notation);
+				String[] chosen = new String[2];
+				for (int run = 0; run < 2; run++) {
+					CheckersSearch search = new CheckersSearch(position);
+					search.setEvaluationNoise(difficulty.evaluationNoise, 12345);
+					long start = System.nanoTime();
+					SearchInfo result = search.search(limits, null);
+					long millis = (System.nanoTime() - start) / 1000000;
+					chosen[run] = CheckersMove.toNotation(result.getBestMove());
+					if (0 == run) {
+						totalNodes += search.getNodes();
+						totalMillis += millis;
+						maxMillis = Math.max(maxMillis, millis);
+					}
+				}
+				reproducible &= chosen[0].equals(chosen[1]);
+			}
+			int count = CheckersPosition.SAMPLES.length;
+			System.out.printf("%-12s %11d %9.1f %9d   %s%n", difficulty, totalNodes / count,
+					(double) totalMillis / count, maxMillis, reproducible ? "yes" : "NO");
+		}
+
+		// Each level against the next, alternating colors
+		Difficulty[] levels = Difficulty.values();
+		for (int level = 0; level + 2 < levels.length; level++) {
+			SearchEngine weaker = new SearchEngine(null, levels[level]);
+			SearchEngine stronger = new SearchEngine(null, levels[level + 1]);
+			int[] points = new int[3]; // weaker wins, draws, stronger wins
+			for (int game = 0; game < games; game++) {
+				boolean strongerIsBlack = (0 == game % 2);
+				Player winner = playGame(strongerIsBlack ? stronger : weaker, strongerIsBlack ? weaker : stronger);
+				if (null == winner) {
+					points[1]++;
+				} else if ((Player.BLACK == winner) == strongerIsBlack) {
+					points[2]++;
+				} else {
+					points[0]++;
+				}
+			}
+			System.out.printf("%s vs %s: %d wins, %d draws, %d losses%n", levels[level + 1], levels[level],
+					points[2], points[1], points[0]);
+		}
+	}
+
+	// Plays a game and returns the winner, or null for a draw.
+	private static Player playGame(CheckersEngine black, CheckersEngine red) {
+		CheckersBoard board = new CheckersBoard();
+		PositionHistory history = new PositionHistory(CheckersPosition.INITIAL);
+		Player turn = Player.BLACK;
+		for (int turns = 0; turns < MAX_TURNS; turns++) {
+			if (!board.areAnyMovesPossible(turn)) {
+				return board.switchTurn(turn);
+			}
+			CheckersEngine engine = (Player.BLACK == turn) ? black : red;
+			board.playMoveSequence(engine.chooseMove(CheckersPosition.of(board, turn), history), turn);
+			turn = board.switchTurn(turn);
+			history.push(CheckersPosition.of(board, turn));
+			if (null != history.getDrawReason(PositionHistory.DEFAULT_NO_PROGRESS_LIMIT)) {
+				return null;
+			}
+		}
+		return null;
+	}
+}
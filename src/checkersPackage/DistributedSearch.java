@@ -0,0 +1,517 @@
+package checkersPackage;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// The coordinator of a search spread over several worker JVMs (SearchWorker), for deep offline
+// analysis. Workers connect to the coordinator over TCP; the coordinator splits the top of the
+// tree into work units, queues them, and hands them to whichever worker has room for more.
+//
+// The split follows the Young Brothers Wait Concept: at each split node the first (eldest) turn is
+// searched alone to get a bound, and only then are its younger brothers searched in parallel, with
+// a null window around that bound; a younger brother that beats it is searched again with the full
+// window, and the remaining brothers are cancelled if one of them causes a cutoff (a worker
+// searching one of them is told to drop it, and its slot is freed at once). The nodes of the
+// expected principal variation (the root, its eldest child, and so on) are split down to
+// PRINCIPAL_SPLIT_PLIES, since their eldest brothers would otherwise be searched by one worker
+// while the others wait; every other brother is a single work unit. Each iteration searches the
+// best turn found for a split node in the previous iteration first.
+//
+// A worker that dies (its connection breaks) loses nothing but time: the units it had not answered
+// go back to the front of the queue for the other workers. If no worker is connected, the
+// coordinator searches the queued units itself.
+//
+// Repetitions of positions before the root are not known to the workers (each unit is searched as
+// a fresh position), so this is meant for analysis rather than for play.
+public class DistributedSearch implements Closeable {
+	public static final int DEFAULT_PORT = 5556;
+	private static final int MAX_OUTSTANDING = 4; // units sent to a worker and not yet answered
+	private static final int PRINCIPAL_SPLIT_PLIES = 3; // the principal variation is split down to this ply
+	private static final long LOCAL_HASH_MEGABYTES = 64;
+
+	private final ServerSocket serverSocket;
+	private final BlockingDeque<WorkUnit> queue = new LinkedBlockingDeque<WorkUnit>();
+	private final List<WorkerConnection> workers = new CopyOnWriteArrayList<WorkerConnection>();
+	private final ExecutorService tasks = Executors.newCachedThreadPool(Thread.ofPlatform().daemon(true).factory()); // younger brothers, searched in parallel
+	private final AtomicLong nextId = new AtomicLong();
+	private final AtomicLong nodes = new AtomicLong(); // searched by the workers (and locally) in this search
+	private final Map<CheckersPosition, String> bestMoves = new ConcurrentHashMap<CheckersPosition, String>(); // per split node, in notation
+	private volatile int lostWorkers;
+	private volatile boolean closed;
+
+	// A position to be searched by a worker, and its result once one is known.
+	private static class WorkUnit {
+		final long id;
+		final CheckersPosition position;
+		final int depth;
+		final int alpha;
+		final int beta;
+		final CompletableFuture<Integer> score = new CompletableFuture<Integer>();
+		volatile boolean cancelled; // the result is no longer needed
+		volatile WorkerConnection worker; // the worker it was last sent to, once sent
+
+		WorkUnit(long id, CheckersPosition position, int depth, int alpha, int beta) {
+			this.id = id;
+			this.position = position;
+			this.depth = depth;
+			this.alpha = alpha;
+			this.beta = beta;
+		}
+
+		boolean isFinished() {
+			return cancelled || score.isDone();
+		}
+	}
+
+	// Starts a coordinator listening on the given port on all interfaces (0 picks any free port).
+	public DistributedSearch(int port) throws IOException {
+		this.serverSocket = new ServerSocket(port);
+		Thread.ofPlatform().name("coordinator-acceptor").daemon(true).start(new Runnable() {
+			public void run() {
+				acceptWorkers();
+			}
+		});
+		Thread.ofPlatform().name("coordinator-local").daemon(true).start(new Runnable() {
+			public void run() {
+				searchLocallyWithoutWorkers();
+			}
+		});
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	public int getWorkerCount() {
+		return workers.size();
+	}
+
+	// Returns the nodes searched in the last search by each worker still connected (a measure of how
+	// evenly the work was spread).
+	public List<Long> getNodesPerWorker() {
+		List<Long> counts = new ArrayList<Long>();
+		for (WorkerConnection worker : workers) {
+			counts.add(worker.nodes.get());
+		}
+		return counts;
+	}
+
+	// Returns the number of workers whose connections broke.
+	public int getLostWorkerCount() {
+		return lostWorkers;
+	}
+
+	// Waits until the given number of workers are connected, or the timeout passes. Returns whether
+	// they all connected.
+	public boolean awaitWorkers(int count, long timeoutMillis) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		while (workers.size() < count) {
+			if (System.currentTimeMillis() >= deadline) {
+				return false;
+			}
+			Thread.sleep(20);
+		}
+		return true;
+	}
+
+	// Searches the position to the given depth, iteration by iteration, reporting each completed
+	// iteration to the listener (if not null), and returns the deepest one's result. The
+	// principal variation holds only the best turn, and the nodes are the total of all workers.
+	public SearchInfo search(CheckersPosition position, int maxDepth, SearchListener listener) throws InterruptedException {
+		long startTime = System.currentTimeMillis();
+		nodes.set(0);
+		for (WorkerConnection worker : workers) {
+			worker.nodes.set(0);
+		}
+		bestMoves.clear();
+		SearchInfo result = null;
+		for (int depth = 1; depth <= maxDepth; depth++) {
+			int score = searchNode(position, depth, -CheckersSearch.INFINITE_SCORE, CheckersSearch.INFINITE_SCORE, true, 0);
+			List<ArrayList<CheckersMove>> principalVariation = new ArrayList<ArrayList<CheckersMove>>();
+			String bestMove = bestMoves.get(position);
+			if (null != bestMove) {
+				principalVariation.add(new ArrayList<CheckersMove>(CheckersMove.parseNotation(bestMove)));
+			}
+			result = new SearchInfo(depth, score, nodes.get(), System.currentTimeMillis() - startTime, principalVariation);
+			if (null != listener) {
+				listener.iterationCompleted(result);
+			}
+			if (null == bestMove || Math.abs(score) > CheckersSearch.WIN_SCORE - CheckersSearch.MAX_DEPTH) {
+				break; // no moves, or a forced win or loss was found
+			}
+		}
+		return result;
+	}
+
+	// Searches a node within the window (alpha, beta), splitting it if it is on the principal
+	// variation and above PRINCIPAL_SPLIT_PLIES, or else as one work unit, and returns its score
+	// for the player to move (fail-soft, as CheckersSearch).
+	private int searchNode(CheckersPosition position, int depth, int alpha, int beta, boolean principal, int ply) throws InterruptedException {
+		if (depth <= 0 || !principal || ply >= PRINCIPAL_SPLIT_PLIES) {
+			return searchUnit(position, depth, alpha, beta);
+		}
+		LinkedHashMap<String, CheckersPosition> children = legalPositions(position);
+		if (children.isEmpty()) {
+			return -CheckersSearch.WIN_SCORE; // the player to move has lost
+		}
+		List<String> moves = new ArrayList<String>(children.keySet());
+		String previousBest = bestMoves.get(position);
+		if (null != previousBest && moves.remove(previousBest)) {
+			moves.add(0, previousBest);
+		}
+
+		// The eldest brother first, alone
+		int bestScore = fromChild(searchNode(children.get(moves.get(0)), depth - 1, -beta, -alpha, true, ply + 1));
+		String bestMove = moves.get(0);
+		if (bestScore > alpha) {
+			alpha = bestScore;
+		}
+
+		// Then the younger brothers in parallel, with a null window around the best score so far
+		if (alpha < beta && moves.size() > 1) {
+			final int launchAlpha = alpha;
+			CompletionService<Integer> completion = new ExecutorCompletionService<Integer>(tasks);
+			Map<Future<Integer>, String> futures = new HashMap<Future<Integer>, String>();
+			for (int i = 1; i < moves.size(); i++) {
+				final CheckersPosition child = children.get(moves.get(i));
+				final int childDepth = depth - 1;
+				final int childPly = ply + 1;
+				futures.put(completion.submit(new Callable<Integer>() {
+					public Integer call() throws InterruptedException {
+						return fromChild(searchNode(child, childDepth, -launchAlpha - 1, -launchAlpha, false, childPly));
+					}
+				}), moves.get(i));
+			}
+			try {
+				for (int remaining = futures.size(); remaining > 0 && alpha < beta; remaining--) {
+					Future<Integer> future = completion.take();
+					int score = future.get();
+					String move = futures.get(future);
+					if (score > launchAlpha && score < beta && beta - alpha > 1) {
+						// It beat the bound: search it again with the full window
+						score = fromChild(searchNode(children.get(move), depth - 1, -beta, -alpha, false, ply + 1));
+					}
+					if (score > bestScore) {
+						bestScore = score;
+						bestMove = move;
+						if (score > alpha) {
+							alpha = score;
+						}
+					}
+				}
+			} catch (ExecutionException e) {
+				throw new IllegalStateException(e.getCause());
+			} finally {
+				for (Future<Integer> future : futures.keySet()) {
+					future.cancel(true); // (after a cutoff, the brothers still running are not needed)
+				}
+			}
+		}
+		bestMoves.put(position, bestMove);
+		return bestScore;
+	}
+
+	// Queues a work unit and waits for a worker's score.
+	private int searchUnit(CheckersPosition position, int depth, int alpha, int beta) throws InterruptedException {
+		WorkUnit unit = new WorkUnit(nextId.incrementAndGet(), position, depth, alpha, beta);
+		queue.add(unit);
+		try {
+			return unit.score.get();
+		} catch (InterruptedException e) {
+			cancel(unit);
+			throw e;
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	// Marks a unit as no longer needed, and if a worker has it, tells the worker to drop it.
+	private static void cancel(WorkUnit unit) {
+		unit.cancelled = true;
+		WorkerConnection worker = unit.worker;
+		if (null != worker) {
+			worker.cancel(unit);
+		}
+	}
+
+	// Returns the positions after each legal turn, by the turn's notation.
+	private static LinkedHashMap<String, CheckersPosition> legalPositions(CheckersPosition position) {
+		CheckersBoard board = new CheckersBoard();
+		board.loadPosition(position);
+		Player opponent = board.switchTurn(position.turn);
+		LinkedHashMap<String, CheckersPosition> children = new LinkedHashMap<String, CheckersPosition>();
+		for (ArrayList<CheckersMove> moves : board.returnListOfLegalMoveSequences(position.turn)) {
+			CheckersBoard child = new CheckersBoard();
+			child.loadPosition(position);
+			child.playMoveSequence(moves, position.turn);
+			children.put(CheckersMove.toNotation(moves), CheckersPosition.of(child, opponent));
+		}
+		return children;
+	}
+
+	// Converts a child's score to its parent's point of view (a win one turn further away scores
+	// one less).
+	private static int fromChild(int childScore) {
+		int score = -childScore;
+		if (score > CheckersSearch.WIN_SCORE - CheckersSearch.MAX_DEPTH) {
+			return score - 1;
+		} else if (score < -(CheckersSearch.WIN_SCORE - CheckersSearch.MAX_DEPTH)) {
+			return score + 1;
+		}
+		return score;
+	}
+
+	// Accepts worker connections until the coordinator is closed.
+	private void acceptWorkers() {
+		while (!serverSocket.isClosed()) {
+			try {
+				Socket socket = serverSocket.accept();
+				socket.setTcpNoDelay(true);
+				WorkerConnection worker = new WorkerConnection(socket);
+				workers.add(worker);
+				worker.start();
+			} catch (IOException e) {
+				if (!serverSocket.isClosed()) {
+					System.err.println("Failed to accept worker: " + e);
+				}
+			}
+		}
+	}
+
+	// Searches queued units on the coordinator's own thread while no worker is connected.
+	private void searchLocallyWithoutWorkers() {
+		TranspositionTable table = null;
+		while (!closed) {
+			try {
+				if (!workers.isEmpty()) {
+					Thread.sleep(20);
+					continue;
+				}
+				WorkUnit unit = queue.poll(20, TimeUnit.MILLISECONDS);
+				if (null == unit || unit.isFinished()) {
+					continue;
+				}
+				if (null == table) {
+					table = new TranspositionTable(LOCAL_HASH_MEGABYTES << 20);
+				}
+				CheckersSearch search = new CheckersSearch(unit.position);
+				search.setTranspositionTable(table);
+				int score = search.searchWindow(unit.depth, unit.alpha, unit.beta);
+				nodes.addAndGet(search.getNodes());
+				unit.score.complete(score);
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+
+	// One connected worker: a sender thread hands it queued units, up to MAX_OUTSTANDING at a time
+	// (all that fit are sent with one write), and a receiver thread reads back its results. A unit
+	// cancelled while the worker has it frees its slot at once, and the worker is sent CANCEL.
+	private class WorkerConnection {
+		private final Socket socket;
+		private final Writer out; // (guarded by itself: the sender and cancel both write to it)
+		private final Map<Long, WorkUnit> outstanding = new ConcurrentHashMap<Long, WorkUnit>();
+		private final Semaphore slots = new Semaphore(MAX_OUTSTANDING);
+		private final AtomicLong nodes = new AtomicLong();
+		private volatile boolean alive = true;
+		private Thread sender;
+
+		WorkerConnection(Socket socket) throws IOException {
+			this.socket = socket;
+			this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII));
+		}
+
+		void start() {
+			sender = Thread.ofPlatform().name("coordinator-sender").daemon(true).start(new Runnable() {
+				public void run() {
+					send();
+				}
+			});
+			Thread.ofPlatform().name("coordinator-receiver").daemon(true).start(new Runnable() {
+				public void run() {
+					receive();
+				}
+			});
+		}
+
+		private void send() {
+			try {
+				while (alive) {
+					slots.acquire();
+					WorkUnit unit = queue.take();
+					StringBuilder lines = new StringBuilder();
+					List<WorkUnit> sent = new ArrayList<WorkUnit>();
+					while (true) {
+						if (unit.isFinished()) {
+							slots.release();
+						} else {
+							outstanding.put(unit.id, unit);
+							sent.add(unit);
+							lines.append("SEARCH ").append(unit.id).append(' ').append(unit.depth).append(' ').append(unit.alpha)
+									.append(' ').append(unit.beta).append(' ').append(unit.position).append('\n');
+						}
+						// Send along whatever else is queued, while the worker has room for it
+						if (!slots.tryAcquire()) {
+							break;
+						}
+						unit = queue.poll();
+						if (null == unit) {
+							slots.release();
+							break;
+						}
+					}
+					if (!alive) {
+						break;
+					}
+					synchronized (out) {
+						out.write(lines.toString());
+						out.flush();
+					}
+					for (WorkUnit sentUnit : sent) {
+						sentUnit.worker = this;
+						if (sentUnit.cancelled) {
+							cancel(sentUnit); // (it was cancelled while it was being sent)
+						}
+					}
+				}
+			} catch (IOException e) {
+				fail();
+			} catch (InterruptedException e) {
+				// Stopped by fail()
+			}
+			fail();
+		}
+
+		private void receive() {
+			try {
+				BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+				String line;
+				while (null != (line = in.readLine())) {
+					String[] words = line.split(" ");
+					if (4 == words.length && words[0].equals("RESULT")) {
+						// (The nodes of a cancelled unit count too: the worker searched them)
+						nodes.addAndGet(Long.parseLong(words[3]));
+						DistributedSearch.this.nodes.addAndGet(Long.parseLong(words[3]));
+						WorkUnit unit = outstanding.remove(Long.parseLong(words[1]));
+						if (null != unit) {
+							unit.score.complete(Integer.parseInt(words[2]));
+							slots.release();
+						}
+					}
+				}
+			} catch (IOException e) {
+				// The worker died
+			}
+			fail();
+		}
+
+		// Tells the worker to drop a unit it has not answered (or to stop searching it), and frees the
+		// unit's slot.
+		void cancel(WorkUnit unit) {
+			if (!outstanding.remove(unit.id, unit)) {
+				return; // (already answered, or given back to the queue)
+			}
+			slots.release();
+			try {
+				synchronized (out) {
+					out.write("CANCEL " + unit.id + "\n");
+					out.flush();
+				}
+			} catch (IOException e) {
+				fail();
+			}
+		}
+
+		// Drops the worker, giving its unanswered units back to the queue.
+		private void fail() {
+			synchronized (this) {
+				if (alive) {
+					alive = false;
+					workers.remove(this);
+					if (!closed) {
+						lostWorkers++;
+					}
+					try {
+						socket.close();
+					} catch (IOException e) {
+						// Already broken
+					}
+					sender.interrupt();
+				}
+			}
+			for (Long id : new ArrayList<Long>(outstanding.keySet())) {
+				WorkUnit unit = outstanding.remove(id);
+				if (null != unit && !unit.isFinished()) {
+					unit.worker = null;
+					queue.addFirst(unit);
+				}
+			}
+		}
+	}
+
+	// Disconnects the workers (which then exit) and stops accepting new ones.
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		serverSocket.close();
+		for (WorkerConnection worker : workers) {
+			worker.fail();
+		}
+		tasks.shutdownNow();
+	}
+
+	// Starts the given number of SearchWorker processes on this machine, connecting to the given
+	// port, with the same Java runtime, class path and module options as this process.
+	public static List<Process> startLocalWorkers(int count, int port) throws IOException {
+		List<String> command = new ArrayList<String>();
+		command.add(ProcessHandle.current().info().command().orElse("java"));
+		for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+			if (argument.startsWith("--add-modules") || argument.startsWith("-D")) {
+				command.add(argument);
+			}
+		}
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(SearchWorker.class.getName());
+		command.add("localhost");
+		command.add(Integer.toString(port));
+		List<Process> processes = new ArrayList<Process>();
+		for (int i = 0; i < count; i++) {
+			processes.add(new ProcessBuilder(command).inheritIO().start());
+		}
+		return processes;
+	}
+
+	// Runs a coordinator, printing each iteration. Arguments (all optional): search depth
+	// (default 12), number of local worker processes to start (default 0: wait for workers to
+	// connect for 10 seconds, and search locally if none do), port, and position (default: the
+	// starting position).
+	public static void main(String[] args) throws Exception {
+		int depth = (args.length > 0) ? Integer.parseInt(args[0]) : 12;
+		int localWorkers = (args.length > 1) ? Integer.parseInt(args[1]) : 0;
+		int port = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_PORT;
+		CheckersPosition position = (args.length > 3) ? CheckersPosition.parse(args[3]) : CheckersPosition.INITIAL;
+		List<Process> processes = new ArrayList<Process>();
+		try (DistributedSearch coordinator = new DistributedSearch(port)) {
+			processes.addAll(startLocalWorkers(localWorkers, coordinator.getPort()));
+			coordinator.awaitWorkers(Math.max(1, localWorkers), 10000);
+			System.out.println("Searching with " + coordinator.getWorkerCount() + " workers");
+			SearchInfo result = coordinator.search(position, depth, new SearchListener() {
+				public void iterationCompleted(SearchInfo info) {
+					System.out.println("info depth " + info.depth + " score cp " + info.score + " nodes " + info.nodes
+							+ " time " + info.timeMillis + " pv " + info.getPrincipalVariationNotation());
+				}
+			});
+			System.out.println("bestmove " + CheckersMove.toNotation(result.getBestMove()));
+		}
+		for (Process process : processes) {
+			process.waitFor(); // (closing the coordinator ends the workers)
+		}
+	}
+}
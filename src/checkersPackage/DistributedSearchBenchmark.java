@@ -0,0 +1,79 @@
+package checkersPackage;
+
+import java.util.*;
+
+// Compares a DistributedSearch with local worker processes to a single-JVM CheckersSearch of the
+// starting position to the same depth: wall time, the total nodes of all workers (the cost of
+// splitting the tree), and the most nodes searched by any one worker. With one core per worker,
+// the single search's nodes divided by that maximum bounds the speedup from above; the wall time
+// shows it directly when the machine has the cores. Finally a worker is killed in the middle of a
+// search, which must still complete.
+//
+// Arguments (optional): search depth (default 12), largest number of workers (default 4).
+public class DistributedSearchBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int depth = (args.length > 0) ? Integer.parseInt(args[0]) : 12;
+		int maxWorkers = (args.length > 1) ? Integer.parseInt(args[1]) : 4;
+		System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors());
+
+		// One JVM (after a warm-up search)
+		new CheckersSearch(CheckersPosition.INITIAL).search(SearchLimits.depth(depth - 2), null);
+		CheckersSearch single = new CheckersSearch(CheckersPosition.INITIAL);
+		single.setTranspositionTable(new TranspositionTable(64L << 20));
+		long start = System.nanoTime();
+		SearchInfo singleResult = single.search(SearchLimits.depth(depth), null);
+		long singleMillis = (System.nanoTime() - start) / 1000000;
+		System.out.println("workers      ms   total nodes   max per worker   speedup bound   best   score");
+		System.out.printf("single %9d %13d %16s %15s   %s %5d%n", singleMillis, singleResult.nodes, "-", "-",
+				CheckersMove.toNotation(singleResult.getBestMove()), singleResult.score);
+
+		// Several worker processes
+		for (int workers = 1; workers <= maxWorkers; workers *= 2) {
+			List<Process> processes = new ArrayList<Process>();
+			try (DistributedSearch coordinator = new DistributedSearch(0)) {
+				processes.addAll(DistributedSearch.startLocalWorkers(workers, coordinator.getPort()));
+				coordinator.awaitWorkers(workers, 30000);
+				coordinator.search(CheckersPosition.INITIAL, depth - 2, null); // (warms up the workers)
+				start = System.nanoTime();
+				SearchInfo result = coordinator.search(CheckersPosition.INITIAL, depth, null);
+				long millis = (System.nanoTime() - start) / 1000000;
+				long maxNodes = Collections.max(coordinator.getNodesPerWorker());
+				System.out.printf("%6d %9d %13d %16d %15.2f   %s %5d%n", workers, millis, result.nodes, maxNodes,
+						(double) singleResult.nodes / maxNodes, CheckersMove.toNotation(result.getBestMove()), result.score);
+			}
+			for (Process process : processes) {
+				process.waitFor(); // (closing the coordinator ends the workers)
+			}
+		}
+
+		// A worker dies in the middle of a search
+		List<Process> processes = new ArrayList<Process>();
+		try (DistributedSearch coordinator = new DistributedSearch(0)) {
+			processes.addAll(DistributedSearch.startLocalWorkers(3, coordinator.getPort()));
+			coordinator.awaitWorkers(3, 30000);
+			final Process victim = processes.get(0);
+			Thread killer = new Thread(new Runnable() {
+				public void run() {
+					try {
+						Thread.sleep(2000);
+					} catch (InterruptedException e) {
+						return;
+					}
+					victim.destroyForcibly();
+				}
+			});
+			killer.start();
+			start = System.nanoTime();
+			SearchInfo result = coordinator.search(CheckersPosition.INITIAL, depth, null);
+			long millis = (System.nanoTime() - start) / 1000000;
+			System.out.printf("3 workers, one killed after 2 s: completed depth %d in %d ms, best %s, score %d; %d worker(s) lost, %d left%n",
+					result.depth, millis, CheckersMove.toNotation(result.getBestMove()), result.score,
+					coordinator.getLostWorkerCount(), coordinator.getWorkerCount());
+			killer.join();
+		}
+		for (Process process : processes) {
+			process.waitFor();
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package checkersPackage;
+
+// Measures what scoring repetitions and the no-progress limit as draws saves in endgames, where
+// kings can shuffle back and forth: each king endgame below is searched to the same depth with
+// and without draw detection, and the nodes, time and scores are reported.
+//
+// Arguments (optional): search depth (default 12), transposition table megabytes (default 0: none).
+public class DrawBenchmark {
+	// King endgames (and a few with men left), with kings placed at random
+	private static final String[] POSITIONS = {
+		"B:........R......B................",
+		"R:....R..................B......B.",
+		"B:B.............R.R.............B.",
+		"B:.........R..B.R..........B....B.",
+		"R:....R....BR.............B....b..",
+		"B:R.B.....RB..............B.R.....",
+		"B:............R......B..rb....R.B.",
+		"R:....R.......B.R...R....B.B.B....",
+	};
+
+	public static void main(String[] args) {
+		int depth = (args.length > 0) ? Integer.parseInt(args[0]) : 12;
+		long hashMegabytes = (args.length > 1) ? Long.parseLong(args[1]) : 0;
+
+		// Warm up the JIT
+		for (String position : POSITIONS) {
+			new CheckersSearch(CheckersPosition.parse(position)).search(SearchLimits.depth(Math.min(depth, 6)), null);
+		}
+
+		System.out.println("position                               without: nodes  ms  score    with: nodes  ms  score");
+		long[] totalNodes = new long[2];
+		long[] totalMillis = new long[2];
+		for (String position : POSITIONS) {
+			StringBuilder line = new StringBuilder(String.format("%-36s", position));
+			for (int i = 0; i < 2; i++) {
+				CheckersSearch search = new CheckersSearch(CheckersPosition.parse(position));
+				search.setDrawDetection(1 == i);
+				if (hashMegabytes > 0) {
+					search.setTranspositionTable(new TranspositionTable(hashMegabytes << 20));
+				}
+				long start = System.nanoTime();
+				SearchInfo result = search.search(SearchLimits.depth(depth), null);
+				long millis = (System.nanoTime() - start) / 1000000;
+				totalNodes[i] += result.nodes;
+				totalMillis[i] += millis;
+				line.append(String.format("   %12d %5d %6d", result.nodes, millis, result.score));
+			}
+			System.out.println(line);
+		}
+		System.out.printf("total: %d nodes in %d ms without draw detection, %d nodes in %d ms with it%n",
+				totalNodes[0], totalMillis[0], totalNodes[1], totalMillis[1]);
+	}
+}
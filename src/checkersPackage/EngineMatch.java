@@ -0,0 +1,55 @@
+package checkersPackage;
+
+// Plays a match between the Monte Carlo engine and the built-in findBestMove search (through
+// MinimaxEngine), alternating colors between games, and reports the result and the Monte Carlo
+// engine's playouts per second. Games that reach the turn limit are drawn.
+//
+// Arguments (optional): number of games (default 10), Monte Carlo time per move in ms (default 200).
+public class EngineMatch {
+	private static final int MAX_TURNS = 200;
+
+	public static void main(String[] args) {
+		int games = (args.length > 0) ? Integer.parseInt(args[0]) : 10;
+		long moveTimeMillis = (args.length > 1) ? Long.parseLong(args[1]) : 200;
+		MonteCarloEngine monteCarlo = new MonteCarloEngine(Runtime.getRuntime().availableProcessors(), moveTimeMillis, 1 << 20);
+		MinimaxEngine minimax = new MinimaxEngine();
+
+		int monteCarloWins = 0;
+		int minimaxWins = 0;
+		long playoutsPerSecondTotal = 0;
+		int monteCarloMoves = 0;
+		for (int game = 0; game < games; game++) {
+			Player monteCarloPlayer = (0 == game % 2) ? Player.BLACK : Player.RED;
+			CheckersBoard board = new CheckersBoard();
+			Player turn = Player.BLACK;
+			Player winner = null;
+			for (int turns = 0; turns < MAX_TURNS; turns++) {
+				boolean monteCarloToMove = (turn == monteCarloPlayer);
+				CheckersEngine engine = monteCarloToMove ? monteCarlo : minimax;
+				java.util.ArrayList<CheckersMove> move = engine.chooseMove(CheckersPosition.of(board, turn), null);
+				if (null == move) {
+					winner = board.switchTurn(turn);
+					break;
+				}
+				if (monteCarloToMove && monteCarlo.getPlayoutsPerSecond() > 0) {
+					playoutsPerSecondTotal += monteCarlo.getPlayoutsPerSecond();
+					monteCarloMoves++;
+				}
+				board.playMoveSequence(move, turn);
+				turn = board.switchTurn(turn);
+			}
+			if (monteCarloPlayer == winner) {
+				monteCarloWins++;
+			} else if (null != winner) {
+				minimaxWins++;
+			}
+			System.out.println("Game " + (game + 1) + ": Monte Carlo played " + monteCarloPlayer + ", winner "
+					+ (null == winner ? "none (draw)" : winner));
+		}
+		System.out.println("Monte Carlo " + monteCarloWins + ", findBestMove " + minimaxWins + ", draws "
+				+ (games - monteCarloWins - minimaxWins));
+		if (monteCarloMoves > 0) {
+			System.out.println("Monte Carlo playouts/sec: " + (playoutsPerSecondTotal / monteCarloMoves));
+		}
+	}
+}
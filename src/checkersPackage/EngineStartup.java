@@ -0,0 +1,113 @@
+package checkersPackage;
+
+import java.lang.invoke.MethodHandles;
+import java.util.*;
+
+// The engine's startup phase, run when the game starts (see CheckersMain.init), so that the
+// computer's first reply is about as fast as the later ones. Otherwise the first reply pays for
+// loading the engine's classes and building their tables, and its search runs mostly in the
+// interpreter, since the JIT compiles code only once it has run many times.
+//
+// start first builds every table that move generation and the search use (the move tables of
+// CheckersPiece and CheckersBitboard, the evaluator's square masks, and the default evaluators,
+// including the SIMD one), and then, on a background thread while the user thinks about the first
+// move, loads the class of the engine's flight recorder event (AiTurnEvent: loading the first
+// event class sets up the recorder's event support, which takes a few hundred milliseconds) and
+// searches a few positions, as the computer would, so that the JIT compiles the hot paths. The
+// warm-up ends after WARM_UP_MILLIS, or as soon as a real search starts (see SearchEngine), so
+// that it never competes with one for the CPU.
+public class EngineStartup {
+	public static final long WARM_UP_MILLIS = 2000;
+
+	private static Thread warmUp; // null until started
+	private static volatile boolean stopped;
+	private static volatile CheckersSearch current; // the warm-up search being made, if any
+	private static volatile int searches; // warm-up searches completed
+
+	// Builds the tables and starts the warm-up (the first time it is called).
+	public static synchronized void start() {
+		if (null != warmUp) {
+			return;
+		}
+		initializeTables();
+		warmUp = new Thread(new Runnable() {
+			public void run() {
+				warmUp();
+			}
+		}, "engine-warm-up");
+		warmUp.setDaemon(true);
+		warmUp.setPriority(Thread.MIN_PRIORITY);
+		warmUp.start();
+	}
+
+	// Builds the tables of move generation and of the search: runs the static initializers of the
+	// classes that hold them, and creates the default evaluators.
+	public static void initializeTables() {
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		try {
+			lookup.ensureInitialized(CheckersBitboard.class);
+			lookup.ensureInitialized(CheckersPiece.class);
+			lookup.ensureInitialized(CheckersEvaluator.class);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e); // (cannot happen: the classes are in this package)
+		}
+		CheckersSearch.getDefaultEvaluator();
+	}
+
+	// Ends the warm-up, stopping its current search (a real search is about to start).
+	public static void stop() {
+		stopped = true;
+		CheckersSearch search = current;
+		if (null != search) {
+			search.stop();
+		}
+	}
+
+	// Waits until the warm-up has ended.
+	public static void await() throws InterruptedException {
+		Thread thread;
+		synchronized (EngineStartup.class) {
+			thread = warmUp;
+		}
+		if (null != thread) {
+			thread.join();
+		}
+	}
+
+	// Returns the number of warm-up searches completed.
+	public static int getSearchCount() {
+		return searches;
+	}
+
+	// Searches the sample positions (see CheckersPosition.SAMPLES) in turn, as the computer
+	// searches at the default difficulty (a node budget, with evaluation noise), until the time is
+	// up or the warm-up is stopped. Each position is also checked for legal turns as the user
+	// interface does.
+	private static void warmUp() {
+		long end = System.currentTimeMillis() + WARM_UP_MILLIS;
+		AiTurnEvent event = new AiTurnEvent();
+		event.begin();
+		event.shouldCommit();
+		Random random = new Random(1);
+		SearchLimits limits = new SearchLimits();
+		limits.nodes = Difficulty.MEDIUM.nodes;
+		for (int i = 0; !stopped && System.currentTimeMillis() < end; i++) {
+			CheckersPosition position = CheckersPosition.parse(CheckersPosition.SAMPLES[i % CheckersPosition.SAMPLES.length]);
+			CheckersBoard board = new CheckersBoard();
+			board.loadPosition(position);
+			for (ArrayList<CheckersMove> turn : board.returnListOfLegalMoveSequences(position.turn)) {
+				board.isLegalMoveSequence(turn, position.turn);
+			}
+			CheckersSearch search = new CheckersSearch(position);
+			search.setEvaluationNoise(Difficulty.MEDIUM.evaluationNoise, random.nextLong());
+			current = search;
+			if (stopped) {
+				break; // (stop may have run before the search was made current)
+			}
+			search.search(limits, null);
+			current = null;
+			searches++;
+		}
+		current = null;
+	}
+}
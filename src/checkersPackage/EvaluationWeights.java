@@ -0,0 +1,107 @@
+package checkersPackage;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+// The weights of the terms in CheckersEvaluator's evaluation function, in hundredths of a man.
+//
+// Weights can be saved to and loaded from a small text file ("name = value" lines, with the row
+// bonuses comma-separated), such as the one WeightTuner writes. The engine's default weights are
+// read at startup from the file named by the "checkers.weights" system property, or else from
+// "checkers.weights" in the working directory if there is one; otherwise they are the values below.
+public class EvaluationWeights {
+	public static final String DEFAULT_FILE = "checkers.weights";
+
+	public int man = 100; // value of a man
+	public int king = 180; // value of a king (as in findBestMove, a king is worth 0.8 more than a man)
+
+	// Bonus for a man on each row, counted from its own back row (row 0) towards the row where it is
+	// crowned. The back row bonus rewards guarding it against enemy kings.
+	public int[] manRow = { 8, 0, 1, 2, 3, 5, 7, 0 };
+
+	public int kingCenter = 5; // bonus for a king in the central 4x4 squares
+	public int manEdge = -3; // bonus (here, a penalty) for a man on the left or right edge
+
+	// Returns the engine's default weights (loaded once, on first use). They are shared, so must
+	// not be modified.
+	public static EvaluationWeights getDefault() {
+		return DefaultWeights.WEIGHTS;
+	}
+
+	// Loads weights from a file written by save. Weights missing from the file keep their
+	// built-in values. The man's value sets the scale of every score, so it must be positive, and
+	// a king must be worth at least a man.
+	public static EvaluationWeights load(Path path) throws IOException {
+		Properties properties = new Properties();
+		try (Reader reader = Files.newBufferedReader(path)) {
+			properties.load(reader);
+		}
+		EvaluationWeights weights = new EvaluationWeights();
+		try {
+			weights.man = Integer.parseInt(properties.getProperty("man", Integer.toString(weights.man)).trim());
+			weights.king = Integer.parseInt(properties.getProperty("king", Integer.toString(weights.king)).trim());
+			weights.kingCenter = Integer.parseInt(properties.getProperty("kingCenter", Integer.toString(weights.kingCenter)).trim());
+			weights.manEdge = Integer.parseInt(properties.getProperty("manEdge", Integer.toString(weights.manEdge)).trim());
+			String manRow = properties.getProperty("manRow");
+			if (null != manRow) {
+				String[] values = manRow.split(",");
+				if (values.length != weights.manRow.length) {
+					throw new IOException("Expected " + weights.manRow.length + " values for manRow in " + path);
+				}
+				for (int i = 0; i < values.length; i++) {
+					weights.manRow[i] = Integer.parseInt(values[i].trim());
+				}
+			}
+		} catch (NumberFormatException e) {
+			throw new IOException("Bad weight in " + path + ": " + e.getMessage());
+		}
+		if (weights.man <= 0) {
+			throw new IOException("The value of a man must be positive in " + path + ": " + weights.man);
+		} else if (weights.king < weights.man) {
+			throw new IOException("A king must be worth at least a man in " + path + ": " + weights.king + " < " + weights.man);
+		}
+		return weights;
+	}
+
+	// Saves the weights to a file, with a comment line at the top.
+	public void save(Path path, String comment) throws IOException {
+		try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path))) {
+			out.println("# " + comment);
+			out.print(this);
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("man = ").append(man).append('\n');
+		builder.append("king = ").append(king).append('\n');
+		builder.append("manRow = ");
+		for (int i = 0; i < manRow.length; i++) {
+			builder.append((i > 0) ? ", " : "").append(manRow[i]);
+		}
+		builder.append('\n');
+		builder.append("kingCenter = ").append(kingCenter).append('\n');
+		builder.append("manEdge = ").append(manEdge).append('\n');
+		return builder.toString();
+	}
+
+	// Holds the default weights, which are loaded when first needed.
+	private static class DefaultWeights {
+		static final EvaluationWeights WEIGHTS = loadDefault();
+
+		private static EvaluationWeights loadDefault() {
+			Path path = Paths.get(System.getProperty("checkers.weights", DEFAULT_FILE));
+			if (!Files.isReadable(path)) {
+				return new EvaluationWeights();
+			}
+			try {
+				return load(path);
+			} catch (IOException e) {
+				System.err.println("Could not load evaluation weights, using the built-in ones: " + e.getMessage());
+				return new EvaluationWeights();
+			}
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package checkersPackage;
+
+import java.util.*;
+
+// Compares the scalar CheckersEvaluator with the batch evaluator returned by
+// CheckersEvaluator.createBatchEvaluator (a VectorEvaluator when run with
+// "--add-modules jdk.incubator.vector"). It first checks that both give identical scores on a
+// corpus of positions from random games (with the default weights and with random weights), then
+// times both at several batch sizes, after a warm-up, and reports nanoseconds per position.
+//
+// Arguments (optional): number of positions (default 65536), timed passes over them (default 200).
+public class EvaluatorBenchmark {
+	private static final int[] BATCH_SIZES = { 8, 16, 32, 128 };
+
+	public static void main(String[] args) {
+		int positions = (args.length > 0) ? Integer.parseInt(args[0]) : 65536;
+		int passes = (args.length > 1) ? Integer.parseInt(args[1]) : 200;
+		Random random = new Random(1);
+		LeafBatch corpus = randomPositions(positions, random);
+
+		// Check that the scores are identical
+		EvaluationWeights randomWeights = new EvaluationWeights();
+		randomWeights.man = random.nextInt(200);
+		randomWeights.king = random.nextInt(400);
+		for (int i = 0; i < 8; i++) {
+			randomWeights.manRow[i] = random.nextInt(41) - 20;
+		}
+		randomWeights.kingCenter = random.nextInt(41) - 20;
+		randomWeights.manEdge = random.nextInt(41) - 20;
+		for (EvaluationWeights weights : new EvaluationWeights[] { new EvaluationWeights(), randomWeights }) {
+			int[] expected = scores(new CheckersEvaluator(weights), corpus, 128);
+			int[] actual = scores(CheckersEvaluator.createBatchEvaluator(weights), corpus, 128);
+			if (!Arrays.equals(expected, actual)) {
+				throw new IllegalStateException("Batch evaluator scores differ from the scalar evaluator's");
+			}
+		}
+
+		BatchEvaluator scalar = new CheckersEvaluator();
+		BatchEvaluator batch = CheckersEvaluator.createBatchEvaluator(new EvaluationWeights());
+		System.out.println("Scores identical on " + positions + " positions. Batch evaluator: "
+				+ batch.getClass().getSimpleName());
+		System.out.println("batch size   scalar ns/pos   batch ns/pos");
+		for (int batchSize : BATCH_SIZES) {
+			// Warm up both, then time them
+			for (int i = 0; i < 20; i++) {
+				scores(scalar, corpus, batchSize);
+				scores(batch, corpus, batchSize);
+			}
+			double scalarNanos = time(scalar, corpus, batchSize, passes);
+			double batchNanos = time(batch, corpus, batchSize, passes);
+			System.out.printf("%10d   %13.2f   %12.2f%n", batchSize, scalarNanos, batchNanos);
+		}
+	}
+
+	// Returns the positions reached after random numbers of random turns from the starting position.
+	private static LeafBatch randomPositions(int count, Random random) {
+		LeafBatch corpus = new LeafBatch(count);
+		CheckersBitboard board = new CheckersBitboard(CheckersPosition.INITIAL);
+		long[] moves = new long[CheckersBitboard.MAX_MOVES];
+		while (corpus.size() < count) {
+			int moveCount = board.generateMoves(moves);
+			if (0 == moveCount) {
+				board.set(CheckersPosition.INITIAL);
+				continue;
+			}
+			board.play(moves[random.nextInt(moveCount)]);
+			corpus.add(board.black, board.red, board.kings, board.turn);
+		}
+		return corpus;
+	}
+
+	// Scores the corpus in batches of the given size, and returns the scores.
+	private static int[] scores(BatchEvaluator evaluator, LeafBatch corpus, int batchSize) {
+		int[] scores = new int[corpus.size()];
+		LeafBatch batch = new LeafBatch(batchSize);
+		for (int start = 0; start < corpus.size(); start += batchSize) {
+			batch.clear();
+			for (int i = start; i < Math.min(start + batchSize, corpus.size()); i++) {
+				batch.add(corpus.black[i], corpus.red[i], corpus.kings[i], (corpus.signs[i] > 0) ? Player.RED : Player.BLACK);
+			}
+			evaluator.evaluate(batch);
+			System.arraycopy(batch.scores, 0, scores, start, batch.size());
+		}
+		return scores;
+	}
+
+	// Returns the time per position, in nanoseconds, to score the corpus in batches of the given size.
+	private static double time(BatchEvaluator evaluator, LeafBatch corpus, int batchSize, int passes) {
+		// Pre-fill the batches so that only evaluation is timed
+		int batchCount = corpus.size() / batchSize;
+		LeafBatch[] batches = new LeafBatch[batchCount];
+		for (int b = 0; b < batchCount; b++) {
+			batches[b] = new LeafBatch(batchSize);
+			for (int i = b * batchSize; i < (b + 1) * batchSize; i++) {
+				batches[b].add(corpus.black[i], corpus.red[i], corpus.kings[i], (corpus.signs[i] > 0) ? Player.RED : Player.BLACK);
+			}
+		}
+		long checksum = 0;
+		long start = System.nanoTime();
+		for (int pass = 0; pass < passes; pass++) {
+			for (LeafBatch batch : batches) {
+				evaluator.evaluate(batch);
+				checksum += batch.scores[0];
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		if (checksum == 42) {
+			System.out.print(""); // keeps the scores live so the work cannot be optimized away
+		}
+		return (double) elapsed / ((long) passes * batchCount * batchSize);
+	}
+}
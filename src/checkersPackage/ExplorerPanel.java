@@ -0,0 +1,63 @@
+package checkersPackage;
+
+import java.awt.*;
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+
+// A panel beside the board that shows what a PositionIndex holds about the current position: how
+// many games reached it and how they ended, and the turns played from it, most played first, each
+// with the results of the games it was played in. (A lookup takes microseconds, so it is made on
+// the event dispatch thread each time the position changes.)
+@SuppressWarnings("serial")
+public final class ExplorerPanel extends JPanel {
+	private static final String[] COLUMNS = { "Turn", "Games", "Black wins", "Draws", "Red wins" };
+
+	private final PositionIndex index;
+	private final JLabel summary = new JLabel();
+	private final DefaultTableModel table = new DefaultTableModel(COLUMNS, 0) {
+		public boolean isCellEditable(int row, int column) {
+			return false;
+		}
+	};
+
+	public ExplorerPanel(PositionIndex index) {
+		super(new BorderLayout());
+		this.index = index;
+		JTable view = new JTable(table);
+		view.setFillsViewportHeight(true);
+		JScrollPane scrollPane = new JScrollPane(view);
+		scrollPane.setPreferredSize(new Dimension(320, 0));
+		add(summary, BorderLayout.NORTH);
+		add(scrollPane, BorderLayout.CENTER);
+		setBorder(BorderFactory.createTitledBorder("Explorer"));
+		showPosition(CheckersPosition.INITIAL);
+	}
+
+	// Shows the statistics of the given position.
+	public void showPosition(CheckersPosition position) {
+		PositionIndex.Statistics statistics = index.lookup(position);
+		table.setRowCount(0);
+		if (0 == statistics.games) {
+			summary.setText("Not found in the archive");
+			return;
+		}
+		boolean blackToMove = Player.BLACK == position.turn;
+		summary.setText("<html>Reached in " + statistics.games + " games:<br>" + results(statistics.games,
+				blackToMove ? statistics.wins : statistics.losses, blackToMove ? statistics.losses : statistics.wins) + "</html>");
+		for (PositionIndex.MoveStatistics move : statistics.moves) {
+			long blackWins = blackToMove ? move.wins : move.losses;
+			long redWins = blackToMove ? move.losses : move.wins;
+			table.addRow(new Object[] { move.getNotation(), move.games, percent(blackWins, move.games),
+					percent(move.games - blackWins - redWins, move.games), percent(redWins, move.games) });
+		}
+	}
+
+	private static String results(long games, long blackWins, long redWins) {
+		return "Black wins " + percent(blackWins, games) + ", draws " + percent(games - blackWins - redWins, games)
+				+ ", Red wins " + percent(redWins, games);
+	}
+
+	private static String percent(long count, long total) {
+		return String.format("%.1f%%", 100.0 * count / total);
+	}
+}
@@ -0,0 +1,121 @@
+package checkersPackage;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Measures the computer's first reply in a freshly started JVM, against its later replies, with
+// and without EngineStartup. Each measurement runs in a new process (with the same Java runtime,
+// class path and module options as this one), which plays the game as the user interface does:
+// the engine is started (or not) as CheckersMain.init starts it, the user thinks for a while, and
+// then each of the user's turns is checked and played, and the computer's reply (a SearchEngine at
+// the default difficulty) is searched and played. The latency of a reply is the time from the
+// user's turn to the computer's turn being played.
+//
+// Arguments (optional): processes for each mode (default 5), the user's thinking time before the
+// first turn in milliseconds (default 2500).
+public class FirstMoveBenchmark {
+	private static final int REPLIES = 6;
+	private static final String[] MODES = { "cold", "startup" };
+
+	public static void main(String[] args) throws Exception {
+		if (args.length > 0 && args[0].equals("child")) {
+			playGame(args[1].equals("startup"), Long.parseLong(args[2]));
+			return;
+		}
+		int processes = (args.length > 0) ? Integer.parseInt(args[0]) : 5;
+		long thinkMillis = (args.length > 1) ? Long.parseLong(args[1]) : 2500;
+		System.out.println("mode       first reply: median (ms)   min (ms)   max (ms)   later replies: median (ms)   startup (ms)   warm-up searches");
+		for (String mode : MODES) {
+			List<Double> first = new ArrayList<Double>();
+			List<Double> later = new ArrayList<Double>();
+			List<Double> startup = new ArrayList<Double>();
+			List<Double> warmUps = new ArrayList<Double>();
+			for (int i = 0; i < processes; i++) {
+				double[] result = runChild(mode, thinkMillis);
+				first.add(result[0]);
+				later.add(result[1]);
+				startup.add(result[2]);
+				warmUps.add(result[3]);
+			}
+			Collections.sort(first);
+			System.out.printf("%-8s %26.1f %10.1f %10.1f %28.1f %14.1f %18.0f%n", mode, median(first), first.get(0),
+					first.get(first.size() - 1), median(later), median(startup), median(warmUps));
+		}
+	}
+
+	// Runs one game in a new process, and returns its results: the first reply's latency, the
+	// median latency of the later replies, the time EngineStartup.start took (all in milliseconds),
+	// and the number of warm-up searches made.
+	private static double[] runChild(String mode, long thinkMillis) throws IOException, InterruptedException {
+		List<String> command = new ArrayList<String>();
+		command.add(ProcessHandle.current().info().command().orElse("java"));
+		for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+			if (argument.startsWith("--add-modules") || argument.startsWith("-D") || argument.startsWith("-X")) {
+				command.add(argument);
+			}
+		}
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(FirstMoveBenchmark.class.getName());
+		command.add("child");
+		command.add(mode);
+		command.add(Long.toString(thinkMillis));
+		Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+		double[] result = null;
+		try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.US_ASCII))) {
+			String line;
+			while (null != (line = in.readLine())) {
+				if (line.startsWith("RESULT ")) {
+					String[] words = line.split(" ");
+					result = new double[] { Double.parseDouble(words[1]), Double.parseDouble(words[2]),
+							Double.parseDouble(words[3]), Double.parseDouble(words[4]) };
+				}
+			}
+		}
+		if (0 != process.waitFor() || null == result) {
+			throw new IllegalStateException("The " + mode + " process failed");
+		}
+		return result;
+	}
+
+	// Plays the game in this process (a child), and prints its results on one line.
+	private static void playGame(boolean startEngine, long thinkMillis) throws InterruptedException {
+		long start = System.nanoTime();
+		if (startEngine) {
+			EngineStartup.start();
+		}
+		double startupMillis = (System.nanoTime() - start) / 1e6;
+		Thread.sleep(thinkMillis);
+
+		CheckersEngine engine = new SearchEngine(null, Difficulty.MEDIUM);
+		CheckersBoard board = new CheckersBoard();
+		List<Double> latencies = new ArrayList<Double>();
+		for (int reply = 0; reply < REPLIES; reply++) {
+			ArrayList<ArrayList<CheckersMove>> turns = board.returnListOfLegalMoveSequences(Player.BLACK);
+			if (turns.isEmpty()) {
+				break;
+			}
+			ArrayList<CheckersMove> turn = turns.get(0);
+			long begin = System.nanoTime();
+			if (!board.isLegalMoveSequence(turn, Player.BLACK)) {
+				throw new IllegalStateException("Illegal turn " + CheckersMove.toNotation(turn));
+			}
+			board.playMoveSequence(turn, Player.BLACK);
+			ArrayList<CheckersMove> moves = engine.chooseMove(CheckersPosition.of(board, Player.RED), null);
+			if (null == moves) {
+				break;
+			}
+			board.playMoveSequence(moves, Player.RED);
+			latencies.add((System.nanoTime() - begin) / 1e6);
+		}
+		List<Double> later = new ArrayList<Double>(latencies.subList(1, latencies.size()));
+		Collections.sort(later);
+		System.out.println("RESULT " + latencies.get(0) + " " + median(later) + " " + startupMillis + " " + EngineStartup.getSearchCount());
+	}
+
+	private static double median(List<Double> sorted) {
+		return sorted.isEmpty() ? 0 : sorted.get(sorted.size() / 2);
+	}
+}
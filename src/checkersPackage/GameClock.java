@@ -0,0 +1,128 @@
+package checkersPackage;
+
+import java.util.*;
+import java.util.logging.Logger;
+
+// A chess-style game clock: each player starts with a base time, their clock runs only while it
+// is their turn, and they gain a fixed increment after each turn. A player whose time runs out
+// loses. The clock also keeps statistics on how long each turn took (for the computer, this is
+// its response latency), which are logged when the game ends.
+public final class GameClock {
+	private static final Logger LOGGER = Logger.getLogger(GameClock.class.getName());
+
+	private final long baseMillis;
+	private final long incrementMillis;
+	private final long[] remainingMillis = new long[2];
+	private final List<List<Long>> turnMillis = new ArrayList<List<Long>>(); // per player
+	private Player running; // whose clock is running, or null if neither
+	private long turnStart; // when the running clock was started (System.nanoTime)
+
+	public GameClock(long baseMillis, long incrementMillis) {
+		this.baseMillis = baseMillis;
+		this.incrementMillis = incrementMillis;
+		turnMillis.add(new ArrayList<Long>());
+		turnMillis.add(new ArrayList<Long>());
+		reset();
+	}
+
+	// Sets both clocks back to the base time, stopped, and clears the statistics.
+	public synchronized void reset() {
+		Arrays.fill(remainingMillis, baseMillis);
+		for (List<Long> times : turnMillis) {
+			times.clear();
+		}
+		running = null;
+	}
+
+	public long getBaseMillis() {
+		return baseMillis;
+	}
+
+	public long getIncrementMillis() {
+		return incrementMillis;
+	}
+
+	// Starts the given player's clock (stopping the other's, if it is running).
+	public synchronized void startTurn(Player player) {
+		if (null != running) {
+			endTurn();
+		}
+		running = player;
+		turnStart = System.nanoTime();
+	}
+
+	// Stops the running clock at the end of its player's turn, and adds the increment (unless the
+	// player has run out of time). Returns how long the turn took, in milliseconds.
+	public synchronized long endTurn() {
+		if (null == running) {
+			return 0;
+		}
+		long elapsed = (System.nanoTime() - turnStart) / 1000000;
+		int index = running.ordinal();
+		remainingMillis[index] -= elapsed;
+		if (remainingMillis[index] > 0) {
+			remainingMillis[index] += incrementMillis;
+		}
+		turnMillis.get(index).add(elapsed);
+		running = null;
+		return elapsed;
+	}
+
+	// Stops the running clock without ending the turn (when the game ends), and logs the statistics.
+	public synchronized void stop() {
+		if (null != running) {
+			remainingMillis[running.ordinal()] -= (System.nanoTime() - turnStart) / 1000000;
+			running = null;
+		}
+		LOGGER.info(getStatistics());
+	}
+
+	// Returns the player's remaining time, counting the current turn if their clock is running.
+	public synchronized long getRemainingMillis(Player player) {
+		long remaining = remainingMillis[player.ordinal()];
+		if (player == running) {
+			remaining -= (System.nanoTime() - turnStart) / 1000000;
+		}
+		return Math.max(0, remaining);
+	}
+
+	// Returns whether the player has run out of time.
+	public boolean isOutOfTime(Player player) {
+		return 0 == getRemainingMillis(player);
+	}
+
+	public synchronized Player getRunningPlayer() {
+		return running;
+	}
+
+	// Returns a summary of each player's turns: how many, the time used, and the median, 90th
+	// percentile and longest turn.
+	public synchronized String getStatistics() {
+		StringBuilder builder = new StringBuilder("Game clock " + baseMillis + "+" + incrementMillis + " ms:");
+		for (Player player : Player.values()) {
+			List<Long> times = new ArrayList<Long>(turnMillis.get(player.ordinal()));
+			Collections.sort(times);
+			long total = 0;
+			for (long time : times) {
+				total += time;
+			}
+			builder.append(String.format(" %s %d turns, %d ms used, %d ms left, median %d ms, p90 %d ms, max %d ms;",
+					player, times.size(), total, getRemainingMillis(player), percentile(times, 50), percentile(times, 90),
+					times.isEmpty() ? 0 : times.get(times.size() - 1)));
+		}
+		return builder.toString();
+	}
+
+	private static long percentile(List<Long> sorted, int percent) {
+		if (sorted.isEmpty()) {
+			return 0;
+		}
+		return sorted.get(Math.min(sorted.size() - 1, sorted.size() * percent / 100));
+	}
+
+	// Formats a time as minutes and seconds, e.g. "4:07".
+	public static String format(long millis) {
+		long seconds = (millis + 999) / 1000;
+		return String.format("%d:%02d", seconds / 60, seconds % 60);
+	}
+}
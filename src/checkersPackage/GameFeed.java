@@ -0,0 +1,293 @@
+package checkersPackage;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+// A publish/subscribe feed of one game, for spectators (a coach, a stream) that watch it live.
+// A new subscriber first receives a snapshot of the current position, and then one event per
+// turn, delta-encoded: the squares the piece moved from and to, the squares of the pieces it
+// captured, and whether it was crowned. (A change that is not a turn, such as a new game, is sent
+// as a new snapshot.) Every event carries the feed's sequence number, so that the events after a
+// snapshot are exactly those numbered after it.
+//
+// Publishing costs the game's thread only a short critical section and, once there are
+// subscribers, adding the event to the feed's inbox: one dispatcher thread (a virtual thread,
+// started by the first subscriber) fans the events out to the subscribers. Each subscriber has a
+// bounded queue, and the dispatcher never waits for room in one: a subscriber whose queue is full
+// has fallen too far behind, and is dropped (it receives the events already in its queue, and
+// then the end of its subscription), so that a slow consumer never holds up the game or the
+// other subscribers. Each queue keeps one slot in reserve for the event that ends it (the end of
+// the feed, or of a dropped or cancelled subscription), so that a consumer waiting for the next
+// event is always woken when nothing more will come.
+public class GameFeed {
+	public static final int DEFAULT_CAPACITY = 64; // events a subscriber may fall behind by
+
+	// Event types
+	public static final int SNAPSHOT = 1; // the whole position
+	public static final int MOVE = 2; // a turn, as a delta from the position before it
+	public static final int END = 3; // the feed is closed
+
+	// One event of the feed. Events are immutable, and shared by all subscribers.
+	public static class Event {
+		public final int type;
+		public final long sequence;
+		public final long nanos; // when the event was published (System.nanoTime)
+		public final CheckersPosition position; // for SNAPSHOT events; otherwise null
+		public final int from; // for MOVE events: the squares the piece moved from and to (see CheckersPosition.squareIndex)
+		public final int to;
+		public final int captures; // for MOVE events: the squares of the pieces captured
+		public final boolean promotion; // for MOVE events: whether the piece was crowned
+
+		private Event(int type, long sequence, CheckersPosition position, int from, int to, int captures, boolean promotion) {
+			this.type = type;
+			this.sequence = sequence;
+			this.nanos = System.nanoTime();
+			this.position = position;
+			this.from = from;
+			this.to = to;
+			this.captures = captures;
+			this.promotion = promotion;
+		}
+
+		// Returns the position after this event, given the position before it.
+		public CheckersPosition apply(CheckersPosition before) {
+			if (SNAPSHOT == type) {
+				return position;
+			} else if (MOVE != type) {
+				return before;
+			}
+			int fromBit = 1 << from;
+			int toBit = 1 << to;
+			int black = before.black;
+			int red = before.red;
+			int kings = before.kings & ~captures;
+			boolean isKing = promotion || 0 != (kings & fromBit);
+			kings = (kings & ~fromBit) | (isKing ? toBit : 0);
+			if (0 != (black & fromBit)) {
+				black = (black & ~fromBit) | toBit;
+				red &= ~captures;
+			} else {
+				red = (red & ~fromBit) | toBit;
+				black &= ~captures;
+			}
+			return new CheckersPosition(black, red, kings, (Player.BLACK == before.turn) ? Player.RED : Player.BLACK);
+		}
+
+		// Returns the event as a line of text: "SNAPSHOT <sequence> <position>", "END <sequence>", or
+		// "MOVE <sequence> <from>-<to> <captured squares, or -> <K if crowned, or ->" (with "x"
+		// instead of "-" between the squares of a capture), e.g. "MOVE 12 a4xe8 d7,b5 K".
+		@Override
+		public String toString() {
+			if (SNAPSHOT == type) {
+				return "SNAPSHOT " + sequence + " " + position;
+			} else if (END == type) {
+				return "END " + sequence;
+			}
+			StringBuilder builder = new StringBuilder("MOVE ").append(sequence).append(' ').append(square(from));
+			builder.append((0 != captures) ? 'x' : '-').append(square(to)).append(' ');
+			if (0 == captures) {
+				builder.append('-');
+			}
+			for (int squares = captures; 0 != squares; squares &= squares - 1) {
+				builder.append(square(Integer.numberOfTrailingZeros(squares)));
+				builder.append((0 != (squares & (squares - 1))) ? "," : "");
+			}
+			return builder.append(promotion ? " K" : " -").toString();
+		}
+
+		private static BoardSquare square(int index) {
+			return new BoardSquare(CheckersPosition.squareX(index), CheckersPosition.squareY(index));
+		}
+	}
+
+	// One subscriber's view of the feed: its queue of events
+	public static class Subscription {
+		private final GameFeed feed;
+		private final ArrayBlockingQueue<Event> queue;
+		private volatile boolean ended; // dropped, cancelled, or the feed closed: nothing more will be queued
+		private volatile boolean dropped;
+
+		private Subscription(GameFeed feed, int capacity) {
+			this.feed = feed;
+			this.queue = new ArrayBlockingQueue<Event>(capacity + 1); // (the last slot is kept for the end)
+		}
+
+		// Returns the next event, waiting for one if there is none yet, or null once the subscription
+		// has ended and its queue is empty. (Whatever ends a subscription queues its last event in
+		// the slot kept for it, so a thread waiting here is always woken; once that event has been
+		// taken, the queue stays empty.)
+		public Event take() throws InterruptedException {
+			if (ended && queue.isEmpty()) {
+				return null;
+			}
+			Event event = queue.take();
+			return (ENDED == event) ? null : event;
+		}
+
+		// Returns the next event, or null if there is none now (or the subscription has ended).
+		public Event poll() {
+			Event event = queue.poll();
+			return (ENDED == event) ? null : event;
+		}
+
+		// Returns whether the subscription has ended (nothing more will be queued for it).
+		public boolean isEnded() {
+			return ended;
+		}
+
+		// Returns whether the subscriber was dropped for falling behind.
+		public boolean isDropped() {
+			return dropped;
+		}
+
+		// Stops the subscription (waking a thread waiting in take).
+		public void cancel() {
+			ended = true;
+			queue.offer(ENDED); // (if the queue is full, the slot kept for the end already holds it)
+			feed.inbox.add(this); // (so that the dispatcher forgets it)
+		}
+	}
+
+	private static final Event ENDED = new Event(END, -1, null, 0, 0, 0, false); // ends a cancelled or dropped subscription's queue
+
+	private CheckersPosition position; // the position after the last event
+	private long sequence; // the number of the last event
+	private boolean closed;
+	private Thread dispatcher; // null until the first subscriber
+	private final LinkedBlockingQueue<Object> inbox = new LinkedBlockingQueue<Object>(); // events, and subscriptions joining or leaving, in order
+	private volatile int subscriberCount;
+	private volatile int droppedCount;
+
+	public GameFeed(CheckersPosition position) {
+		this.position = position;
+	}
+
+	// Subscribes to the feed, with a queue of the given capacity. The subscription's first event is
+	// a snapshot of the current position (or, if the feed is closed, its end).
+	public synchronized Subscription subscribe(int capacity) {
+		Subscription subscription = new Subscription(this, Math.max(2, capacity));
+		if (closed) {
+			subscription.queue.add(new Event(END, sequence, null, 0, 0, 0, false));
+			subscription.ended = true;
+			return subscription;
+		}
+		subscription.queue.add(new Event(SNAPSHOT, sequence, position, 0, 0, 0, false));
+		if (null == dispatcher) {
+			dispatcher = Thread.ofVirtual().name("game-feed").start(new Runnable() {
+				public void run() {
+					dispatch();
+				}
+			});
+		}
+		inbox.add(subscription);
+		return subscription;
+	}
+
+	// Publishes a turn: the given moves took the game from the position "before" to "after".
+	public void publishTurn(CheckersPosition before, List<CheckersMove> moves, CheckersPosition after) {
+		CheckersMove first = moves.get(0);
+		CheckersMove last = moves.get(moves.size() - 1);
+		int from = CheckersPosition.squareIndex(first.start.x, first.start.y);
+		int to = CheckersPosition.squareIndex(last.destination.x, last.destination.y);
+		int opponent = (Player.BLACK == before.turn) ? before.red : before.black;
+		int captures = opponent & ~((Player.BLACK == before.turn) ? after.red : after.black);
+		boolean promotion = 0 == (before.kings & (1 << from)) && 0 != (after.kings & (1 << to));
+		publish(MOVE, after, from, to, captures, promotion);
+	}
+
+	// Publishes a change of position that is not a turn (a new game, or turns taken back), as a snapshot.
+	public void publishPosition(CheckersPosition position) {
+		publish(SNAPSHOT, position, 0, 0, 0, false);
+	}
+
+	// Closes the feed: every subscription receives the end of the feed (after the events already
+	// queued for it), and the dispatcher stops.
+	public void close() {
+		publish(END, null, 0, 0, 0, false);
+	}
+
+	// Returns the number of current subscribers (as of the last event dispatched).
+	public int getSubscriberCount() {
+		return subscriberCount;
+	}
+
+	// Returns the number of subscribers dropped so far for falling behind.
+	public int getDroppedCount() {
+		return droppedCount;
+	}
+
+	public synchronized CheckersPosition getPosition() {
+		return position;
+	}
+
+	private synchronized void publish(int type, CheckersPosition after, int from, int to, int captures, boolean promotion) {
+		if (closed) {
+			return;
+		}
+		sequence++;
+		closed = (END == type);
+		if (END != type) {
+			position = after;
+		}
+		if (null != dispatcher) {
+			inbox.add(new Event(type, sequence, (SNAPSHOT == type) ? after : null, from, to, captures, promotion));
+		}
+	}
+
+	// Runs on the dispatcher thread: hands every event in the inbox to every subscriber, until the
+	// feed is closed.
+	private void dispatch() {
+		List<Subscription> subscribers = new ArrayList<Subscription>();
+		List<Object> batch = new ArrayList<Object>();
+		try {
+			while (true) {
+				batch.add(inbox.take());
+				inbox.drainTo(batch);
+				for (Object item : batch) {
+					if (item instanceof Subscription) {
+						Subscription subscription = (Subscription) item;
+						if (subscription.ended) {
+							subscribers.remove(subscription);
+						} else {
+							subscribers.add(subscription);
+						}
+						subscriberCount = subscribers.size();
+						continue;
+					}
+					Event event = (Event) item;
+					int kept = 0;
+					for (int i = 0; i < subscribers.size(); i++) {
+						Subscription subscription = subscribers.get(i);
+						if (subscription.ended) {
+							continue;
+						}
+						if (END != event.type && subscription.queue.remainingCapacity() <= 1) {
+							// Too far behind: dropped, with the end of its subscription in the slot kept for it
+							subscription.dropped = true;
+							subscription.ended = true;
+							subscription.queue.offer(ENDED);
+							droppedCount++;
+							continue;
+						}
+						// (The end of the feed fits in the slot kept for it, unless a cancel has just filled that
+						// slot with the end of the subscription)
+						subscription.queue.offer(event);
+						if (END == event.type) {
+							subscription.ended = true;
+							continue;
+						}
+						subscribers.set(kept++, subscription);
+					}
+					subscribers.subList(kept, subscribers.size()).clear();
+					subscriberCount = kept;
+					if (END == event.type) {
+						return;
+					}
+				}
+				batch.clear();
+			}
+		} catch (InterruptedException e) {
+			// (the feed's owner is shutting down)
+		}
+	}
+}
@@ -0,0 +1,251 @@
+package checkersPackage;
+
+import java.lang.management.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Measures the fan-out of a GameFeed to many local subscribers. Each subscriber runs on its own
+// virtual thread and rebuilds the game from the feed: it applies every event to the snapshot it
+// joined with, and checks that the sequence numbers follow each other and that it ends on the
+// game's final position. A few subscribers sleep on every event (slow consumers, which should be
+// dropped), and some join halfway through (to check snapshot-on-join).
+//
+// The turns are random legal turns of a series of games (a new game is published as a snapshot),
+// published at a steady rate, as a game server would publish them; the run is repeated at higher
+// rates, to find the feed's capacity. For each rate it reports the time the game's thread spent
+// publishing a turn (in all, and on the CPU: on a machine with few cores, the game's thread also
+// waits for the CPU while the subscribers use it), the CPU time of the whole process per event
+// delivered, the latency from publishing an event to a subscriber taking it (sampled on one
+// subscriber in a hundred), and the number of subscribers dropped (of which slow) and of wrong
+// ones. (A dropped subscriber stops reading, as a spectator would start over with a new
+// subscription.)
+//
+// Arguments (optional): subscribers (default 10000), turns per run (default 200), published turns
+// per second in each run (default 10,20,40), queue capacity of each subscriber (default
+// GameFeed.DEFAULT_CAPACITY).
+public class GameFeedBenchmark {
+	private static final int SLOW_EVERY = 100; // one subscriber in SLOW_EVERY is slow (those numbered 1 modulo SLOW_EVERY)
+	private static final int LATE_EVERY = 10; // one subscriber in LATE_EVERY joins halfway (5 modulo LATE_EVERY)
+	private static final int SAMPLE_EVERY = 100; // latencies are sampled on one subscriber in SAMPLE_EVERY (0 modulo SAMPLE_EVERY)
+	private static final long SLOW_SLEEP_MILLIS = 500;
+
+	// A turn to publish: the position before it, its moves and the position after it (or, without
+	// moves, a new game)
+	private static class Turn {
+		CheckersPosition before;
+		List<CheckersMove> moves;
+		CheckersPosition after;
+	}
+
+	// What one subscriber saw
+	private static class Result {
+		CheckersPosition position;
+		long events;
+		boolean wrong;
+		boolean dropped;
+		boolean slow;
+		long[] latencies; // for sampled subscribers
+		int latencyCount;
+	}
+
+	public static void main(String[] args) throws Exception {
+		int subscribers = (args.length > 0) ? Integer.parseInt(args[0]) : 10000;
+		int turnCount = (args.length > 1) ? Integer.parseInt(args[1]) : 200;
+		String rates = (args.length > 2) ? args[2] : "10,20,40";
+		int capacity = (args.length > 3) ? Integer.parseInt(args[3]) : GameFeed.DEFAULT_CAPACITY;
+		List<Turn> turns = randomTurns(turnCount, new Random(1));
+
+		// The game's thread alone, without subscribers (after as many turns for warm-up)
+		GameFeed alone = new GameFeed(CheckersPosition.INITIAL);
+		long start = 0;
+		for (int i = -100; i < 100; i++) {
+			if (0 == i) {
+				start = System.nanoTime();
+			}
+			publishAll(alone, turns);
+		}
+		System.out.printf("Publishing without subscribers: %.0f ns per turn%n", (System.nanoTime() - start) / (100.0 * turns.size()));
+		System.out.println();
+		System.out.println("rate (turns/s)   publish mean (us)   p99 (us)   CPU (us)   CPU/delivery (ns)   latency p50 (ms)   p99 (ms)   max (ms)   dropped (slow)   wrong");
+		run(subscribers, turns.subList(0, Math.min(turns.size(), 100)), 40, capacity, false); // (warm-up)
+		for (String rate : rates.split(",")) {
+			run(subscribers, turns, Integer.parseInt(rate.trim()), capacity, true);
+		}
+	}
+
+	// Publishes the turns at the given rate to a feed with the given number of subscribers, and
+	// reports the results (if "report" is true).
+	private static void run(int subscribers, List<Turn> turns, int rate, int capacity, boolean report) throws Exception {
+		final GameFeed feed = new GameFeed(CheckersPosition.INITIAL);
+		final ConcurrentLinkedQueue<Result> results = new ConcurrentLinkedQueue<Result>();
+		final int expectedEvents = turns.size() + 2; // (with the snapshot on joining and the end)
+		ExecutorService consumers = Executors.newVirtualThreadPerTaskExecutor();
+		final CountDownLatch joined = new CountDownLatch(subscribers);
+		List<Integer> late = new ArrayList<Integer>();
+		for (int i = 0; i < subscribers; i++) {
+			if (5 == i % LATE_EVERY) {
+				late.add(i);
+			} else {
+				subscribe(consumers, feed, i, capacity, expectedEvents, joined, results);
+			}
+		}
+
+		long[] publishNanos = new long[turns.size()];
+		long publishCpuNanos = 0;
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		long processCpuNanos = processCpuTime();
+		long begin = System.nanoTime();
+		for (int i = 0; i < turns.size(); i++) {
+			if (i == turns.size() / 2) {
+				for (int subscriber : late) {
+					subscribe(consumers, feed, subscriber, capacity, expectedEvents, joined, results);
+				}
+			}
+			long due = begin + (long) (i * 1e9 / rate);
+			while (System.nanoTime() < due) {
+				Thread.sleep(0, 200000);
+			}
+			long cpuStart = threads.getCurrentThreadCpuTime();
+			long start = System.nanoTime();
+			publish(feed, turns.get(i));
+			publishNanos[i] = System.nanoTime() - start;
+			publishCpuNanos += threads.getCurrentThreadCpuTime() - cpuStart;
+		}
+		CheckersPosition last = feed.getPosition();
+		feed.close();
+		joined.await();
+		consumers.shutdown();
+		consumers.awaitTermination(1, TimeUnit.MINUTES);
+		processCpuNanos = processCpuTime() - processCpuNanos;
+
+		long deliveries = 0;
+		int dropped = 0;
+		int droppedSlow = 0;
+		int wrong = 0;
+		List<Long> latencies = new ArrayList<Long>();
+		for (Result result : results) {
+			deliveries += result.events;
+			if (result.dropped) {
+				dropped++;
+				droppedSlow += result.slow ? 1 : 0;
+			} else if (result.wrong || !result.position.equals(last)) {
+				wrong++;
+			}
+			for (int i = 0; i < result.latencyCount; i++) {
+				latencies.add(result.latencies[i]);
+			}
+		}
+		if (!report) {
+			return;
+		}
+		Collections.sort(latencies);
+		long publishTotal = 0;
+		List<Long> publishTimes = new ArrayList<Long>();
+		for (long nanos : publishNanos) {
+			publishTotal += nanos;
+			publishTimes.add(nanos);
+		}
+		Collections.sort(publishTimes);
+		System.out.printf("%14d %19.1f %10.1f %10.1f %19.0f %18.2f %10.2f %10.2f %10d (%d) %7d%n", rate,
+				publishTotal / 1e3 / publishNanos.length, percentile(publishTimes, 0.99) / 1e3,
+				publishCpuNanos / 1e3 / publishNanos.length, (double) processCpuNanos / deliveries, percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.99) / 1e6,
+				latencies.isEmpty() ? 0 : latencies.get(latencies.size() - 1) / 1e6, dropped, droppedSlow, wrong);
+	}
+
+	// Subscribes to the feed, and starts a consumer for the subscription: slow for one in
+	// SLOW_EVERY, with its latencies sampled for one in SAMPLE_EVERY.
+	private static void subscribe(ExecutorService consumers, final GameFeed feed, int number, final int capacity,
+			final int expectedEvents, final CountDownLatch joined, final ConcurrentLinkedQueue<Result> results) {
+		final boolean sampled = (0 == number % SAMPLE_EVERY);
+		final boolean slow = (1 == number % SLOW_EVERY);
+		final GameFeed.Subscription subscription = feed.subscribe(capacity); // (joins now, before the next turn)
+		consumers.execute(new Runnable() {
+			public void run() {
+				Result result = new Result();
+				result.slow = slow;
+				result.latencies = sampled ? new long[expectedEvents] : null;
+				try {
+					GameFeed.Event event;
+					long sequence = -1;
+					while (null != (event = subscription.take())) {
+						if (sampled) {
+							result.latencies[result.latencyCount++] = System.nanoTime() - event.nanos;
+						}
+						if (sequence >= 0 && event.sequence != sequence + 1) {
+							result.wrong = true;
+						}
+						sequence = event.sequence;
+						result.position = (null == result.position) ? event.position : event.apply(result.position);
+						result.events++;
+						if (subscription.isDropped()) {
+							break;
+						} else if (slow) {
+							Thread.sleep(SLOW_SLEEP_MILLIS);
+						}
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				result.dropped = subscription.isDropped();
+				results.add(result);
+				joined.countDown();
+			}
+		});
+	}
+
+	// Publishes every turn (a new game as a snapshot).
+	private static void publishAll(GameFeed feed, List<Turn> turns) {
+		for (Turn turn : turns) {
+			publish(feed, turn);
+		}
+	}
+
+	private static void publish(GameFeed feed, Turn turn) {
+		if (null == turn.moves) {
+			feed.publishPosition(turn.after);
+		} else {
+			feed.publishTurn(turn.before, turn.moves, turn.after);
+		}
+	}
+
+	// Returns the given number of random legal turns, from a series of games.
+	private static List<Turn> randomTurns(int count, Random random) {
+		List<Turn> turns = new ArrayList<Turn>();
+		CheckersBoard board = new CheckersBoard();
+		Player player = Player.BLACK;
+		int gameTurns = 0;
+		while (turns.size() < count) {
+			Turn turn = new Turn();
+			turn.before = CheckersPosition.of(board, player);
+			ArrayList<ArrayList<CheckersMove>> legal = board.returnListOfLegalMoveSequences(player);
+			if (legal.isEmpty() || gameTurns >= 150) {
+				board.loadPosition(CheckersPosition.INITIAL);
+				player = Player.BLACK;
+				gameTurns = 0;
+				turn.after = CheckersPosition.INITIAL;
+			} else {
+				turn.moves = legal.get(random.nextInt(legal.size()));
+				board.playMoveSequence(turn.moves, player);
+				player = board.switchTurn(player);
+				turn.after = CheckersPosition.of(board, player);
+				gameTurns++;
+			}
+			turns.add(turn);
+		}
+		return turns;
+	}
+
+	// Returns the CPU time used by the process so far, if the JVM can tell.
+	private static long processCpuTime() {
+		OperatingSystemMXBean system = ManagementFactory.getOperatingSystemMXBean();
+		if (system instanceof com.sun.management.OperatingSystemMXBean) {
+			return ((com.sun.management.OperatingSystemMXBean) system).getProcessCpuTime();
+		}
+		return 0;
+	}
+
+	// Returns the given percentile of a sorted list of samples.
+	private static long percentile(List<Long> sorted, double fraction) {
+		return sorted.isEmpty() ? 0 : sorted.get((int) Math.min(sorted.size() - 1, fraction * sorted.size()));
+	}
+}
@@ -0,0 +1,673 @@
+package checkersPackage;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+import java.util.zip.CRC32;
+
+// A durable record of games: every new game, turn, undo and abandoned game is appended to a
+// binary event log on disk, from which the games are restored after a crash or restart.
+//
+// Group commit: appending an event only copies it into a buffer; one flusher thread writes all the
+// buffered events with a single write and a single fsync, and then wakes every thread waiting for
+// one of them. While an fsync runs, the events of other games pile up for the next one, so under
+// load the cost of an fsync is shared by many events.
+//
+// The log is a series of segment files (segment-<n>.log). Every snapshotInterval events, the
+// current segment is closed and a snapshot of all unfinished games (snapshot-<n>.snap, the state
+// after every segment before n) is written in the background; the older segments and snapshots are
+// then deleted. Recovery loads the newest complete snapshot and replays the segments after it.
+// Finished games are left out of snapshots, so they are forgotten at the next one.
+//
+// Records: length (int), CRC-32 of the payload (int), payload. A record cut short by a crash, at
+// the end of the last segment, is dropped on recovery (it was never acknowledged as durable).
+public class GameLog implements Closeable {
+	public static final long DEFAULT_SNAPSHOT_INTERVAL = 100000;
+
+	// Event types
+	public static final int NEW_GAME = 1;
+	public static final int TURN = 2;
+	public static final int UNDO = 3; // turns taken back; the event holds the position they return to
+	public static final int END = 4; // the game was abandoned, or is over and no longer needed
+
+	private static final int SNAPSHOT_MAGIC = 0x43534e50;
+	private static final int MAX_RECORD_LENGTH = 1 << 16;
+
+	// One event of one game
+	public static class Event {
+		public final int type;
+		public final long gameId;
+		public final String notation; // the turn played, for TURN events; otherwise null
+		public final CheckersPosition position; // the game's position after the event
+		public final boolean gameOver; // whether the game is over after the event
+
+		public Event(int type, long gameId, String notation, CheckersPosition position, boolean gameOver) {
+			this.type = type;
+			this.gameId = gameId;
+			this.notation = notation;
+			this.position = position;
+			this.gameOver = gameOver;
+		}
+	}
+
+	// A game as recorded by the log: its turns, and the position before the first and after each
+	public static class GameRecord {
+		public final long id;
+		public final List<String> turns = new ArrayList<String>();
+		public final List<CheckersPosition> positions = new ArrayList<CheckersPosition>(); // one more than turns
+		public boolean gameOver;
+
+		public GameRecord(long id, CheckersPosition start) {
+			this.id = id;
+			this.positions.add(start);
+		}
+
+		public CheckersPosition getPosition() {
+			return positions.get(positions.size() - 1);
+		}
+
+		// Applies a TURN or UNDO event to the game.
+		void apply(Event event) {
+			if (TURN == event.type) {
+				turns.add(event.notation);
+				positions.add(event.position);
+			} else if (UNDO == event.type) {
+				while (!turns.isEmpty() && !getPosition().equals(event.position)) {
+					turns.remove(turns.size() - 1);
+					positions.remove(positions.size() - 1);
+				}
+			}
+			gameOver = event.gameOver;
+		}
+
+		GameRecord copy() {
+			GameRecord copy = new GameRecord(id, positions.get(0));
+			copy.turns.addAll(turns);
+			copy.positions.addAll(positions.subList(1, positions.size()));
+			copy.gameOver = gameOver;
+			return copy;
+		}
+	}
+
+	// Events to write to one segment (and, once they are durable, a snapshot to write, if any)
+	private static class Batch {
+		final int segment;
+		final byte[] bytes;
+		final long lastEvent; // sequence number of the last event in the batch
+		final Snapshot snapshot;
+
+		Batch(int segment, byte[] bytes, long lastEvent, Snapshot snapshot) {
+			this.segment = segment;
+			this.bytes = bytes;
+			this.lastEvent = lastEvent;
+			this.snapshot = snapshot;
+		}
+	}
+
+	// A copy of the unfinished games, as of the start of a segment
+	private static class Snapshot {
+		final int segment;
+		final long nextGameId;
+		final List<GameRecord> games;
+
+		Snapshot(int segment, long nextGameId, List<GameRecord> games) {
+			this.segment = segment;
+			this.nextGameId = nextGameId;
+			this.games = games;
+		}
+	}
+
+	private final Path directory;
+	private final long snapshotInterval;
+	private final ReentrantLock lock = new ReentrantLock(); // (not synchronized: waiters may be virtual threads)
+	private final Condition flushNeeded = lock.newCondition();
+	private final Condition flushed = lock.newCondition();
+
+	// Guarded by lock
+	private final Map<Long, GameRecord> games; // every game not yet ended, as of the last appended event
+	private final ArrayDeque<Batch> sealed = new ArrayDeque<Batch>(); // batches of earlier segments
+	private ByteArrayOutputStream pending = new ByteArrayOutputStream(); // events of the current segment
+	private int segment; // the segment the pending events go to
+	private long nextGameId;
+	private long appended; // sequence number of the last event appended
+	private long durable; // sequence number of the last event that is on disk
+	private long eventsSinceSnapshot;
+	private long syncs;
+	private long bytesWritten;
+	private IOException failure; // set if writing failed; the log accepts no more events
+	private boolean closed;
+
+	private final Thread flusher;
+	private final ExecutorService snapshotWriter;
+
+	// Recovery statistics
+	private int recoveredSnapshot = -1; // segment number of the snapshot recovery started from, or -1
+	private long recoveredEvents;
+
+	private GameLog(Path directory, long snapshotInterval, Map<Long, GameRecord> games, int segment, long nextGameId) {
+		this.directory = directory;
+		this.snapshotInterval = snapshotInterval;
+		this.games = games;
+		this.segment = segment;
+		this.nextGameId = nextGameId;
+		this.snapshotWriter = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("game-log-snapshots").daemon(true).factory());
+		this.flusher = Thread.ofPlatform().name("game-log-flusher").daemon(true).start(new Runnable() {
+			public void run() {
+				flush();
+			}
+		});
+	}
+
+	// Opens the log in the given directory (creating it if needed), restoring the games recorded in
+	// it, with snapshots every DEFAULT_SNAPSHOT_INTERVAL events.
+	public static GameLog open(Path directory) throws IOException {
+		return open(directory, DEFAULT_SNAPSHOT_INTERVAL);
+	}
+
+	public static GameLog open(Path directory, long snapshotInterval) throws IOException {
+		Files.createDirectories(directory);
+		TreeMap<Integer, Path> snapshots = listFiles(directory, "snapshot-", ".snap");
+		TreeMap<Integer, Path> segments = listFiles(directory, "segment-", ".log");
+
+		// Start from the newest snapshot that is complete
+		Map<Long, GameRecord> games = new HashMap<Long, GameRecord>();
+		long nextGameId = 1;
+		int firstSegment = 0;
+		int snapshotSegment = -1;
+		for (Map.Entry<Integer, Path> entry : snapshots.descendingMap().entrySet()) {
+			try {
+				Snapshot snapshot = readSnapshot(entry.getValue(), entry.getKey());
+				for (GameRecord game : snapshot.games) {
+					games.put(game.id, game);
+				}
+				nextGameId = snapshot.nextGameId;
+				firstSegment = snapshot.segment;
+				snapshotSegment = snapshot.segment;
+				break;
+			} catch (IOException e) {
+				// (incomplete: try the one before)
+			}
+		}
+
+		// Replay the segments after it
+		long events = 0;
+		int lastSegment = firstSegment - 1;
+		for (Map.Entry<Integer, Path> entry : segments.tailMap(firstSegment).entrySet()) {
+			boolean last = entry.getKey().equals(segments.lastKey());
+			for (Event event : readSegment(entry.getValue(), last)) {
+				apply(games, event);
+				nextGameId = Math.max(nextGameId, event.gameId + 1);
+				events++;
+			}
+			lastSegment = entry.getKey();
+		}
+
+		// New events go to a new segment
+		GameLog log = new GameLog(directory, snapshotInterval, games, lastSegment + 1, nextGameId);
+		log.recoveredSnapshot = snapshotSegment;
+		log.recoveredEvents = events;
+		log.eventsSinceSnapshot = events;
+		return log;
+	}
+
+	// Returns a new game's id and records its start (without waiting for it to be durable).
+	public long newGame() throws IOException {
+		lock.lock();
+		try {
+			long id = nextGameId++;
+			submit(new Event(NEW_GAME, id, null, CheckersPosition.INITIAL, false));
+			return id;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Appends the given events (in order) and waits until they are on disk.
+	public void append(List<Event> events) throws IOException {
+		long last = submit(events);
+		awaitDurable(last);
+	}
+
+	public void append(Event event) throws IOException {
+		append(Collections.singletonList(event));
+	}
+
+	// Appends the given events (in order) without waiting for them to be written, and returns the
+	// sequence number of the last of them (see awaitDurable).
+	public long submit(List<Event> events) throws IOException {
+		lock.lock();
+		try {
+			long last = 0;
+			for (Event event : events) {
+				last = submit(event);
+			}
+			return last;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public long submit(Event event) throws IOException {
+		byte[] payload = encode(event);
+		CRC32 crc = new CRC32();
+		crc.update(payload);
+		lock.lock();
+		try {
+			if (null != failure) {
+				throw new IOException("The game log failed", failure);
+			}
+			if (closed) {
+				throw new IOException("The game log is closed");
+			}
+			DataOutputStream out = new DataOutputStream(pending);
+			out.writeInt(payload.length);
+			out.writeInt((int) crc.getValue());
+			out.write(payload);
+			apply(games, event);
+			appended++;
+			eventsSinceSnapshot++;
+
+			// Start a new segment, with a snapshot of the games as of its start
+			if (eventsSinceSnapshot >= snapshotInterval) {
+				List<GameRecord> copies = new ArrayList<GameRecord>(games.size());
+				for (GameRecord game : games.values()) {
+					if (!game.gameOver) {
+						copies.add(game.copy());
+					}
+				}
+				sealed.add(new Batch(segment, pending.toByteArray(), appended, new Snapshot(segment + 1, nextGameId, copies)));
+				pending = new ByteArrayOutputStream();
+				segment++;
+				eventsSinceSnapshot = 0;
+			}
+			flushNeeded.signal();
+			return appended;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Waits until the event with the given sequence number (and every one before it) is on disk.
+	public void awaitDurable(long sequence) throws IOException {
+		lock.lock();
+		try {
+			while (durable < sequence && null == failure) {
+				flushed.awaitUninterruptibly();
+			}
+			if (durable < sequence) {
+				throw new IOException("The game log failed", failure);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Gets copies of the games that have not ended (as recovered, plus the events since).
+	public List<GameRecord> getGames() {
+		lock.lock();
+		try {
+			List<GameRecord> copies = new ArrayList<GameRecord>(games.size());
+			for (GameRecord game : games.values()) {
+				copies.add(game.copy());
+			}
+			Collections.sort(copies, new Comparator<GameRecord>() {
+				public int compare(GameRecord game1, GameRecord game2) {
+					return Long.compare(game1.id, game2.id);
+				}
+			});
+			return copies;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Describes the writes so far: events, fsyncs, events per fsync and bytes written.
+	public String getStatistics() {
+		lock.lock();
+		try {
+			return String.format("%d events, %d fsyncs (%.1f events each), %d bytes", durable, syncs,
+					(double) durable / Math.max(1, syncs), bytesWritten);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public long getSyncCount() {
+		lock.lock();
+		try {
+			return syncs;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// The segment number of the snapshot that recovery started from (-1 if none), and the number
+	// of events it replayed after it
+	public int getRecoveredSnapshot() {
+		return recoveredSnapshot;
+	}
+
+	public long getRecoveredEvents() {
+		return recoveredEvents;
+	}
+
+	// Writes the events appended so far, and then stops the log. Snapshots being written are
+	// finished first.
+	@Override
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			closed = true;
+			flushNeeded.signal();
+		} finally {
+			lock.unlock();
+		}
+		try {
+			flusher.join();
+			snapshotWriter.shutdown();
+			snapshotWriter.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		lock.lock();
+		try {
+			if (null != failure) {
+				throw new IOException("The game log failed", failure);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// The flusher thread: writes whatever has been appended, with one fsync per round.
+	private void flush() {
+		FileChannel channel = null;
+		int openSegment = -1;
+		try {
+			while (true) {
+				List<Batch> batches = new ArrayList<Batch>();
+				lock.lock();
+				try {
+					while (sealed.isEmpty() && 0 == pending.size() && !closed) {
+						flushNeeded.awaitUninterruptibly();
+					}
+					if (sealed.isEmpty() && 0 == pending.size()) {
+						break; // (closed, and everything is written)
+					}
+					batches.addAll(sealed);
+					sealed.clear();
+					if (pending.size() > 0) {
+						batches.add(new Batch(segment, pending.toByteArray(), appended, null));
+						pending.reset();
+					}
+				} finally {
+					lock.unlock();
+				}
+
+				long written = 0;
+				List<Snapshot> snapshots = new ArrayList<Snapshot>();
+				for (Batch batch : batches) {
+					if (batch.segment != openSegment) {
+						if (null != channel) {
+							channel.force(false);
+							channel.close();
+						}
+						channel = FileChannel.open(segmentPath(directory, batch.segment), StandardOpenOption.CREATE,
+								StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+						openSegment = batch.segment;
+						forceDirectory(directory); // (the segment may be new: its name must be durable too)
+					}
+					ByteBuffer buffer = ByteBuffer.wrap(batch.bytes);
+					while (buffer.hasRemaining()) {
+						channel.write(buffer);
+					}
+					written += batch.bytes.length;
+					if (null != batch.snapshot) {
+						snapshots.add(batch.snapshot);
+					}
+				}
+				channel.force(false);
+
+				lock.lock();
+				try {
+					durable = batches.get(batches.size() - 1).lastEvent;
+					syncs++;
+					bytesWritten += written;
+					flushed.signalAll();
+				} finally {
+					lock.unlock();
+				}
+				for (final Snapshot snapshot : snapshots) {
+					snapshotWriter.execute(new Runnable() {
+						public void run() {
+							writeSnapshot(snapshot);
+						}
+					});
+				}
+			}
+		} catch (IOException e) {
+			lock.lock();
+			try {
+				failure = e;
+				flushed.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		} finally {
+			if (null != channel) {
+				try {
+					channel.close();
+				} catch (IOException e) {
+					// (already failed, or everything was forced)
+				}
+			}
+		}
+	}
+
+	// Writes a snapshot (to a temporary file that is then renamed, so that a snapshot file is
+	// always complete), and once the rename is on disk, deletes the segments and snapshots it
+	// replaces.
+	private void writeSnapshot(Snapshot snapshot) {
+		try {
+			Path temporary = directory.resolve("snapshot.tmp");
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeInt(SNAPSHOT_MAGIC);
+			out.writeInt(snapshot.segment);
+			out.writeLong(snapshot.nextGameId);
+			out.writeInt(snapshot.games.size());
+			for (GameRecord game : snapshot.games) {
+				out.writeLong(game.id);
+				out.writeBoolean(game.gameOver);
+				out.writeInt(game.turns.size());
+				writePosition(out, game.positions.get(0));
+				for (int i = 0; i < game.turns.size(); i++) {
+					out.writeUTF(game.turns.get(i));
+					writePosition(out, game.positions.get(i + 1));
+				}
+			}
+			CRC32 crc = new CRC32();
+			crc.update(bytes.toByteArray());
+			out.writeInt((int) crc.getValue());
+			try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				channel.force(true);
+			}
+			Files.move(temporary, snapshotPath(directory, snapshot.segment), StandardCopyOption.ATOMIC_MOVE);
+			forceDirectory(directory); // (the rename must be durable before the files it replaces are deleted)
+
+			for (Map.Entry<Integer, Path> entry : listFiles(directory, "segment-", ".log").headMap(snapshot.segment).entrySet()) {
+				Files.deleteIfExists(entry.getValue());
+			}
+			for (Map.Entry<Integer, Path> entry : listFiles(directory, "snapshot-", ".snap").headMap(snapshot.segment).entrySet()) {
+				Files.deleteIfExists(entry.getValue());
+			}
+		} catch (IOException e) {
+			// The log stays complete without the snapshot; recovery just replays more of it
+			System.err.println("Failed to write a game log snapshot: " + e);
+		}
+	}
+
+	private static Snapshot readSnapshot(Path path, int segment) throws IOException {
+		byte[] bytes = Files.readAllBytes(path);
+		if (bytes.length < 4) {
+			throw new IOException("Truncated snapshot " + path);
+		}
+		CRC32 crc = new CRC32();
+		crc.update(bytes, 0, bytes.length - 4);
+		if ((int) crc.getValue() != ByteBuffer.wrap(bytes, bytes.length - 4, 4).getInt()) {
+			throw new IOException("Corrupt snapshot " + path);
+		}
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 4));
+		if (SNAPSHOT_MAGIC != in.readInt() || segment != in.readInt()) {
+			throw new IOException("Not a snapshot: " + path);
+		}
+		long nextGameId = in.readLong();
+		int count = in.readInt();
+		List<GameRecord> games = new ArrayList<GameRecord>(count);
+		for (int i = 0; i < count; i++) {
+			long id = in.readLong();
+			boolean gameOver = in.readBoolean();
+			int turns = in.readInt();
+			GameRecord game = new GameRecord(id, readPosition(in));
+			for (int j = 0; j < turns; j++) {
+				game.turns.add(in.readUTF());
+				game.positions.add(readPosition(in));
+			}
+			game.gameOver = gameOver;
+			games.add(game);
+		}
+		return new Snapshot(segment, nextGameId, games);
+	}
+
+	// Reads the events of a segment. A record cut short at the end of the last segment (by a crash
+	// while it was being written) is dropped, and the file truncated before it; anywhere else it
+	// means the log is damaged.
+	private static List<Event> readSegment(Path path, boolean last) throws IOException {
+		byte[] bytes = Files.readAllBytes(path);
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		List<Event> events = new ArrayList<Event>();
+		while (buffer.remaining() > 0) {
+			int start = buffer.position();
+			boolean complete = false;
+			if (buffer.remaining() >= 8) {
+				int length = buffer.getInt();
+				int checksum = buffer.getInt();
+				if (length > 0 && length <= MAX_RECORD_LENGTH && buffer.remaining() >= length) {
+					CRC32 crc = new CRC32();
+					crc.update(bytes, buffer.position(), length);
+					if ((int) crc.getValue() == checksum) {
+						events.add(decode(new DataInputStream(new ByteArrayInputStream(bytes, buffer.position(), length))));
+						buffer.position(buffer.position() + length);
+						complete = true;
+					}
+				}
+			}
+			if (!complete) {
+				if (!last) {
+					throw new IOException("Corrupt record at byte " + start + " of " + path);
+				}
+				try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+					// (Forced, or after another crash the torn record could be back, in a segment before the last)
+					channel.truncate(start);
+					channel.force(true);
+				}
+				break;
+			}
+		}
+		return events;
+	}
+
+	private static void apply(Map<Long, GameRecord> games, Event event) {
+		if (NEW_GAME == event.type) {
+			games.put(event.gameId, new GameRecord(event.gameId, event.position));
+		} else if (END == event.type) {
+			games.remove(event.gameId);
+		} else {
+			GameRecord game = games.get(event.gameId);
+			if (null != game) {
+				game.apply(event);
+			}
+		}
+	}
+
+	// Payload: type (byte), game id (long), position (3 ints and the player to move), game over
+	// (boolean), and for turns the notation (UTF)
+	private static byte[] encode(Event event) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(48);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(event.type);
+		out.writeLong(event.gameId);
+		writePosition(out, event.position);
+		out.writeBoolean(event.gameOver);
+		if (TURN == event.type) {
+			out.writeUTF(event.notation);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static Event decode(DataInputStream in) throws IOException {
+		int type = in.readByte();
+		long gameId = in.readLong();
+		CheckersPosition position = readPosition(in);
+		boolean gameOver = in.readBoolean();
+		String notation = (TURN == type) ? in.readUTF() : null;
+		return new Event(type, gameId, notation, position, gameOver);
+	}
+
+	private static void writePosition(DataOutputStream out, CheckersPosition position) throws IOException {
+		out.writeInt(position.black);
+		out.writeInt(position.red);
+		out.writeInt(position.kings);
+		out.writeBoolean(Player.RED == position.turn);
+	}
+
+	private static CheckersPosition readPosition(DataInputStream in) throws IOException {
+		return new CheckersPosition(in.readInt(), in.readInt(), in.readInt(), in.readBoolean() ? Player.RED : Player.BLACK);
+	}
+
+	// Forces the directory's entries to disk, so that the files created and renamed in it survive a
+	// power loss. (Windows cannot open a directory; there, its entries are made durable with the
+	// files themselves.)
+	private static void forceDirectory(Path directory) throws IOException {
+		if (System.getProperty("os.name").startsWith("Windows")) {
+			return;
+		}
+		try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+			channel.force(true);
+		}
+	}
+
+	private static Path segmentPath(Path directory, int segment) {
+		return directory.resolve(String.format("segment-%08d.log", segment));
+	}
+
+	private static Path snapshotPath(Path directory, int segment) {
+		return directory.resolve(String.format("snapshot-%08d.snap", segment));
+	}
+
+	// Lists the files named <prefix><number><suffix> in the directory, by number.
+	private static TreeMap<Integer, Path> listFiles(Path directory, String prefix, String suffix) throws IOException {
+		TreeMap<Integer, Path> files = new TreeMap<Integer, Path>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+			for (Path path : stream) {
+				String name = path.getFileName().toString();
+				try {
+					files.put(Integer.parseInt(name.substring(prefix.length(), name.length() - suffix.length())), path);
+				} catch (NumberFormatException e) {
+					// (not one of ours)
+				}
+			}
+		}
+		return files;
+	}
+}
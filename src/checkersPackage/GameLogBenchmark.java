@@ -0,0 +1,199 @@
+package checkersPackage;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Measures the GameLog. First the write throughput: N games, each on its own virtual thread, play
+// turns as fast as the log lets them (each turn waits until it is on disk, as a server's reply
+// does), for N from 1 (one fsync per turn) up to thousands; it reports turns per second, fsyncs
+// per second, turns per fsync, and the median and 99th-percentile wait. Then the recovery time:
+// a log of many games is reopened, once replaying the whole log and once from a snapshot and the
+// events after it, and once more with a record cut short at the end (as by a crash), checking each
+// time that every game comes back as it was.
+//
+// The games are random legal games, so the records have realistic sizes. The logs are written to
+// a temporary directory (on the file system of java.io.tmpdir), which is deleted at the end.
+//
+// Arguments (optional): seconds per write test (default 3), games for the recovery test
+// (default 10000), turns per game (default 60).
+public class GameLogBenchmark {
+	private static final int[] CONCURRENT_GAMES = { 1, 16, 256, 4096 };
+
+	public static void main(String[] args) throws Exception {
+		final long seconds = (args.length > 0) ? Long.parseLong(args[0]) : 3;
+		int recoveryGames = (args.length > 1) ? Integer.parseInt(args[1]) : 10000;
+		int turnsPerGame = (args.length > 2) ? Integer.parseInt(args[2]) : 60;
+		final List<List<GameLog.Event>> games = randomGames(64, turnsPerGame);
+
+		// Write throughput
+		System.out.println("games    turns/s   fsyncs/s  turns/fsync   wait p50 (ms)   wait p99 (ms)");
+		for (int concurrent : CONCURRENT_GAMES) {
+			Path directory = Files.createTempDirectory("gamelog");
+			final GameLog log = GameLog.open(directory);
+			final ConcurrentLinkedQueue<long[]> waits = new ConcurrentLinkedQueue<long[]>();
+			final long deadline = System.nanoTime() + seconds * 1000000000L;
+			long start = System.nanoTime();
+			try (ExecutorService players = Executors.newVirtualThreadPerTaskExecutor()) {
+				for (int i = 0; i < concurrent; i++) {
+					final List<GameLog.Event> game = games.get(i % games.size());
+					players.execute(new Runnable() {
+						public void run() {
+							long[] gameWaits = new long[256];
+							int count = 0;
+							try {
+								while (System.nanoTime() < deadline) {
+									long id = log.newGame();
+									for (GameLog.Event event : game) {
+										long before = System.nanoTime();
+										log.append(new GameLog.Event(event.type, id, event.notation, event.position, event.gameOver));
+										if (count == gameWaits.length) {
+											gameWaits = Arrays.copyOf(gameWaits, 2 * count);
+										}
+										gameWaits[count++] = System.nanoTime() - before;
+										if (System.nanoTime() >= deadline) {
+											break;
+										}
+									}
+								}
+							} catch (IOException e) {
+								System.err.println("Append failed: " + e);
+							}
+							waits.add(Arrays.copyOf(gameWaits, count));
+						}
+					});
+				}
+			}
+			double elapsed = (System.nanoTime() - start) / 1e9;
+			long syncs = log.getSyncCount();
+			log.close();
+			long[] all = merge(waits);
+			System.out.printf("%5d %10.0f %10.0f %12.1f %15.2f %15.2f%n", concurrent, all.length / elapsed, syncs / elapsed,
+					(double) all.length / Math.max(1, syncs), all[all.length / 2] / 1e6, all[(int) ((all.length - 1) * 0.99)] / 1e6);
+			deleteDirectory(directory);
+		}
+
+		// Recovery time
+		System.out.println();
+		System.out.printf("Recovery of %d games of %d turns:%n", recoveryGames, turnsPerGame);
+		long totalEvents = (long) recoveryGames * (turnsPerGame + 1);
+		for (long snapshotInterval : new long[] { Long.MAX_VALUE, totalEvents * 9 / 10 }) {
+			Path directory = Files.createTempDirectory("gamelog");
+			GameLog log = GameLog.open(directory, snapshotInterval);
+			Map<Long, CheckersPosition> expected = new HashMap<Long, CheckersPosition>();
+			List<Long> ids = new ArrayList<Long>();
+			for (int i = 0; i < recoveryGames; i++) {
+				ids.add(log.newGame());
+				expected.put(ids.get(i), CheckersPosition.INITIAL);
+			}
+			for (int turn = 0; turn < turnsPerGame; turn++) { // (the games' turns interleave, as on a server)
+				List<GameLog.Event> batch = new ArrayList<GameLog.Event>();
+				for (int i = 0; i < recoveryGames; i++) {
+					GameLog.Event event = games.get(i % games.size()).get(turn);
+					batch.add(new GameLog.Event(event.type, ids.get(i), event.notation, event.position, event.gameOver));
+					expected.put(ids.get(i), event.position);
+				}
+				log.append(batch);
+			}
+			log.close();
+			long bytes = directorySize(directory);
+			String kind = (Long.MAX_VALUE == snapshotInterval) ? "whole log" : "snapshot + tail";
+			recover(directory, kind + String.format(" (%.1f MB on disk)", bytes / 1e6), expected);
+
+			// A crash in the middle of writing a record
+			if (Long.MAX_VALUE == snapshotInterval) {
+				Path lastSegment = null;
+				try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "segment-*.log")) {
+					for (Path path : stream) {
+						if (null == lastSegment || path.compareTo(lastSegment) > 0) {
+							lastSegment = path;
+						}
+					}
+				}
+				try (OutputStream out = Files.newOutputStream(lastSegment, StandardOpenOption.APPEND)) {
+					out.write(new byte[] { 0, 0, 0, 40, 1, 2, 3 }); // a length and part of a checksum
+				}
+				recover(directory, "whole log, torn last record", expected);
+			}
+			deleteDirectory(directory);
+		}
+	}
+
+	// Reopens the log, reports the time it took, and checks that every game is at its expected position.
+	private static void recover(Path directory, String description, Map<Long, CheckersPosition> expected) throws IOException {
+		long start = System.nanoTime();
+		GameLog log = GameLog.open(directory);
+		long millis = (System.nanoTime() - start) / 1000000;
+		List<GameLog.GameRecord> recovered = log.getGames();
+		int wrong = 0;
+		for (GameLog.GameRecord game : recovered) {
+			if (!game.getPosition().equals(expected.get(game.id))) {
+				wrong++;
+			}
+		}
+		System.out.printf("  %-45s %6d ms  (snapshot: %s, %d events replayed; %d games, %d wrong)%n", description, millis,
+				(log.getRecoveredSnapshot() >= 0) ? "yes" : "no", log.getRecoveredEvents(), recovered.size(),
+				wrong + expected.size() - recovered.size());
+		log.close();
+	}
+
+	// Plays random legal games, and returns the TURN events of each (with game id 0).
+	private static List<List<GameLog.Event>> randomGames(int count, int turns) {
+		Random random = new Random(1);
+		List<List<GameLog.Event>> games = new ArrayList<List<GameLog.Event>>();
+		while (games.size() < count) {
+			CheckersBoard board = new CheckersBoard();
+			Player turn = Player.BLACK;
+			List<GameLog.Event> events = new ArrayList<GameLog.Event>();
+			for (int i = 0; i < turns; i++) {
+				ArrayList<ArrayList<CheckersMove>> legal = board.returnListOfLegalMoveSequences(turn);
+				if (legal.isEmpty()) {
+					break;
+				}
+				ArrayList<CheckersMove> moves = legal.get(random.nextInt(legal.size()));
+				board.playMoveSequence(moves, turn);
+				turn = board.switchTurn(turn);
+				events.add(new GameLog.Event(GameLog.TURN, 0, CheckersMove.toNotation(moves), CheckersPosition.of(board, turn), false));
+			}
+			if (events.size() == turns) { // (only games that last long enough)
+				games.add(events);
+			}
+		}
+		return games;
+	}
+
+	private static long[] merge(Collection<long[]> arrays) {
+		int count = 0;
+		for (long[] array : arrays) {
+			count += array.length;
+		}
+		long[] all = new long[count];
+		int index = 0;
+		for (long[] array : arrays) {
+			System.arraycopy(array, 0, all, index, array.length);
+			index += array.length;
+		}
+		Arrays.sort(all);
+		return all;
+	}
+
+	private static long directorySize(Path directory) throws IOException {
+		long size = 0;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (Path path : stream) {
+				size += Files.size(path);
+			}
+		}
+		return size;
+	}
+
+	private static void deleteDirectory(Path directory) throws IOException {
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (Path path : stream) {
+				Files.delete(path);
+			}
+		}
+		Files.delete(directory);
+	}
+}
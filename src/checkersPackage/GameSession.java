@@ -0,0 +1,181 @@
+package checkersPackage;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.Callable;
+
+// The state of one human-vs-computer game hosted by CheckersServer. The human plays Black and
+// moves first, as in CheckersBoardComponent. Between requests a session holds only the current
+// CheckersPosition, so that thousands of idle sessions cost little memory; a CheckersBoard is
+// built from the position only while a move is being checked or searched. A session also keeps
+// the keys of the game's positions, so that a game that repeats a position three times or goes on
+// without progress (see PositionHistory) ends in a draw.
+//
+// With a GameLog, every game and turn of the session is recorded, and a turn is only answered once
+// it is on disk, so a game that was answered can be resumed after a crash (see CheckersServer).
+//
+// Every turn and new game is also published on the session's GameFeed, for spectators.
+public final class GameSession {
+	private final GameLog log; // null if the session's games are not recorded
+	private final GameFeed feed = new GameFeed(CheckersPosition.INITIAL);
+	private long id; // the game's id in the log (0 without a log)
+	private CheckersPosition position;
+	private PositionHistory history;
+	private boolean gameOver;
+
+	public GameSession() {
+		this.log = null;
+		newGame();
+	}
+
+	public GameSession(GameLog log) {
+		this.log = log;
+		newGame();
+	}
+
+	// Resumes a game recovered from the log.
+	public GameSession(GameLog log, GameLog.GameRecord record) {
+		this.log = log;
+		this.id = record.id;
+		this.position = record.getPosition();
+		this.history = new PositionHistory(record.positions.get(0));
+		for (int i = 1; i < record.positions.size(); i++) {
+			history.push(record.positions.get(i));
+		}
+		this.gameOver = record.gameOver;
+		feed.publishPosition(position);
+	}
+
+	// Resets the session to the starting position (as a new game, in the log).
+	public void newGame() {
+		if (null != log) {
+			try {
+				if (0 != id) {
+					log.submit(new GameLog.Event(GameLog.END, id, null, position, gameOver));
+				}
+				id = log.newGame();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		this.position = CheckersPosition.INITIAL;
+		this.history = new PositionHistory(position);
+		this.gameOver = false;
+		feed.publishPosition(position);
+	}
+
+	// Records that the session's game will not be played any further, and closes its feed.
+	public void endGame() throws IOException {
+		feed.close();
+		if (null != log) {
+			log.append(new GameLog.Event(GameLog.END, id, null, position, gameOver));
+		}
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public CheckersPosition getPosition() {
+		return position;
+	}
+
+	public boolean isGameOver() {
+		return gameOver;
+	}
+
+	public GameFeed getFeed() {
+		return feed;
+	}
+
+	// Plays the human's turn (given in CheckersMove notation) and then the computer's reply, whose
+	// search runs on the given pool. Returns the protocol reply line (see CheckersServer). If the
+	// pool is saturated, the session is left unchanged, so the client may simply retry the move.
+	public String playTurn(String notation, SearchPool pool) throws Exception {
+		if (gameOver) {
+			return "ERR game is over";
+		}
+		List<CheckersMove> humanMoves;
+		try {
+			humanMoves = CheckersMove.parseNotation(notation);
+		} catch (IllegalArgumentException e) {
+			return "ERR " + e.getMessage();
+		}
+
+		// Checking the human's move is cheap, so it is done on the session's own thread
+		final CheckersBoard board = new CheckersBoard();
+		board.loadPosition(position);
+		if (!board.playMoveSequence(humanMoves, Player.BLACK)) {
+			return "ERR illegal move";
+		}
+		String humanNotation = CheckersMove.toNotation(humanMoves);
+		CheckersPosition afterHuman = CheckersPosition.of(board, Player.RED);
+		if (!board.areAnyMovesPossible(Player.RED)) {
+			record(new GameLog.Event(GameLog.TURN, id, humanNotation, afterHuman, true));
+			feed.publishTurn(position, humanMoves, afterHuman);
+			position = afterHuman;
+			gameOver = true;
+			return "GAMEOVER BLACK - " + position;
+		}
+		history.push(afterHuman);
+		if (null != history.getDrawReason(PositionHistory.DEFAULT_NO_PROGRESS_LIMIT)) {
+			try {
+				record(new GameLog.Event(GameLog.TURN, id, humanNotation, afterHuman, true));
+			} catch (IOException e) {
+				history.pop();
+				throw e;
+			}
+			feed.publishTurn(position, humanMoves, afterHuman);
+			position = afterHuman;
+			gameOver = true;
+			return "GAMEOVER DRAW - " + position;
+		}
+
+		// The computer's reply is searched on the shared pool (this throws if the pool is saturated)
+		List<CheckersMove> aiMoves;
+		try {
+			aiMoves = pool.run(new Callable<List<CheckersMove>>() {
+				public List<CheckersMove> call() {
+					return board.makeAIMove(Player.RED, history); // (so that the AI sees the game's repetitions)
+				}
+			});
+		} catch (Exception e) {
+			history.pop(); // leave the session unchanged
+			throw e;
+		}
+		CheckersPosition newPosition = CheckersPosition.of(board, Player.BLACK);
+		history.push(newPosition);
+		String aiNotation = CheckersMove.toNotation(aiMoves);
+		String reply;
+		if (!board.areAnyMovesPossible(Player.BLACK)) {
+			reply = "GAMEOVER RED " + aiNotation + " " + newPosition;
+		} else if (null != history.getDrawReason(PositionHistory.DEFAULT_NO_PROGRESS_LIMIT)) {
+			reply = "GAMEOVER DRAW " + aiNotation + " " + newPosition;
+		} else {
+			reply = "MOVE " + aiNotation + " " + newPosition;
+		}
+		boolean over = reply.startsWith("GAMEOVER");
+
+		// Both turns are recorded together, and the reply waits until they are on disk
+		try {
+			record(new GameLog.Event(GameLog.TURN, id, humanNotation, afterHuman, false),
+					new GameLog.Event(GameLog.TURN, id, aiNotation, newPosition, over));
+		} catch (IOException e) {
+			history.pop();
+			history.pop();
+			throw e;
+		}
+		feed.publishTurn(position, humanMoves, afterHuman);
+		feed.publishTurn(afterHuman, aiMoves, newPosition);
+		position = newPosition;
+		gameOver = over;
+		return reply;
+	}
+
+	// Records events of the session's game in the log (if any), and waits until they are on disk.
+	private void record(GameLog.Event... events) throws IOException {
+		if (null != log) {
+			log.append(Arrays.asList(events));
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package checkersPackage;
+
+// A batch of positions to be scored at once by a BatchEvaluator, held in packed parallel arrays (one
+// entry per position) so that the evaluator can score several positions per instruction.
+public class LeafBatch {
+	public final int[] black; // squares holding a black piece
+	public final int[] red; // squares holding a red piece
+	public final int[] kings; // squares holding a king
+	public final int[] signs; // +1 if Red is to move, -1 if Black is to move
+	public final int[] scores; // filled in by the evaluator: the score for the player to move
+	private int count;
+
+	public LeafBatch(int capacity) {
+		this.black = new int[capacity];
+		this.red = new int[capacity];
+		this.kings = new int[capacity];
+		this.signs = new int[capacity];
+		this.scores = new int[capacity];
+	}
+
+	// Adds a position to the batch.
+	public void add(int blackSquares, int redSquares, int kingSquares, Player turn) {
+		black[count] = blackSquares;
+		red[count] = redSquares;
+		kings[count] = kingSquares;
+		signs[count] = (Player.RED == turn) ? 1 : -1;
+		count++;
+	}
+
+	public int size() {
+		return count;
+	}
+
+	public int capacity() {
+		return black.length;
+	}
+
+	public void clear() {
+		count = 0;
+	}
+}
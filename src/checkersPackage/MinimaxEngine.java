@@ -0,0 +1,16 @@
+package checkersPackage;
+
+import java.util.*;
+
+// An engine that chooses moves with CheckersBoard's built-in findBestMove search, so that it can be
+// compared with other engines on equal terms.
+public class MinimaxEngine implements CheckersEngine {
+	private final CheckersBoard board = new CheckersBoard(); // private working copy of the position
+
+	@Override
+	public ArrayList<CheckersMove> chooseMove(CheckersPosition position, PositionHistory history) {
+		board.loadPosition(position);
+		ArrayList<CheckersMove> moves = board.makeAIMove(position.turn, history);
+		return moves.isEmpty() ? null : moves;
+	}
+}
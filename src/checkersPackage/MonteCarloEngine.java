@@ -0,0 +1,235 @@
+package checkersPackage;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+// An engine that chooses moves by Monte Carlo tree search instead of minimax. Each iteration walks
+// down the tree choosing children by the UCT formula, expands the leaf it reaches, finishes the game
+// from there with random moves on a CheckersBitboard (a "playout"), and credits the result to every
+// node on the way back up. The move played is the root child that was visited most.
+//
+// All threads search the same tree at once ("tree parallelism"). A thread walking through a node
+// adds a virtual loss to it until its playout is credited, which steers the other threads towards
+// different lines in the meantime.
+//
+// The tree is held in primitive arrays that are allocated once, with the engine, and reused by
+// every search, so a long search creates no garbage: node i's move, statistics and children are
+// found at index i of each array, and a node's children occupy consecutive indices.
+public class MonteCarloEngine implements CheckersEngine {
+	private static final double EXPLORATION = 1.0; // the UCT exploration constant
+	private static final int VIRTUAL_LOSS = 3; // lost playouts added to a node while a thread is below it
+	private static final int MAX_PLAYOUT_TURNS = 150; // playouts this long are adjudicated on material
+	private static final int MAX_TREE_DEPTH = 500;
+
+	// Node states
+	private static final int UNEXPANDED = 0;
+	private static final int EXPANDING = 1; // a thread is creating the node's children
+	private static final int EXPANDED = 2;
+	private static final int UNEXPANDABLE = 3; // the node pool ran out while expanding this node
+
+	// The node pool
+	private final int capacity;
+	private final long[] move; // the turn leading to the node
+	private final int[] firstChild;
+	private final int[] childCount;
+	private final AtomicIntegerArray state;
+	private final AtomicIntegerArray visits;
+	private final AtomicIntegerArray halfPoints; // playout results for the player who made the node's move: 2 per win, 1 per draw
+	private final AtomicIntegerArray virtualLosses;
+	private final AtomicInteger nodesUsed;
+
+	private final int threads;
+	private final long moveTimeMillis;
+	private final AtomicLong playouts;
+	private volatile long playoutsPerSecond; // measured by the last search
+
+	// Constructs an engine that searches with the given number of threads for the given time per
+	// move, with room for the given number of tree nodes.
+	public MonteCarloEngine(int threads, long moveTimeMillis, int capacity) {
+		this.threads = threads;
+		this.moveTimeMillis = moveTimeMillis;
+		this.capacity = capacity;
+		this.move = new long[capacity];
+		this.firstChild = new int[capacity];
+		this.childCount = new int[capacity];
+		this.state = new AtomicIntegerArray(capacity);
+		this.visits = new AtomicIntegerArray(capacity);
+		this.halfPoints = new AtomicIntegerArray(capacity);
+		this.virtualLosses = new AtomicIntegerArray(capacity);
+		this.nodesUsed = new AtomicInteger();
+		this.playouts = new AtomicLong();
+	}
+
+	// Constructs an engine that uses every core for one second per move.
+	public MonteCarloEngine() {
+		this(Runtime.getRuntime().availableProcessors(), 1000, 1 << 20);
+	}
+
+	@Override
+	public synchronized ArrayList<CheckersMove> chooseMove(final CheckersPosition position, PositionHistory history) {
+		long[] rootMoves = new long[CheckersBitboard.MAX_MOVES];
+		int rootMoveCount = new CheckersBitboard(position).generateMoves(rootMoves);
+		if (0 == rootMoveCount) {
+			return null;
+		} else if (1 == rootMoveCount) {
+			return CheckersBitboard.toMoves(rootMoves[0]); // nothing to think about
+		}
+
+		// Reset the pool to a single root node
+		nodesUsed.set(1);
+		resetNode(0, 0);
+		playouts.set(0);
+
+		final long start = System.currentTimeMillis();
+		final long deadline = start + moveTimeMillis;
+		Thread[] workers = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			final long seed = start * 31 + i;
+			workers[i] = new Thread(new Runnable() {
+				public void run() {
+					SplittableRandom random = new SplittableRandom(seed);
+					CheckersBitboard board = new CheckersBitboard(position);
+					int[] path = new int[MAX_TREE_DEPTH + 1];
+					long[] moves = new long[CheckersBitboard.MAX_MOVES];
+					int iterations = 0;
+					while ((0 != (++iterations & 63)) || System.currentTimeMillis() < deadline) {
+						board.set(position);
+						runIteration(board, path, moves, random);
+					}
+				}
+			}, "mcts-" + i);
+			workers[i].start();
+		}
+		for (Thread worker : workers) {
+			try {
+				worker.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		long elapsed = Math.max(1, System.currentTimeMillis() - start);
+		playoutsPerSecond = playouts.get() * 1000 / elapsed;
+
+		// Play the most visited move
+		int best = firstChild[0];
+		for (int child = firstChild[0]; child < firstChild[0] + childCount[0]; child++) {
+			if (visits.get(child) > visits.get(best)) {
+				best = child;
+			}
+		}
+		return CheckersBitboard.toMoves(move[best]);
+	}
+
+	// Returns the number of playouts per second (over all threads) achieved by the last search.
+	public long getPlayoutsPerSecond() {
+		return playoutsPerSecond;
+	}
+
+	// Returns the number of tree nodes created by the last search.
+	public int getNodesUsed() {
+		return Math.min(nodesUsed.get(), capacity);
+	}
+
+	// Runs one iteration of the search: selection, expansion, playout and backpropagation.
+	private void runIteration(CheckersBitboard board, int[] path, long[] moves, SplittableRandom random) {
+		// Selection: walk down the expanded part of the tree
+		int length = 0;
+		int node = 0;
+		path[length++] = node;
+		virtualLosses.addAndGet(node, VIRTUAL_LOSS);
+		while (EXPANDED == state.get(node) && childCount[node] > 0 && length < MAX_TREE_DEPTH) {
+			node = selectChild(node);
+			board.play(move[node]);
+			path[length++] = node;
+			virtualLosses.addAndGet(node, VIRTUAL_LOSS);
+		}
+
+		// Expansion: create the leaf's children (unless another thread is already doing so), and
+		// continue to one of them
+		if (UNEXPANDED == state.get(node) && state.compareAndSet(node, UNEXPANDED, EXPANDING)) {
+			expand(node, board, moves);
+			if (childCount[node] > 0) {
+				node = firstChild[node] + random.nextInt(childCount[node]);
+				board.play(move[node]);
+				path[length++] = node;
+				virtualLosses.addAndGet(node, VIRTUAL_LOSS);
+			}
+		}
+
+		// Playout, and backpropagation of its result. The player who made the move into the last
+		// node on the path is the one not to move in the board that the playout started from.
+		Player mover = (Player.BLACK == board.turn) ? Player.RED : Player.BLACK;
+		Player winner = playout(board, moves, random);
+		for (int i = length - 1; i >= 0; i--) {
+			node = path[i];
+			visits.incrementAndGet(node);
+			halfPoints.addAndGet(node, (null == winner) ? 1 : ((winner == mover) ? 2 : 0));
+			virtualLosses.addAndGet(node, -VIRTUAL_LOSS);
+			mover = (Player.BLACK == mover) ? Player.RED : Player.BLACK;
+		}
+		playouts.incrementAndGet();
+	}
+
+	// Returns the child of the given node with the highest UCT value, counting virtual losses as
+	// lost playouts.
+	private int selectChild(int node) {
+		double logParentVisits = Math.log(Math.max(1, visits.get(node) + virtualLosses.get(node)));
+		int best = -1;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for (int child = firstChild[node]; child < firstChild[node] + childCount[node]; child++) {
+			int childVisits = visits.get(child) + virtualLosses.get(child);
+			if (0 == childVisits) {
+				return child; // try every move once before comparing them
+			}
+			double value = halfPoints.get(child) / (2.0 * childVisits)
+					+ EXPLORATION * Math.sqrt(logParentVisits / childVisits);
+			if (value > bestValue) {
+				bestValue = value;
+				best = child;
+			}
+		}
+		return best;
+	}
+
+	// Creates the children of a node (which this thread has marked as EXPANDING), and publishes them.
+	private void expand(int node, CheckersBitboard board, long[] moves) {
+		int count = board.generateMoves(moves);
+		int first = nodesUsed.getAndAdd(count);
+		if (first + count > capacity) {
+			state.set(node, UNEXPANDABLE); // the pool is full: this node stays a leaf
+			return;
+		}
+		for (int i = 0; i < count; i++) {
+			resetNode(first + i, moves[i]);
+		}
+		firstChild[node] = first;
+		childCount[node] = count;
+		state.set(node, EXPANDED); // publishes the children to the other threads
+	}
+
+	// Clears the node at the given index of the pool, and sets the move leading to it.
+	private void resetNode(int node, long nodeMove) {
+		move[node] = nodeMove;
+		firstChild[node] = 0;
+		childCount[node] = 0;
+		state.set(node, UNEXPANDED);
+		visits.set(node, 0);
+		halfPoints.set(node, 0);
+		virtualLosses.set(node, 0);
+	}
+
+	// Plays random turns until one player cannot move, and returns the winner. A playout that goes
+	// on for too long is decided on material (man = 1, king = 1.8) and may be a draw (null).
+	private static Player playout(CheckersBitboard board, long[] moves, SplittableRandom random) {
+		for (int turns = 0; turns < MAX_PLAYOUT_TURNS; turns++) {
+			int count = board.generateMoves(moves);
+			if (0 == count) {
+				return (Player.BLACK == board.turn) ? Player.RED : Player.BLACK;
+			}
+			board.play(moves[random.nextInt(count)]);
+		}
+		int material = 5 * (Integer.bitCount(board.black) - Integer.bitCount(board.red))
+				+ 4 * (Integer.bitCount(board.black & board.kings) - Integer.bitCount(board.red & board.kings));
+		return (material > 0) ? Player.BLACK : ((material < 0) ? Player.RED : null);
+	}
+}
@@ -0,0 +1,22 @@
+package checkersPackage;
+
+import jdk.jfr.*;
+
+// A Java Flight Recorder event for each mouse event handled by CheckersBoardComponent (disabled by
+// default, see AiTurnEvent). The computer's reply to the user's turn is searched on a background
+// thread, so its AiTurnEvent follows the event that completes the user's turn instead of being
+// enclosed in it.
+@Name("checkers.MouseHandler")
+@Label("Mouse Handler")
+@Category("Checkers")
+@Description("Handling a mouse event on the board")
+@Enabled(false)
+public class MouseHandlerEvent extends Event {
+	@Label("Action")
+	@Description("pressed, released, dragged or moved")
+	public String action;
+
+	@Label("Turn Completed")
+	@Description("Whether the event completed the user's turn")
+	public boolean turnCompleted;
+}
@@ -0,0 +1,197 @@
+package checkersPackage;
+
+import java.awt.*;
+import java.awt.event.*;
+import java.util.*;
+import java.util.List;
+import java.util.logging.Logger;
+import javax.swing.*;
+import javax.swing.Timer;
+
+// Plays back a turn that has already been made on the board: the moving piece glides from square
+// to square, one hop of a multi-jump at a time, and each captured piece stays on the board until
+// the hop that jumps it is over. A Swing Timer drives the frames, so the event dispatch thread is
+// only busy for the few microseconds of each frame and keeps handling input in between. Positions
+// are interpolated from the time since the animation started (not from the number of frames), so
+// late frames do not slow it down, and each frame repaints only the squares the piece moved across.
+//
+// The interval between frames is recorded, and a summary of the frame pacing is logged at the end.
+public class MoveAnimation {
+	public static final int FRAME_MILLIS = 16; // (about 60 frames per second)
+	public static final int HOP_MILLIS = 180; // time to move the piece by one step or jump
+	private static final Logger LOGGER = Logger.getLogger(MoveAnimation.class.getName());
+
+	private final JComponent component;
+	private final CheckersBoard board;
+	private final List<CheckersMove> moves;
+	private final CheckersPiece piece; // the moving piece, already in its final square
+	private final boolean wasKing; // whether the moving piece was a king before the turn
+	private final Timer timer;
+	private final List<Long> frameIntervals = new ArrayList<Long>(); // nanoseconds between frames
+	private long startNanos;
+	private long lastFrameNanos;
+	private int hop; // index of the hop being shown
+	private Rectangle lastBounds; // where the moving piece was drawn in the last frame
+	private boolean finished;
+	private Runnable onFinished;
+
+	// Prepares to animate the given moves, which must just have been played on the board (so that
+	// each of them knows which piece it captured). The board's square length is read at each frame,
+	// so the animation follows the board if it is resized.
+	public MoveAnimation(JComponent component, CheckersBoard board, List<CheckersMove> moves) {
+		this.component = component;
+		this.board = board;
+		this.moves = new ArrayList<CheckersMove>(moves);
+		CheckersMove last = moves.get(moves.size() - 1);
+		this.piece = board.getPieceAtPosition(last.destination);
+		boolean madeKing = false;
+		for (CheckersMove move : moves) {
+			madeKing |= move.madeKing;
+		}
+		this.wasKing = piece.isKing() && !madeKing;
+		this.timer = new Timer(FRAME_MILLIS, new ActionListener() {
+			public void actionPerformed(ActionEvent event) {
+				frame();
+			}
+		});
+		this.timer.setCoalesce(true);
+	}
+
+	// Starts the animation, hiding the moving piece from the board until the animation is over.
+	// onFinished (if not null) is run on the event dispatch thread when the animation ends.
+	public void start(Runnable onFinished) {
+		this.onFinished = onFinished;
+		board.setHiddenPiece(piece);
+		startNanos = System.nanoTime();
+		lastFrameNanos = startNanos;
+		hop = 0;
+		lastBounds = squareBounds(moves.get(0).start);
+		component.repaint(lastBounds);
+		timer.start();
+	}
+
+	// Shows the next frame (called by the timer).
+	private void frame() {
+		long now = System.nanoTime();
+		frameIntervals.add(now - lastFrameNanos);
+		lastFrameNanos = now;
+
+		long elapsedMillis = (now - startNanos) / 1000000;
+		int newHop = (int) (elapsedMillis / HOP_MILLIS);
+		if (newHop >= moves.size()) {
+			finish();
+			return;
+		}
+
+		// When a hop is over, the piece it jumped disappears
+		for (; hop < newHop; hop++) {
+			if (null != moves.get(hop).captured) {
+				component.repaint(squareBounds(capturedSquare(moves.get(hop))));
+			}
+		}
+		Rectangle bounds = currentBounds(elapsedMillis);
+		component.repaint(lastBounds.union(bounds));
+		lastBounds = bounds;
+	}
+
+	// Ends the animation (at once, if it is still running), showing the board as it now is.
+	public void finish() {
+		if (finished) {
+			return;
+		}
+		finished = true;
+		timer.stop();
+		board.setHiddenPiece(null);
+		component.repaint(lastBounds);
+		for (CheckersMove move : moves) {
+			component.repaint(squareBounds(move.destination));
+			if (null != move.captured) {
+				component.repaint(squareBounds(capturedSquare(move)));
+			}
+		}
+		if (!frameIntervals.isEmpty()) {
+			LOGGER.fine("Animation of " + CheckersMove.toNotation(moves) + ": " + getFramePacing());
+		}
+		if (null != onFinished) {
+			onFinished.run();
+		}
+	}
+
+	public boolean isFinished() {
+		return finished;
+	}
+
+	// Draws the pieces the animation is moving or about to capture (over the board, which does not
+	// draw the moving piece while the animation runs).
+	public void paint(Graphics2D g2) {
+		if (finished) {
+			return;
+		}
+		long elapsedMillis = (System.nanoTime() - startNanos) / 1000000;
+		int currentHop = Math.min((int) (elapsedMillis / HOP_MILLIS), moves.size());
+		for (int i = currentHop; i < moves.size(); i++) {
+			CheckersPiece captured = moves.get(i).captured;
+			if (null != captured) {
+				Rectangle square = squareBounds(capturedSquare(moves.get(i)));
+				Sprites.drawPiece(g2, captured.getColor(), captured.isKing(), square.x, square.y, square.width);
+			}
+		}
+		Rectangle bounds = currentBounds(elapsedMillis);
+		Sprites.drawPiece(g2, piece.getColor(), wasKing, bounds.x, bounds.y, bounds.width);
+	}
+
+	// Gets the nanoseconds between consecutive frames so far.
+	public List<Long> getFrameIntervals() {
+		return frameIntervals;
+	}
+
+	// Summarizes the frame pacing: the number of frames, the mean frame rate, the median, 99th
+	// percentile and longest intervals between frames, and how many frames were late (by more than
+	// half a frame).
+	public String getFramePacing() {
+		return describeFramePacing(frameIntervals);
+	}
+
+	// Summarizes the given intervals between frames (see getFramePacing).
+	public static String describeFramePacing(List<Long> intervals) {
+		if (intervals.isEmpty()) {
+			return "no frames";
+		}
+		long[] sorted = new long[intervals.size()];
+		long total = 0;
+		int late = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			sorted[i] = intervals.get(i);
+			total += sorted[i];
+			if (sorted[i] > FRAME_MILLIS * 1500000L) {
+				late++;
+			}
+		}
+		Arrays.sort(sorted);
+		return String.format("%d frames, %.1f fps, interval median %.1f ms, p99 %.1f ms, max %.1f ms, %d late",
+				sorted.length, sorted.length * 1e9 / total, sorted[sorted.length / 2] / 1e6,
+				sorted[(int) ((sorted.length - 1) * 0.99)] / 1e6, sorted[sorted.length - 1] / 1e6, late);
+	}
+
+	// Gets where the moving piece is drawn at the given time: linearly interpolated between the two
+	// squares of the current hop, and easing in and out at each square.
+	private Rectangle currentBounds(long elapsedMillis) {
+		int currentHop = Math.min((int) (elapsedMillis / HOP_MILLIS), moves.size() - 1);
+		double t = Math.min(1.0, (elapsedMillis - currentHop * (double) HOP_MILLIS) / HOP_MILLIS);
+		t = t * t * (3 - 2 * t);
+		CheckersMove move = moves.get(currentHop);
+		double x = move.start.x + (move.destination.x - move.start.x) * t;
+		double y = move.start.y + (move.destination.y - move.start.y) * t;
+		int squareLength = board.getSquareLength();
+		return new Rectangle((int) Math.round(x * squareLength), (int) Math.round(y * squareLength), squareLength, squareLength);
+	}
+
+	private Rectangle squareBounds(BoardSquare square) {
+		int squareLength = board.getSquareLength();
+		return new Rectangle(square.x * squareLength, square.y * squareLength, squareLength, squareLength);
+	}
+
+	private static BoardSquare capturedSquare(CheckersMove move) {
+		return new BoardSquare((move.start.x + move.destination.x) / 2, (move.start.y + move.destination.y) / 2);
+	}
+}
@@ -0,0 +1,73 @@
+package checkersPackage;
+
+import java.util.*;
+
+// Measures what multi-PV mode costs: the sample positions (see CheckersPosition.SAMPLES) are
+// searched to a fixed depth for 1 to 4 lines, with and without a transposition table, and the
+// nodes and time are reported relative to a single line (the time is the best of three runs).
+// (Positions with fewer legal turns than lines get only as many lines as they have turns.)
+//
+// Arguments (optional): search depth (default 9), hash size in megabytes (default 64).
+public class MultiPvBenchmark {
+	private static final int MAX_LINES = 4;
+	private static final int RUNS = 3;
+
+	public static void main(String[] args) {
+		int depth = (args.length > 0) ? Integer.parseInt(args[0]) : 9;
+		long hashMegabytes = (args.length > 1) ? Long.parseLong(args[1]) : 64;
+
+		// Warm up the JIT compiler
+		for (int round = 0; round < 3; round++) {
+			for (String position : CheckersPosition.SAMPLES) {
+				CheckersSearch search = new CheckersSearch(CheckersPosition.parse(position));
+				search.setMultiPV(2);
+				search.search(SearchLimits.depth(depth), null);
+			}
+		}
+
+		System.out.println("table   lines        nodes   x 1 line     ms   x 1 line   lines found");
+		for (boolean useTable : new boolean[] { false, true }) {
+			long singleNodes = 0;
+			long singleMillis = 0;
+			for (int lineCount = 1; lineCount <= MAX_LINES; lineCount++) {
+				long nodes = 0;
+				long millis = Long.MAX_VALUE;
+				int linesFound = 0;
+				for (int run = 0; run < RUNS; run++) {
+					long runMillis = 0;
+					nodes = 0;
+					linesFound = 0;
+					for (String position : CheckersPosition.SAMPLES) {
+						CheckersSearch search = new CheckersSearch(CheckersPosition.parse(position));
+						if (useTable) {
+							search.setTranspositionTable(new TranspositionTable(hashMegabytes << 20));
+						}
+						search.setMultiPV(lineCount);
+						long start = System.nanoTime();
+						search.search(SearchLimits.depth(depth), null);
+						runMillis += (System.nanoTime() - start) / 1000000;
+						nodes += search.getNodes();
+						linesFound += search.getLines().size();
+					}
+					millis = Math.min(millis, runMillis);
+				}
+				if (1 == lineCount) {
+					singleNodes = nodes;
+					singleMillis = millis;
+				}
+				System.out.printf("%-6s %6d %12d %10.2f %6d %10.2f   %d%n", useTable ? "yes" : "no", lineCount, nodes,
+						(double) nodes / singleNodes, millis, (double) millis / Math.max(1, singleMillis), linesFound);
+			}
+		}
+
+		// The lines of the last position, as a sample
+		CheckersSearch search = new CheckersSearch(CheckersPosition.parse(CheckersPosition.SAMPLES[CheckersPosition.SAMPLES.length - 1]));
+		search.setMultiPV(3);
+		search.search(SearchLimits.depth(depth), new SearchListener() {
+			public void iterationCompleted(SearchInfo info) {
+				System.out.println("depth " + info.depth + " line " + info.line + " score " + info.score
+						+ " pv " + info.getPrincipalVariationNotation());
+			}
+		});
+	}
+}
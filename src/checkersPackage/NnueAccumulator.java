@@ -0,0 +1,70 @@
+package checkersPackage;
+
+// The first-layer sums of an NnueNetwork for one board, from both players' points of view. As a
+// BoardListener it is told about every piece the board adds or removes, and adds or subtracts that
+// feature's weights, so each move costs a few short vector updates instead of a full recomputation.
+public class NnueAccumulator implements BoardListener {
+	private static final int RED = 0; // index of Red's point of view
+	private static final int BLACK = 1;
+
+	private final NnueNetwork network;
+	private final short[][] sums = new short[2][NnueNetwork.HIDDEN];
+	private final int[] pieceSquareSums = new int[2];
+	private final int[] layer2Sums = new int[NnueNetwork.LAYER2]; // scratch space for evaluate
+
+	public NnueAccumulator(NnueNetwork network) {
+		this.network = network;
+	}
+
+	// Attaches a new accumulator to the given board: it is filled from the pieces now on the board
+	// and then kept up to date as they change.
+	public static NnueAccumulator attach(NnueNetwork network, CheckersBoard board) {
+		NnueAccumulator accumulator = new NnueAccumulator(network);
+		accumulator.refresh(board.getBlackSquares(), board.getRedSquares(), board.getKingSquares());
+		board.setBoardListener(accumulator);
+		return accumulator;
+	}
+
+	// Recomputes the sums from scratch for the given pieces.
+	public void refresh(int black, int red, int kings) {
+		for (int view = 0; view < 2; view++) {
+			System.arraycopy(network.featureBiases, 0, sums[view], 0, NnueNetwork.HIDDEN);
+			pieceSquareSums[view] = 0;
+		}
+		for (int pieces = black | red; 0 != pieces; pieces &= pieces - 1) {
+			int square = Integer.numberOfTrailingZeros(pieces);
+			pieceAdded(square, (0 != (black & (1 << square))) ? Player.BLACK : Player.RED, 0 != (kings & (1 << square)));
+		}
+	}
+
+	@Override
+	public void pieceAdded(int square, Player player, boolean isKing) {
+		update(NnueNetwork.featureIndex(Player.RED, square, player, isKing), RED, 1);
+		update(NnueNetwork.featureIndex(Player.BLACK, square, player, isKing), BLACK, 1);
+	}
+
+	@Override
+	public void pieceRemoved(int square, Player player, boolean isKing) {
+		update(NnueNetwork.featureIndex(Player.RED, square, player, isKing), RED, -1);
+		update(NnueNetwork.featureIndex(Player.BLACK, square, player, isKing), BLACK, -1);
+	}
+
+	// Adds (sign 1) or subtracts (sign -1) a feature's weights to one point of view's sums. The
+	// sums are int16, as in the network's layer 1: a network's biases and weights must keep the
+	// sum for any 24 pieces within a short. (Were one to overflow, it would wrap, but the same way
+	// however the pieces were added, so the sums would still match a refresh.)
+	private void update(int feature, int view, int sign) {
+		short[] viewSums = sums[view];
+		int base = feature * NnueNetwork.HIDDEN;
+		for (int i = 0; i < NnueNetwork.HIDDEN; i++) {
+			viewSums[i] = (short) (viewSums[i] + sign * network.featureWeights[base + i]);
+		}
+		pieceSquareSums[view] += sign * network.pieceSquareWeights[feature];
+	}
+
+	// Returns the network's score for the given player to move.
+	public int evaluate(Player turn) {
+		int us = (Player.RED == turn) ? RED : BLACK;
+		return network.propagate(sums[us], sums[1 - us], pieceSquareSums[us], layer2Sums);
+	}
+}
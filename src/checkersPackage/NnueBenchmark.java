@@ -0,0 +1,137 @@
+package checkersPackage;
+
+import java.nio.file.*;
+import java.util.*;
+
+// Checks and times the neural network evaluator against the handcrafted CheckersEvaluator:
+//  - the network built by NnueNetwork.fromHandcrafted must give exactly the handcrafted scores;
+//  - the accumulator kept up to date through CheckersBoard's makeMove/undoMove must always equal
+//    one computed from scratch;
+//  - and then the time per evaluation of each, and the cost the incremental updates add to a
+//    make/undo pair, are reported in nanoseconds.
+//
+// Arguments (optional): a network file to time (default: a random network), number of random
+// games to play through (default 2000).
+public class NnueBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		NnueNetwork network = (args.length > 0) ? NnueNetwork.load(Paths.get(args[0])) : NnueNetwork.random(1);
+		int games = (args.length > 1) ? Integer.parseInt(args[1]) : 2000;
+		List<ArrayList<CheckersMove>> turns = new ArrayList<ArrayList<CheckersMove>>();
+		List<CheckersPosition> positions = randomGames(games, new Random(1), turns);
+
+		// The network built from the handcrafted evaluation must agree with it exactly
+		CheckersEvaluator handcrafted = new CheckersEvaluator();
+		NnueAccumulator equivalent = new NnueAccumulator(NnueNetwork.fromHandcrafted(handcrafted.getWeights()));
+		for (CheckersPosition position : positions) {
+			equivalent.refresh(position.black, position.red, position.kings);
+			if (equivalent.evaluate(position.turn) != handcrafted.evaluate(position.black, position.red, position.kings, position.turn)) {
+				throw new IllegalStateException("Handcrafted network disagrees with CheckersEvaluator at " + position);
+			}
+		}
+
+		// The incrementally updated accumulator must equal a fresh one after every move
+		CheckersBoard board = new CheckersBoard();
+		NnueAccumulator incremental = NnueAccumulator.attach(network, board);
+		NnueAccumulator fresh = new NnueAccumulator(network);
+		for (int i = 0; i < positions.size() - 1; i++) {
+			CheckersPosition position = positions.get(i);
+			if (i == 0 || turns.get(i - 1).isEmpty()) {
+				board.loadPosition(position); // a new game (the accumulator follows through the listener)
+			} else if (!board.playMoveSequence(turns.get(i - 1), positions.get(i - 1).turn)) {
+				throw new IllegalStateException("Could not replay " + CheckersMove.toNotation(turns.get(i - 1)));
+			}
+			fresh.refresh(position.black, position.red, position.kings);
+			if (incremental.evaluate(position.turn) != fresh.evaluate(position.turn)) {
+				throw new IllegalStateException("Incremental accumulator differs from a fresh one at " + position);
+			}
+		}
+		System.out.println("Checked " + positions.size() + " positions: handcrafted network matches CheckersEvaluator, "
+				+ "incremental updates match full refreshes");
+
+		// Time evaluation alone
+		for (int round = 0; round < 10; round++) {
+			long start = System.nanoTime();
+			long checksum = 0;
+			for (CheckersPosition position : positions) {
+				checksum += handcrafted.evaluate(position.black, position.red, position.kings, position.turn);
+			}
+			long handcraftedNanos = System.nanoTime() - start;
+			start = System.nanoTime();
+			for (CheckersPosition position : positions) {
+				checksum += incremental.evaluate(position.turn);
+			}
+			long networkNanos = System.nanoTime() - start;
+			if (round == 9) {
+				System.out.printf("Evaluation: handcrafted %.1f ns, network (from accumulator) %.1f ns  [%d]%n",
+						(double) handcraftedNanos / positions.size(), (double) networkNanos / positions.size(), checksum & 1);
+			}
+		}
+
+		// Time make/undo with and without the incremental updates
+		for (int round = 0; round < 10; round++) {
+			double plain = timeMakeUndo(null, positions, turns);
+			double updated = timeMakeUndo(network, positions, turns);
+			if (round == 9) {
+				System.out.printf("Make + undo of one turn: %.1f ns without the network, %.1f ns with accumulator updates%n",
+						plain, updated);
+			}
+		}
+	}
+
+	// Plays random games, and returns every position reached (the turn played from positions.get(i)
+	// is turns.get(i); the last position of each game has no turn and starts a new game).
+	private static List<CheckersPosition> randomGames(int games, Random random, List<ArrayList<CheckersMove>> turns) {
+		List<CheckersPosition> positions = new ArrayList<CheckersPosition>();
+		CheckersBitboard board = new CheckersBitboard(CheckersPosition.INITIAL);
+		long[] moves = new long[CheckersBitboard.MAX_MOVES];
+		for (int game = 0; game < games; game++) {
+			board.set(CheckersPosition.INITIAL);
+			for (int ply = 0; ply < 200; ply++) {
+				positions.add(board.toPosition());
+				int count = board.generateMoves(moves);
+				if (0 == count) {
+					break;
+				}
+				long move = moves[random.nextInt(count)];
+				turns.add(CheckersBitboard.toMoves(move));
+				board.play(move);
+			}
+			if (turns.size() < positions.size()) {
+				turns.add(new ArrayList<CheckersMove>()); // no turn from the final position
+			} else {
+				turns.set(turns.size() - 1, new ArrayList<CheckersMove>()); // stopped at the length limit
+			}
+		}
+		return positions;
+	}
+
+	// Returns the average time to make and undo each turn on a board (with an accumulator attached,
+	// if a network is given).
+	private static double timeMakeUndo(NnueNetwork network, List<CheckersPosition> positions, List<ArrayList<CheckersMove>> turns) {
+		CheckersBoard board = new CheckersBoard();
+		if (null != network) {
+			NnueAccumulator.attach(network, board);
+		}
+		long elapsed = 0;
+		int count = 0;
+		for (int i = 0; i < positions.size(); i += 7) { // a sample of positions
+			ArrayList<CheckersMove> turn = turns.get(i);
+			if (turn.isEmpty()) {
+				continue;
+			}
+			board.loadPosition(positions.get(i));
+			Player player = positions.get(i).turn;
+			long start = System.nanoTime();
+			for (CheckersMove move : turn) {
+				board.makeMove(move, player, false);
+			}
+			for (int j = turn.size() - 1; j >= 0; j--) {
+				board.undoMove(turn.get(j), player);
+			}
+			elapsed += System.nanoTime() - start;
+			count++;
+		}
+		return (double) elapsed / Math.max(1, count);
+	}
+}
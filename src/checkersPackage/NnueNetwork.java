@@ -0,0 +1,169 @@
+package checkersPackage;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+// The weights of a small, quantized, efficiently updatable neural network ("NNUE") that evaluates
+// positions. The network sees the board from both players' points of view. Its inputs are one
+// feature per (piece type, square), where the piece types are "own man", "own king", "opponent's
+// man" and "opponent's king", and the board is rotated for Black so that each player's men always
+// advance the same way. The layers are:
+//
+//   1. a feature transformer: for each point of view, HIDDEN int16 sums of the weights of the
+//      features present (kept up to date incrementally by an NnueAccumulator as pieces move),
+//      clipped to 0..127, plus one int32 "piece-square" sum that goes straight to the output;
+//   2. a dense layer of LAYER2 neurons with int8 weights over both clipped sums (the player to
+//      move's first), scaled down by 64 and clipped to 0..127;
+//   3. an output neuron with int8 weights, scaled down by 16 and added to the piece-square sum of
+//      the player to move.
+//
+// The result is a score in hundredths of a man for the player to move, like CheckersEvaluator's.
+// Networks are loaded from (and saved to) a small binary file; fromHandcrafted builds one that
+// reproduces CheckersEvaluator exactly, as a starting point for training.
+public class NnueNetwork {
+	public static final int FEATURES = 4 * CheckersPosition.NUMBER_OF_SQUARES;
+	public static final int HIDDEN = 32;
+	public static final int LAYER2 = 16;
+	private static final int MAGIC = 0x434E4E31; // "CNN1"
+	private static final int LAYER2_SHIFT = 6;
+	private static final int OUTPUT_SHIFT = 4;
+
+	final short[] featureWeights = new short[FEATURES * HIDDEN]; // HIDDEN weights per feature
+	final short[] featureBiases = new short[HIDDEN];
+	final int[] pieceSquareWeights = new int[FEATURES];
+	final byte[] layer2Weights = new byte[2 * HIDDEN * LAYER2]; // LAYER2 weights per input
+	final int[] layer2Biases = new int[LAYER2];
+	final byte[] outputWeights = new byte[LAYER2];
+	int outputBias;
+
+	// Returns the input feature for a piece, as seen from the given player's point of view.
+	public static int featureIndex(Player pointOfView, int square, Player player, boolean isKing) {
+		int viewedSquare = (Player.RED == pointOfView) ? square : CheckersPosition.NUMBER_OF_SQUARES - 1 - square;
+		int type = ((player == pointOfView) ? 0 : 2) + (isKing ? 1 : 0);
+		return type * CheckersPosition.NUMBER_OF_SQUARES + viewedSquare;
+	}
+
+	// Computes layers 2 and 3 from the accumulated sums of the player to move ("us") and the
+	// opponent ("them"), and returns the score for the player to move. "sums" is scratch space of
+	// LAYER2 ints. The layer 2 weights are stored input by input, so that inputs clipped to zero
+	// (typically many of them) can be skipped entirely.
+	int propagate(short[] us, short[] them, int pieceSquareSum, int[] sums) {
+		System.arraycopy(layer2Biases, 0, sums, 0, LAYER2);
+		addInputs(us, 0, sums);
+		addInputs(them, HIDDEN, sums);
+		int output = outputBias;
+		for (int neuron = 0; neuron < LAYER2; neuron++) {
+			output += outputWeights[neuron] * Math.min(127, Math.max(0, sums[neuron] >> LAYER2_SHIFT));
+		}
+		return pieceSquareSum + (output >> OUTPUT_SHIFT);
+	}
+
+	// Adds the layer 2 contributions of one point of view's clipped sums, which are inputs
+	// firstInput onwards.
+	private void addInputs(short[] accumulated, int firstInput, int[] sums) {
+		for (int i = 0; i < HIDDEN; i++) {
+			int input = Math.min(127, (int) accumulated[i]);
+			if (input > 0) {
+				int base = (firstInput + i) * LAYER2;
+				for (int neuron = 0; neuron < LAYER2; neuron++) {
+					sums[neuron] += layer2Weights[base + neuron] * input;
+				}
+			}
+		}
+	}
+
+	// Returns a network whose output is exactly CheckersEvaluator's score with the given weights:
+	// every term of that evaluation is a value per piece and square, so it all goes into the
+	// piece-square weights, and the other layers are left at zero.
+	public static NnueNetwork fromHandcrafted(EvaluationWeights weights) {
+		NnueNetwork network = new NnueNetwork();
+		for (int square = 0; square < CheckersPosition.NUMBER_OF_SQUARES; square++) {
+			// The point of view of Red, whose men advance down the board (so a man's row counts from y = 0)
+			int bit = 1 << square;
+			int y = CheckersPosition.squareY(square);
+			int edge = (0 != (CheckersEvaluator.EDGE & bit)) ? weights.manEdge : 0;
+			int center = (0 != (CheckersEvaluator.CENTER & bit)) ? weights.kingCenter : 0;
+			network.pieceSquareWeights[featureIndex(Player.RED, square, Player.RED, false)] = weights.man + weights.manRow[y] + edge;
+			network.pieceSquareWeights[featureIndex(Player.RED, square, Player.RED, true)] = weights.king + center;
+			network.pieceSquareWeights[featureIndex(Player.RED, square, Player.BLACK, false)] = -(weights.man + weights.manRow[7 - y] + edge);
+			network.pieceSquareWeights[featureIndex(Player.RED, square, Player.BLACK, true)] = -(weights.king + center);
+		}
+		return network;
+	}
+
+	// Returns a network with small random weights (for testing and benchmarking).
+	public static NnueNetwork random(long seed) {
+		Random random = new Random(seed);
+		NnueNetwork network = new NnueNetwork();
+		for (int i = 0; i < network.featureWeights.length; i++) {
+			network.featureWeights[i] = (short) (random.nextInt(33) - 16);
+		}
+		for (int i = 0; i < HIDDEN; i++) {
+			network.featureBiases[i] = (short) random.nextInt(64);
+		}
+		for (int i = 0; i < FEATURES; i++) {
+			network.pieceSquareWeights[i] = random.nextInt(201) - 100;
+		}
+		random.nextBytes(network.layer2Weights);
+		random.nextBytes(network.outputWeights);
+		return network;
+	}
+
+	// Loads a network from a file written by save.
+	public static NnueNetwork load(Path path) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+			if (in.readInt() != MAGIC || in.readInt() != HIDDEN || in.readInt() != LAYER2) {
+				throw new IOException("Not a network file with the expected layer sizes: " + path);
+			}
+			NnueNetwork network = new NnueNetwork();
+			for (int i = 0; i < network.featureWeights.length; i++) {
+				network.featureWeights[i] = in.readShort();
+			}
+			for (int i = 0; i < HIDDEN; i++) {
+				network.featureBiases[i] = in.readShort();
+			}
+			for (int i = 0; i < FEATURES; i++) {
+				network.pieceSquareWeights[i] = in.readInt();
+			}
+			in.readFully(network.layer2Weights);
+			for (int i = 0; i < LAYER2; i++) {
+				network.layer2Biases[i] = in.readInt();
+			}
+			in.readFully(network.outputWeights);
+			network.outputBias = in.readInt();
+			return network;
+		}
+	}
+
+	// Saves the network to a file.
+	public void save(Path path) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(HIDDEN);
+			out.writeInt(LAYER2);
+			for (short weight : featureWeights) {
+				out.writeShort(weight);
+			}
+			for (short bias : featureBiases) {
+				out.writeShort(bias);
+			}
+			for (int weight : pieceSquareWeights) {
+				out.writeInt(weight);
+			}
+			out.write(layer2Weights);
+			for (int bias : layer2Biases) {
+				out.writeInt(bias);
+			}
+			out.write(outputWeights);
+			out.writeInt(outputBias);
+		}
+	}
+
+	// Writes the network equivalent to the engine's default handcrafted evaluation to the given file.
+	public static void main(String[] args) throws IOException {
+		Path path = Paths.get((args.length > 0) ? args[0] : "checkers.nnue");
+		fromHandcrafted(EvaluationWeights.getDefault()).save(path);
+		System.out.println("Wrote " + path);
+	}
+}
@@ -0,0 +1,19 @@
+package checkersPackage;
+
+import jdk.jfr.*;
+
+// A Java Flight Recorder event for each call of CheckersBoard.paintBoard (disabled by default, see
+// AiTurnEvent).
+@Name("checkers.PaintBoard")
+@Label("Paint Board")
+@Category("Checkers")
+@Description("Painting the board and its pieces")
+@Enabled(false)
+public class PaintBoardEvent extends Event {
+	@Label("Pieces")
+	public int pieces;
+
+	@Label("Dragging")
+	@Description("Whether a piece was being dragged")
+	public boolean dragging;
+}
@@ -0,0 +1,158 @@
+package checkersPackage;
+
+import java.io.*;
+import java.util.*;
+
+// The positions of a game so far (and, during a search, of the line being searched), kept as
+// 64-bit keys so that repetitions can be found quickly, together with the number of turns since
+// the last "progress": a capture or a move by a man. Progress can never be undone (men only move
+// forward, and captured pieces never come back), so a repetition can only be of a position since
+// the last progress, and only those few entries are compared.
+//
+// A game is drawn when a position occurs for the third time, or when neither player has made
+// progress for a set number of turns. A search scores a line as a draw as soon as it repeats a
+// position once, since whatever could be gained by going on could have been gained the first time.
+public final class PositionHistory {
+	public static final int DEFAULT_NO_PROGRESS_LIMIT = 80; // 40 turns by each player
+
+	private long[] keys = new long[64];
+	private int[] men = new int[64]; // squares holding men (which change whenever a man moves)
+	private int[] pieceCounts = new int[64]; // which change whenever a piece is captured
+	private int[] noProgress = new int[64]; // turns since the last progress
+	private int size;
+
+	public PositionHistory() {
+	}
+
+	// Returns a history that starts with the given position.
+	public PositionHistory(CheckersPosition position) {
+		push(position);
+	}
+
+	// Returns a copy of the given history.
+	public PositionHistory(PositionHistory other) {
+		this.keys = other.keys.clone();
+		this.men = other.men.clone();
+		this.pieceCounts = other.pieceCounts.clone();
+		this.noProgress = other.noProgress.clone();
+		this.size = other.size;
+	}
+
+	public void push(CheckersPosition position) {
+		push(position.black, position.red, position.kings, position.turn);
+	}
+
+	// Adds the position reached by the next turn.
+	public void push(int black, int red, int kings, Player turn) {
+		int pieces = black | red;
+		push(TranspositionTable.key(black, red, kings, turn), pieces & ~kings, Integer.bitCount(pieces));
+	}
+
+	// Adds a position given by its key, the squares holding men and the number of pieces.
+	private void push(long key, int menSquares, int pieceCount) {
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, 2 * size);
+			men = Arrays.copyOf(men, 2 * size);
+			pieceCounts = Arrays.copyOf(pieceCounts, 2 * size);
+			noProgress = Arrays.copyOf(noProgress, 2 * size);
+		}
+		keys[size] = key;
+		men[size] = menSquares;
+		pieceCounts[size] = pieceCount;
+		if (0 == size || men[size] != men[size - 1] || pieceCounts[size] != pieceCounts[size - 1]) {
+			noProgress[size] = 0;
+		} else {
+			noProgress[size] = noProgress[size - 1] + 1;
+		}
+		size++;
+	}
+
+	// Writes the positions since the last progress (all that repetitions and the no-progress count
+	// depend on), for read to restore (see SearchTrace).
+	public void write(DataOutputStream out) throws IOException {
+		int first = (0 == size) ? 0 : size - 1 - noProgress[size - 1];
+		out.writeShort(size - first);
+		for (int i = first; i < size; i++) {
+			out.writeLong(keys[i]);
+			out.writeInt(men[i]);
+			out.writeByte(pieceCounts[i]);
+		}
+	}
+
+	// Reads positions written by write, as a history that detects the same repetitions and counts
+	// the same turns without progress.
+	public static PositionHistory read(DataInputStream in) throws IOException {
+		PositionHistory history = new PositionHistory();
+		int count = in.readUnsignedShort();
+		for (int i = 0; i < count; i++) {
+			history.push(in.readLong(), in.readInt(), in.readUnsignedByte());
+		}
+		return history;
+	}
+
+	// Removes the last position (when its turn is taken back).
+	public void pop() {
+		size--;
+	}
+
+	// Removes every position.
+	public void clear() {
+		size = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	// Returns the key of the last position (see TranspositionTable.key).
+	public long getLastKey() {
+		return keys[size - 1];
+	}
+
+	// Returns the number of turns since the last capture or move by a man.
+	public int getNoProgressCount() {
+		return (0 == size) ? 0 : noProgress[size - 1];
+	}
+
+	// Returns whether the last position occurred before.
+	public boolean isRepetition() {
+		if (0 == size) {
+			return false;
+		}
+		long key = keys[size - 1];
+		int oldest = size - 1 - noProgress[size - 1];
+		for (int i = size - 3; i >= oldest; i -= 2) { // (positions with the same player to move)
+			if (keys[i] == key) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Returns how many times the last position occurred before.
+	public int getRepetitionCount() {
+		if (0 == size) {
+			return 0;
+		}
+		long key = keys[size - 1];
+		int oldest = size - 1 - noProgress[size - 1];
+		int count = 0;
+		for (int i = size - 3; i >= oldest; i -= 2) {
+			if (keys[i] == key) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	// Returns why the game is drawn after the last position ("threefold repetition" or "no
+	// progress"), or null if it is not.
+	public String getDrawReason(int noProgressLimit) {
+		if (getRepetitionCount() >= 2) {
+			return "threefold repetition";
+		} else if (getNoProgressCount() >= noProgressLimit) {
+			return "no progress";
+		}
+		return null;
+	}
+}
@@ -0,0 +1,765 @@
+package checkersPackage;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// An index of every position reached in an archive of games: for each position, how many games
+// reached it, how they ended, and which turns were played from it in how many games with what
+// results (an "opening explorer", though it covers whole games).
+//
+// The archive is a text file with one game per line, all played from the initial position: the
+// result ("1-0" if Black won, "0-1" if Red won, "1/2-1/2" for a draw, "*" if unfinished), then its
+// turns in notation, separated by spaces. Lines starting with '#' are comments. Games may be
+// appended to an archive at any time: the index remembers how far into each archive it has read,
+// and adding the archive again indexes only the games after that.
+//
+// The index is a directory of sorted run files, like a log-structured merge tree. Each time games
+// are added, their positions are sorted in memory (a few million at a time) and written as new
+// runs; a lookup searches every run, and when there are more than MAX_RUNS the runs are merged
+// into one. A run is a header and an array of fixed-size records sorted by position key and turn,
+// one record per (position, turn) with its counts, followed by the key of every FENCE_INTERVAL-th
+// record. The runs are memory-mapped, and the fence keys (a five-hundredth of the run's size)
+// are read onto the heap: a lookup finds the right fence by binary search on the heap and then
+// scans at most FENCE_INTERVAL records, in one or two pages of the mapping. The MANIFEST file
+// lists the runs and how far each archive has been read; it is replaced atomically after new runs
+// are written, so an interrupted update leaves the index as it was.
+//
+// Positions are stored in their canonical form (see CheckersPosition), with the turns mirrored
+// to match and the results counted for the player to move, so a position and its mirror image
+// share their statistics. A game that reaches a position more than once counts once per visit.
+//
+// Usage:
+//   PositionIndex generate <archive> <games> [seed]
+//       plays games between two shallow searchers (with some random moves, for variety) and
+//       appends them to the archive
+//   PositionIndex add <index directory> <archive>...
+//       indexes the games added to the archives since they were last indexed
+//   PositionIndex query <index directory> [position]
+//       prints the statistics of the position (default: the initial position)
+//   PositionIndex compact <index directory>
+//       merges the runs into one
+public class PositionIndex implements Closeable {
+	public static final String MANIFEST = "MANIFEST";
+	public static final int MAX_RUNS = 8; // more runs than this are merged into one
+	private static final long MAGIC = 0x434B504F53494458L; // "CKPOSIDX"
+	private static final int HEADER_SIZE = 16; // the magic number and the record count
+	private static final int RECORD_SIZE = 32; // key, turn, games, wins and losses (for the player to move), unused
+	private static final int RECORDS_PER_CHUNK = (Integer.MAX_VALUE / RECORD_SIZE) & ~1023; // records per mapping
+	private static final int FENCE_INTERVAL = 128; // records per fence key
+	private static final int RUN_OCCURRENCES = 1 << 22; // positions sorted in memory per run
+	private static final int MAX_GAME_TURNS = 200; // generated games this long are drawn
+	private static final double RANDOM_MOVE_RATE = 0.1;
+
+	// Results of a game, for the player to move in a position
+	private static final byte DRAWN = 0; // (or unfinished)
+	private static final byte WON = 1;
+	private static final byte LOST = 2;
+
+	// What the index holds about a position. Wins and losses are those of the player to move.
+	public static class Statistics {
+		public final CheckersPosition position;
+		public long games; // games that reached the position
+		public long wins;
+		public long losses; // (the other games were drawn or unfinished)
+		public final List<MoveStatistics> moves = new ArrayList<MoveStatistics>(); // the turns played, most played first
+
+		public Statistics(CheckersPosition position) {
+			this.position = position;
+		}
+
+		// Returns the number of games that ended in the position.
+		public long getEndedGames() {
+			long ended = games;
+			for (MoveStatistics move : moves) {
+				ended -= move.games;
+			}
+			return ended;
+		}
+	}
+
+	// What the index holds about a turn played from a position. Wins and losses are those of the
+	// player who played it.
+	public static class MoveStatistics {
+		public final long move; // encoded as in CheckersBitboard
+		public long games;
+		public long wins;
+		public long losses;
+
+		public MoveStatistics(long move) {
+			this.move = move;
+		}
+
+		public String getNotation() {
+			return CheckersMove.toNotation(CheckersBitboard.toMoves(move));
+		}
+	}
+
+	// A mapped run file
+	private static class Run {
+		final String name;
+		final long count; // records
+		final ByteBuffer[] chunks;
+		final long[] fences; // the key of every FENCE_INTERVAL-th record
+
+		Run(Path path) throws IOException {
+			this.name = path.getFileName().toString();
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+				while (header.hasRemaining() && channel.read(header) >= 0) {
+				}
+				header.flip();
+				if (header.remaining() < HEADER_SIZE || header.getLong() != MAGIC) {
+					throw new IOException("Not a position index run: " + path);
+				}
+				count = header.getLong();
+				int fenceCount = (int) ((count + FENCE_INTERVAL - 1) / FENCE_INTERVAL);
+				long recordBytes = count * RECORD_SIZE;
+				if (channel.size() != HEADER_SIZE + recordBytes + 8L * fenceCount) {
+					throw new IOException("Position index run has the wrong size: " + path);
+				}
+				chunks = new ByteBuffer[(int) ((count + RECORDS_PER_CHUNK - 1) / RECORDS_PER_CHUNK)];
+				for (int i = 0; i < chunks.length; i++) {
+					long first = (long) i * RECORDS_PER_CHUNK;
+					chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * RECORD_SIZE,
+							Math.min(RECORDS_PER_CHUNK, count - first) * RECORD_SIZE);
+				}
+				fences = new long[fenceCount];
+				ByteBuffer fenceBytes = ByteBuffer.allocate(8 * fenceCount);
+				channel.position(HEADER_SIZE + recordBytes);
+				while (fenceBytes.hasRemaining() && channel.read(fenceBytes) >= 0) {
+				}
+				fenceBytes.flip();
+				fenceBytes.asLongBuffer().get(fences);
+			}
+		}
+
+		long key(long record) {
+			return chunk(record).getLong(offset(record));
+		}
+
+		long move(long record) {
+			return chunk(record).getLong(offset(record) + 8);
+		}
+
+		int games(long record) {
+			return chunk(record).getInt(offset(record) + 16);
+		}
+
+		int wins(long record) {
+			return chunk(record).getInt(offset(record) + 20);
+		}
+
+		int losses(long record) {
+			return chunk(record).getInt(offset(record) + 24);
+		}
+
+		// Returns the first record whose key is not less than the given key (count if there is none).
+		long find(long key) {
+			int low = 0;
+			int high = fences.length;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (fences[middle] < key) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			long record = (0 == low) ? 0 : (long) (low - 1) * FENCE_INTERVAL;
+			while (record < count && key(record) < key) {
+				record++;
+			}
+			return record;
+		}
+
+		private ByteBuffer chunk(long record) {
+			return chunks[(int) (record / RECORDS_PER_CHUNK)];
+		}
+
+		private static int offset(long record) {
+			return (int) (record % RECORDS_PER_CHUNK) * RECORD_SIZE;
+		}
+	}
+
+	// Writes a run file from records given in sorted order, adding up the counts of equal records.
+	private static class RunWriter implements Closeable {
+		private final Path path;
+		private final Path temporary;
+		private final DataOutputStream out;
+		private long[] fences = new long[1024];
+		private long count;
+		private boolean pending; // whether the record below has not been written yet
+		private long key;
+		private long move;
+		private long games;
+		private long wins;
+		private long losses;
+
+		RunWriter(Path path) throws IOException {
+			this.path = path;
+			this.temporary = path.resolveSibling(path.getFileName() + ".tmp");
+			this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16));
+			out.writeLong(MAGIC);
+			out.writeLong(0); // (the count, written by finish)
+		}
+
+		void add(long key, long move, long games, long wins, long losses) throws IOException {
+			if (pending && key == this.key && move == this.move) {
+				this.games += games;
+				this.wins += wins;
+				this.losses += losses;
+				return;
+			}
+			writePending();
+			pending = true;
+			this.key = key;
+			this.move = move;
+			this.games = games;
+			this.wins = wins;
+			this.losses = losses;
+		}
+
+		// Writes the fence keys and the count, and puts the file in place. Returns the record count.
+		long finish() throws IOException {
+			writePending();
+			int fenceCount = (int) ((count + FENCE_INTERVAL - 1) / FENCE_INTERVAL);
+			for (int i = 0; i < fenceCount; i++) {
+				out.writeLong(fences[i]);
+			}
+			out.close();
+			try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+				ByteBuffer header = ByteBuffer.allocate(8).putLong(0, count);
+				channel.write(header, 8);
+				channel.force(true);
+			}
+			Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+			return count;
+		}
+
+		public void close() throws IOException {
+			out.close();
+			Files.deleteIfExists(temporary);
+		}
+
+		private void writePending() throws IOException {
+			if (!pending) {
+				return;
+			}
+			if (games > Integer.MAX_VALUE) {
+				throw new IOException("A position was reached in more than " + Integer.MAX_VALUE + " games");
+			}
+			if (0 == count % FENCE_INTERVAL) {
+				int fence = (int) (count / FENCE_INTERVAL);
+				if (fence == fences.length) {
+					fences = Arrays.copyOf(fences, 2 * fence);
+				}
+				fences[fence] = key;
+			}
+			out.writeLong(key);
+			out.writeLong(move);
+			out.writeInt((int) games);
+			out.writeInt((int) wins);
+			out.writeInt((int) losses);
+			out.writeInt(0);
+			count++;
+			pending = false;
+		}
+	}
+
+	private final Path directory;
+	private final List<Run> runs = new ArrayList<Run>(); // oldest first
+	private final Map<String, Long> sources = new LinkedHashMap<String, Long>(); // bytes read from each archive, by absolute path
+	private int nextRun; // the number of the next run file
+
+	// Occurrences of positions waiting to be sorted into a run
+	private long[] keys;
+	private long[] moves;
+	private byte[] results;
+	private int occurrences;
+	private final List<Run> newRuns = new ArrayList<Run>(); // runs written but not yet in the manifest
+
+	private PositionIndex(Path directory) {
+		this.directory = directory;
+	}
+
+	// Opens the index in the given directory (creating an empty one if there is none).
+	public static PositionIndex open(Path directory) throws IOException {
+		Files.createDirectories(directory);
+		PositionIndex index = new PositionIndex(directory);
+		Set<String> listed = new HashSet<String>();
+		Path manifest = directory.resolve(MANIFEST);
+		if (Files.exists(manifest)) {
+			for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+				String[] words = line.split(" ", 3);
+				if (words[0].equals("run") && 2 == words.length) {
+					index.runs.add(new Run(directory.resolve(words[1])));
+					listed.add(words[1]);
+				} else if (words[0].equals("source") && 3 == words.length) {
+					index.sources.put(words[2], Long.parseLong(words[1]));
+				} else if (!line.isEmpty()) {
+					throw new IOException("Bad line in " + manifest + ": " + line);
+				}
+			}
+		}
+
+		// Delete what an interrupted update left behind
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "run-*")) {
+			for (Path path : stream) {
+				String name = path.getFileName().toString();
+				if (!listed.contains(name)) {
+					Files.delete(path);
+				} else {
+					index.nextRun = Math.max(index.nextRun, Integer.parseInt(name.substring(4, 12)) + 1);
+				}
+			}
+		}
+		return index;
+	}
+
+	// Returns what the index holds about the given position.
+	public synchronized Statistics lookup(CheckersPosition position) {
+		boolean mirrored = !position.isCanonical();
+		long key = key(position);
+		Statistics statistics = new Statistics(position);
+		Map<Long, MoveStatistics> byMove = new HashMap<Long, MoveStatistics>();
+		for (Run run : runs) {
+			for (long record = run.find(key); record < run.count && run.key(record) == key; record++) {
+				int games = run.games(record);
+				int wins = run.wins(record);
+				int losses = run.losses(record);
+				statistics.games += games;
+				statistics.wins += wins;
+				statistics.losses += losses;
+				long move = run.move(record);
+				if (0 == move) {
+					continue; // (games that ended here)
+				}
+				if (mirrored) {
+					move = mirrorMove(move);
+				}
+				MoveStatistics moveStatistics = byMove.get(move);
+				if (null == moveStatistics) {
+					moveStatistics = new MoveStatistics(move);
+					byMove.put(move, moveStatistics);
+				}
+				moveStatistics.games += games;
+				moveStatistics.wins += wins;
+				moveStatistics.losses += losses;
+			}
+		}
+		statistics.moves.addAll(byMove.values());
+		Collections.sort(statistics.moves, new Comparator<MoveStatistics>() {
+			public int compare(MoveStatistics a, MoveStatistics b) {
+				return (a.games != b.games) ? Long.compare(b.games, a.games) : Long.compare(a.move, b.move);
+			}
+		});
+		return statistics;
+	}
+
+	// Indexes the games added to the given archive since it was last indexed (all of them, the
+	// first time), and returns how many there were. A last line without its line break is left for
+	// next time, as the game may still be being written.
+	public synchronized long add(Path archive) throws IOException {
+		String source = archive.toAbsolutePath().normalize().toString();
+		Long read = sources.get(source);
+		long offset = (null == read) ? 0 : read;
+		long games = 0;
+		keys = new long[RUN_OCCURRENCES];
+		moves = new long[RUN_OCCURRENCES];
+		results = new byte[RUN_OCCURRENCES];
+		occurrences = 0;
+		try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ)) {
+			if (channel.size() < offset) {
+				throw new IOException(archive + " is shorter than when it was indexed");
+			}
+			channel.position(offset);
+			InputStream in = Channels.newInputStream(channel);
+			byte[] buffer = new byte[1 << 16];
+			StringBuilder line = new StringBuilder();
+			long position = offset;
+			int length;
+			while ((length = in.read(buffer)) > 0) {
+				for (int i = 0; i < length; i++) {
+					byte b = buffer[i];
+					if ('\n' == b) {
+						if (indexGame(line.toString(), archive, offset)) {
+							games++;
+						}
+						line.setLength(0);
+						offset = position + i + 1;
+					} else if ('\r' != b) {
+						line.append((char) b);
+					}
+				}
+				position += length;
+			}
+			writeRun();
+			sources.put(source, offset);
+			runs.addAll(newRuns);
+			newRuns.clear();
+			writeManifest();
+		} catch (IOException | RuntimeException e) {
+			for (Run run : newRuns) {
+				Files.deleteIfExists(directory.resolve(run.name));
+			}
+			newRuns.clear();
+			throw e;
+		} finally {
+			keys = null;
+			moves = null;
+			results = null;
+		}
+		if (runs.size() > MAX_RUNS) {
+			compact();
+		}
+		return games;
+	}
+
+	// Merges all the runs into one.
+	public synchronized void compact() throws IOException {
+		if (runs.size() <= 1) {
+			return;
+		}
+		// A k-way merge, through a priority queue of the runs' next records
+		PriorityQueue<long[]> cursors = new PriorityQueue<long[]>(runs.size(), new Comparator<long[]>() {
+			public int compare(long[] a, long[] b) { // (run, record, key, move)
+				return (a[2] != b[2]) ? Long.compare(a[2], b[2]) : Long.compare(a[3], b[3]);
+			}
+		});
+		for (int i = 0; i < runs.size(); i++) {
+			Run run = runs.get(i);
+			if (run.count > 0) {
+				cursors.add(new long[] { i, 0, run.key(0), run.move(0) });
+			}
+		}
+		Path path = directory.resolve(String.format("run-%08d.idx", nextRun++));
+		try (RunWriter writer = new RunWriter(path)) {
+			while (!cursors.isEmpty()) {
+				long[] cursor = cursors.poll();
+				Run run = runs.get((int) cursor[0]);
+				long record = cursor[1];
+				writer.add(cursor[2], cursor[3], run.games(record), run.wins(record), run.losses(record));
+				if (++record < run.count) {
+					cursor[1] = record;
+					cursor[2] = run.key(record);
+					cursor[3] = run.move(record);
+					cursors.add(cursor);
+				}
+			}
+			writer.finish();
+		}
+		List<Run> merged = new ArrayList<Run>(runs);
+		runs.clear();
+		runs.add(new Run(path));
+		writeManifest();
+		for (Run run : merged) {
+			Files.deleteIfExists(directory.resolve(run.name));
+		}
+	}
+
+	// Returns the number of run files.
+	public synchronized int getRunCount() {
+		return runs.size();
+	}
+
+	// Returns the number of records (distinct positions and turns, per run).
+	public synchronized long getRecordCount() {
+		long count = 0;
+		for (Run run : runs) {
+			count += run.count;
+		}
+		return count;
+	}
+
+	// Returns the size of the run files in bytes.
+	public synchronized long getSizeBytes() throws IOException {
+		long size = 0;
+		for (Run run : runs) {
+			size += Files.size(directory.resolve(run.name));
+		}
+		return size;
+	}
+
+	// (The mappings are released when the index is garbage collected.)
+	public synchronized void close() {
+		runs.clear();
+	}
+
+	// Plays one game of an archive, adding its positions to those waiting to be sorted. Returns
+	// false if the line holds no game.
+	private boolean indexGame(String line, Path archive, long lineOffset) throws IOException {
+		line = line.trim();
+		if (line.isEmpty() || line.startsWith("#")) {
+			return false;
+		}
+		String[] words = line.split("\\s+");
+		Player winner;
+		if (words[0].equals("1-0")) {
+			winner = Player.BLACK;
+		} else if (words[0].equals("0-1")) {
+			winner = Player.RED;
+		} else if (words[0].equals("1/2-1/2") || words[0].equals("*")) {
+			winner = null;
+		} else {
+			throw new IOException(archive + ", byte " + lineOffset + ": expected a result, found " + words[0]);
+		}
+		CheckersBitboard board = new CheckersBitboard(CheckersPosition.INITIAL);
+		long[] legal = new long[CheckersBitboard.MAX_MOVES];
+		for (int i = 1; i < words.length; i++) {
+			long move = findMove(board, legal, words[i]);
+			if (0 == move) {
+				throw new IOException(archive + ", byte " + lineOffset + ": illegal turn " + words[i] + " in " + board.toPosition());
+			}
+			occur(board, move, winner);
+			board.play(move);
+		}
+		occur(board, 0, winner);
+		return true;
+	}
+
+	// Returns the legal turn of the board written in the given notation, or 0 if there is none.
+	private static long findMove(CheckersBitboard board, long[] legal, String notation) {
+		ArrayList<CheckersMove> parsed;
+		try {
+			parsed = CheckersMove.parseNotation(notation);
+		} catch (IllegalArgumentException e) {
+			return 0;
+		}
+		int count = board.generateMoves(legal);
+		for (int i = 0; i < count; i++) {
+			long move = legal[i];
+			if (CheckersBitboard.getHops(move) != parsed.size()) {
+				continue;
+			}
+			boolean matches = true;
+			for (int hop = 0; hop < parsed.size() && matches; hop++) {
+				BoardSquare start = parsed.get(hop).start;
+				BoardSquare destination = parsed.get(hop).destination;
+				matches = CheckersBitboard.getSquare(move, hop) == CheckersPosition.squareIndex(start.x, start.y)
+						&& CheckersBitboard.getSquare(move, hop + 1) == CheckersPosition.squareIndex(destination.x, destination.y);
+			}
+			if (matches) {
+				return move;
+			}
+		}
+		return 0;
+	}
+
+	// Adds the board's position, with the turn played from it (0 if the game ended there) and the
+	// game's result, to the occurrences waiting to be sorted.
+	private void occur(CheckersBitboard board, long move, Player winner) throws IOException {
+		if (occurrences == keys.length) {
+			writeRun();
+		}
+		boolean mirrored = Player.BLACK != board.turn;
+		keys[occurrences] = key(board.toPosition());
+		moves[occurrences] = (mirrored && 0 != move) ? mirrorMove(move) : move;
+		results[occurrences] = (null == winner) ? DRAWN : (winner == board.turn) ? WON : LOST;
+		occurrences++;
+	}
+
+	// Sorts the occurrences waiting to be sorted, and writes them as a new run.
+	private void writeRun() throws IOException {
+		if (0 == occurrences) {
+			return;
+		}
+		sort(keys, moves, results, 0, occurrences);
+		Path path = directory.resolve(String.format("run-%08d.idx", nextRun++));
+		try (RunWriter writer = new RunWriter(path)) {
+			for (int i = 0; i < occurrences; i++) {
+				writer.add(keys[i], moves[i], 1, (WON == results[i]) ? 1 : 0, (LOST == results[i]) ? 1 : 0);
+			}
+			writer.finish();
+		}
+		newRuns.add(new Run(path));
+		occurrences = 0;
+	}
+
+	// Writes the manifest, replacing the old one atomically.
+	private void writeManifest() throws IOException {
+		Path temporary = directory.resolve(MANIFEST + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			StringBuilder text = new StringBuilder();
+			for (Run run : runs) {
+				text.append("run ").append(run.name).append('\n');
+			}
+			for (Map.Entry<String, Long> source : sources.entrySet()) {
+				text.append("source ").append(source.getValue()).append(' ').append(source.getKey()).append('\n');
+			}
+			ByteBuffer bytes = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+			while (bytes.hasRemaining()) {
+				channel.write(bytes);
+			}
+			channel.force(true);
+		}
+		Files.move(temporary, directory.resolve(MANIFEST), StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	// Returns the key the index stores a position under: that of its canonical form.
+	private static long key(CheckersPosition position) {
+		CheckersPosition canonical = position.canonical();
+		return TranspositionTable.key(canonical.black, canonical.red, canonical.kings, canonical.turn);
+	}
+
+	// Returns an encoded turn as played in the mirror image of the position.
+	private static long mirrorMove(long move) {
+		int hops = CheckersBitboard.getHops(move);
+		long mirrored = hops;
+		for (int hop = 0; hop <= hops; hop++) {
+			mirrored |= (long) CheckersPosition.mirrorSquare(CheckersBitboard.getSquare(move, hop)) << (4 + 5 * hop);
+		}
+		return mirrored;
+	}
+
+	// Sorts the occurrences in [low, high) by key and then by turn (a quicksort of the three
+	// parallel arrays, which avoids allocating an object per occurrence).
+	private static void sort(long[] keys, long[] moves, byte[] results, int low, int high) {
+		while (high - low > 16) {
+			int middle = (low + high) >>> 1;
+			long pivotKey = keys[middle];
+			long pivotMove = moves[middle];
+			int i = low;
+			int j = high - 1;
+			while (i <= j) {
+				while (compare(keys[i], moves[i], pivotKey, pivotMove) < 0) {
+					i++;
+				}
+				while (compare(keys[j], moves[j], pivotKey, pivotMove) > 0) {
+					j--;
+				}
+				if (i <= j) {
+					swap(keys, moves, results, i++, j--);
+				}
+			}
+			// (Recurse into the smaller part, and loop on the larger one)
+			if (j + 1 - low < high - i) {
+				sort(keys, moves, results, low, j + 1);
+				low = i;
+			} else {
+				sort(keys, moves, results, i, high);
+				high = j + 1;
+			}
+		}
+		for (int i = low + 1; i < high; i++) {
+			for (int j = i; j > low && compare(keys[j - 1], moves[j - 1], keys[j], moves[j]) > 0; j--) {
+				swap(keys, moves, results, j - 1, j);
+			}
+		}
+	}
+
+	private static int compare(long key, long move, long otherKey, long otherMove) {
+		return (key != otherKey) ? Long.compare(key, otherKey) : Long.compare(move, otherMove);
+	}
+
+	private static void swap(long[] keys, long[] moves, byte[] results, int i, int j) {
+		long key = keys[i];
+		keys[i] = keys[j];
+		keys[j] = key;
+		long move = moves[i];
+		moves[i] = moves[j];
+		moves[j] = move;
+		byte result = results[i];
+		results[i] = results[j];
+		results[j] = result;
+	}
+
+	// Plays the given number of games (in parallel) and appends them to an archive. Returns the
+	// number of turns written.
+	public static long generate(Path archive, int games, long seed) throws IOException, InterruptedException, ExecutionException {
+		ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		long turns = 0;
+		try (Writer out = Files.newBufferedWriter(archive, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+			for (int first = 0; first < games; first += 10000) { // (in blocks, so as not to hold every game in memory)
+				List<Future<String>> results = new ArrayList<Future<String>>();
+				for (int game = first; game < Math.min(games, first + 10000); game++) {
+					final long gameSeed = seed * 1000003 + game;
+					results.add(executor.submit(new Callable<String>() {
+						public String call() {
+							return playGame(new Random(gameSeed));
+						}
+					}));
+				}
+				for (Future<String> result : results) {
+					String line = result.get();
+					turns += line.split(" ").length - 1;
+					out.write(line);
+					out.write('\n');
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+		return turns;
+	}
+
+	// Plays one game, and returns it as a line of an archive.
+	private static String playGame(Random random) {
+		CheckersEvaluator evaluator = new CheckersEvaluator(EvaluationWeights.getDefault());
+		CheckersBitboard board = new CheckersBitboard(CheckersPosition.INITIAL);
+		long[] moves = new long[CheckersBitboard.MAX_MOVES];
+		StringBuilder turns = new StringBuilder();
+		String result = "1/2-1/2";
+		for (int turn = 0; turn < MAX_GAME_TURNS; turn++) {
+			int count = board.generateMoves(moves);
+			if (0 == count) {
+				result = (Player.RED == board.turn) ? "1-0" : "0-1";
+				break;
+			}
+			long move = moves[random.nextInt(count)];
+			if (random.nextDouble() >= RANDOM_MOVE_RATE) {
+				move = WeightTuner.bestMove(board, moves, count, evaluator);
+			}
+			turns.append(' ').append(CheckersMove.toNotation(CheckersBitboard.toMoves(move)));
+			board.play(move);
+		}
+		return result + turns;
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length >= 3 && args[0].equals("generate")) {
+			long seed = (args.length > 3) ? Long.parseLong(args[3]) : 1;
+			long start = System.nanoTime();
+			long turns = generate(Paths.get(args[1]), Integer.parseInt(args[2]), seed);
+			System.out.printf("Wrote %s games (%d turns) in %.1f s%n", args[2], turns, (System.nanoTime() - start) / 1e9);
+		} else if (args.length >= 3 && args[0].equals("add")) {
+			try (PositionIndex index = open(Paths.get(args[1]))) {
+				for (int i = 2; i < args.length; i++) {
+					long start = System.nanoTime();
+					long games = index.add(Paths.get(args[i]));
+					System.out.printf("%s: indexed %d new games in %.1f s%n", args[i], games, (System.nanoTime() - start) / 1e9);
+				}
+				System.out.printf("The index holds %d records in %d runs (%.1f MB)%n", index.getRecordCount(),
+						index.getRunCount(), index.getSizeBytes() / 1e6);
+			}
+		} else if (args.length >= 2 && args[0].equals("query")) {
+			try (PositionIndex index = open(Paths.get(args[1]))) {
+				CheckersPosition position = (args.length > 2) ? CheckersPosition.parse(args[2]) : CheckersPosition.INITIAL;
+				Statistics statistics = index.lookup(position);
+				System.out.printf("%s: %d games, %d won and %d lost by the player to move, %d ended here%n", position,
+						statistics.games, statistics.wins, statistics.losses, statistics.getEndedGames());
+				for (MoveStatistics move : statistics.moves) {
+					System.out.printf("  %-12s %9d games, %5.1f%% won, %5.1f%% lost%n", move.getNotation(), move.games,
+							100.0 * move.wins / move.games, 100.0 * move.losses / move.games);
+				}
+			}
+		} else if (args.length >= 2 && args[0].equals("compact")) {
+			try (PositionIndex index = open(Paths.get(args[1]))) {
+				index.compact();
+				System.out.printf("The index holds %d records in %d run (%.1f MB)%n", index.getRecordCount(),
+						index.getRunCount(), index.getSizeBytes() / 1e6);
+			}
+		} else {
+			System.err.println("Usage: PositionIndex generate <archive> <games> [seed]");
+			System.err.println("       PositionIndex add <index directory> <archive>...");
+			System.err.println("       PositionIndex query <index directory> [position]");
+			System.err.println("       PositionIndex compact <index directory>");
+		}
+	}
+}
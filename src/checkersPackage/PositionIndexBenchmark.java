@@ -0,0 +1,164 @@
+package checkersPackage;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Measures the PositionIndex. An archive of generated games is built in four parts, and the index
+// is brought up to date after each (so the later updates are incremental, and the runs get merged
+// along the way); it reports the indexing rate and the size of the index. Then it checks the
+// statistics of a sample of positions against a direct count over the archive, and reports the
+// latency of lookups of positions sampled from the games (so most are rare positions, and some
+// are opening positions with many turns), before and after the runs are compacted into one.
+//
+// The archive and the index are written to a temporary directory (on the file system of
+// java.io.tmpdir), which is deleted at the end.
+//
+// Arguments (optional): games in the archive (default 100000), lookups (default 200000).
+public class PositionIndexBenchmark {
+	private static final int PARTS = 4;
+	private static final int CHECKED_POSITIONS = 2000;
+
+	public static void main(String[] args) throws Exception {
+		int games = (args.length > 0) ? Integer.parseInt(args[0]) : 100000;
+		int lookups = (args.length > 1) ? Integer.parseInt(args[1]) : 200000;
+		Path directory = Files.createTempDirectory("positionindex");
+		Path archive = directory.resolve("games.archive");
+		Path indexDirectory = directory.resolve("index");
+		PositionIndex index = PositionIndex.open(indexDirectory);
+
+		// Build the archive and the index in parts
+		System.out.println("part      games   generate (s)   index (s)   games/s   runs   records   size (MB)");
+		for (int part = 0; part < PARTS; part++) {
+			long start = System.nanoTime();
+			PositionIndex.generate(archive, games / PARTS, part + 1);
+			double generateSeconds = (System.nanoTime() - start) / 1e9;
+			start = System.nanoTime();
+			long added = index.add(archive);
+			double indexSeconds = (System.nanoTime() - start) / 1e9;
+			System.out.printf("%4d %10d %14.1f %11.1f %9.0f %6d %9d %11.1f%n", part + 1, added, generateSeconds, indexSeconds,
+					added / indexSeconds, index.getRunCount(), index.getRecordCount(), index.getSizeBytes() / 1e6);
+		}
+		index.close();
+		index = PositionIndex.open(indexDirectory); // (as a later session would)
+
+		// Check a sample of positions against a direct count
+		List<CheckersPosition> sample = samplePositions(archive, lookups, new Random(1));
+		Map<CheckersPosition, long[]> expected = new HashMap<CheckersPosition, long[]>();
+		Set<CheckersPosition> canonical = new HashSet<CheckersPosition>();
+		for (int i = 0; i < CHECKED_POSITIONS; i++) {
+			if (canonical.add(sample.get(i).canonical())) { // (a position and its mirror image are counted together)
+				expected.put(sample.get(i), new long[3]);
+			}
+		}
+		count(archive, expected);
+		int wrong = 0;
+		for (Map.Entry<CheckersPosition, long[]> entry : expected.entrySet()) {
+			PositionIndex.Statistics statistics = index.lookup(entry.getKey());
+			long[] counts = entry.getValue();
+			long moveGames = 0;
+			for (PositionIndex.MoveStatistics move : statistics.moves) {
+				moveGames += move.games;
+			}
+			if (statistics.games != counts[0] || statistics.wins != counts[1] || statistics.losses != counts[2]
+					|| moveGames + statistics.getEndedGames() != statistics.games) {
+				wrong++;
+			}
+		}
+		System.out.printf("%nChecked %d positions against a direct count of the archive: %d wrong%n", expected.size(), wrong);
+
+		// Lookup latency
+		System.out.println();
+		System.out.println("runs   lookups   mean (us)   p50 (us)   p99 (us)   max (us)   turns/lookup");
+		measureLookups(index, sample);
+		index.compact();
+		measureLookups(index, sample);
+		index.close();
+
+		for (Path path : new Path[] { indexDirectory, directory }) {
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+				for (Path file : stream) {
+					if (!Files.isDirectory(file)) {
+						Files.delete(file);
+					}
+				}
+			}
+		}
+		Files.delete(indexDirectory);
+		Files.delete(directory);
+	}
+
+	// Looks up every position of the sample, twice (the first pass as a warm-up), and reports the
+	// latency of the second pass.
+	private static void measureLookups(PositionIndex index, List<CheckersPosition> sample) {
+		long[] nanos = new long[sample.size()];
+		long turns = 0;
+		for (int pass = 0; pass < 2; pass++) {
+			turns = 0;
+			for (int i = 0; i < sample.size(); i++) {
+				long start = System.nanoTime();
+				PositionIndex.Statistics statistics = index.lookup(sample.get(i));
+				nanos[i] = System.nanoTime() - start;
+				turns += statistics.moves.size();
+			}
+		}
+		long total = 0;
+		for (long n : nanos) {
+			total += n;
+		}
+		Arrays.sort(nanos);
+		System.out.printf("%4d %9d %11.2f %10.2f %10.2f %10.1f %14.2f%n", index.getRunCount(), nanos.length,
+				total / 1e3 / nanos.length, nanos[nanos.length / 2] / 1e3, nanos[(int) ((nanos.length - 1) * 0.99)] / 1e3,
+				nanos[nanos.length - 1] / 1e3, (double) turns / nanos.length);
+	}
+
+	// Returns positions reached in random games of the archive, each after a random number of turns.
+	private static List<CheckersPosition> samplePositions(Path archive, int count, Random random) throws IOException {
+		List<String> lines = Files.readAllLines(archive, StandardCharsets.UTF_8);
+		List<CheckersPosition> positions = new ArrayList<CheckersPosition>();
+		while (positions.size() < count) {
+			String[] words = lines.get(random.nextInt(lines.size())).split(" ");
+			int turns = random.nextInt(words.length);
+			CheckersBoard board = new CheckersBoard();
+			Player turn = Player.BLACK;
+			for (int i = 1; i <= turns; i++) {
+				board.playMoveSequence(CheckersMove.parseNotation(words[i]), turn);
+				turn = board.switchTurn(turn);
+			}
+			positions.add(CheckersPosition.of(board, turn));
+		}
+		return positions;
+	}
+
+	// Counts, for each of the given positions (and its mirror image), the visits of the archive's
+	// games to it, and those won and lost by the player to move.
+	private static void count(Path archive, Map<CheckersPosition, long[]> counts) throws IOException {
+		Map<CheckersPosition, long[]> canonical = new HashMap<CheckersPosition, long[]>();
+		for (Map.Entry<CheckersPosition, long[]> entry : counts.entrySet()) {
+			canonical.put(entry.getKey().canonical(), entry.getValue());
+		}
+		try (BufferedReader in = Files.newBufferedReader(archive, StandardCharsets.UTF_8)) {
+			String line;
+			while (null != (line = in.readLine())) {
+				String[] words = line.split(" ");
+				Player winner = words[0].equals("1-0") ? Player.BLACK : words[0].equals("0-1") ? Player.RED : null;
+				CheckersBoard board = new CheckersBoard();
+				Player turn = Player.BLACK;
+				for (int i = 1; ; i++) {
+					long[] found = canonical.get(CheckersPosition.of(board, turn).canonical());
+					if (null != found) {
+						found[0]++;
+						found[1] += (turn == winner) ? 1 : 0;
+						found[2] += (null != winner && turn != winner) ? 1 : 0;
+					}
+					if (i == words.length) {
+						break;
+					}
+					board.playMoveSequence(CheckersMove.parseNotation(words[i]), turn);
+					turn = board.switchTurn(turn);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package checkersPackage;
+
+import java.awt.*;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+
+// Measures painting the board's pieces from Sprites against filling the pieces' shapes on every
+// paint: for whole frames at several square lengths, at normal and HiDPI (2x) scale; while
+// the window is being resized (each new size needs new sprites, rendered once and then taken from
+// the cache); and while a piece is being dragged (repainting only where the piece was and is,
+// against the whole board).
+//
+// The board is painted into an image of the screen's size in device pixels, so the benchmark runs
+// without a display.
+//
+// Arguments (optional): frames per measurement (default 2000).
+public class RenderBenchmark {
+	private static final int[] SQUARE_LENGTHS = { 40, 70, 120 };
+	private static final double[] SCALES = { 1, 2 };
+	private static final Color LIGHT = new Color(230, 177, 55);
+	private static final Color DARK = new Color(120, 74, 43);
+
+	public static void main(String[] args) {
+		int frames = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+		CheckersBoard board = new CheckersBoard();
+		board.loadPosition(CheckersPosition.parse(CheckersPosition.SAMPLES[1]));
+		Graphics2D warmUp = screen(100, 1);
+		board.paintBoard(warmUp); // (so that the first frame measured does not include loading Java2D)
+		warmUp.dispose();
+
+		// Whole frames
+		System.out.println("square  scale   shapes (ms/frame)   sprites (ms/frame)   first sprite frame (ms)   speedup");
+		for (double scale : SCALES) {
+			for (int squareLength : SQUARE_LENGTHS) {
+				board.setSquareLength(squareLength);
+				Graphics2D g2 = screen(8 * squareLength, scale);
+				Sprites.clear();
+				long start = System.nanoTime();
+				board.paintBoard(g2);
+				double firstMillis = (System.nanoTime() - start) / 1e6;
+				double shapes = time(board, g2, frames, true, null);
+				double sprites = time(board, g2, frames, false, null);
+				System.out.printf("%6d %6.0fx %19.3f %20.3f %25.2f %9.1fx%n", squareLength, scale, shapes, sprites, firstMillis,
+						shapes / sprites);
+				g2.dispose();
+			}
+		}
+
+		// Resizing: the board grows from 240 to 960 pixels and shrinks back, a few pixels per frame
+		System.out.println();
+		Sprites.clear();
+		Graphics2D screen = screen(960, 2);
+		for (int pass = 0; pass < 2; pass++) {
+			long worst = 0;
+			long total = 0;
+			int count = 0;
+			for (int size = 240; size <= 960; size += 4) {
+				int boardSize = (0 == pass) ? size : 1200 - size;
+				board.setSquareLength(boardSize / 8);
+				long start = System.nanoTime();
+				board.paintBoard(screen);
+				long nanos = System.nanoTime() - start;
+				worst = Math.max(worst, nanos);
+				total += nanos;
+				count++;
+			}
+			System.out.printf("Resizing at 2x, %s: %d frames, mean %.3f ms, max %.2f ms; cache: %s%n",
+					(0 == pass) ? "growing (new sizes)" : "shrinking back", count, total / 1e6 / count, worst / 1e6,
+					Sprites.getStatistics());
+		}
+		screen.dispose();
+
+		// Dragging a piece across the board
+		System.out.println();
+		board.setSquareLength(CheckersBoard.DEFAULT_SQUARE_LENGTH);
+		CheckersPiece piece = null;
+		for (int x = 0; x < 8 && null == piece; x++) {
+			for (int y = 0; y < 8 && null == piece; y++) {
+				piece = board.getPieceAtPosition(new BoardSquare(x, y));
+			}
+		}
+		board.setCurrentPiece(piece);
+		for (double scale : SCALES) {
+			Graphics2D g2 = screen(8 * CheckersBoard.DEFAULT_SQUARE_LENGTH, scale);
+			double whole = time(board, g2, frames, false, null);
+			double partial = time(board, g2, frames, false, new Rectangle());
+			System.out.printf("Dragging at %.0fx: %.3f ms per frame repainting the whole board, %.3f ms repainting only the piece's way (%.1fx)%n",
+					scale, whole, partial, whole / partial);
+			g2.dispose();
+		}
+		board.setCurrentPiece(null);
+	}
+
+	// Returns a graphics for a board of the given size in user space, on an image of that size in
+	// device pixels.
+	private static Graphics2D screen(int size, double scale) {
+		int pixels = (int) Math.round(size * scale);
+		Graphics2D g2 = new BufferedImage(pixels, pixels, BufferedImage.TYPE_INT_RGB).createGraphics();
+		g2.scale(scale, scale);
+		return g2;
+	}
+
+	// Paints the given number of frames (after as many for warm-up), and returns the mean time of
+	// one in milliseconds. With shapes, the squares and pieces are filled as shapes in each frame;
+	// otherwise the board paints itself from sprites. With drag bounds, a piece is dragged a few
+	// pixels per frame, and only the area it moves across is repainted.
+	private static double time(CheckersBoard board, Graphics2D g2, int frames, boolean shapes, Rectangle dragBounds) {
+		long start = 0;
+		int squareLength = board.getSquareLength();
+		for (int frame = -frames; frame < frames; frame++) {
+			if (0 == frame) {
+				start = System.nanoTime();
+			}
+			if (null != dragBounds) {
+				int x = squareLength / 2 + Math.floorMod(3 * frame, 7 * squareLength);
+				Point mouse = new Point(x, x);
+				board.setMouseLocation(mouse);
+				Rectangle bounds = new Rectangle(mouse.x - squareLength / 2, mouse.y - squareLength / 2, squareLength, squareLength);
+				g2.setClip(dragBounds.isEmpty() ? bounds : dragBounds.union(bounds));
+				dragBounds.setBounds(bounds);
+			} else if (null != board.getCurrentPiece()) {
+				board.setMouseLocation(new Point(squareLength + frame % squareLength, squareLength));
+			}
+			if (shapes) {
+				paintShapes(board, g2);
+			} else {
+				board.paintBoard(g2);
+			}
+		}
+		g2.setClip(null);
+		return (System.nanoTime() - start) / 1e6 / frames;
+	}
+
+	// Paints the board the way it was painted before sprites: every square and piece filled as a
+	// shape, anti-aliased, in every frame.
+	private static void paintShapes(CheckersBoard board, Graphics2D g2) {
+		int squareLength = board.getSquareLength();
+		g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		for (int i = 0; i < 8; i++) {
+			for (int j = 0; j < 8; j++) {
+				g2.setPaint((i % 2 == j % 2) ? LIGHT : DARK);
+				g2.fill(new Rectangle2D.Double(squareLength * i, squareLength * j, squareLength, squareLength));
+				CheckersPiece piece = board.getPieceAtPosition(new BoardSquare(i, j));
+				if (null != piece) {
+					g2.setPaint(piece.getColor());
+					g2.fill(new Ellipse2D.Double(squareLength * (i + 0.2), squareLength * (j + 0.2), squareLength * 0.6, squareLength * 0.6));
+					if (piece.isKing()) {
+						g2.setPaint(Color.WHITE);
+						g2.draw(new Ellipse2D.Double(squareLength * (i + 0.3), squareLength * (j + 0.3), squareLength * 0.4, squareLength * 0.4));
+					}
+				}
+			}
+		}
+		g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_DEFAULT);
+		g2.setPaint(Color.BLACK);
+		g2.drawString("Black: " + board.blackPieces + " pieces (" + board.blackKings + " kings)", 250, squareLength * 8 + 20);
+		g2.setPaint(Color.RED);
+		g2.drawString("Red: " + board.redPieces + " pieces (" + board.redKings + " kings)", 250, squareLength * 8 + 40);
+	}
+}
@@ -0,0 +1,62 @@
+package checkersPackage;
+
+// Measures what each of CheckersSearch's refinements (principal variation search, late move
+// reductions and aspiration windows) gains, by searching a fixed suite of middlegame positions to
+// a fixed depth with each combination switched on. For each combination it reports the time and
+// nodes needed to reach the depth, and, as a measure of strength, how often the best move and score
+// agree with a plain alpha-beta search (which always finds the true minimax result).
+//
+// Arguments (optional): depth (default 8).
+public class SearchBenchmark {
+	// The combinations to compare: { principal variation search, late move reductions, aspiration windows }
+	private static final boolean[][] CONFIGURATIONS = {
+		{ false, false, false },
+		{ true, false, false },
+		{ true, true, false },
+		{ true, false, true },
+		{ true, true, true },
+	};
+
+	public static void main(String[] args) {
+		int depth = (args.length > 0) ? Integer.parseInt(args[0]) : 8;
+
+		// Warm up the JIT so the first configuration is not penalized
+		for (String position : CheckersPosition.SAMPLES) {
+			new CheckersSearch(CheckersPosition.parse(position)).search(SearchLimits.depth(Math.min(depth, 5)), null);
+		}
+
+		SearchInfo[] baseline = null;
+		System.out.println("PVS   LMR   Asp.  |  time (ms)       nodes  |  same move  same score");
+		for (boolean[] configuration : CONFIGURATIONS) {
+			SearchInfo[] results = new SearchInfo[CheckersPosition.SAMPLES.length];
+			long totalNodes = 0;
+			long start = System.nanoTime();
+			for (int i = 0; i < CheckersPosition.SAMPLES.length; i++) {
+				CheckersSearch search = new CheckersSearch(CheckersPosition.parse(CheckersPosition.SAMPLES[i]));
+				search.setPrincipalVariationSearch(configuration[0]);
+				search.setLateMoveReductions(configuration[1]);
+				search.setAspirationWindows(configuration[2]);
+				results[i] = search.search(SearchLimits.depth(depth), null);
+				totalNodes += results[i].nodes;
+			}
+			long elapsedMillis = (System.nanoTime() - start) / 1000000;
+			if (null == baseline) {
+				baseline = results;
+			}
+
+			// Compare against the plain alpha-beta results
+			int sameMove = 0;
+			int sameScore = 0;
+			for (int i = 0; i < CheckersPosition.SAMPLES.length; i++) {
+				if (CheckersMove.toNotation(results[i].getBestMove()).equals(CheckersMove.toNotation(baseline[i].getBestMove()))) {
+					sameMove++;
+				}
+				if (results[i].score == baseline[i].score) {
+					sameScore++;
+				}
+			}
+			System.out.printf("%-5s %-5s %-5s |  %9d  %10d  |  %5d/%d    %5d/%d%n", configuration[0], configuration[1],
+					configuration[2], elapsedMillis, totalNodes, sameMove, CheckersPosition.SAMPLES.length, sameScore, CheckersPosition.SAMPLES.length);
+		}
+	}
+}
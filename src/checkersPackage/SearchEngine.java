@@ -0,0 +1,119 @@
+package checkersPackage;
+
+import java.util.*;
+
+// A CheckersEngine that chooses moves with a CheckersSearch. With a Difficulty, each search is
+// limited to the level's node budget and adds its evaluation noise; otherwise (or at a level
+// without a node budget), with a GameClock each search budgets its time from the clock of the
+// player to move (see CheckersSearch), and without one it searches to a fixed depth.
+//
+// The evaluation noise of each search is seeded from the engine's source of search seeds, which a
+// CheckersBoard shares with the engine set on it (see CheckersBoard.setSearchSeed), so a seeded
+// game is repeatable; with a SearchTrace, every search is recorded, to be made again by
+// SearchTrace's replay.
+public class SearchEngine implements CheckersEngine {
+	public static final int DEFAULT_DEPTH = 8;
+
+	private final GameClock clock; // null for fixed-depth searches
+	private final int depth;
+	private final Difficulty difficulty; // null for full strength
+	private Random searchSeeds = new Random(); // draws the seed of each search's evaluation noise
+	private SearchTrace trace; // records every search, if not null
+
+	public SearchEngine(GameClock clock) {
+		this(clock, DEFAULT_DEPTH);
+	}
+
+	public SearchEngine(GameClock clock, int depth) {
+		this(clock, depth, null);
+	}
+
+	public SearchEngine(GameClock clock, Difficulty difficulty) {
+		this(clock, DEFAULT_DEPTH, difficulty);
+	}
+
+	private SearchEngine(GameClock clock, int depth, Difficulty difficulty) {
+		this.clock = clock;
+		this.depth = depth;
+		this.difficulty = difficulty;
+	}
+
+	public Difficulty getDifficulty() {
+		return difficulty;
+	}
+
+	// Seeds the source of the seeds of the engine's searches, so that the same game played again
+	// from the same seed gets the same turns (at a level with a node budget).
+	public void setSearchSeed(long seed) {
+		this.searchSeeds = new Random(seed);
+	}
+
+	// Makes the engine draw the seeds of its searches from the given source (shared by a CheckersBoard).
+	void setSearchSeeds(Random searchSeeds) {
+		this.searchSeeds = searchSeeds;
+	}
+
+	// Sets the trace to record every search in (or null for none).
+	public void setSearchTrace(SearchTrace trace) {
+		this.trace = trace;
+	}
+
+	@Override
+	public ArrayList<CheckersMove> chooseMove(CheckersPosition position, PositionHistory history) {
+		EngineStartup.stop(); // (the engine's warm-up, if it is still running, would slow this search down)
+		SearchLimits limits;
+		boolean timed = false;
+		if (null != difficulty && difficulty.nodes > 0) {
+			limits = new SearchLimits();
+			limits.nodes = difficulty.nodes;
+		} else if (null != clock) {
+			limits = SearchLimits.clock(clock.getRemainingMillis(position.turn), clock.getIncrementMillis());
+			timed = true;
+		} else {
+			limits = SearchLimits.depth(depth);
+		}
+		int noise = (null == difficulty) ? 0 : difficulty.evaluationNoise;
+		long seed = searchSeeds.nextLong();
+		AiTurnEvent event = new AiTurnEvent();
+		event.begin();
+		long start = System.nanoTime();
+		SearchInfo result = search(position, history, limits, noise, seed);
+		if (event.shouldCommit()) {
+			event.player = position.turn.toString();
+			event.difficulty = (null == difficulty) ? null : difficulty.toString();
+			event.depth = result.depth;
+			event.nodes = result.nodes;
+			event.turn = (null == result.getBestMove()) ? null : CheckersMove.toNotation(result.getBestMove());
+			event.commit();
+		}
+		if (null != trace) {
+			SearchTrace.Search search = new SearchTrace.Search();
+			search.engine = true;
+			search.position = position;
+			search.seed = seed;
+			search.history = (null == history) ? null : new PositionHistory(history);
+			search.nodeBudget = limits.nodes;
+			search.noise = noise;
+			search.timed = timed;
+			search.depth = timed ? result.depth : limits.depth;
+			search.nodes = result.nodes;
+			search.nanos = System.nanoTime() - start;
+			search.turn = (null == result.getBestMove()) ? new ArrayList<CheckersMove>() : result.getBestMove();
+			trace.record(search);
+		}
+		return result.getBestMove();
+	}
+
+	// Makes one search, as chooseMove does: with the given limits, evaluation noise (in hundredths of
+	// a man, or 0 for none) seeded with the given seed, and the game's history if it is known.
+	static SearchInfo search(CheckersPosition position, PositionHistory history, SearchLimits limits, int noise, long seed) {
+		CheckersSearch search = new CheckersSearch(position);
+		if (null != history) {
+			search.setPositionHistory(history);
+		}
+		if (noise > 0) {
+			search.setEvaluationNoise(noise, seed);
+		}
+		return search.search(limits, null);
+	}
+}
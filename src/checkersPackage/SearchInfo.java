@@ -0,0 +1,56 @@
+package checkersPackage;
+
+import java.util.*;
+
+// The result of one iteration of a CheckersSearch: how deep it searched, how much work it did,
+// and the principal variation (the line of play that both sides are expected to follow). In
+// multi-PV mode (see CheckersSearch.setMultiPV), each iteration gives one SearchInfo per line:
+// the first for the best turn, the second for the best of the others, and so on.
+public class SearchInfo {
+	public final int depth; // depth reached, in turns
+	public final int score; // score for the player to move, in hundredths of a man
+	public final long nodes; // number of positions visited so far
+	public final long timeMillis; // time spent so far
+	public final List<ArrayList<CheckersMove>> principalVariation; // one entry per turn
+	public final int line; // 1 for the best turn, 2 for the second best, ...
+
+	public SearchInfo(int depth, int score, long nodes, long timeMillis, List<ArrayList<CheckersMove>> principalVariation) {
+		this(depth, score, nodes, timeMillis, principalVariation, 1);
+	}
+
+	public SearchInfo(int depth, int score, long nodes, long timeMillis, List<ArrayList<CheckersMove>> principalVariation, int line) {
+		this.line = line;
+		this.depth = depth;
+		this.score = score;
+		this.nodes = nodes;
+		this.timeMillis = timeMillis;
+		this.principalVariation = principalVariation;
+	}
+
+	// Returns the number of nodes searched per second.
+	public long getNodesPerSecond() {
+		return nodes * 1000 / Math.max(1, timeMillis);
+	}
+
+	// Returns the best turn for the player to move, or null if there is none.
+	public ArrayList<CheckersMove> getBestMove() {
+		return principalVariation.isEmpty() ? null : principalVariation.get(0);
+	}
+
+	// Returns the opponent's expected reply to the best turn, or null if there is none.
+	public ArrayList<CheckersMove> getPonderMove() {
+		return principalVariation.size() < 2 ? null : principalVariation.get(1);
+	}
+
+	// Returns the principal variation in notation, one turn per word.
+	public String getPrincipalVariationNotation() {
+		StringBuilder builder = new StringBuilder();
+		for (ArrayList<CheckersMove> turn : principalVariation) {
+			if (builder.length() > 0) {
+				builder.append(' ');
+			}
+			builder.append(CheckersMove.toNotation(turn));
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,28 @@
+package checkersPackage;
+
+// The conditions under which a CheckersSearch stops. A limit of zero means "no limit"; with no
+// limits at all, the search stops only when it reaches MAX_DEPTH or is told to stop.
+public class SearchLimits {
+	public int depth; // maximum depth, in turns
+	public long moveTimeMillis; // maximum time to search
+	public long nodes; // maximum number of positions to visit
+	public boolean infinite; // search until told to stop, even after reaching the maximum depth
+	public boolean ponder; // search on the opponent's time: limits apply only after a ponder hit
+	public long remainingMillis; // time left on the player's clock: the search budgets its own time
+	public long incrementMillis; // time added to the player's clock after each turn
+
+	// Returns limits that stop the search at the given depth.
+	public static SearchLimits depth(int depth) {
+		SearchLimits limits = new SearchLimits();
+		limits.depth = depth;
+		return limits;
+	}
+
+	// Returns limits for a player with the given time left on their clock.
+	public static SearchLimits clock(long remainingMillis, long incrementMillis) {
+		SearchLimits limits = new SearchLimits();
+		limits.remainingMillis = remainingMillis;
+		limits.incrementMillis = incrementMillis;
+		return limits;
+	}
+}
@@ -0,0 +1,7 @@
+package checkersPackage;
+
+// Receives the results of a CheckersSearch while it is running.
+public interface SearchListener {
+	// Called (on the searching thread) each time an iteration of the search completes.
+	void iterationCompleted(SearchInfo info);
+}
@@ -0,0 +1,62 @@
+package checkersPackage;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// A bounded pool of platform threads that runs AI searches for many games at once. Searches are
+// CPU-bound, so the pool has (by default) one thread per core no matter how many games are being
+// played, and only a bounded number of searches may wait in its queue. Callers that find the pool
+// saturated wait up to the admission timeout for a slot, and are then turned away, so that an
+// overloaded server answers "busy" quickly instead of building up an unbounded backlog.
+public class SearchPool {
+	private final ThreadPoolExecutor executor;
+	private final Semaphore admissions; // one permit per running or queued search
+	private final long admissionTimeoutMillis;
+	private final AtomicInteger rejected; // number of searches turned away so far
+
+	// Constructs a pool with the given number of search threads, room for "queueCapacity" waiting
+	// searches, and the given time to wait for room before a search is rejected.
+	public SearchPool(int threads, int queueCapacity, long admissionTimeoutMillis) {
+		final AtomicInteger threadNumber = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(queueCapacity), new ThreadFactory() {
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "search-" + threadNumber.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		this.admissions = new Semaphore(threads + queueCapacity);
+		this.admissionTimeoutMillis = admissionTimeoutMillis;
+		this.rejected = new AtomicInteger();
+	}
+
+	// Runs the given search on a pool thread, and blocks until it completes. (Blocking is cheap for
+	// the virtual threads that serve game sessions.) Throws RejectedExecutionException if the pool
+	// stays saturated for longer than the admission timeout.
+	public <T> T run(Callable<T> search) throws InterruptedException, ExecutionException {
+		if (!admissions.tryAcquire(admissionTimeoutMillis, TimeUnit.MILLISECONDS)) {
+			rejected.incrementAndGet();
+			throw new RejectedExecutionException("Search pool is saturated");
+		}
+		try {
+			return executor.submit(search).get();
+		} finally {
+			admissions.release();
+		}
+	}
+
+	// Returns the number of searches waiting for a thread.
+	public int getQueuedCount() {
+		return executor.getQueue().size();
+	}
+
+	// Returns the number of searches that have been turned away because the pool was saturated.
+	public int getRejectedCount() {
+		return rejected.get();
+	}
+
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+}
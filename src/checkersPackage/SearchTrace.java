@@ -0,0 +1,392 @@
+package checkersPackage;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+// A compact binary record of the searches made by CheckersBoard's built-in AI (findBestMove) and
+// by SearchEngines, so that they can be made again exactly: each built-in search orders its moves
+// with a random source seeded from its own seed (see CheckersBoard.makeAIMove), and each engine
+// search seeds its evaluation noise the same way (see SearchEngine), so the same position, seed and
+// game history always give the same search. For each search the trace holds the position, the seed
+// and the depth, the game's positions since the last progress (see PositionHistory), the root moves
+// with their scores (for built-in searches), the nodes visited, the time taken and the turn played;
+// and for engine searches, the node budget and the evaluation noise. (An engine search on the
+// clock is replayed to the depth it reached, so its nodes are not compared.)
+//
+// The replay mode makes every search of a trace again, checks that each gives the same root
+// scores, nodes and turn, and compares the times, so that a change to the search can be checked
+// and timed against the same searches on two builds. (The times of a recorded trace include the
+// JIT warming up during the games; to compare two builds, replay the trace on the first with an
+// output trace, which holds the replayed times, and replay that one on the second.)
+//
+// File: magic (int), version (byte), then one record per search: 1 for a built-in search or 2 for
+// an engine search (byte), the position (black, red and kings squares as ints, and whether Red is
+// to move), seed (long), depth (byte), nodes and nanoseconds (variable-length longs), for an engine
+// search its node budget (variable-length long), evaluation noise (short) and whether it was on the
+// clock (boolean), the number of root moves (byte) and each as its start and destination squares
+// (bytes, see CheckersPosition.squareIndex) and its score (double), the turn as the number of its
+// moves (byte), its start square and the destination of each move, and whether the game's history
+// is known (boolean), followed by it if so (see PositionHistory.write). Traces of an earlier
+// version are rejected: version 1 had no engine searches or histories, and both versions 1 and 2
+// were recorded while the pieces listed their moves in a different order (see CheckersPiece), so
+// their searches explored moves in an order that no longer exists and would all appear to differ.
+//
+// Arguments: record <trace> [games (default 20)] [seed (default 1)] [difficulty (default: the
+// built-in AI)], to play games of the AI (or of a SearchEngine at that Difficulty) against itself
+// and record its searches;
+// or: replay <trace> [passes (default 3)] [output trace], to replay them (keeping the fastest time
+// of each search over the passes).
+public class SearchTrace implements Closeable {
+	private static final int MAGIC = 0x43535452; // "CSTR"
+	private static final int VERSION = 3; // (since the moves have been listed by direction)
+	private static final int BUILT_IN = 1; // record tags
+	private static final int ENGINE = 2;
+	private static final int MAX_TURNS = 150; // recorded games reaching this many turns are stopped
+	private static final int MISMATCHES_SHOWN = 5;
+
+	// One search: the position and seed it started from, and what it found
+	public static class Search {
+		public boolean engine; // a SearchEngine's search, rather than the built-in AI's
+		public CheckersPosition position;
+		public long seed;
+		public PositionHistory history; // the game's positions up to the search's, or null if not known
+		public long nodeBudget; // for engine searches: the node budget, or 0 for none
+		public int noise; // for engine searches: the evaluation noise
+		public boolean timed; // for engine searches: whether the search budgeted its time from the clock
+		public int depth; // for engine searches: the depth limit, or on the clock the depth reached
+		public long nodes;
+		public long nanos;
+		public final List<RootMove> rootMoves = new ArrayList<RootMove>();
+		public ArrayList<CheckersMove> turn; // the moves played (empty if the player had none)
+
+		// Adds a move examined at the root of the search, with its score.
+		public void addRootMove(CheckersMove move, double score) {
+			rootMoves.add(new RootMove(CheckersPosition.squareIndex(move.start.x, move.start.y),
+					CheckersPosition.squareIndex(move.destination.x, move.destination.y), score));
+		}
+
+		// Returns what differs between this search and another of the same position and seed
+		// ("turn", "root moves", "nodes"), or null if they found the same.
+		public String compare(Search other) {
+			List<String> differences = new ArrayList<String>();
+			if (!toNotation(turn).equals(toNotation(other.turn))) {
+				differences.add("turn " + toNotation(turn) + " / " + toNotation(other.turn));
+			}
+			if (!rootMoves.equals(other.rootMoves)) {
+				differences.add("root moves");
+			}
+			if (nodes != other.nodes && !timed) {
+				differences.add("nodes " + nodes + " / " + other.nodes);
+			}
+			return differences.isEmpty() ? null : String.join(", ", differences);
+		}
+	}
+
+	// A move examined at the root of a search, and its score
+	public static class RootMove {
+		public final int start; // square index
+		public final int destination;
+		public final double score;
+
+		public RootMove(int start, int destination, double score) {
+			this.start = start;
+			this.destination = destination;
+			this.score = score;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof RootMove)) {
+				return false;
+			}
+			RootMove move = (RootMove) other;
+			return start == move.start && destination == move.destination && 0 == Double.compare(score, move.score);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (32 * start + destination) + Double.hashCode(score);
+		}
+	}
+
+	private final DataOutputStream out;
+	private int searches;
+
+	private SearchTrace(DataOutputStream out) {
+		this.out = out;
+	}
+
+	// Creates a trace file (replacing any file of that name) to record searches in.
+	public static SearchTrace create(Path path) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)));
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+		return new SearchTrace(out);
+	}
+
+	// Appends a search to the trace. (An error writing it is thrown as an UncheckedIOException, since
+	// the search that it records has already been made.)
+	public synchronized void record(Search search) {
+		try {
+			out.writeByte(search.engine ? ENGINE : BUILT_IN);
+			out.writeInt(search.position.black);
+			out.writeInt(search.position.red);
+			out.writeInt(search.position.kings);
+			out.writeBoolean(Player.RED == search.position.turn);
+			out.writeLong(search.seed);
+			out.writeByte(search.depth);
+			writeVarLong(out, search.nodes);
+			writeVarLong(out, search.nanos);
+			if (search.engine) {
+				writeVarLong(out, search.nodeBudget);
+				out.writeShort(search.noise);
+				out.writeBoolean(search.timed);
+			}
+			out.writeByte(search.rootMoves.size());
+			for (RootMove move : search.rootMoves) {
+				out.writeByte(move.start);
+				out.writeByte(move.destination);
+				out.writeDouble(move.score);
+			}
+			out.writeByte(search.turn.size());
+			if (!search.turn.isEmpty()) {
+				out.writeByte(CheckersPosition.squareIndex(search.turn.get(0).start.x, search.turn.get(0).start.y));
+				for (CheckersMove move : search.turn) {
+					out.writeByte(CheckersPosition.squareIndex(move.destination.x, move.destination.y));
+				}
+			}
+			out.writeBoolean(null != search.history);
+			if (null != search.history) {
+				search.history.write(out);
+			}
+			searches++;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// Returns the number of searches recorded.
+	public synchronized int getSearchCount() {
+		return searches;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		out.close();
+	}
+
+	// Reads every search in a trace file.
+	public static List<Search> read(Path path) throws IOException {
+		List<Search> searches = new ArrayList<Search>();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+			int version = (MAGIC == in.readInt()) ? in.readByte() : -1;
+			if (version < 1 || version > VERSION) {
+				throw new IOException("Not a search trace: " + path);
+			} else if (version < VERSION) {
+				throw new IOException("The trace " + path + " is of version " + version
+						+ ", recorded with an older move order; record it again");
+			}
+			for (int tag = in.read(); BUILT_IN == tag || ENGINE == tag; tag = in.read()) {
+				Search search = new Search();
+				search.engine = (ENGINE == tag);
+				search.position = new CheckersPosition(in.readInt(), in.readInt(), in.readInt(),
+						in.readBoolean() ? Player.RED : Player.BLACK);
+				search.seed = in.readLong();
+				search.depth = in.readByte();
+				search.nodes = readVarLong(in);
+				search.nanos = readVarLong(in);
+				if (search.engine) {
+					search.nodeBudget = readVarLong(in);
+					search.noise = in.readShort();
+					search.timed = in.readBoolean();
+				}
+				int rootMoves = in.readUnsignedByte();
+				for (int i = 0; i < rootMoves; i++) {
+					search.rootMoves.add(new RootMove(in.readUnsignedByte(), in.readUnsignedByte(), in.readDouble()));
+				}
+				int moves = in.readUnsignedByte();
+				search.turn = new ArrayList<CheckersMove>();
+				if (moves > 0) {
+					BoardSquare start = square(in.readUnsignedByte());
+					for (int i = 0; i < moves; i++) {
+						BoardSquare destination = square(in.readUnsignedByte());
+						search.turn.add(new CheckersMove(start, destination));
+						start = destination;
+					}
+				}
+				if (in.readBoolean()) {
+					search.history = PositionHistory.read(in);
+				}
+				searches.add(search);
+			}
+		}
+		return searches;
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2 || !(args[0].equals("record") || args[0].equals("replay"))) {
+			System.err.println("Usage: SearchTrace record <trace> [games] [seed] [difficulty]");
+			System.err.println("       SearchTrace replay <trace> [passes] [output trace]");
+			System.exit(1);
+		}
+		Path path = Paths.get(args[1]);
+		if (args[0].equals("record")) {
+			record(path, (args.length > 2) ? Integer.parseInt(args[2]) : 20, (args.length > 3) ? Long.parseLong(args[3]) : 1,
+					(args.length > 4) ? Difficulty.valueOf(args[4].toUpperCase()) : null);
+		} else {
+			replay(path, (args.length > 2) ? Integer.parseInt(args[2]) : 3, (args.length > 3) ? Paths.get(args[3]) : null);
+		}
+	}
+
+	// Plays the given number of games of the AI (or of a SearchEngine at the given difficulty, if not
+	// null) against itself (game i seeded with seed + i), and records its searches in a trace.
+	private static void record(Path path, int games, long seed, Difficulty difficulty) throws IOException {
+		long nanos = 0;
+		long nodes = 0;
+		int searchCount;
+		try (SearchTrace trace = create(path)) {
+			for (int game = 0; game < games; game++) {
+				CheckersBoard board = new CheckersBoard();
+				if (null != difficulty) {
+					board.setEngine(new SearchEngine(null, difficulty));
+				}
+				board.setSearchSeed(seed + game);
+				board.setSearchTrace(trace);
+				PositionHistory history = new PositionHistory(CheckersPosition.INITIAL);
+				Player turn = Player.BLACK;
+				for (int turns = 0; turns < MAX_TURNS && !board.makeAIMove(turn, history).isEmpty(); turns++) {
+					turn = board.switchTurn(turn);
+					history.push(CheckersPosition.of(board, turn));
+					if (null != history.getDrawReason(PositionHistory.DEFAULT_NO_PROGRESS_LIMIT)) {
+						break;
+					}
+				}
+			}
+			searchCount = trace.getSearchCount();
+		}
+		for (Search search : read(path)) {
+			nanos += search.nanos;
+			nodes += search.nodes;
+		}
+		System.out.printf("Recorded %d searches from %d games in %s: %d bytes (%.1f per search), %d nodes, %.1f ms%n",
+				searchCount, games, path, Files.size(path), (double) Files.size(path) / searchCount, nodes, nanos / 1e6);
+	}
+
+	// Makes every search of a trace again, the given number of times, and reports those that found
+	// something different, and the time of the searches (the fastest of each) against the trace's.
+	private static void replay(Path path, int passes, Path output) throws IOException {
+		List<Search> recorded = read(path);
+		List<Search> replayed = new ArrayList<Search>();
+		CheckersBoard board = new CheckersBoard();
+		int differing = 0;
+		for (int pass = 0; pass < passes; pass++) {
+			for (int i = 0; i < recorded.size(); i++) {
+				Search expected = recorded.get(i);
+				Search search = replay(expected, board);
+				if (0 == pass) {
+					replayed.add(search);
+					String difference = expected.compare(search);
+					if (null != difference) {
+						if (differing < MISMATCHES_SHOWN) {
+							System.out.println("Search " + (i + 1) + " (" + expected.position + ", seed " + expected.seed
+									+ ") differs: " + difference);
+						}
+						differing++;
+					}
+				} else if (search.nanos < replayed.get(i).nanos) {
+					replayed.get(i).nanos = search.nanos;
+				}
+			}
+		}
+
+		long recordedNanos = 0;
+		long replayedNanos = 0;
+		long nodes = 0;
+		int slowest = -1;
+		for (int i = 0; i < recorded.size(); i++) {
+			recordedNanos += recorded.get(i).nanos;
+			replayedNanos += replayed.get(i).nanos;
+			nodes += replayed.get(i).nodes;
+			if (slowest < 0 || ratio(replayed.get(i), recorded.get(i)) > ratio(replayed.get(slowest), recorded.get(slowest))) {
+				slowest = i;
+			}
+		}
+		System.out.printf("Replayed %d searches (%d passes): %d differ from the trace%n", recorded.size(), passes, differing);
+		System.out.printf("Time: %.1f ms recorded, %.1f ms replayed (%.2fx); %d nodes, %.0f nodes/s replayed%n",
+				recordedNanos / 1e6, replayedNanos / 1e6, (double) replayedNanos / recordedNanos, nodes, nodes / (replayedNanos / 1e9));
+		if (slowest >= 0) {
+			System.out.printf("Slowest relative to the trace: search %d (%s), %.3f ms recorded, %.3f ms replayed%n", slowest + 1,
+					recorded.get(slowest).position, recorded.get(slowest).nanos / 1e6, replayed.get(slowest).nanos / 1e6);
+		}
+		if (null != output) {
+			try (SearchTrace trace = create(output)) {
+				for (Search search : replayed) {
+					trace.record(search);
+				}
+			}
+			System.out.println("Replayed searches written to " + output);
+		}
+	}
+
+	// Makes a recorded search again (a built-in one on the given board), and returns what it found.
+	private static Search replay(Search expected, CheckersBoard board) {
+		Search search = new Search();
+		if (!expected.engine) {
+			board.loadPosition(expected.position);
+			board.makeAIMove(expected.position.turn, expected.seed, expected.history, search);
+			return search;
+		}
+		SearchLimits limits = new SearchLimits();
+		if (expected.nodeBudget > 0) {
+			limits.nodes = expected.nodeBudget;
+		} else {
+			limits.depth = Math.max(1, expected.depth);
+		}
+		long start = System.nanoTime();
+		SearchInfo result = SearchEngine.search(expected.position, expected.history, limits, expected.noise, expected.seed);
+		search.nanos = System.nanoTime() - start;
+		search.engine = true;
+		search.position = expected.position;
+		search.seed = expected.seed;
+		search.history = expected.history;
+		search.nodeBudget = expected.nodeBudget;
+		search.noise = expected.noise;
+		search.timed = expected.timed;
+		search.depth = expected.depth;
+		search.nodes = result.nodes;
+		search.turn = (null == result.getBestMove()) ? new ArrayList<CheckersMove>() : result.getBestMove();
+		return search;
+	}
+
+	private static double ratio(Search replayed, Search recorded) {
+		return (double) replayed.nanos / Math.max(1, recorded.nanos);
+	}
+
+	private static String toNotation(List<CheckersMove> turn) {
+		return turn.isEmpty() ? "(none)" : CheckersMove.toNotation(turn);
+	}
+
+	private static BoardSquare square(int index) {
+		return new BoardSquare(CheckersPosition.squareX(index), CheckersPosition.squareY(index));
+	}
+
+	private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+		while (0 != (value & ~0x7FL)) {
+			out.writeByte((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	private static long readVarLong(DataInputStream in) throws IOException {
+		long value = 0;
+		for (int shift = 0; ; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if (0 == (b & 0x80)) {
+				return value;
+			}
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package checkersPackage;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+// A headless worker process for DistributedSearch. It connects to the coordinator and searches the
+// work units it is sent, one at a time, keeping one transposition table for all of them (so that
+// each iteration of the coordinator's search reuses the worker's results from the previous one).
+//
+// Messages (one per line):
+//   coordinator -> worker:  SEARCH <id> <depth> <alpha> <beta> <position>
+//                           CANCEL <id>
+//   worker -> coordinator:  RESULT <id> <score> <nodes>
+// Results are written back in batches: a result is held until the worker has no more units queued
+// or a batch is full, and then the whole batch is sent with one write.
+//
+// CANCEL tells the worker that a unit's result is no longer needed: the unit is dropped if it is
+// still queued, or its search is stopped if it is running. A stopped unit is still answered, with
+// the nodes it searched; the coordinator ignores its score. (A cancel that arrives just as its
+// unit starts may be missed; the unit is then searched to the end, as if it had not been sent.)
+//
+// Arguments: coordinator host, port, and (optional) hash size in megabytes (default 64).
+public class SearchWorker {
+	public static final int RESULT_BATCH_SIZE = 8;
+
+	private final Socket socket;
+	private final BlockingQueue<String> units = new LinkedBlockingQueue<String>(); // SEARCH lines not yet started
+	private final TranspositionTable transpositionTable;
+	private volatile String running; // the id of the unit being searched, if any
+	private volatile CheckersSearch current; // its search
+
+	public SearchWorker(String host, int port, long hashMegabytes) throws IOException {
+		this.socket = new Socket(host, port);
+		this.socket.setTcpNoDelay(true);
+		this.transpositionTable = (hashMegabytes > 0) ? new TranspositionTable(hashMegabytes << 20) : null;
+	}
+
+	// Searches units until the coordinator closes the connection.
+	public void run() throws IOException, InterruptedException {
+		final BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+		Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII));
+
+		// Units are read on their own thread, so that the ones sent while a search runs are queued
+		Thread reader = Thread.ofPlatform().name("worker-reader").daemon(true).start(new Runnable() {
+			public void run() {
+				try {
+					String line;
+					while (null != (line = in.readLine())) {
+						if (line.startsWith("CANCEL ")) {
+							cancel(line.substring("CANCEL ".length()));
+						} else {
+							units.add(line);
+						}
+					}
+				} catch (IOException e) {
+					// The coordinator went away
+				}
+				units.add("QUIT");
+			}
+		});
+
+		StringBuilder batch = new StringBuilder();
+		int batchSize = 0;
+		while (true) {
+			String line = units.take();
+			if (line.equals("QUIT")) {
+				break;
+			}
+			String[] words = line.split(" ", 6);
+			if (6 != words.length || !words[0].equals("SEARCH")) {
+				continue;
+			}
+			CheckersSearch search = new CheckersSearch(CheckersPosition.parse(words[5]));
+			search.setTranspositionTable(transpositionTable);
+			current = search;
+			running = words[1];
+			int score = search.searchWindow(Integer.parseInt(words[2]), Integer.parseInt(words[3]), Integer.parseInt(words[4]));
+			running = null;
+			current = null;
+			batch.append("RESULT ").append(words[1]).append(' ').append(score).append(' ').append(search.getNodes()).append('\n');
+			batchSize++;
+			if (units.isEmpty() || batchSize >= RESULT_BATCH_SIZE) {
+				out.write(batch.toString());
+				out.flush();
+				batch.setLength(0);
+				batchSize = 0;
+			}
+		}
+		socket.close();
+		reader.join();
+	}
+
+	// Drops the unit with the given id if it is still queued, or else stops its search if it is the
+	// one running. (Called by the reader thread.)
+	private void cancel(String id) {
+		for (Iterator<String> iterator = units.iterator(); iterator.hasNext();) {
+			if (iterator.next().startsWith("SEARCH " + id + " ")) {
+				iterator.remove();
+				return;
+			}
+		}
+		CheckersSearch search = current;
+		if (id.equals(running) && null != search) {
+			search.stop();
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		String host = args[0];
+		int port = Integer.parseInt(args[1]);
+		long hashMegabytes = (args.length > 2) ? Long.parseLong(args[2]) : 64;
+		new SearchWorker(host, port, hashMegabytes).run();
+	}
+}
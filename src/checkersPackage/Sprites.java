@@ -0,0 +1,142 @@
+package checkersPackage;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.*;
+
+// A cache of pre-rendered images ("sprites") of the pieces, so that drawing a piece is a single
+// image copy instead of filling and outlining anti-aliased ellipses; this is what keeps the
+// frames of a MoveAnimation, and of a piece being dragged, cheap. A sprite covers only the piece
+// (not its whole square), since every pixel copied is blended with what is under it. (The
+// squares of the board are plain rectangle fills, which are faster than copying an image.)
+//
+// Sprites are rendered in device pixels: for a square of a given length in user space, the
+// sprite is that length times the scale of the Graphics2D it is drawn on (2 on a typical HiDPI
+// screen), and draw copies it pixel for pixel onto the device, so that it stays sharp (and the
+// copy is a plain blit, not a scaling one). Each size of square (as the window is resized) and
+// each scale gets its own sprites, rendered the first time they are needed. The cache keeps the
+// most recently used sprites up to MAX_BYTES, dropping the least recently used ones beyond that.
+public class Sprites {
+	public static final long MAX_BYTES = 64L << 20;
+
+	private static final LinkedHashMap<String, BufferedImage> SPRITES = new LinkedHashMap<String, BufferedImage>(64, 0.75f, true);
+	private static long bytes; // the size of the cached sprites
+	private static long hits;
+	private static long misses;
+
+	// Draws a piece with the given color in the square of the given length (in user space) whose
+	// top left corner is at the given point.
+	public static void drawPiece(Graphics2D g2, Color color, boolean isKing, int x, int y, int squareLength) {
+		int squarePixels = devicePixels(g2, squareLength);
+		draw(g2, getPiece(color, isKing, squarePixels), x, y, pieceOffset(squarePixels));
+	}
+
+	// Gets the sprite of a piece with the given color, for squares of the given length in pixels.
+	// The sprite's top left corner is pieceOffset pixels right of and below the square's.
+	public static synchronized BufferedImage getPiece(Color color, boolean isKing, int squarePixels) {
+		String key = "piece " + color.getRGB() + (isKing ? " K " : " M ") + squarePixels;
+		BufferedImage sprite = lookup(key);
+		if (null == sprite) {
+			sprite = renderPiece(color, isKing, squarePixels);
+			store(key, sprite);
+		}
+		return sprite;
+	}
+
+	// Returns how many pixels right of and below the top left corner of its square a piece's
+	// sprite starts.
+	public static int pieceOffset(int squarePixels) {
+		return Math.max(0, (int) Math.floor(squarePixels * 0.2) - 1);
+	}
+
+	// Draws a sprite offset by the given number of device pixels from the given point (in user
+	// space), copying it pixel for pixel onto the device. If the graphics is rotated or sheared,
+	// the sprite is instead transformed like anything else drawn on it.
+	public static void draw(Graphics2D g2, BufferedImage sprite, int x, int y, int offset) {
+		AffineTransform transform = g2.getTransform();
+		if (0 != (transform.getType() & ~(AffineTransform.TYPE_TRANSLATION | AffineTransform.TYPE_MASK_SCALE))) {
+			double scale = getScale(g2);
+			g2.drawImage(sprite, (int) Math.round(x + offset / scale), (int) Math.round(y + offset / scale),
+					(int) Math.round(sprite.getWidth() / scale), (int) Math.round(sprite.getHeight() / scale), null);
+			return;
+		}
+		Point2D device = transform.transform(new Point2D.Double(x, y), null);
+		g2.setTransform(new AffineTransform());
+		g2.drawImage(sprite, (int) Math.round(device.getX()) + offset, (int) Math.round(device.getY()) + offset, null);
+		g2.setTransform(transform);
+	}
+
+	// Returns the number of device pixels the given user-space length covers on the given graphics.
+	public static int devicePixels(Graphics2D g2, int length) {
+		return Math.max(1, (int) Math.round(length * getScale(g2)));
+	}
+
+	// Returns the scale from user space to device space of the given graphics (1 unless the
+	// screen is HiDPI or the graphics has been scaled).
+	public static double getScale(Graphics2D g2) {
+		AffineTransform transform = g2.getTransform();
+		return Math.max(Math.abs(transform.getScaleX()), Math.abs(transform.getShearX()));
+	}
+
+	// Returns a summary of the cache's use.
+	public static synchronized String getStatistics() {
+		return String.format("%d sprites (%.1f MB), %d hits, %d misses", SPRITES.size(), bytes / 1e6, hits, misses);
+	}
+
+	// Empties the cache.
+	public static synchronized void clear() {
+		SPRITES.clear();
+		bytes = 0;
+		hits = 0;
+		misses = 0;
+	}
+
+	private static BufferedImage lookup(String key) {
+		BufferedImage sprite = SPRITES.get(key);
+		if (null == sprite) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return sprite;
+	}
+
+	// Adds a sprite, and drops the least recently used ones while the cache is too big (but never
+	// the new one).
+	private static void store(String key, BufferedImage sprite) {
+		SPRITES.put(key, sprite);
+		bytes += size(sprite);
+		Iterator<BufferedImage> eldest = SPRITES.values().iterator();
+		while (bytes > MAX_BYTES && SPRITES.size() > 1) {
+			bytes -= size(eldest.next());
+			eldest.remove();
+		}
+	}
+
+	private static long size(BufferedImage sprite) {
+		return 4L * sprite.getWidth() * sprite.getHeight();
+	}
+
+	// Draws a piece the way CheckersPiece always has: a disc six tenths of a square across, and for
+	// a king a white inner circle.
+	private static BufferedImage renderPiece(Color color, boolean isKing, int squarePixels) {
+		int offset = pieceOffset(squarePixels);
+		int size = Math.min(squarePixels, (int) Math.ceil(squarePixels * 0.8) + 1) - offset;
+		BufferedImage sprite = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB_PRE);
+		Graphics2D g2 = sprite.createGraphics();
+		g2.translate(-offset, -offset);
+		g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		g2.setPaint(color);
+		g2.fill(new Ellipse2D.Double(squarePixels * 0.2, squarePixels * 0.2, squarePixels * 0.6, squarePixels * 0.6));
+		if (isKing) {
+			g2.setPaint(Color.WHITE);
+			g2.setStroke(new BasicStroke(Math.max(1f, squarePixels / 70f)));
+			g2.draw(new Ellipse2D.Double(squarePixels * 0.3, squarePixels * 0.3, squarePixels * 0.4, squarePixels * 0.4));
+		}
+		g2.dispose();
+		return sprite;
+	}
+}
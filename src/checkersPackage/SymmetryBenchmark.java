@@ -0,0 +1,144 @@
+package checkersPackage;
+
+import java.util.*;
+
+// Checks and measures keying caches on canonical positions (see CheckersPosition.mirror):
+//  - the mirror image of every position from random games must have exactly the mirrored legal
+//    turns and the same evaluation, and the time to canonicalize a position is reported;
+//  - how many distinct entries the positions of those games need, keyed raw or canonically;
+//  - the transposition table's hit rate and the nodes searched, raw or canonical, for the sample
+//    positions (see CheckersPosition.SAMPLES) followed by their mirror images, and for a game the engine plays against itself
+//    with one table shared by both sides.
+//
+// Arguments (optional): number of random games (default 20000), search depth (default 9).
+public class SymmetryBenchmark {
+
+	public static void main(String[] args) {
+		int games = (args.length > 0) ? Integer.parseInt(args[0]) : 20000;
+		int depth = (args.length > 1) ? Integer.parseInt(args[1]) : 9;
+
+		// Correctness, and the distinct positions of random games
+		Random random = new Random(1);
+		CheckersEvaluator evaluator = new CheckersEvaluator();
+		CheckersBitboard board = new CheckersBitboard(CheckersPosition.INITIAL);
+		CheckersBitboard mirrorBoard = new CheckersBitboard(CheckersPosition.INITIAL);
+		long[] moves = new long[CheckersBitboard.MAX_MOVES];
+		long[] mirrorMoves = new long[CheckersBitboard.MAX_MOVES];
+		List<CheckersPosition> positions = new ArrayList<CheckersPosition>();
+		for (int game = 0; game < games; game++) {
+			board.set(CheckersPosition.INITIAL);
+			for (int turn = 0; turn < 150; turn++) {
+				CheckersPosition position = board.toPosition();
+				positions.add(position);
+				int count = board.generateMoves(moves);
+				mirrorBoard.set(position.mirror());
+				int mirrorCount = mirrorBoard.generateMoves(mirrorMoves);
+				if (!mirroredNotations(moves, count).equals(notations(mirrorMoves, mirrorCount))
+						|| evaluator.evaluate(position.black, position.red, position.kings, position.turn)
+						!= evaluator.evaluate(mirrorBoard.black, mirrorBoard.red, mirrorBoard.kings, mirrorBoard.turn)) {
+					throw new IllegalStateException("Mirror image does not play like the original: " + position);
+				}
+				if (0 == count) {
+					break;
+				}
+				board.play(moves[random.nextInt(count)]);
+			}
+		}
+		Set<CheckersPosition> raw = new HashSet<CheckersPosition>(positions);
+		Set<CheckersPosition> canonical = new HashSet<CheckersPosition>();
+		for (CheckersPosition position : raw) {
+			canonical.add(position.canonical());
+		}
+		System.out.println("Mirror images play identically in all " + positions.size() + " positions");
+		System.out.printf("Distinct positions of %d random games: %d raw, %d canonical (%.1f%% fewer entries)%n",
+				games, raw.size(), canonical.size(), 100.0 * (raw.size() - canonical.size()) / raw.size());
+
+		// The cost of canonicalizing a key
+		TranspositionTable canonicalTable = new TranspositionTable(64L << 20);
+		for (int round = 0; round < 5; round++) {
+			long checksum = 0;
+			long start = System.nanoTime();
+			for (CheckersPosition position : positions) {
+				checksum += canonicalTable.positionKey(position.black, position.red, position.kings, position.turn);
+			}
+			long canonicalNanos = System.nanoTime() - start;
+			start = System.nanoTime();
+			for (CheckersPosition position : positions) {
+				checksum += TranspositionTable.key(position.black, position.red, position.kings, position.turn);
+			}
+			long rawNanos = System.nanoTime() - start;
+			if (round == 4) {
+				System.out.printf("Key: %.1f ns raw, %.1f ns canonical  [%d]%n", (double) rawNanos / positions.size(),
+						(double) canonicalNanos / positions.size(), checksum & 1);
+			}
+		}
+
+		// Transposition table hit rates
+		List<CheckersPosition> mirrored = new ArrayList<CheckersPosition>();
+		for (String position : CheckersPosition.SAMPLES) {
+			mirrored.add(CheckersPosition.parse(position));
+		}
+		for (String position : CheckersPosition.SAMPLES) {
+			mirrored.add(CheckersPosition.parse(position).mirror());
+		}
+		System.out.println("                              keys        hit rate       nodes");
+		for (boolean useCanonical : new boolean[] { false, true }) {
+			TranspositionTable table = new TranspositionTable(64L << 20);
+			table.setCanonical(useCanonical);
+			long nodes = 0;
+			for (CheckersPosition position : mirrored) {
+				CheckersSearch search = new CheckersSearch(position);
+				search.setTranspositionTable(table);
+				nodes += search.search(SearchLimits.depth(depth), null).nodes;
+			}
+			report("positions, then mirrors", useCanonical, table, nodes);
+		}
+		// (The game is the one played by the first run, so that both search the same positions.)
+		List<ArrayList<CheckersMove>> game = new ArrayList<ArrayList<CheckersMove>>();
+		for (boolean useCanonical : new boolean[] { false, true }) {
+			TranspositionTable table = new TranspositionTable(64L << 20);
+			table.setCanonical(useCanonical);
+			long nodes = 0;
+			CheckersBoard gameBoard = new CheckersBoard();
+			Player turn = Player.BLACK;
+			for (int move = 0; move < 60; move++) {
+				CheckersSearch search = new CheckersSearch(CheckersPosition.of(gameBoard, turn));
+				search.setTranspositionTable(table);
+				SearchInfo result = search.search(SearchLimits.depth(depth), null);
+				nodes += result.nodes;
+				if (game.size() == move) {
+					if (useCanonical || null == result.getBestMove()) {
+						break; // the end of the game
+					}
+					game.add(result.getBestMove());
+				}
+				gameBoard.playMoveSequence(game.get(move), turn);
+				turn = gameBoard.switchTurn(turn);
+			}
+			report("self-play game", useCanonical, table, nodes);
+		}
+	}
+
+	private static void report(String label, boolean canonical, TranspositionTable table, long nodes) {
+		System.out.printf("%-24s %10s   %12.1f%%   %9d%n", label, canonical ? "canonical" : "raw",
+				100.0 * table.getHits() / Math.max(1, table.getProbes()), nodes);
+	}
+
+	// Returns the notation of each of the turns.
+	private static Set<String> notations(long[] moves, int count) {
+		Set<String> notations = new HashSet<String>();
+		for (int i = 0; i < count; i++) {
+			notations.add(CheckersMove.toNotation(CheckersBitboard.toMoves(moves[i])));
+		}
+		return notations;
+	}
+
+	// Returns the notation of each of the turns, as played in the mirror image of the position.
+	private static Set<String> mirroredNotations(long[] moves, int count) {
+		Set<String> notations = new HashSet<String>();
+		for (int i = 0; i < count; i++) {
+			notations.add(CheckersMove.toNotation(CheckersMove.mirror(CheckersBitboard.toMoves(moves[i]))));
+		}
+		return notations;
+	}
+}
@@ -0,0 +1,245 @@
+package checkersPackage;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Runs the engine on a suite of tactical positions, each with its known best turn (a shot that
+// wins material, or the only turn that saves the game), to check that changes to the search or
+// the evaluation keep or improve its strength. The positions are searched in parallel, one search
+// per thread, each to the same depth (and optionally within a time limit).
+//
+// For each position the report gives whether the final best turn was a solution, and the time and
+// nodes to solution: those of the first iteration from which the best turn was a solution in every
+// later iteration. The report is tab-separated text, one line per position in suite order, with
+// the totals in comment lines at the end, so that reports of two builds can be compared with diff
+// or with the compare mode below. Searched to a depth (without a time limit), every column but the
+// times is the same on every run.
+//
+// Suite files hold one position per line: an id, the position (see CheckersPosition.toString), and
+// its solutions in notation, separated by commas; anything after a ';' is a comment, as are lines
+// starting with '#'.
+//
+// Arguments (optional): suite file (default tactics.suite), search depth (default 14), time limit
+// per position in milliseconds (default 0, none), threads (default: available processors), report
+// file (default: standard output).
+// Or: compare <old report> <new report>, to list the positions whose result changed and compare
+// the nodes to solution of those solved in both.
+public class TacticsSuite {
+	public static final String DEFAULT_SUITE = "tactics.suite";
+	public static final int DEFAULT_DEPTH = 14;
+
+	// A position of the suite
+	public static class Problem {
+		public final String id;
+		public final CheckersPosition position;
+		public final Set<String> solutions; // in notation
+		public final String comment; // or ""
+
+		public Problem(String id, CheckersPosition position, Set<String> solutions, String comment) {
+			this.id = id;
+			this.position = position;
+			this.solutions = solutions;
+			this.comment = comment;
+		}
+	}
+
+	// The result of searching one position
+	public static class Result {
+		public final Problem problem;
+		public final SearchInfo info; // the search's result
+		public final SearchInfo solvedAt; // the iteration from which the best turn was a solution, or null
+
+		public Result(Problem problem, SearchInfo info, SearchInfo solvedAt) {
+			this.problem = problem;
+			this.info = info;
+			this.solvedAt = solvedAt;
+		}
+
+		public boolean isPassed() {
+			return null != solvedAt;
+		}
+	}
+
+	// Reads a suite file.
+	public static List<Problem> read(Path path) throws IOException {
+		List<Problem> problems = new ArrayList<Problem>();
+		int lineNumber = 0;
+		for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+			lineNumber++;
+			String comment = "";
+			int semicolon = line.indexOf(';');
+			if (semicolon >= 0) {
+				comment = line.substring(semicolon + 1).trim();
+				line = line.substring(0, semicolon);
+			}
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			String[] words = line.split("\\s+");
+			if (3 != words.length) {
+				throw new IOException(path + ":" + lineNumber + ": expected an id, a position and its solutions");
+			}
+			Set<String> solutions = new LinkedHashSet<String>();
+			for (String solution : words[2].split(",")) {
+				solutions.add(CheckersMove.toNotation(CheckersMove.parseNotation(solution))); // (checks the notation)
+			}
+			problems.add(new Problem(words[0], CheckersPosition.parse(words[1]), solutions, comment));
+		}
+		return problems;
+	}
+
+	// Searches one position.
+	public static Result solve(Problem problem, SearchLimits limits) {
+		final Problem solving = problem;
+		final SearchInfo[] solvedAt = new SearchInfo[1];
+		CheckersSearch search = new CheckersSearch(problem.position);
+		SearchInfo info = search.search(limits, new SearchListener() {
+			public void iterationCompleted(SearchInfo iteration) {
+				if (null == iteration.getBestMove() || !solving.solutions.contains(CheckersMove.toNotation(iteration.getBestMove()))) {
+					solvedAt[0] = null;
+				} else if (null == solvedAt[0]) {
+					solvedAt[0] = iteration;
+				}
+			}
+		});
+		if (null == info.getBestMove() || !problem.solutions.contains(CheckersMove.toNotation(info.getBestMove()))) {
+			solvedAt[0] = null; // (the search stopped in an iteration that had not finished)
+		}
+		return new Result(problem, info, solvedAt[0]);
+	}
+
+	// Searches every position of the suite, on the given number of threads, and returns the
+	// results in suite order.
+	public static List<Result> run(List<Problem> problems, final SearchLimits limits, int threads)
+			throws InterruptedException, ExecutionException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Result>> futures = new ArrayList<Future<Result>>();
+			for (final Problem problem : problems) {
+				futures.add(executor.submit(new Callable<Result>() {
+					public Result call() {
+						return solve(problem, limits);
+					}
+				}));
+			}
+			List<Result> results = new ArrayList<Result>();
+			for (Future<Result> future : futures) {
+				results.add(future.get());
+			}
+			return results;
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	// Writes the report of a run.
+	public static void writeReport(List<Result> results, String description, PrintWriter out) {
+		out.println("# " + description);
+		out.println("id\tresult\tsolution\tfound\tscore\tdepth\tsolved_ms\tsolved_nodes\tms\tnodes");
+		int passed = 0;
+		long solvedNodes = 0;
+		long solvedMillis = 0;
+		long nodes = 0;
+		long millis = 0;
+		for (Result result : results) {
+			String found = (null == result.info.getBestMove()) ? "-" : CheckersMove.toNotation(result.info.getBestMove());
+			out.println(result.problem.id + "\t" + (result.isPassed() ? "pass" : "FAIL") + "\t"
+					+ String.join(",", result.problem.solutions) + "\t" + found + "\t" + result.info.score + "\t"
+					+ result.info.depth + "\t" + (result.isPassed() ? result.solvedAt.timeMillis : "-") + "\t"
+					+ (result.isPassed() ? result.solvedAt.nodes : "-") + "\t" + result.info.timeMillis + "\t" + result.info.nodes);
+			if (result.isPassed()) {
+				passed++;
+				solvedNodes += result.solvedAt.nodes;
+				solvedMillis += result.solvedAt.timeMillis;
+			}
+			nodes += result.info.nodes;
+			millis += result.info.timeMillis;
+		}
+		out.printf("# passed %d of %d (%.1f%%)%n", passed, results.size(), 100.0 * passed / Math.max(1, results.size()));
+		out.printf("# to solution (passed only): %d ms, %d nodes%n", solvedMillis, solvedNodes);
+		out.printf("# searched: %d ms, %d nodes%n", millis, nodes);
+		out.flush();
+	}
+
+	// Compares two reports: lists the positions that were solved in one but not the other, and
+	// totals the nodes to solution of the positions solved in both.
+	public static void compare(Path oldReport, Path newReport, PrintStream out) throws IOException {
+		Map<String, String[]> oldRows = readReport(oldReport);
+		Map<String, String[]> newRows = readReport(newReport);
+		long oldNodes = 0;
+		long newNodes = 0;
+		int both = 0;
+		int gained = 0;
+		int lost = 0;
+		for (Map.Entry<String, String[]> entry : newRows.entrySet()) {
+			String[] oldRow = oldRows.get(entry.getKey());
+			String[] newRow = entry.getValue();
+			if (null == oldRow) {
+				out.println(entry.getKey() + ": new position, " + newRow[1]);
+				continue;
+			}
+			boolean oldPassed = oldRow[1].equals("pass");
+			boolean newPassed = newRow[1].equals("pass");
+			if (oldPassed && newPassed) {
+				both++;
+				oldNodes += Long.parseLong(oldRow[7]);
+				newNodes += Long.parseLong(newRow[7]);
+			} else if (newPassed) {
+				gained++;
+				out.println(entry.getKey() + ": now solved (" + newRow[3] + ", was " + oldRow[3] + ")");
+			} else if (oldPassed) {
+				lost++;
+				out.println(entry.getKey() + ": NO LONGER SOLVED (" + newRow[3] + ", was " + oldRow[3] + ")");
+			}
+		}
+		out.printf("%d newly solved, %d no longer solved; %d solved by both, with %d nodes to solution before and %d now (%+.1f%%)%n",
+				gained, lost, both, oldNodes, newNodes, 100.0 * (newNodes - oldNodes) / Math.max(1, oldNodes));
+	}
+
+	// Reads the rows of a report, by id.
+	private static Map<String, String[]> readReport(Path path) throws IOException {
+		Map<String, String[]> rows = new LinkedHashMap<String, String[]>();
+		for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+			if (line.startsWith("#") || line.startsWith("id\t") || line.isEmpty()) {
+				continue;
+			}
+			String[] row = line.split("\t");
+			rows.put(row[0], row);
+		}
+		return rows;
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length > 0 && args[0].equals("compare")) {
+			compare(Paths.get(args[1]), Paths.get(args[2]), System.out);
+			return;
+		}
+		Path suite = Paths.get((args.length > 0) ? args[0] : DEFAULT_SUITE);
+		int depth = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_DEPTH;
+		long moveTimeMillis = (args.length > 2) ? Long.parseLong(args[2]) : 0;
+		int threads = (args.length > 3) ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		SearchLimits limits = SearchLimits.depth(depth);
+		limits.moveTimeMillis = moveTimeMillis;
+
+		List<Problem> problems = read(suite);
+		List<Result> results = run(problems, limits, threads);
+		String description = "suite " + suite.getFileName() + ", " + problems.size() + " positions, depth " + depth
+				+ ((moveTimeMillis > 0) ? ", " + moveTimeMillis + " ms per position" : "") + ", " + threads + " thread(s)";
+		if (args.length > 4) {
+			try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(args[4]), StandardCharsets.UTF_8))) {
+				writeReport(results, description, out);
+			}
+			int passed = 0;
+			for (Result result : results) {
+				passed += result.isPassed() ? 1 : 0;
+			}
+			System.out.println("Passed " + passed + " of " + results.size() + "; report written to " + args[4]);
+		} else {
+			writeReport(results, description, new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package checkersPackage;
+
+import java.util.*;
+
+// Plays games between two clocked SearchEngines and reports, for each game, its result and each
+// side's turn latencies (GameClock.getStatistics), how many turns were played instantly because
+// only one turn was legal, and whether a side ran out of time. Games that run out of turns, or are
+// drawn by repetition or lack of progress, are scored as draws.
+//
+// Arguments (optional): number of games (default 2), base time in seconds (default 60), increment
+// in milliseconds (default 500).
+public class TimeManagementBenchmark {
+	private static final int MAX_TURNS = 200;
+
+	public static void main(String[] args) {
+		int games = (args.length > 0) ? Integer.parseInt(args[0]) : 2;
+		long baseMillis = (args.length > 1) ? Long.parseLong(args[1]) * 1000 : 60000;
+		long incrementMillis = (args.length > 2) ? Long.parseLong(args[2]) : 500;
+
+		// A few searches first, so that the first turns are not slowed by the JIT compiler
+		for (String position : CheckersPosition.SAMPLES) {
+			new CheckersSearch(CheckersPosition.parse(position)).search(SearchLimits.depth(7), null);
+		}
+
+		for (int game = 0; game < games; game++) {
+			GameClock clock = new GameClock(baseMillis, incrementMillis);
+			SearchEngine engine = new SearchEngine(clock);
+			CheckersBoard board = new CheckersBoard();
+			PositionHistory history = new PositionHistory(CheckersPosition.INITIAL);
+			Player turn = Player.BLACK;
+			String result = null;
+			int instantTurns = 0;
+			int turns = 0;
+
+			// After the first game, open with a random turn by each side so that the games differ
+			Random random = new Random(game);
+			for (; turns < MAX_TURNS && null == result; turns++) {
+				CheckersPosition position = CheckersPosition.of(board, turn);
+				ArrayList<ArrayList<CheckersMove>> legal = board.returnListOfLegalMoveSequences(turn);
+				if (legal.isEmpty()) {
+					result = (Player.BLACK == turn) ? "Red wins" : "Black wins";
+					break;
+				}
+				ArrayList<CheckersMove> moves;
+				if (game > 0 && turns < 2) {
+					moves = legal.get(random.nextInt(legal.size()));
+				} else {
+					clock.startTurn(turn);
+					moves = engine.chooseMove(position, history);
+					long elapsed = clock.endTurn();
+					if (1 == legal.size() && elapsed < 5) {
+						instantTurns++;
+					}
+					if (clock.isOutOfTime(turn)) {
+						result = turn + " ran out of time";
+					}
+				}
+				board.playMoveSequence(moves, turn);
+				turn = board.switchTurn(turn);
+				history.push(CheckersPosition.of(board, turn));
+				if (null == result && null != history.getDrawReason(PositionHistory.DEFAULT_NO_PROGRESS_LIMIT)) {
+					result = "Draw by " + history.getDrawReason(PositionHistory.DEFAULT_NO_PROGRESS_LIMIT);
+				}
+			}
+			if (null == result) {
+				result = "Draw after " + MAX_TURNS + " turns";
+			}
+			System.out.printf("Game %d: %s after %d turns, %d played instantly (single legal turn)%n",
+					game + 1, result, turns, instantTurns);
+			System.out.println("  " + clock.getStatistics());
+		}
+	}
+}
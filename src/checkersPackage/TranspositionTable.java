@@ -0,0 +1,279 @@
+package checkersPackage;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+// A hash table of search results ("transposition table") kept off the Java heap, so that tables of
+// many gigabytes add nothing for the garbage collector to trace or copy, and probing or storing an
+// entry allocates nothing.
+//
+// The table is a power-of-two number of 64-byte buckets (one cache line), each holding four
+// 16-byte slots, spread over direct ByteBuffers of up to 1 GB each (a single buffer cannot exceed
+// 2 GB). A slot is two longs: the entry's data, and the position's key XORed with that data. The
+// table takes no locks: if two threads write the same slot at once and a reader sees half of each
+// write, the key check fails and the entry is simply treated as missing.
+//
+// Entries are packed into a long (see the accessors below): the score, the depth searched, the
+// bound type, the age (the search that stored it) and the first hop of the best turn found.
+//
+// By default the table is keyed on canonical positions (see CheckersPosition): a position and its
+// mirror image share one entry, whose best turn is stored as played in the canonical position.
+// Searches get the key from positionKey, and mirror the stored squares if isMirrored says so.
+//
+// The table can be saved to a file and loaded back; loading maps the file copy-on-write, so a
+// large warmed table is available at once and its pages are read only as they are used. Direct
+// memory is limited by -XX:MaxDirectMemorySize (by default, the maximum heap size), which must be
+// raised for large tables.
+public class TranspositionTable {
+	public static final int UPPER_BOUND = 1; // the score is at most the stored score
+	public static final int LOWER_BOUND = 2; // the score is at least the stored score
+	public static final int EXACT = 3;
+
+	private static final int SLOT_SIZE = 16;
+	private static final int SLOTS_PER_BUCKET = 4;
+	private static final int BUCKET_SIZE = SLOT_SIZE * SLOTS_PER_BUCKET;
+	private static final int CHUNK_SHIFT = 30; // 1 GB per buffer
+	private static final long MAGIC = 0x434B545431L; // "CKTT1"
+	private static final int HEADER_SIZE = 64;
+
+	private final ByteBuffer[] chunks;
+	private final long bucketMask;
+	private int age;
+	private boolean canonical = true;
+
+	// Statistics (not synchronized, so only approximate if the table is shared between threads)
+	private long probes;
+	private long hits;
+
+	// Creates an empty table of at most the given size in bytes (rounded down to a power of two, and
+	// at least one bucket).
+	public TranspositionTable(long sizeBytes) {
+		long buckets = Long.highestOneBit(Math.max(1, sizeBytes / BUCKET_SIZE));
+		this.bucketMask = buckets - 1;
+		long bytes = buckets * BUCKET_SIZE;
+		int chunkCount = (int) ((bytes + (1L << CHUNK_SHIFT) - 1) >> CHUNK_SHIFT);
+		this.chunks = new ByteBuffer[chunkCount];
+		for (int i = 0; i < chunkCount; i++) {
+			chunks[i] = ByteBuffer.allocateDirect((int) Math.min(1L << CHUNK_SHIFT, bytes - ((long) i << CHUNK_SHIFT)));
+		}
+	}
+
+	private TranspositionTable(ByteBuffer[] chunks, long buckets, int age, boolean canonical) {
+		this.chunks = chunks;
+		this.bucketMask = buckets - 1;
+		this.age = age;
+		this.canonical = canonical;
+	}
+
+	// Returns the key of a position (a 64-bit hash of its pieces and the player to move).
+	public static long key(int black, int red, int kings, Player turn) {
+		long key = mix(((long) black << 32) | (red & 0xFFFFFFFFL));
+		return mix(key ^ (kings & 0xFFFFFFFFL) ^ ((Player.RED == turn) ? 0x5851F42D4C957F2DL : 0));
+	}
+
+	// Returns the key this table stores the given position under: the key of its canonical form, or
+	// of the position itself if the table is not canonical.
+	public long positionKey(int black, int red, int kings, Player turn) {
+		if (isMirrored(turn)) {
+			return key(CheckersPosition.mirrorSquares(red), CheckersPosition.mirrorSquares(black),
+					CheckersPosition.mirrorSquares(kings), Player.BLACK);
+		}
+		return key(black, red, kings, turn);
+	}
+
+	// Returns whether positions with the given player to move are stored as their mirror images (so
+	// that the squares of their best turns must be mirrored when stored and probed).
+	public boolean isMirrored(Player turn) {
+		return canonical && Player.RED == turn;
+	}
+
+	public boolean isCanonical() {
+		return canonical;
+	}
+
+	// Sets whether the table stores positions in canonical form. (Only for an empty table: entries
+	// stored one way are not found the other way.)
+	public void setCanonical(boolean canonical) {
+		this.canonical = canonical;
+	}
+
+	// The SplitMix64 finalizer: scrambles the bits of a long.
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	public long getSizeBytes() {
+		return (bucketMask + 1) * BUCKET_SIZE;
+	}
+
+	// Marks the start of a new search: entries from earlier searches are replaced first.
+	public void newSearch() {
+		age = (age + 1) & 63;
+	}
+
+	// Returns the entry stored for the given key, or 0 if there is none.
+	public long probe(long key) {
+		probes++;
+		long bucket = (key & bucketMask) * BUCKET_SIZE;
+		ByteBuffer chunk = chunks[(int) (bucket >>> CHUNK_SHIFT)];
+		int offset = (int) (bucket & ((1L << CHUNK_SHIFT) - 1));
+		for (int slot = 0; slot < SLOTS_PER_BUCKET; slot++, offset += SLOT_SIZE) {
+			long data = chunk.getLong(offset + 8);
+			if ((chunk.getLong(offset) ^ data) == key && 0 != data) {
+				hits++;
+				return data;
+			}
+		}
+		return 0;
+	}
+
+	// Stores an entry for the given key. The first hop of the best turn is given by its start and
+	// destination squares (as CheckersPosition square indices), or -1 if there is none. The entry
+	// replaces the key's existing entry, if any, or else the least valuable entry in the bucket:
+	// one from an earlier search, or failing that, the one searched least deeply.
+	public void store(long key, int score, int depth, int bound, int from, int to) {
+		long data = (score & 0xFFFFFFFFL) | ((long) Math.min(depth, 255) << 32) | ((long) bound << 40)
+				| ((long) age << 42) | ((from < 0) ? 0 : (1L << 58) | ((long) from << 48) | ((long) to << 53));
+		long bucket = (key & bucketMask) * BUCKET_SIZE;
+		ByteBuffer chunk = chunks[(int) (bucket >>> CHUNK_SHIFT)];
+		int first = (int) (bucket & ((1L << CHUNK_SHIFT) - 1));
+		int replace = first;
+		int replaceValue = Integer.MAX_VALUE;
+		for (int slot = 0, offset = first; slot < SLOTS_PER_BUCKET; slot++, offset += SLOT_SIZE) {
+			long existing = chunk.getLong(offset + 8);
+			if ((chunk.getLong(offset) ^ existing) == key || 0 == existing) {
+				replace = offset;
+				break;
+			}
+			int value = depth(existing) + ((age(existing) == age) ? 256 : 0);
+			if (value < replaceValue) {
+				replaceValue = value;
+				replace = offset;
+			}
+		}
+		chunk.putLong(replace + 8, data);
+		chunk.putLong(replace, key ^ data);
+	}
+
+	public long getProbes() {
+		return probes;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public void resetStatistics() {
+		probes = 0;
+		hits = 0;
+	}
+
+	// Empties the table.
+	public void clear() {
+		for (ByteBuffer chunk : chunks) {
+			for (int offset = 0; offset < chunk.capacity(); offset += 8) {
+				chunk.putLong(offset, 0);
+			}
+		}
+	}
+
+	// Returns how full the table is, in thousandths, estimated from the first buckets, counting
+	// only entries from the current search.
+	public int getPermilleFull() {
+		ByteBuffer chunk = chunks[0];
+		int sampled = (int) Math.min(1000, bucketMask + 1) * SLOTS_PER_BUCKET;
+		int used = 0;
+		for (int slot = 0; slot < sampled; slot++) {
+			long data = chunk.getLong(slot * SLOT_SIZE + 8);
+			if (0 != data && age(data) == age) {
+				used++;
+			}
+		}
+		return used * 1000 / sampled;
+	}
+
+	// Writes the table to a file.
+	public void save(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putLong(MAGIC).putLong(bucketMask + 1).putInt(age).putInt(canonical ? 1 : 0);
+			header.clear();
+			writeFully(channel, header);
+			for (ByteBuffer chunk : chunks) {
+				writeFully(channel, chunk.duplicate().clear());
+			}
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	// Loads a table written by save, by mapping the file. The mapping is private: the table can be
+	// used and changed as usual, but changes do not reach the file unless it is saved again.
+	public static TranspositionTable load(Path path) throws IOException {
+		// (Private mappings need the file to be opened for writing, although it is not written.)
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			while (header.hasRemaining()) {
+				if (channel.read(header) < 0) {
+					break;
+				}
+			}
+			header.flip();
+			if (header.remaining() < 24 || header.getLong() != MAGIC) {
+				throw new IOException("Not a transposition table file: " + path);
+			}
+			long buckets = header.getLong();
+			int age = header.getInt();
+			boolean canonical = 0 != header.getInt();
+			long bytes = buckets * BUCKET_SIZE;
+			if (Long.bitCount(buckets) != 1 || channel.size() != HEADER_SIZE + bytes) {
+				throw new IOException("Transposition table file has the wrong size: " + path);
+			}
+			int chunkCount = (int) ((bytes + (1L << CHUNK_SHIFT) - 1) >> CHUNK_SHIFT);
+			ByteBuffer[] chunks = new ByteBuffer[chunkCount];
+			for (int i = 0; i < chunkCount; i++) {
+				long start = (long) i << CHUNK_SHIFT;
+				chunks[i] = channel.map(FileChannel.MapMode.PRIVATE, HEADER_SIZE + start, Math.min(1L << CHUNK_SHIFT, bytes - start));
+			}
+			return new TranspositionTable(chunks, buckets, age, canonical);
+		}
+	}
+
+	// Accessors for the fields of an entry
+	public static int score(long data) {
+		return (int) data;
+	}
+
+	public static int depth(long data) {
+		return (int) (data >>> 32) & 0xFF;
+	}
+
+	public static int bound(long data) {
+		return (int) (data >>> 40) & 3;
+	}
+
+	static int age(long data) {
+		return (int) (data >>> 42) & 63;
+	}
+
+	public static boolean hasMove(long data) {
+		return 0 != (data & (1L << 58));
+	}
+
+	public static int moveFrom(long data) {
+		return (int) (data >>> 48) & 31;
+	}
+
+	public static int moveTo(long data) {
+		return (int) (data >>> 53) & 31;
+	}
+}
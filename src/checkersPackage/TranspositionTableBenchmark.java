@@ -0,0 +1,113 @@
+package checkersPackage;
+
+import java.lang.management.*;
+import java.nio.file.*;
+import java.util.*;
+
+// Measures the off-heap TranspositionTable:
+//  - the time per store and probe with random keys, and the heap allocated and garbage
+//    collections run meanwhile (both should be zero);
+//  - the nodes and time to search the sample positions (see CheckersPosition.SAMPLES) without a
+//    table, with an empty one, and with one saved after that search and loaded back from its file.
+//
+// Arguments (optional): table size in megabytes (default 256), search depth (default 10).
+public class TranspositionTableBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		long megabytes = (args.length > 0) ? Long.parseLong(args[0]) : 256;
+		int depth = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+		TranspositionTable table = new TranspositionTable(megabytes << 20);
+		System.out.println("Table of " + (table.getSizeBytes() >> 20) + " MB");
+
+		// Raw store and probe speed, with random keys
+		int operations = 20000000;
+		long[] keys = new long[1 << 16];
+		Random random = new Random(1);
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = random.nextLong();
+		}
+		for (int round = 0; round < 3; round++) {
+			long collections = collectionCount();
+			long allocated = allocatedBytes();
+			long start = System.nanoTime();
+			for (int i = 0; i < operations; i++) {
+				long key = keys[i & (keys.length - 1)] + i;
+				table.store(key, i & 1023, i & 31, TranspositionTable.EXACT, 1, 5);
+			}
+			long storeNanos = System.nanoTime() - start;
+			start = System.nanoTime();
+			long found = 0;
+			for (int i = 0; i < operations; i++) {
+				if (0 != table.probe(keys[i & (keys.length - 1)] + i)) {
+					found++;
+				}
+			}
+			long probeNanos = System.nanoTime() - start;
+			if (round == 2) {
+				System.out.printf("store %.1f ns, probe %.1f ns (%.0f%% found); allocated %d bytes, %d collections%n",
+						(double) storeNanos / operations, (double) probeNanos / operations, 100.0 * found / operations,
+						allocatedBytes() - allocated, collectionCount() - collections);
+			}
+		}
+		table.clear();
+
+		// Searches without a table, with an empty table, and with a reloaded warm table
+		for (String position : CheckersPosition.SAMPLES) {
+			new CheckersSearch(CheckersPosition.parse(position)).search(SearchLimits.depth(Math.min(depth, 5)), null);
+		}
+		SearchInfo[] baseline = searchAll(null, depth, "no table");
+		searchAll(table, depth, "empty table");
+		Path file = Files.createTempFile("checkers", ".tt");
+		try {
+			long start = System.nanoTime();
+			table.save(file);
+			long saveMillis = (System.nanoTime() - start) / 1000000;
+			start = System.nanoTime();
+			TranspositionTable loaded = TranspositionTable.load(file);
+			long loadMillis = (System.nanoTime() - start) / 1000000;
+			System.out.println("saved in " + saveMillis + " ms, loaded (mapped) in " + loadMillis + " ms");
+			SearchInfo[] warm = searchAll(loaded, depth, "reloaded table");
+			int sameMove = 0;
+			for (int i = 0; i < warm.length; i++) {
+				if (CheckersMove.toNotation(warm[i].getBestMove()).equals(CheckersMove.toNotation(baseline[i].getBestMove()))) {
+					sameMove++;
+				}
+			}
+			System.out.println(sameMove + "/" + warm.length + " best moves agree with the search without a table");
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	// Searches every position with the given table (or none), prints the totals and returns the results.
+	private static SearchInfo[] searchAll(TranspositionTable table, int depth, String label) {
+		SearchInfo[] results = new SearchInfo[CheckersPosition.SAMPLES.length];
+		long nodes = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < results.length; i++) {
+			CheckersSearch search = new CheckersSearch(CheckersPosition.parse(CheckersPosition.SAMPLES[i]));
+			search.setTranspositionTable(table);
+			results[i] = search.search(SearchLimits.depth(depth), null);
+			nodes += results[i].nodes;
+		}
+		System.out.printf("%-15s %8d ms %12d nodes%n", label, (System.nanoTime() - start) / 1000000, nodes);
+		return results;
+	}
+
+	private static long collectionCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += collector.getCollectionCount();
+		}
+		return count;
+	}
+
+	// Returns the bytes allocated on the heap so far by this thread, if the JVM can tell.
+	private static long allocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().threadId());
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,59 @@
+package checkersPackage;
+
+import jdk.incubator.vector.*;
+
+// A BatchEvaluator that scores several positions per instruction with the (incubating) Vector
+// API: each lane of a vector holds one position's bitboards, and each term of CheckersEvaluator's
+// evaluation function becomes a lane-wise mask, bit count and multiply-add. The scores are exactly
+// those of CheckersEvaluator, since all of the arithmetic is on ints.
+//
+// Compiling and running this class needs "--add-modules jdk.incubator.vector"; without it,
+// CheckersEvaluator.createBatchEvaluator falls back to the scalar evaluator.
+public class VectorEvaluator extends CheckersEvaluator {
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+	public VectorEvaluator(EvaluationWeights weights) {
+		super(weights);
+	}
+
+	@Override
+	public void evaluate(LeafBatch batch) {
+		int count = batch.size();
+		int vectorCount = SPECIES.loopBound(count);
+		for (int i = 0; i < vectorCount; i += SPECIES.length()) {
+			IntVector black = IntVector.fromArray(SPECIES, batch.black, i);
+			IntVector red = IntVector.fromArray(SPECIES, batch.red, i);
+			IntVector kings = IntVector.fromArray(SPECIES, batch.kings, i);
+			IntVector notKings = kings.not();
+			IntVector redMen = red.and(notKings);
+			IntVector blackMen = black.and(notKings);
+			IntVector redKings = red.and(kings);
+			IntVector blackKings = black.and(kings);
+
+			IntVector score = difference(redMen, blackMen, -1).mul(weights.man)
+					.add(difference(redKings, blackKings, -1).mul(weights.king));
+			for (int y = 0; y < 8; y++) {
+				score = score.add(bitCount(redMen.and(ROW[y])).mul(weights.manRow[y]))
+						.sub(bitCount(blackMen.and(ROW[y])).mul(weights.manRow[7 - y]));
+			}
+			score = score.add(difference(redKings, blackKings, CENTER).mul(weights.kingCenter))
+					.add(difference(redMen, blackMen, EDGE).mul(weights.manEdge));
+			score.mul(IntVector.fromArray(SPECIES, batch.signs, i)).intoArray(batch.scores, i);
+		}
+
+		// Score any remaining positions one at a time
+		for (int i = vectorCount; i < count; i++) {
+			batch.scores[i] = evaluate(batch.black[i], batch.red[i], batch.kings[i],
+					(batch.signs[i] > 0) ? Player.RED : Player.BLACK);
+		}
+	}
+
+	// Returns, lane by lane, the number of Red's pieces minus the number of Black's pieces on "mask".
+	private static IntVector difference(IntVector redPieces, IntVector blackPieces, int mask) {
+		return bitCount(redPieces.and(mask)).sub(bitCount(blackPieces.and(mask)));
+	}
+
+	private static IntVector bitCount(IntVector vector) {
+		return vector.lanewise(VectorOperators.BIT_COUNT);
+	}
+}
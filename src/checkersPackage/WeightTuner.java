@@ -0,0 +1,393 @@
+package checkersPackage;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// An offline tuner that fits CheckersEvaluator's weights to game results ("Texel tuning"). Each
+// position in the corpus is labeled with the result of the game it came from (from Red's point of
+// view: 1 for a win, 0.5 for a draw, 0 for a loss), and the tuner minimizes the logistic loss of
+// predicting that result from the evaluation as sigmoid(K * score) by gradient descent (with Adam
+// step sizes). The evaluation is linear in its weights, so the gradient for each position is just
+// (prediction - result) * K times the position's feature counts.
+//
+// The corpus is one or more binary files of fixed-size records, which are memory-mapped rather
+// than read into the heap; each gradient is summed by fork-join tasks that split the records
+// between worker threads, decoding the features straight from the mapped files.
+//
+// Usage:
+//   WeightTuner generate <corpus file> <games> [seed]
+//       plays games between two shallow searchers (with some random moves, for variety) and
+//       writes their quiet positions, labeled with the results
+//   WeightTuner tune <weights file> <iterations> <corpus file>...
+//       tunes the weights (starting from the current default weights) and writes them to the
+//       weights file, which the engine loads at startup (see EvaluationWeights)
+//   WeightTuner scale <corpus file>...
+//       reports the time per gradient for fractions of the corpus and numbers of threads
+public class WeightTuner {
+	private static final int RECORD_SIZE = 16; // black, red, kings, then turn (bit 0) and result (bits 8-15)
+	private static final int FEATURES = 12; // man, king, the eight man rows, king center, man edge
+	private static final int SPLIT_THRESHOLD = 16384; // records summed by one task without splitting
+	private static final int RECORDS_PER_SEGMENT = (Integer.MAX_VALUE / RECORD_SIZE) & ~1023; // records per mapping
+	private static final double LEARNING_RATE = 0.5;
+	private static final int OPENING_TURNS = 8; // turns played before positions are recorded
+	private static final int MAX_GAME_TURNS = 200; // games this long are scored as draws
+	private static final double RANDOM_MOVE_RATE = 0.1;
+
+	private final List<ByteBuffer> segments = new ArrayList<ByteBuffer>();
+	private final long recordCount;
+
+	// Maps the given corpus files.
+	public WeightTuner(List<Path> files) throws IOException {
+		long count = 0;
+		for (Path file : files) {
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				long records = channel.size() / RECORD_SIZE;
+				for (long start = 0; start < records; start += RECORDS_PER_SEGMENT) {
+					long length = Math.min(RECORDS_PER_SEGMENT, records - start) * RECORD_SIZE;
+					segments.add(channel.map(FileChannel.MapMode.READ_ONLY, start * RECORD_SIZE, length));
+				}
+				count += records;
+			}
+		}
+		this.recordCount = count;
+	}
+
+	public long getRecordCount() {
+		return recordCount;
+	}
+
+	// Returns the weights as a vector of FEATURES values (in the order of features()).
+	static double[] toVector(EvaluationWeights weights) {
+		double[] vector = new double[FEATURES];
+		vector[0] = weights.man;
+		vector[1] = weights.king;
+		for (int row = 0; row < 8; row++) {
+			vector[2 + row] = weights.manRow[row];
+		}
+		vector[10] = weights.kingCenter;
+		vector[11] = weights.manEdge;
+		return vector;
+	}
+
+	// Returns the weights for a vector, rounded to whole hundredths of a man.
+	static EvaluationWeights fromVector(double[] vector) {
+		EvaluationWeights weights = new EvaluationWeights();
+		weights.man = (int) Math.round(vector[0]);
+		weights.king = (int) Math.round(vector[1]);
+		for (int row = 0; row < 8; row++) {
+			weights.manRow[row] = (int) Math.round(vector[2 + row]);
+		}
+		weights.kingCenter = (int) Math.round(vector[10]);
+		weights.manEdge = (int) Math.round(vector[11]);
+		return weights;
+	}
+
+	// Fills "features" with the position's feature counts, from Red's point of view, so that
+	// CheckersEvaluator's score for Red is the dot product of the features and the weight vector.
+	static void features(int black, int red, int kings, int[] features) {
+		int redMen = red & ~kings;
+		int blackMen = black & ~kings;
+		int redKings = red & kings;
+		int blackKings = black & kings;
+		features[0] = Integer.bitCount(redMen) - Integer.bitCount(blackMen);
+		features[1] = Integer.bitCount(redKings) - Integer.bitCount(blackKings);
+		for (int row = 0; row < 8; row++) {
+			features[2 + row] = Integer.bitCount(redMen & CheckersEvaluator.ROW[row])
+					- Integer.bitCount(blackMen & CheckersEvaluator.ROW[7 - row]);
+		}
+		features[10] = Integer.bitCount(redKings & CheckersEvaluator.CENTER) - Integer.bitCount(blackKings & CheckersEvaluator.CENTER);
+		features[11] = Integer.bitCount(redMen & CheckersEvaluator.EDGE) - Integer.bitCount(blackMen & CheckersEvaluator.EDGE);
+	}
+
+	// Returns the mean loss and its gradient with respect to the weights (in elements 1 to
+	// FEATURES) over the first "records" records of the corpus, using the given pool.
+	public double[] gradient(double[] weights, double k, long records, ForkJoinPool pool) {
+		List<GradientTask> tasks = new ArrayList<GradientTask>();
+		long remaining = records;
+		for (ByteBuffer segment : segments) {
+			int count = (int) Math.min(remaining, segment.capacity() / RECORD_SIZE);
+			if (count > 0) {
+				tasks.add(new GradientTask(segment, 0, count, weights, k));
+			}
+			remaining -= count;
+		}
+		double[] total = new double[1 + FEATURES];
+		for (GradientTask task : tasks) {
+			pool.execute(task);
+		}
+		for (GradientTask task : tasks) {
+			double[] sums = task.join();
+			for (int i = 0; i < total.length; i++) {
+				total[i] += sums[i];
+			}
+		}
+		for (int i = 0; i < total.length; i++) {
+			total[i] /= Math.max(1, records);
+		}
+		return total;
+	}
+
+	// Sums the loss and its gradient over a range of records of one mapped segment, splitting the
+	// range in two while it is large.
+	@SuppressWarnings("serial")
+	private static class GradientTask extends RecursiveTask<double[]> {
+		private final ByteBuffer segment;
+		private final int start;
+		private final int end;
+		private final double[] weights;
+		private final double k;
+
+		GradientTask(ByteBuffer segment, int start, int end, double[] weights, double k) {
+			this.segment = segment;
+			this.start = start;
+			this.end = end;
+			this.weights = weights;
+			this.k = k;
+		}
+
+		@Override
+		protected double[] compute() {
+			if (end - start > SPLIT_THRESHOLD) {
+				int middle = (start + end) >>> 1;
+				GradientTask second = new GradientTask(segment, middle, end, weights, k);
+				second.fork();
+				double[] sums = new GradientTask(segment, start, middle, weights, k).compute();
+				double[] secondSums = second.join();
+				for (int i = 0; i < sums.length; i++) {
+					sums[i] += secondSums[i];
+				}
+				return sums;
+			}
+			double[] sums = new double[1 + FEATURES];
+			int[] features = new int[FEATURES];
+			for (int record = start; record < end; record++) {
+				int offset = record * RECORD_SIZE;
+				features(segment.getInt(offset), segment.getInt(offset + 4), segment.getInt(offset + 8), features);
+				double result = ((segment.getInt(offset + 12) >> 8) & 0xFF) / 2.0;
+				double score = 0;
+				for (int i = 0; i < FEATURES; i++) {
+					score += weights[i] * features[i];
+				}
+				double prediction = 1 / (1 + Math.exp(-k * score));
+				sums[0] -= result * Math.log(Math.max(prediction, 1e-12)) + (1 - result) * Math.log(Math.max(1 - prediction, 1e-12));
+				double error = (prediction - result) * k;
+				for (int i = 0; i < FEATURES; i++) {
+					sums[1 + i] += error * features[i];
+				}
+			}
+			return sums;
+		}
+	}
+
+	// Returns the scaling constant K that minimizes the loss for the given weights (a golden
+	// section search; the loss is convex in K).
+	public double fitScale(double[] weights, ForkJoinPool pool) {
+		double low = 0.0001;
+		double high = 0.1;
+		double ratio = (Math.sqrt(5) - 1) / 2;
+		for (int i = 0; i < 30; i++) {
+			double a = high - ratio * (high - low);
+			double b = low + ratio * (high - low);
+			if (gradient(weights, a, recordCount, pool)[0] < gradient(weights, b, recordCount, pool)[0]) {
+				high = b;
+			} else {
+				low = a;
+			}
+		}
+		return (low + high) / 2;
+	}
+
+	// Tunes the weights for the given number of iterations, printing the loss as it goes. The value
+	// of a man stays fixed, since it sets the scale of the scores (hundredths of a man).
+	public EvaluationWeights tune(EvaluationWeights initial, int iterations, ForkJoinPool pool) {
+		double[] weights = toVector(initial);
+		double k = fitScale(weights, pool);
+		System.out.printf("K = %.6f%n", k);
+		double[] moment = new double[FEATURES];
+		double[] variance = new double[FEATURES];
+		double beta1 = 0.9;
+		double beta2 = 0.999;
+		for (int iteration = 1; iteration <= iterations; iteration++) {
+			double[] gradient = gradient(weights, k, recordCount, pool);
+			for (int i = 1; i < FEATURES; i++) {
+				double g = gradient[1 + i];
+				moment[i] = beta1 * moment[i] + (1 - beta1) * g;
+				variance[i] = beta2 * variance[i] + (1 - beta2) * g * g;
+				double correctedMoment = moment[i] / (1 - Math.pow(beta1, iteration));
+				double correctedVariance = variance[i] / (1 - Math.pow(beta2, iteration));
+				weights[i] -= LEARNING_RATE * correctedMoment / (Math.sqrt(correctedVariance) + 1e-12);
+			}
+			if (iteration == 1 || iteration % 50 == 0 || iteration == iterations) {
+				System.out.printf("iteration %d: loss %.6f%n", iteration, gradient[0]);
+			}
+		}
+		return fromVector(weights);
+	}
+
+	// Plays the given number of games (in parallel) and writes their labeled positions to a file.
+	// Returns the number of positions written.
+	public static long generate(Path file, int games, long seed) throws IOException, InterruptedException, ExecutionException {
+		ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		List<Future<ByteBuffer>> results = new ArrayList<Future<ByteBuffer>>();
+		for (int game = 0; game < games; game++) {
+			final long gameSeed = seed * 1000003 + game;
+			results.add(executor.submit(new Callable<ByteBuffer>() {
+				public ByteBuffer call() {
+					return playGame(new Random(gameSeed));
+				}
+			}));
+		}
+		long positions = 0;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			for (Future<ByteBuffer> result : results) {
+				ByteBuffer records = result.get();
+				positions += records.remaining() / RECORD_SIZE;
+				while (records.hasRemaining()) {
+					channel.write(records);
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+		return positions;
+	}
+
+	// Plays one game, and returns the records of its quiet positions (those with no capture to
+	// make), labeled with the result.
+	private static ByteBuffer playGame(Random random) {
+		CheckersEvaluator evaluator = new CheckersEvaluator(EvaluationWeights.getDefault());
+		CheckersBitboard board = new CheckersBitboard(CheckersPosition.INITIAL);
+		long[] moves = new long[CheckersBitboard.MAX_MOVES];
+		ByteBuffer records = ByteBuffer.allocate(MAX_GAME_TURNS * RECORD_SIZE);
+		int result = 1; // a draw unless someone runs out of moves
+		for (int turn = 0; turn < MAX_GAME_TURNS; turn++) {
+			int count = board.generateMoves(moves);
+			if (0 == count) {
+				result = (Player.RED == board.turn) ? 0 : 2;
+				break;
+			}
+			if (turn >= OPENING_TURNS && !CheckersBitboard.isCapture(moves[0])) {
+				records.putInt(board.black).putInt(board.red).putInt(board.kings).putInt((Player.RED == board.turn) ? 1 : 0);
+			}
+			long move = moves[random.nextInt(count)];
+			if (random.nextDouble() >= RANDOM_MOVE_RATE) {
+				move = bestMove(board, moves, count, evaluator);
+			}
+			board.play(move);
+		}
+		records.flip();
+		for (int offset = 12; offset < records.limit(); offset += RECORD_SIZE) {
+			records.putInt(offset, records.getInt(offset) | (result << 8));
+		}
+		return records;
+	}
+
+	// Returns the move that leaves the opponent's best reply with the worst evaluation (a two-turn
+	// search, enough to see simple exchanges).
+	static long bestMove(CheckersBitboard board, long[] moves, int count, CheckersEvaluator evaluator) {
+		int black = board.black;
+		int red = board.red;
+		int kings = board.kings;
+		Player turn = board.turn;
+		long[] replies = new long[CheckersBitboard.MAX_MOVES];
+		long best = moves[0];
+		int bestScore = Integer.MIN_VALUE;
+		for (int i = 0; i < count; i++) {
+			board.play(moves[i]);
+			int afterMove = board.black;
+			int afterMoveRed = board.red;
+			int afterMoveKings = board.kings;
+			Player opponent = board.turn;
+			int replyCount = board.generateMoves(replies);
+			int score = (0 == replyCount) ? CheckersSearch.WIN_SCORE : Integer.MAX_VALUE;
+			for (int j = 0; j < replyCount; j++) {
+				board.play(replies[j]);
+				score = Math.min(score, evaluator.evaluate(board.black, board.red, board.kings, turn));
+				board.black = afterMove;
+				board.red = afterMoveRed;
+				board.kings = afterMoveKings;
+				board.turn = opponent;
+			}
+			if (score > bestScore) {
+				bestScore = score;
+				best = moves[i];
+			}
+			board.black = black;
+			board.red = red;
+			board.kings = kings;
+			board.turn = turn;
+		}
+		return best;
+	}
+
+	// Prints the time per gradient for fractions of the corpus and numbers of threads.
+	public void reportScaling() {
+		double[] weights = toVector(EvaluationWeights.getDefault());
+		int cores = Runtime.getRuntime().availableProcessors();
+		System.out.println("positions    threads   ms/gradient   speedup   positions/s");
+		for (int shift = 3; shift >= 0; shift--) {
+			long records = Math.max(1, recordCount >> shift);
+			double singleThreaded = 0;
+			for (int threads = 1; ; threads = Math.min(cores, threads * 2)) {
+				ForkJoinPool pool = new ForkJoinPool(threads);
+				for (int i = 0; i < 3; i++) {
+					gradient(weights, 0.01, records, pool); // warm-up
+				}
+				int passes = 5;
+				long start = System.nanoTime();
+				for (int i = 0; i < passes; i++) {
+					gradient(weights, 0.01, records, pool);
+				}
+				double millis = (System.nanoTime() - start) / 1e6 / passes;
+				pool.shutdown();
+				if (threads == 1) {
+					singleThreaded = millis;
+				}
+				System.out.printf("%9d   %8d   %11.1f   %7.2f   %11.0f%n", records, threads, millis,
+						singleThreaded / millis, records / (millis / 1000));
+				if (threads == cores) {
+					break;
+				}
+			}
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length >= 3 && args[0].equals("generate")) {
+			long seed = (args.length > 3) ? Long.parseLong(args[3]) : 1;
+			long start = System.nanoTime();
+			long positions = generate(Paths.get(args[1]), Integer.parseInt(args[2]), seed);
+			System.out.printf("Wrote %d positions in %.1f s%n", positions, (System.nanoTime() - start) / 1e9);
+		} else if (args.length >= 4 && args[0].equals("tune")) {
+			WeightTuner tuner = new WeightTuner(corpusFiles(args, 3));
+			ForkJoinPool pool = new ForkJoinPool();
+			long start = System.nanoTime();
+			EvaluationWeights weights = tuner.tune(EvaluationWeights.getDefault(), Integer.parseInt(args[2]), pool);
+			double seconds = (System.nanoTime() - start) / 1e9;
+			weights.save(Paths.get(args[1]), "Tuned on " + tuner.getRecordCount() + " positions");
+			System.out.print(weights);
+			System.out.printf("Tuned on %d positions with %d threads in %.1f s; wrote %s%n", tuner.getRecordCount(),
+					pool.getParallelism(), seconds, args[1]);
+			pool.shutdown();
+		} else if (args.length >= 2 && args[0].equals("scale")) {
+			new WeightTuner(corpusFiles(args, 1)).reportScaling();
+		} else {
+			System.err.println("Usage: WeightTuner generate <corpus file> <games> [seed]");
+			System.err.println("       WeightTuner tune <weights file> <iterations> <corpus file>...");
+			System.err.println("       WeightTuner scale <corpus file>...");
+		}
+	}
+
+	private static List<Path> corpusFiles(String[] args, int first) {
+		List<Path> files = new ArrayList<Path>();
+		for (int i = first; i < args.length; i++) {
+			files.add(Paths.get(args[i]));
+		}
+		return files;
+	}
+}